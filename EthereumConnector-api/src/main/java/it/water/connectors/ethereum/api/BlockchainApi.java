@@ -1,12 +1,31 @@
 package it.water.connectors.ethereum.api;
 
 import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import it.water.connectors.ethereum.model.EthRpcMetrics;
 import it.water.core.api.service.BaseEntityApi;
 
+import java.util.List;
+
 /**
  * @Generated by Water Generator
  * This interface defines the externally exposed methods for the entity and allows interaction with it through a permission system.
  */
 public interface BlockchainApi extends BaseEntityApi<EthBlockchain> {
+    /**
+     * Returns the health of the nodes of the given blockchain as seen by the client side balancer.
+     *
+     * @param blockchainId blockchain id
+     * @return endpoints health, the blockchain host first
+     */
+    List<EthEndpointHealth> getEndpointsHealth(long blockchainId);
+
+    /**
+     * Returns the metrics of the JSON-RPC requests sent to the nodes of the given blockchain.
+     *
+     * @param blockchainId blockchain id
+     * @return metrics by method and receipt wait time
+     */
+    EthRpcMetrics getMetrics(long blockchainId);
 
 }
\ No newline at end of file
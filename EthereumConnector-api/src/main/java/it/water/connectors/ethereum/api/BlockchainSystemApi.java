@@ -1,8 +1,12 @@
 package it.water.connectors.ethereum.api;
 
 import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import it.water.connectors.ethereum.model.EthRpcMetrics;
 import it.water.core.api.service.BaseEntitySystemApi;
 
+import java.util.List;
+
 /**
  * @Generated by Water Generator
  * This interface defines the internally exposed methods for the entity and allows interaction with it bypassing permission system.
@@ -10,5 +14,16 @@ import it.water.core.api.service.BaseEntitySystemApi;
  *
  */
 public interface BlockchainSystemApi extends BaseEntitySystemApi<EthBlockchain> {
+    /**
+     * @param blockchain blockchain
+     * @return health of the blockchain nodes, empty when no client implementation is installed
+     */
+    List<EthEndpointHealth> getEndpointsHealth(EthBlockchain blockchain);
+
+    /**
+     * @param blockchain blockchain
+     * @return JSON-RPC metrics of the blockchain, empty when no metrics registry is installed
+     */
+    EthRpcMetrics getMetrics(EthBlockchain blockchain);
 
 }
\ No newline at end of file
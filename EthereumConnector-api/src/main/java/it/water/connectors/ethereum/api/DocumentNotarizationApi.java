@@ -0,0 +1,34 @@
+package it.water.connectors.ethereum.api;
+
+import it.water.connectors.ethereum.model.EthDocumentNotarization;
+import it.water.core.api.service.BaseEntityApi;
+
+/**
+ * This interface defines the externally exposed methods for the entity and allows interaction with it through a permission system.
+ */
+public interface DocumentNotarizationApi extends BaseEntityApi<EthDocumentNotarization> {
+    /**
+     * Saves the notarization as pending and queues its document hash for the next Merkle batch of the smart contract.
+     * Root, proof and transaction are set once the batch root is mined.
+     *
+     * @param notarization document hash, signer address and smart contract
+     * @return pending notarization
+     */
+    EthDocumentNotarization notarize(EthDocumentNotarization notarization);
+
+    /**
+     * @param smartContractId merkle registry contract id
+     * @param documentHash    document hash
+     * @return notarization of the document, NoResultException is thrown if the document has not been notarized
+     */
+    EthDocumentNotarization findByDocumentHash(long smartContractId, String documentHash);
+
+    /**
+     * Verifies the stored inclusion proof offline and checks its root on chain.
+     *
+     * @param smartContractId merkle registry contract id
+     * @param documentHash    document hash
+     * @return true if the document is notarized
+     */
+    boolean verify(long smartContractId, String documentHash);
+}
@@ -0,0 +1,17 @@
+package it.water.connectors.ethereum.api;
+
+import it.water.connectors.ethereum.model.EthDocumentNotarization;
+import it.water.core.api.repository.BaseRepository;
+
+/**
+ * Interface component for EthDocumentNotarization Repository.
+ * It is used for CRUD operations, and to interact with the persistence layer.
+ */
+public interface DocumentNotarizationRepository extends BaseRepository<EthDocumentNotarization> {
+    /**
+     * @param smartContractId merkle registry contract id
+     * @param documentHash    document hash
+     * @return notarization of the document, null if the document has not been notarized
+     */
+    EthDocumentNotarization findByDocumentHash(long smartContractId, String documentHash);
+}
@@ -0,0 +1,30 @@
+package it.water.connectors.ethereum.api;
+
+import it.water.connectors.ethereum.model.EthDocumentNotarization;
+import it.water.core.api.service.BaseEntitySystemApi;
+
+/**
+ * This interface defines the internally exposed methods for the entity and allows interaction with it bypassing permission system.
+ */
+public interface DocumentNotarizationSystemApi extends BaseEntitySystemApi<EthDocumentNotarization> {
+    /**
+     * Queues an already saved notarization for the next Merkle batch of its smart contract.
+     * The notarization is updated with root, proof and transaction once the batch root is mined, or marked as failed.
+     *
+     * @param notarization saved notarization
+     */
+    void enqueue(EthDocumentNotarization notarization);
+
+    /**
+     * @param smartContractId merkle registry contract id
+     * @param documentHash    document hash
+     * @return notarization of the document, null if the document has not been notarized
+     */
+    EthDocumentNotarization findByDocumentHash(long smartContractId, String documentHash);
+
+    /**
+     * @param notarization notarization
+     * @return true if the stored proof leads to its root and the root is notarized on chain
+     */
+    boolean verify(EthDocumentNotarization notarization);
+}
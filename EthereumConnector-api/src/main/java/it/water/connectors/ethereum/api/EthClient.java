@@ -17,26 +17,45 @@
 
 package it.water.connectors.ethereum.api;
 
+import it.water.connectors.ethereum.model.EthSmartContract;
+
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @Author Aristide Cittadino.
  * This interface maps the concept of ethereum client.
  * It tries to generalize and standardize some ethereum blockchain methods in order to be independent from client technology.
  * So far there's only one type of client based on web3j.
+ * Clients hold no credentials, so the same instance can be shared between threads:
+ * transactions are sent through signers bound to a single account.
+ * The deprecated setCredentials methods are kept for compatibility only, a client they have been called on must not be shared.
  */
 public interface EthClient {
+    /**
+     * Transfers ether signing with the account registered for the given address in the EthSignerRegistry.
+     *
+     * @param fromAddress source address, its signer must be registered
+     * @param destination Destination address
+     * @param amount      ETHER amount
+     * @return transaction receipt
+     */
+    EthTransactionReceipt transferEther(String fromAddress, String destination, BigDecimal amount) throws InterruptedException;
+
     /**
      * Method for transfering ether between accounts.
      * The source account is the one chosen by setting client credentials
      *
      * @param destination Destination address
      * @param amount      ETHER amount
-     * @return
-     * @throws Exception
+     * @return transaction receipt
+     * @deprecated use withCredentials or withPrivateKey and transfer through the returned signer
      */
+    @Deprecated
     EthTransactionReceipt transferEther(String destination, BigDecimal amount) throws InterruptedException;
 
     /**
@@ -53,16 +72,210 @@ public interface EthClient {
     BigInteger getBalanceOf(String address);
 
     /**
-     * Set client credentials. It determine the account used for transactions.
+     * Retrieves the balances of many accounts, grouping the requests in JSON-RPC batches.
+     *
+     * @param addresses account addresses
+     * @param blockTag  block number (decimal or hex) or one of "latest", "pending", "earliest". Null means "latest"
+     * @return balances by address, in the same order of the given addresses
+     */
+    Map<String, BigInteger> getBalancesOf(Collection<String> addresses, String blockTag);
+
+    /**
+     * Retrieves the receipt of a mined transaction.
+     *
+     * @param transactionHash transaction hash
+     * @return transaction receipt, null if the transaction is unknown or not mined yet
+     */
+    EthTransactionReceipt getTransactionReceipt(String transactionHash);
+
+    /**
+     * Asynchronous version of transferEther signing with the account registered for the given address.
+     *
+     * @param fromAddress source address, its signer must be registered
+     * @param destination Destination address
+     * @param amount      ETHER amount
+     * @return future completed with the transaction receipt
+     */
+    CompletableFuture<EthTransactionReceipt> transferEtherAsync(String fromAddress, String destination, BigDecimal amount);
+
+    /**
+     * Asynchronous version of transferEther from the account chosen by setting client credentials.
+     *
+     * @param destination Destination address
+     * @param amount      ETHER amount
+     * @return future completed with the transaction receipt
+     * @deprecated use withCredentials or withPrivateKey and transfer through the returned signer
+     */
+    @Deprecated
+    CompletableFuture<EthTransactionReceipt> transferEtherAsync(String destination, BigDecimal amount);
+
+    /**
+     * Asynchronous version of listAccounts.
      *
-     * @param username username
-     * @param password password
+     * @return future completed with the account list
      */
-    void setCredentials(String username, String password);
+    CompletableFuture<List<String>> listAccountsAsync();
 
     /**
-     * @param privateKey
+     * Asynchronous version of getBalanceOf.
+     *
+     * @param address account address
+     * @return future completed with the balance until the last block
+     */
+    CompletableFuture<BigInteger> getBalanceOfAsync(String address);
+
+    /**
+     * Asynchronous version of getBalancesOf.
+     *
+     * @param addresses account addresses
+     * @param blockTag  block number (decimal or hex) or one of "latest", "pending", "earliest". Null means "latest"
+     * @return future completed with the balances by address
+     */
+    CompletableFuture<Map<String, BigInteger>> getBalancesOfAsync(Collection<String> addresses, String blockTag);
+
+    /**
+     * Asynchronous version of getTransactionReceipt.
+     *
+     * @param transactionHash transaction hash
+     * @return future completed with the transaction receipt, null if the transaction is unknown or not mined yet
+     */
+    CompletableFuture<EthTransactionReceipt> getTransactionReceiptAsync(String transactionHash);
+
+    /**
+     * Waits for a transaction to be mined, its receipt is checked on every new block.
+     *
+     * @param transactionHash transaction hash
+     * @param timeoutMillis   max time to wait for the receipt in milliseconds
+     * @return future completed with the transaction receipt, failed if the transaction is not mined within the timeout
+     */
+    CompletableFuture<EthTransactionReceipt> waitForTransactionReceiptAsync(String transactionHash, long timeoutMillis);
+
+    /**
+     * Returns a view of this client sharing its connection, whose reads fail when they are not answered within the given time.
+     * Transactions are not bound to the deadline, since they may still be mined after it.
+     *
+     * @param deadlineMillis max time of every read in milliseconds, 0 means no deadline
+     * @return client view
+     */
+    EthClient withDeadline(long deadlineMillis);
+
+    /**
+     * Returns a signer for the account of the given keystore.
+     * The account is registered in the EthSignerRegistry too, so the keystore is decrypted only once.
+     *
+     * @param password     keystore password
+     * @param keystorePath keystore file path
+     * @return signer bound to the keystore account
      */
+    EthSigner withCredentials(String password, String keystorePath);
+
+    /**
+     * Set client credentials. It determine the account used by transferEther(destination, amount).
+     *
+     * @param password     keystore password
+     * @param keystorePath keystore file path
+     * @deprecated use withCredentials, clients with credentials cannot be shared between threads
+     */
+    @Deprecated
+    void setCredentials(String password, String keystorePath);
+
+    /**
+     * Set client credentials from a private key.
+     *
+     * @param privateKey private key
+     * @deprecated use withPrivateKey, clients with credentials cannot be shared between threads
+     */
+    @Deprecated
     void setCredentials(String privateKey);
 
+    /**
+     * Returns a signer for the account of the given private key, registering it in the EthSignerRegistry.
+     *
+     * @param privateKey private key
+     * @return signer bound to the private key account
+     */
+    EthSigner withPrivateKey(String privateKey);
+
+    /**
+     * Returns a signer for an account already registered in the EthSignerRegistry.
+     *
+     * @param address account address
+     * @return signer bound to the account
+     */
+    EthSigner withSigner(String address);
+
+    /**
+     * Returns a pool spreading transfers over the given accounts, all of them must be registered in the EthSignerRegistry.
+     *
+     * @param addresses sender addresses
+     * @return sender pool
+     */
+    EthSenderPool withSenders(Collection<String> addresses);
+
+    /**
+     * Returns a runtime view of a registered smart contract, driven by its ABI.
+     *
+     * @param smartContract smart contract, its ABI must be set
+     * @return contract
+     */
+    EthContract contract(EthSmartContract smartContract);
+
+    /**
+     * Returns a runtime view of the contract deployed at the given address.
+     * Compiled ABIs are cached, so views can be created on every use.
+     *
+     * @param address contract address
+     * @param abi     contract ABI JSON
+     * @return contract
+     */
+    EthContract contract(String address, String abi);
+
+    /**
+     * Returns the aggregator of read only calls shared by the clients of the same blockchain.
+     *
+     * @return multicall aggregator
+     */
+    EthMulticall multicall();
+
+    /**
+     * Returns the batching notarizer of the given Merkle registry contract, shared by the clients of the same blockchain.
+     * Roots are notarized by the given account, which must be registered in the EthSignerRegistry.
+     *
+     * @param smartContract merkle registry contract, when its ABI is not set the MerkleDataRegistry one is used
+     * @param signerAddress account sending the root transactions
+     * @return notarizer
+     */
+    EthMerkleNotarizer merkleNotarizer(EthSmartContract smartContract, String signerAddress);
+
+    /**
+     * Verifies offline that a document is included in the tree with the given root.
+     *
+     * @param documentHash document hash
+     * @param proof        sibling hashes from the leaf up to the root
+     * @param root         merkle root
+     * @return true if the proof leads to the root
+     */
+    boolean verifyMerkleProof(String documentHash, List<String> proof, String root);
+
+    /**
+     * Checks on chain that the given root has been notarized by the merkle registry contract.
+     *
+     * @param smartContract merkle registry contract
+     * @param root          merkle root
+     * @return true if the root is notarized
+     */
+    boolean isMerkleRootNotarized(EthSmartContract smartContract, String root);
+
+    /**
+     * Creates a live indexer of the events of the given contract, it must be started explicitly.
+     * Logs are decoded through the contract ABI, logs of events missing from the ABI are skipped.
+     * Without a checkpoint the indexer starts from the block of the contract deployment transaction,
+     * or from the chain head if the transaction is not set or not mined yet.
+     *
+     * @param smartContract smart contract, its ABI must be set
+     * @param store         local store of events and checkpoint
+     * @return indexer
+     */
+    EthEventIndexer eventIndexer(EthSmartContract smartContract, EthEventIndexStore store);
+
 }
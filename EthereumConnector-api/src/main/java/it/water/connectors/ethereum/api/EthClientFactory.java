@@ -27,6 +27,7 @@ public interface EthClientFactory {
     /**
      * Creates a client factory based on a specific block chain.
      * Since this module can support multiple ethereum blockchains
+     * The returned builder is a new immutable instance, this factory is left untouched.
      * @param ethBlockChain
      * @return
      */
@@ -34,6 +35,7 @@ public interface EthClientFactory {
 
     /**
      * Creates an ethereum client blockchain
+     * Only builders returned by withEthereumBlockChain are bound to a blockchain, others fail with IllegalStateException.
      * @return
      */
     EthClient build();
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+
+import java.util.List;
+
+/**
+ * @Author Aristide Cittadino
+ * Registry of pooled ethereum connections.
+ * Connections are shared between all the clients referring to the same blockchain (id and endpoints),
+ * so the underlying transport is created once and released when evicted.
+ */
+public interface EthClientRegistry {
+    /**
+     * Returns a client backed by the pooled connection of the given blockchain.
+     * The connection is created on first use.
+     *
+     * @param ethBlockchain blockchain
+     * @return client bound to the shared connection
+     */
+    EthClient getClient(EthBlockchain ethBlockchain);
+
+    /**
+     * Returns the health of the nodes serving the given blockchain, its host first and then its additional endpoints.
+     * The connection is created on first use.
+     *
+     * @param ethBlockchain blockchain
+     * @return endpoints health
+     */
+    List<EthEndpointHealth> getEndpointsHealth(EthBlockchain ethBlockchain);
+
+    /**
+     * Closes and removes every pooled connection related to the given blockchain.
+     *
+     * @param ethBlockchain blockchain
+     */
+    void evict(EthBlockchain ethBlockchain);
+
+    /**
+     * Closes and removes every pooled connection related to the blockchain with the given id.
+     *
+     * @param ethBlockchainId blockchain id
+     */
+    void evict(long ethBlockchainId);
+
+    /**
+     * Drops the state cached for the given contract by the connections of the given blockchain, such as gas estimates and merkle notarizers.
+     *
+     * @param ethBlockchainId blockchain id
+     * @param contractAddress contract address
+     */
+    void evictContract(long ethBlockchainId, String contractAddress);
+
+    /**
+     * Closes and removes all pooled connections.
+     */
+    void evictAll();
+
+    /**
+     * @return number of pooled connections
+     */
+    int size();
+}
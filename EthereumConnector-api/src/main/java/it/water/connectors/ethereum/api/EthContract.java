@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @Author Aristide Cittadino
+ * Runtime view of a deployed contract driven by its ABI, no generated wrapper is needed.
+ * Functions are identified by name, overloaded functions by name and number of arguments or by their full signature
+ * (i.e. "transfer(address,uint256)").
+ * Arguments can be given as plain java types: String for addresses and strings, Number or String for integers,
+ * Boolean for bool, byte[] or hex String for bytes and List or arrays for ABI arrays.
+ */
+public interface EthContract {
+    /**
+     * @return contract address
+     */
+    String getAddress();
+
+    /**
+     * Invokes a function through eth_call, without sending a transaction.
+     *
+     * @param function function name or signature
+     * @param args     function arguments
+     * @return decoded return values
+     */
+    List<Object> call(String function, Object... args);
+
+    /**
+     * Asynchronous version of call.
+     *
+     * @param function function name or signature
+     * @param args     function arguments
+     * @return future completed with the decoded return values
+     */
+    CompletableFuture<List<Object>> callAsync(String function, Object... args);
+
+    /**
+     * Sends a transaction invoking the given function, signing with the account registered for the given address.
+     * A reverted transaction fails with its revert reason.
+     *
+     * @param fromAddress sender address, its signer must be registered
+     * @param function    function name or signature
+     * @param args        function arguments
+     * @return transaction receipt
+     */
+    EthTransactionReceipt send(String fromAddress, String function, Object... args) throws InterruptedException;
+
+    /**
+     * Asynchronous version of send.
+     *
+     * @param fromAddress sender address, its signer must be registered
+     * @param function    function name or signature
+     * @param args        function arguments
+     * @return future completed with the transaction receipt, it fails with the revert reason when the transaction is reverted
+     */
+    CompletableFuture<EthTransactionReceipt> sendAsync(String fromAddress, String function, Object... args);
+
+    /**
+     * Decodes the events with the given name emitted by this contract inside the given receipt.
+     *
+     * @param receipt   transaction receipt
+     * @param eventName event name
+     * @return decoded events, in log order
+     */
+    List<EthContractEvent> decodeEvents(EthTransactionReceipt receipt, String eventName);
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Author Aristide Cittadino
+ * Contract event decoded from a transaction log through the contract ABI.
+ * Values are plain java types: addresses and strings as String, integers as BigInteger, bool as Boolean,
+ * bytes as byte[] and arrays as List. Indexed parameters of dynamic types are returned as their topic hash.
+ */
+public interface EthContractEvent {
+    /**
+     * @return event name
+     */
+    String getName();
+
+    /**
+     * @return address of the contract which emitted the event
+     */
+    String getAddress();
+
+    /**
+     * @return
+     */
+    String getTransactionHash();
+
+    /**
+     * @return
+     */
+    BigInteger getBlockNumber();
+
+    /**
+     * @return
+     */
+    BigInteger getLogIndex();
+
+    /**
+     * @return account which sent the transaction emitting the event, null when unknown
+     */
+    String getSender();
+
+    /**
+     * @return raw log topics, the first one is the event topic
+     */
+    List<String> getTopics();
+
+    /**
+     * @return raw log data
+     */
+    String getData();
+
+    /**
+     * @return event parameters by name, in the ABI order
+     */
+    Map<String, Object> getValues();
+
+    /**
+     * @param parameter parameter name
+     * @return parameter value
+     */
+    Object get(String parameter);
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * @Author Aristide Cittadino
+ * Inclusion proof of a document notarized inside a Merkle batch.
+ * Leaves are the keccak256 of the document hashes and each parent is the keccak256 of its two children sorted,
+ * so the proof can be verified offline, without the other documents of the batch, and on chain.
+ */
+public interface EthDocumentProof {
+    /**
+     * @return document hash, 0x prefixed
+     */
+    String getDocumentHash();
+
+    /**
+     * @return Merkle root notarized on chain, 0x prefixed
+     */
+    String getRoot();
+
+    /**
+     * @return position of the document inside its batch
+     */
+    int getLeafIndex();
+
+    /**
+     * @return sibling hashes from the leaf up to the root, 0x prefixed
+     */
+    List<String> getProof();
+
+    /**
+     * @return hash of the transaction which notarized the root
+     */
+    String getTransactionHash();
+
+    /**
+     * @return block number of the transaction which notarized the root
+     */
+    BigInteger getBlockNumber();
+}
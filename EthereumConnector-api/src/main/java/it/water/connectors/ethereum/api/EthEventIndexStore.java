@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+import java.util.List;
+
+/**
+ * @Author Aristide Cittadino
+ * Local store of the events indexed for a single contract, together with the checkpoint of the last indexed block.
+ * Ranges are delivered in order and only once they have been fully read, but after a crash the last range may be
+ * delivered again, so events must be stored idempotently, for example by transaction hash and log index.
+ */
+public interface EthEventIndexStore {
+    /**
+     * @return number of the last indexed block, -1 if nothing has been indexed yet
+     */
+    long getCheckpointBlockNumber();
+
+    /**
+     * @return hash of the last indexed block, null if nothing has been indexed yet
+     */
+    String getCheckpointBlockHash();
+
+    /**
+     * Stores the events of a block range, then moves the checkpoint to the last block of the range.
+     *
+     * @param events      events decoded from the range, in log order
+     * @param blockNumber last block of the range
+     * @param blockHash   hash of the last block of the range
+     */
+    void store(List<EthContractEvent> events, long blockNumber, String blockHash);
+
+    /**
+     * Called when a reorg is detected: events of the blocks after the given one are dropped
+     * and the checkpoint is moved back to it.
+     *
+     * @param blockNumber last block still considered valid, -1 to drop everything
+     * @param blockHash   hash of that block, null when blockNumber is -1
+     */
+    void rollback(long blockNumber, String blockHash);
+}
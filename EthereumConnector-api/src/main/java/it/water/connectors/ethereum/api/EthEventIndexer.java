@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+/**
+ * @Author Aristide Cittadino
+ * Live indexer of the events of a contract.
+ * It tails eth_getLogs over the blocks following the store checkpoint, so a restart resumes where it stopped,
+ * and rolls back the blocks which are not confirmed yet when the chain reorganizes.
+ */
+public interface EthEventIndexer {
+    /**
+     * Starts indexing from the store checkpoint, backfilling the missing blocks first.
+     */
+    void start();
+
+    /**
+     * Stops indexing, the range being read is completed.
+     */
+    void stop();
+
+    /**
+     * @return true if the indexer is running
+     */
+    boolean isRunning();
+
+    /**
+     * @return number of the last indexed block, -1 if nothing has been indexed yet
+     */
+    long getCheckpointBlockNumber();
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * @Author Aristide Cittadino
+ * Log emitted by a transaction, as reported by its receipt.
+ */
+public interface EthEventLog {
+    /**
+     * @return address of the contract which emitted the log
+     */
+    String getAddress();
+
+    /**
+     * @return log topics, the first one is the event topic unless the event is anonymous
+     */
+    List<String> getTopics();
+
+    /**
+     * @return ABI encoded non indexed event parameters
+     */
+    String getData();
+
+    /**
+     * @return index of the log inside the block
+     */
+    BigInteger getLogIndex();
+
+    /**
+     * @return
+     */
+    BigInteger getBlockNumber();
+
+    /**
+     * @return
+     */
+    String getTransactionHash();
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @Author Aristide Cittadino
+ * Batching notarizer.
+ * Document hashes are collected until the window expires or the max batch size is reached, then a Merkle tree is built
+ * and only its root is notarized, so a single transaction covers thousands of documents.
+ * Each document gets back its own inclusion proof.
+ */
+public interface EthMerkleNotarizer {
+    /**
+     * Queues a document hash for the next batch.
+     *
+     * @param documentHash 32 bytes document hash, 0x prefixed
+     * @return future completed with the inclusion proof once the root transaction is mined
+     */
+    CompletableFuture<EthDocumentProof> notarizeAsync(String documentHash);
+
+    /**
+     * Notarizes the queued documents without waiting for the window to expire.
+     */
+    void flush();
+
+    /**
+     * @return number of documents waiting for the next batch
+     */
+    int getQueued();
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @Author Aristide Cittadino
+ * Aggregator of read only contract calls.
+ * Calls queued within a short window, even to different contracts, are sent together inside a single Multicall3
+ * aggregate3 call, or inside a JSON-RPC batch of eth_call when no multicall contract is deployed on the chain.
+ * Each result is then handed back to the future of its caller.
+ */
+public interface EthMulticall {
+    /**
+     * Queues a read only call.
+     *
+     * @param contract contract
+     * @param function function name or signature
+     * @param args     function arguments
+     * @return future completed with the decoded return values, or exceptionally if the call reverted
+     */
+    CompletableFuture<List<Object>> callAsync(EthContract contract, String function, Object... args);
+
+    /**
+     * Sends the queued calls without waiting for the aggregation window to expire.
+     */
+    void flush();
+}
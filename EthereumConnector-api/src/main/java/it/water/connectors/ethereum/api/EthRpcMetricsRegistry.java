@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package it.water.connectors.ethereum.api;
+
+import it.water.connectors.ethereum.model.EthRpcMetrics;
+
+/**
+ * @Author Aristide Cittadino
+ * Registry of the JSON-RPC metrics of every blockchain.
+ * Clients report each request sent to the nodes, so implementations must be cheap and never block:
+ * a different implementation can be registered to forward the metrics to an external monitoring system.
+ */
+public interface EthRpcMetricsRegistry {
+    /**
+     * Invoked when a request is sent to the nodes.
+     *
+     * @param blockchainId blockchain id
+     * @param method       JSON-RPC method
+     */
+    void requestStarted(long blockchainId, String method);
+
+    /**
+     * Invoked when a request sent to the nodes is answered or fails.
+     *
+     * @param blockchainId blockchain id
+     * @param method       JSON-RPC method
+     * @param latencyNanos time elapsed since the request has been sent
+     * @param failed       true if the request failed or has been answered with a JSON-RPC error
+     * @param timedOut     true if the request failed for a timeout
+     */
+    void requestCompleted(long blockchainId, String method, long latencyNanos, boolean failed, boolean timedOut);
+
+    /**
+     * Invoked when the payload of a request has been exchanged with a node.
+     *
+     * @param blockchainId  blockchain id
+     * @param method        JSON-RPC method, "batch" for batches of different methods
+     * @param bytesSent     request payload size
+     * @param bytesReceived response payload size
+     */
+    void bytesTransferred(long blockchainId, String method, long bytesSent, long bytesReceived);
+
+    /**
+     * Invoked when a client gives up waiting for a read because its deadline expired.
+     *
+     * @param blockchainId blockchain id
+     * @param method       JSON-RPC method
+     */
+    void deadlineExceeded(long blockchainId, String method);
+
+    /**
+     * Invoked when the receipt of a tracked transaction arrives.
+     *
+     * @param blockchainId blockchain id
+     * @param waitNanos    time elapsed since the transaction has been tracked
+     */
+    void receiptReceived(long blockchainId, long waitNanos);
+
+    /**
+     * @param blockchainId blockchain id
+     * @return snapshot of the metrics of the given blockchain, empty when nothing has been recorded
+     */
+    EthRpcMetrics getMetrics(long blockchainId);
+
+    /**
+     * Drops the metrics of the given blockchain.
+     *
+     * @param blockchainId blockchain id
+     */
+    void clear(long blockchainId);
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @Author Aristide Cittadino
+ * Pool of sender accounts used to send many transfers in parallel.
+ * Each transfer is routed to the least loaded sender, every sender has its own nonce sequence and in-flight limit,
+ * so the throughput grows with the number of senders.
+ */
+public interface EthSenderPool {
+    /**
+     * @return addresses of the pooled senders
+     */
+    List<String> getSenders();
+
+    /**
+     * Transfers ether from the least loaded sender.
+     *
+     * @param destination Destination address
+     * @param amount      ETHER amount
+     * @return transaction receipt
+     */
+    EthTransactionReceipt transferEther(String destination, BigDecimal amount) throws InterruptedException;
+
+    /**
+     * Asynchronous version of transferEther.
+     * When all the senders reached their in-flight limit the transfer is queued until one of them is available.
+     *
+     * @param destination Destination address
+     * @param amount      ETHER amount
+     * @return future completed with the transaction receipt
+     */
+    CompletableFuture<EthTransactionReceipt> transferEtherAsync(String destination, BigDecimal amount);
+
+    /**
+     * Reads the balances of all the senders and tops up the ones below the minimum balance using the richest sender.
+     *
+     * @return future completed when balances have been checked and top up transfers have been sent
+     */
+    CompletableFuture<Void> rebalance();
+
+    /**
+     * @param sender sender address
+     * @return number of transfers sent by the sender and not confirmed yet
+     */
+    int getInFlight(String sender);
+
+    /**
+     * @return number of transfers waiting for a sender
+     */
+    int getQueued();
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @Author Aristide Cittadino
+ * Lightweight view of an EthClient bound to a single account.
+ * Signers are immutable and share the connection of the client they have been created from.
+ */
+public interface EthSigner {
+    /**
+     * @return address of the signing account
+     */
+    String getAddress();
+
+    /**
+     * @return client the signer has been created from
+     */
+    EthClient getClient();
+
+    /**
+     * Method for transfering ether from the signer account.
+     *
+     * @param destination Destination address
+     * @param amount      ETHER amount
+     * @return transaction receipt
+     */
+    EthTransactionReceipt transferEther(String destination, BigDecimal amount) throws InterruptedException;
+
+    /**
+     * Asynchronous version of transferEther.
+     * The returned future completes when the transaction receipt is available.
+     *
+     * @param destination Destination address
+     * @param amount      ETHER amount
+     * @return future completed with the transaction receipt
+     */
+    CompletableFuture<EthTransactionReceipt> transferEtherAsync(String destination, BigDecimal amount);
+}
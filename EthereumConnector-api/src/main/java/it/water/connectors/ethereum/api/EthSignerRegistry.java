@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum.api;
+
+/**
+ * @Author Aristide Cittadino
+ * Registry of the accounts clients can sign transactions with.
+ * Keystores are decrypted once and the resulting signers are kept by address for a limited time,
+ * so clients can sign by address without holding credentials themselves.
+ * Private key signers cannot be loaded again, so they are kept until they are revoked.
+ */
+public interface EthSignerRegistry {
+    /**
+     * Decrypts the given keystore, unless it has already been decrypted with the same password, and registers its account.
+     *
+     * @param keystorePath keystore file path
+     * @param password     keystore password
+     * @return account address
+     */
+    String addKeystore(String keystorePath, String password);
+
+    /**
+     * Registers the account of the given private key, it does not expire.
+     *
+     * @param privateKey private key
+     * @return account address
+     */
+    String addPrivateKey(String privateKey);
+
+    /**
+     * @param address account address
+     * @return true if a signer for the address is registered and not expired
+     */
+    boolean isRegistered(String address);
+
+    /**
+     * Removes the signer of the given address, its keystore must be decrypted again to use it.
+     *
+     * @param address account address
+     */
+    void revoke(String address);
+
+    /**
+     * Removes all the signers.
+     */
+    void revokeAll();
+
+    /**
+     * @return number of registered signers
+     */
+    int size();
+}
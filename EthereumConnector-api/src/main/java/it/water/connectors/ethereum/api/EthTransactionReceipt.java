@@ -18,6 +18,7 @@
 package it.water.connectors.ethereum.api;
 
 import java.math.BigInteger;
+import java.util.List;
 
 /**
  * @Author Aristide Cittadino
@@ -92,4 +93,9 @@ public interface EthTransactionReceipt {
      * @return
      */
     String getEffectiveGasPrice();
+
+    /**
+     * @return logs emitted by the transaction
+     */
+    List<EthEventLog> getLogs();
 }
@@ -0,0 +1,16 @@
+package it.water.connectors.ethereum.api;
+
+import it.water.connectors.ethereum.model.EthEventIndexCheckpoint;
+import it.water.core.api.repository.BaseRepository;
+
+/**
+ * Interface component for EthEventIndexCheckpoint Repository.
+ * It is used for CRUD operations, and to interact with the persistence layer.
+ */
+public interface EventIndexCheckpointRepository extends BaseRepository<EthEventIndexCheckpoint> {
+    /**
+     * @param smartContractId smart contract id
+     * @return checkpoint of the contract, null if it has never been indexed
+     */
+    EthEventIndexCheckpoint findBySmartContract(long smartContractId);
+}
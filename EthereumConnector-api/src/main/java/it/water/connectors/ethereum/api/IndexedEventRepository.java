@@ -0,0 +1,33 @@
+package it.water.connectors.ethereum.api;
+
+import it.water.connectors.ethereum.model.EthIndexedEvent;
+import it.water.connectors.ethereum.model.EthIndexedEventFilter;
+import it.water.core.api.repository.BaseRepository;
+
+import java.util.List;
+
+/**
+ * Interface component for EthIndexedEvent Repository.
+ * It is used for CRUD operations, and to interact with the persistence layer.
+ */
+public interface IndexedEventRepository extends BaseRepository<EthIndexedEvent> {
+    /**
+     * Removes the events indexed for the given contract after the given block.
+     *
+     * @param smartContractId smart contract id
+     * @param blockNumber     last block whose events are kept
+     */
+    void removeAfterBlock(long smartContractId, long blockNumber);
+
+    /**
+     * Reads the events matching the filter which follow the given position, in chain order.
+     *
+     * @param smartContractId smart contract id
+     * @param filter          event filter, topics, data word and sender must be lower case
+     * @param afterBlock      block of the last event already read, null to start from the first event
+     * @param afterLogIndex   log index of the last event already read
+     * @param limit           max number of events
+     * @return events
+     */
+    List<EthIndexedEvent> findPage(long smartContractId, EthIndexedEventFilter filter, Long afterBlock, Long afterLogIndex, int limit);
+}
@@ -0,0 +1,63 @@
+package it.water.connectors.ethereum.api;
+
+import it.water.connectors.ethereum.model.EthIndexedEvent;
+import it.water.connectors.ethereum.model.EthIndexedEventFilter;
+import it.water.connectors.ethereum.model.EthIndexedEventPage;
+import it.water.connectors.ethereum.model.EthSmartContract;
+import it.water.core.api.service.BaseEntitySystemApi;
+
+import java.util.List;
+
+/**
+ * This interface defines the internally exposed methods for the entity and allows interaction with it bypassing permission system.
+ */
+public interface IndexedEventSystemApi extends BaseEntitySystemApi<EthIndexedEvent> {
+    /**
+     * Starts indexing the events of the given contract, resuming from its checkpoint.
+     * A running indexer of the same contract is replaced, so a changed ABI or address is picked up.
+     * Contracts without ABI are not indexed.
+     *
+     * @param smartContract smart contract
+     */
+    void startIndexing(EthSmartContract smartContract);
+
+    /**
+     * Stops indexing the events of the given contract, indexed events and checkpoint are kept.
+     *
+     * @param smartContractId smart contract id
+     */
+    void stopIndexing(long smartContractId);
+
+    /**
+     * Stops indexing the events of every contract of the given blockchain, indexed events and checkpoints are kept.
+     *
+     * @param blockchainId blockchain id
+     * @return ids of the contracts whose indexing has been stopped
+     */
+    List<Long> stopBlockchainIndexing(long blockchainId);
+
+    /**
+     * Starts indexing the events of the given contracts again, each one resuming from its checkpoint.
+     * Contracts which no longer exist are skipped.
+     *
+     * @param smartContractIds smart contract ids
+     */
+    void resumeIndexing(List<Long> smartContractIds);
+
+    /**
+     * @param smartContractId smart contract id
+     * @return true if the events of the contract are being indexed
+     */
+    boolean isIndexing(long smartContractId);
+
+    /**
+     * Reads a page of the events indexed for the given contract, in chain order.
+     *
+     * @param smartContractId smart contract id
+     * @param filter          event filter, null matches every event
+     * @param cursor          next cursor of the previous page, null for the first page
+     * @param limit           max number of events, capped to 1000
+     * @return events page
+     */
+    EthIndexedEventPage findEvents(long smartContractId, EthIndexedEventFilter filter, String cursor, int limit);
+}
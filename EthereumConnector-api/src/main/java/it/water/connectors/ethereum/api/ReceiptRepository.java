@@ -0,0 +1,17 @@
+package it.water.connectors.ethereum.api;
+
+import it.water.connectors.ethereum.model.EthReceipt;
+import it.water.core.api.repository.BaseRepository;
+
+/**
+ * Interface component for EthReceipt Repository.
+ * It is used for CRUD operations, and to interact with the persistence layer.
+ */
+public interface ReceiptRepository extends BaseRepository<EthReceipt> {
+    /**
+     * @param blockchainId    blockchain id
+     * @param transactionHash transaction hash
+     * @return receipt of the transaction, null if it has not been stored
+     */
+    EthReceipt findByTransactionHash(long blockchainId, String transactionHash);
+}
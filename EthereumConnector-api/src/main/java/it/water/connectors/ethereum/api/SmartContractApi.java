@@ -1,12 +1,46 @@
 package it.water.connectors.ethereum.api;
 
+import it.water.connectors.ethereum.model.EthIndexedEventFilter;
+import it.water.connectors.ethereum.model.EthIndexedEventPage;
+import it.water.connectors.ethereum.model.EthReceipt;
+import it.water.connectors.ethereum.model.EthReceiptLog;
 import it.water.connectors.ethereum.model.EthSmartContract;
 import it.water.core.api.service.BaseEntityApi;
 
+import java.util.List;
+
 /**
  * @Generated by Water Generator
  * This interface defines the externally exposed methods for the entity and allows interaction with it through a permission system.
  */
 public interface SmartContractApi extends BaseEntityApi<EthSmartContract> {
+    /**
+     * Reads a page of the events indexed for the given contract, in chain order.
+     * Events are read from the local index, no request is sent to the blockchain.
+     *
+     * @param smartContractId smart contract id
+     * @param filter          event filter, null matches every event
+     * @param cursor          next cursor of the previous page, null for the first page
+     * @param limit           max number of events, capped to 1000
+     * @return events page
+     */
+    EthIndexedEventPage findEvents(long smartContractId, EthIndexedEventFilter filter, String cursor, int limit);
+
+    /**
+     * @param smartContractId smart contract id
+     * @return receipt of the deployment transaction, without its logs
+     */
+    EthReceipt findReceipt(long smartContractId);
+
+    /**
+     * @param smartContractId smart contract id
+     * @return logs of the deployment transaction, decoded from their stored binary form
+     */
+    List<EthReceiptLog> findReceiptLogs(long smartContractId);
 
+    /**
+     * @param smartContractId smart contract id
+     * @return ABI JSON of the contract, which is not returned with the contract itself
+     */
+    String findAbi(long smartContractId);
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package it.water.connectors.ethereum.api;
 
 import it.water.core.api.service.BaseEntitySystemApi;
 
+import it.water.connectors.ethereum.model.EthReceipt;
 import it.water.connectors.ethereum.model.EthSmartContract;
 
 /**
@@ -11,5 +12,9 @@ import it.water.connectors.ethereum.model.EthSmartContract;
  *
  */
 public interface SmartContractSystemApi extends BaseEntitySystemApi<EthSmartContract> {
-
+    /**
+     * @param smartContract smart contract
+     * @return receipt of the deployment transaction, null if it has not been stored
+     */
+    EthReceipt findReceipt(EthSmartContract smartContract);
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import it.water.connectors.ethereum.model.EthRpcMetrics;
 import it.water.core.api.model.PaginableResult;
 import it.water.core.api.service.rest.FrameworkRestApi;
 import it.water.core.api.service.rest.RestApi;
@@ -14,6 +16,7 @@ import it.water.service.rest.api.security.LoggedIn;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import java.util.List;
 
 /**
  * @Generated by Water Generator
@@ -56,6 +59,28 @@ public interface BlockchainRestApi extends RestApi {
     EthBlockchain find(@PathParam("id") long id);
 
 
+    @LoggedIn
+    @Path("/{id}/health")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @JsonView(WaterJsonView.Public.class)
+    @ApiOperation(value = "/blockchains/{id}/health", notes = "Blockchain Endpoints Health API", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 404, message = "Entity not found"), @ApiResponse(code = 500, message = "Internal server error")})
+    List<EthEndpointHealth> getEndpointsHealth(@PathParam("id") long id);
+
+
+    @LoggedIn
+    @Path("/{id}/metrics")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @JsonView(WaterJsonView.Public.class)
+    @ApiOperation(value = "/blockchains/{id}/metrics", notes = "Blockchain JSON-RPC Metrics API", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 404, message = "Entity not found"), @ApiResponse(code = 500, message = "Internal server error")})
+    EthRpcMetrics getMetrics(@PathParam("id") long id);
+
+
     @LoggedIn
     @GET
     @Produces(MediaType.APPLICATION_JSON)
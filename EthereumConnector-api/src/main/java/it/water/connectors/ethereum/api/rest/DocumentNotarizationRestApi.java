@@ -0,0 +1,88 @@
+package it.water.connectors.ethereum.api.rest;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import it.water.connectors.ethereum.model.EthDocumentNotarization;
+import it.water.core.api.model.PaginableResult;
+import it.water.core.api.service.rest.FrameworkRestApi;
+import it.water.core.api.service.rest.RestApi;
+import it.water.core.api.service.rest.WaterJsonView;
+import it.water.service.rest.api.security.LoggedIn;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Rest Api Interface for EthDocumentNotarization entity.
+ * Notarizations are immutable: they are created through the notarize API and filled in once their batch root is mined.
+ */
+@Path("/ethereum/notarizations")
+@Api(produces = MediaType.APPLICATION_JSON, tags = "EthereumConnector API")
+@FrameworkRestApi
+public interface DocumentNotarizationRestApi extends RestApi {
+
+    @LoggedIn
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @JsonView(WaterJsonView.Public.class)
+    @ApiOperation(value = "/notarizations", notes = "Document Notarization API, the document is notarized inside the next Merkle batch", httpMethod = "POST", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 409, message = "Validation Failed"), @ApiResponse(code = 422, message = "Duplicated Entity"), @ApiResponse(code = 500, message = "Internal server error")})
+    EthDocumentNotarization notarize(EthDocumentNotarization notarization);
+
+
+    @LoggedIn
+    @Path("/{id}")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @JsonView(WaterJsonView.Public.class)
+    @ApiOperation(value = "/notarizations/{id}", notes = "Document Notarization Find API", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 404, message = "Entity not found"), @ApiResponse(code = 500, message = "Internal server error")})
+    EthDocumentNotarization find(@PathParam("id") long id);
+
+
+    @LoggedIn
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @JsonView(WaterJsonView.Public.class)
+    @ApiOperation(value = "/notarizations", notes = "Document Notarization Find All API", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 500, message = "Internal server error")})
+    PaginableResult<EthDocumentNotarization> findAll();
+
+
+    @LoggedIn
+    @Path("/smart-contracts/{smartContractId}/documents/{documentHash}")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @JsonView(WaterJsonView.Public.class)
+    @ApiOperation(value = "/notarizations/smart-contracts/{smartContractId}/documents/{documentHash}", notes = "Document Notarization Proof API, it returns the inclusion proof for offline verification", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 404, message = "Entity not found"), @ApiResponse(code = 500, message = "Internal server error")})
+    EthDocumentNotarization findByDocumentHash(@PathParam("smartContractId") long smartContractId, @PathParam("documentHash") String documentHash);
+
+
+    @LoggedIn
+    @Path("/smart-contracts/{smartContractId}/documents/{documentHash}/verify")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "/notarizations/smart-contracts/{smartContractId}/documents/{documentHash}/verify", notes = "Document Notarization Verify API, it checks the stored proof and its root on chain", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 404, message = "Entity not found"), @ApiResponse(code = 500, message = "Internal server error")})
+    boolean verify(@PathParam("smartContractId") long smartContractId, @PathParam("documentHash") String documentHash);
+
+
+    @LoggedIn
+    @Path("/{id}")
+    @DELETE
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @JsonView(WaterJsonView.Public.class)
+    @ApiOperation(value = "/{id}", notes = "Document Notarization Delete API", httpMethod = "DELETE", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 500, message = "Internal server error")})
+    void remove(@PathParam("id") long id);
+}
@@ -5,6 +5,9 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import it.water.connectors.ethereum.model.EthIndexedEventPage;
+import it.water.connectors.ethereum.model.EthReceipt;
+import it.water.connectors.ethereum.model.EthReceiptLog;
 import it.water.connectors.ethereum.model.EthSmartContract;
 import it.water.core.api.model.PaginableResult;
 import it.water.core.api.service.rest.FrameworkRestApi;
@@ -14,6 +17,7 @@ import it.water.service.rest.api.security.LoggedIn;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import java.util.List;
 
 /**
  * @Generated by Water Generator
@@ -66,6 +70,54 @@ public interface SmartContractRestApi extends RestApi {
     PaginableResult<EthSmartContract> findAll();
 
 
+    @LoggedIn
+    @Path("/{id}/events")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @JsonView(WaterJsonView.Public.class)
+    @ApiOperation(value = "/smart-contracts/{id}/events", notes = "Smart Contracts Indexed Events API, events are read from the local index in chain order, pass the returned next cursor to read the following page", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 404, message = "Entity not found"), @ApiResponse(code = 409, message = "Validation Failed"), @ApiResponse(code = 500, message = "Internal server error")})
+    EthIndexedEventPage findEvents(@PathParam("id") long id, @QueryParam("eventName") String eventName,
+                                   @QueryParam("topic0") String topic0, @QueryParam("topic1") String topic1,
+                                   @QueryParam("topic2") String topic2, @QueryParam("topic3") String topic3,
+                                   @QueryParam("dataWord") String dataWord, @QueryParam("sender") String sender,
+                                   @QueryParam("fromBlock") Long fromBlock, @QueryParam("toBlock") Long toBlock,
+                                   @QueryParam("cursor") String cursor, @QueryParam("limit") @DefaultValue("100") int limit);
+
+
+    @LoggedIn
+    @Path("/{id}/receipt")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @JsonView(WaterJsonView.Public.class)
+    @ApiOperation(value = "/smart-contracts/{id}/receipt", notes = "Smart Contracts Deployment Receipt API, logs are read through the logs API", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 404, message = "Entity not found"), @ApiResponse(code = 500, message = "Internal server error")})
+    EthReceipt findReceipt(@PathParam("id") long id);
+
+
+    @LoggedIn
+    @Path("/{id}/receipt/logs")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @JsonView(WaterJsonView.Public.class)
+    @ApiOperation(value = "/smart-contracts/{id}/receipt/logs", notes = "Smart Contracts Deployment Receipt Logs API", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 404, message = "Entity not found"), @ApiResponse(code = 500, message = "Internal server error")})
+    List<EthReceiptLog> findReceiptLogs(@PathParam("id") long id);
+
+
+    @LoggedIn
+    @Path("/{id}/abi")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "/smart-contracts/{id}/abi", notes = "Smart Contracts ABI API, the ABI JSON is returned as it has been saved", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"), @ApiResponse(code = 401, message = "Not authorized"), @ApiResponse(code = 404, message = "Entity not found"), @ApiResponse(code = 500, message = "Internal server error")})
+    String findAbi(@PathParam("id") long id);
+
+
     @LoggedIn
     @Path("/{id}")
     @DELETE
@@ -0,0 +1,57 @@
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthClient;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building a client from EthWeb3JClientFactory.withEthereumBlockChain: with the connection already pooled, which is the common case,
+ * and when the first client of a blockchain creates its connection, shut down right after.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class EthClientFactoryBenchmark {
+    private EthStubNode node;
+    private EthBlockchain blockchain;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClientFactory factory;
+
+    @Setup
+    public void setup() throws IOException {
+        node = new EthStubNode();
+        blockchain = node.getBlockchain();
+        registry = new EthWeb3JClientRegistry();
+        factory = new EthWeb3JClientFactory();
+        factory.setClientRegistry(registry);
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.evictAll();
+        node.close();
+    }
+
+    @Benchmark
+    public EthClient buildPooled() {
+        return factory.withEthereumBlockChain(blockchain).build();
+    }
+
+    //the client is consumed before the eviction, which closes its connection
+    @Benchmark
+    public void buildNewConnection(Blackhole blackhole) {
+        blackhole.consume(factory.withEthereumBlockChain(blockchain).build());
+        registry.evict(blockchain);
+    }
+}
@@ -0,0 +1,64 @@
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of getBalanceOf and transferEther against the in-process stub node.
+ * The balance cache is disabled, so every read reaches the node. Transfers are mined at once and their receipt is checked
+ * after 1 ms, instead of the default batching delay, so they measure signing, nonce handling and the JSON-RPC calls.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class EthClientRoundTripBenchmark {
+    private static final String PRIVATE_KEY = "5c7a050c7b0e3a6896e9667a6dff3a6b389c665aaed218c352071890c05520ee";
+    private static final String DESTINATION = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final BigDecimal AMOUNT = new BigDecimal("0.001");
+
+    private EthStubNode node;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+    private String sender;
+
+    @Setup
+    public void setup() throws IOException {
+        node = new EthStubNode();
+        registry = new EthWeb3JClientRegistry();
+        EthWeb3JConnection connection = registry.acquireConnection(node.getBlockchain());
+        connection.getReceiptTracker().setFirstCheckDelayMillis(1);
+        EthWeb3JClientFactory factory = new EthWeb3JClientFactory();
+        factory.setClientRegistry(registry);
+        factory.setBalanceCacheEnabled(false);
+        client = (EthWeb3JClient) factory.withEthereumBlockChain(node.getBlockchain()).build();
+        sender = client.withPrivateKey(PRIVATE_KEY).getAddress();
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.evictAll();
+        node.close();
+    }
+
+    @Benchmark
+    public BigInteger getBalanceOf() {
+        return client.getBalanceOf(DESTINATION);
+    }
+
+    @Benchmark
+    public EthTransactionReceipt transferEther() throws InterruptedException {
+        return client.transferEther(sender, DESTINATION, AMOUNT);
+    }
+}
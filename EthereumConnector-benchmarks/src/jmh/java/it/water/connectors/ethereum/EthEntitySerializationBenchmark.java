@@ -0,0 +1,76 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthBlockchainEndpoint;
+import it.water.connectors.ethereum.model.EthSmartContract;
+import it.water.core.api.service.rest.WaterJsonView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the EthBlockchain and EthSmartContract entities, with the views used by the REST endpoints.
+ * The smart contract carries the MerkleDataRegistry ABI, the largest field exchanged by the REST endpoints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class EthEntitySerializationBenchmark {
+    private EthBlockchain blockchain;
+    private EthSmartContract smartContract;
+    private ObjectWriter blockchainWriter;
+    private ObjectWriter smartContractWriter;
+    private ObjectReader blockchainReader;
+    private ObjectReader smartContractReader;
+    private byte[] blockchainJson;
+    private byte[] smartContractJson;
+
+    @Setup
+    public void setup() throws IOException {
+        blockchain = new EthBlockchain("http", "node1", "8545");
+        blockchain.setId(1);
+        blockchain.setEndpoints(Arrays.asList(new EthBlockchainEndpoint("http", "node2", "8545"), new EthBlockchainEndpoint("http", "node3", "8545")));
+        smartContract = new EthSmartContract("MerkleDataRegistry", "merkleRegistry", "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0",
+                "0x8c1d3b0b0e0f2d5a7a63c9b3d1e4f5a6b7c8d9e0f1a2b3c4d5e6f708192a3b4c", blockchain, 1L);
+        smartContract.setAbi(EthWeb3JMerkleNotarizer.MERKLE_DATA_REGISTRY_ABI);
+        ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        blockchainWriter = mapper.writerWithView(WaterJsonView.Public.class);
+        smartContractWriter = mapper.writerWithView(WaterJsonView.Extended.class);
+        blockchainReader = mapper.readerWithView(WaterJsonView.Public.class).forType(EthBlockchain.class);
+        smartContractReader = mapper.readerWithView(WaterJsonView.Extended.class).forType(EthSmartContract.class);
+        blockchainJson = blockchainWriter.writeValueAsBytes(blockchain);
+        smartContractJson = smartContractWriter.writeValueAsBytes(smartContract);
+    }
+
+    @Benchmark
+    public byte[] writeBlockchain() throws IOException {
+        return blockchainWriter.writeValueAsBytes(blockchain);
+    }
+
+    @Benchmark
+    public EthBlockchain readBlockchain() throws IOException {
+        return blockchainReader.readValue(blockchainJson);
+    }
+
+    @Benchmark
+    public byte[] writeSmartContract() throws IOException {
+        return smartContractWriter.writeValueAsBytes(smartContract);
+    }
+
+    @Benchmark
+    public EthSmartContract readSmartContract() throws IOException {
+        return smartContractReader.readValue(smartContractJson);
+    }
+}
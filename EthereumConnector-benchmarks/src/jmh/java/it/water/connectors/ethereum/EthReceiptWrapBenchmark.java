@@ -0,0 +1,99 @@
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthEventLog;
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapping a web3j receipt with three Notarized logs, as the client does for every receipt it returns,
+ * then reading all the values of the wrapped EthTransactionReceipt. The receipt is built once, so no request is sent.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class EthReceiptWrapBenchmark {
+    private static final String CONTRACT = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final int LOGS = 3;
+
+    private EthStubNode node;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+    private TransactionReceipt receipt;
+
+    @Setup
+    public void setup() throws IOException {
+        node = new EthStubNode();
+        registry = new EthWeb3JClientRegistry();
+        client = (EthWeb3JClient) registry.getClient(node.getBlockchain());
+        String transactionHash = Hash.sha3String("transaction");
+        List<Map<String, Object>> logs = new ArrayList<>();
+        for (int i = 0; i < LOGS; i++) {
+            Map<String, Object> log = new LinkedHashMap<>();
+            log.put("address", CONTRACT);
+            log.put("topics", Arrays.asList(Hash.sha3String("Notarized(address,bytes32)"), Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(CONTRACT), 64)));
+            log.put("data", Hash.sha3String("document" + i));
+            log.put("logIndex", Numeric.encodeQuantity(BigInteger.valueOf(i)));
+            log.put("transactionHash", transactionHash);
+            log.put("blockNumber", "0x10");
+            logs.add(log);
+        }
+        Map<String, Object> receipt = new LinkedHashMap<>();
+        receipt.put("transactionHash", transactionHash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockHash", Hash.sha3String("block"));
+        receipt.put("blockNumber", "0x10");
+        receipt.put("from", CONTRACT);
+        receipt.put("to", CONTRACT);
+        receipt.put("gasUsed", "0xc350");
+        receipt.put("cumulativeGasUsed", "0x1a2b3");
+        receipt.put("effectiveGasPrice", "0x3b9aca00");
+        receipt.put("status", "0x1");
+        receipt.put("type", "0x2");
+        receipt.put("logs", logs);
+        this.receipt = ObjectMapperFactory.getObjectMapper().convertValue(receipt, TransactionReceipt.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.evictAll();
+        node.close();
+    }
+
+    @Benchmark
+    public void wrapReceipt(Blackhole blackhole) {
+        EthTransactionReceipt wrapped = client.wrapEthereumTransactionReceipt(receipt);
+        blackhole.consume(wrapped.getTransactionHash());
+        blackhole.consume(wrapped.getBlockNumber());
+        blackhole.consume(wrapped.getGasUsed());
+        blackhole.consume(wrapped.getCumulativeGasUsed());
+        blackhole.consume(wrapped.getStatus());
+        blackhole.consume(wrapped.getFrom());
+        blackhole.consume(wrapped.getTo());
+        for (EthEventLog log : wrapped.getLogs()) {
+            blackhole.consume(log.getTopics());
+            blackhole.consume(log.getData());
+            blackhole.consume(log.getLogIndex());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package it.water.connectors.ethereum;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.web3j.crypto.Credentials;
+import org.web3j.utils.Convert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing throughput of the transactions sent by the client, legacy and EIP-1559, through the signing step of its sender path.
+ * Loading the credentials of a private key, done once per account by the signer registry, is measured too.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class EthSigningBenchmark {
+    private static final String PRIVATE_KEY = "8f2a55949038a9610f50fb23b5883af3b4ecb3c3bb792cbcefbd1542c692be63";
+    private static final String DESTINATION = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final BigInteger GAS_LIMIT = BigInteger.valueOf(21000);
+
+    private Credentials credentials;
+    private EthFees legacyFees;
+    private EthFees eip1559Fees;
+    private BigInteger value;
+    private long nonce;
+
+    @Setup
+    public void setup() {
+        credentials = Credentials.create(PRIVATE_KEY);
+        legacyFees = EthFees.legacy(BigInteger.ONE, BigInteger.valueOf(1_000_000_000L));
+        eip1559Fees = EthFees.eip1559(BigInteger.ONE, BigInteger.valueOf(1_000_000_000L), BigInteger.valueOf(1_500_000_000L), BigInteger.valueOf(3_500_000_000L));
+        value = Convert.toWei(new BigDecimal("0.001"), Convert.Unit.ETHER).toBigInteger();
+    }
+
+    //the nonce changes on every transaction, as it happens sending them
+    @Benchmark
+    public byte[] signLegacy() {
+        return EthWeb3JClient.signTransaction(credentials, BigInteger.valueOf(nonce++), legacyFees, EthStubNode.CHAIN_ID, GAS_LIMIT, DESTINATION, value, "");
+    }
+
+    @Benchmark
+    public byte[] signEip1559() {
+        return EthWeb3JClient.signTransaction(credentials, BigInteger.valueOf(nonce++), eip1559Fees, EthStubNode.CHAIN_ID, GAS_LIMIT, DESTINATION, value, "");
+    }
+
+    @Benchmark
+    public Credentials loadCredentials() {
+        return Credentials.create(PRIVATE_KEY);
+    }
+}
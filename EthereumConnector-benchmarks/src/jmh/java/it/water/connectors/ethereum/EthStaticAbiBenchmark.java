@@ -0,0 +1,86 @@
+package it.water.connectors.ethereum;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.EventValues;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.tx.Contract;
+import org.web3j.utils.Numeric;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the fast path static ABI codec with web3j on the DataRegistry (NotarizeData.sol) hot paths:
+ * encoding notarizeDocument(bytes32) call data and decoding Notarized(address indexed, bytes32) events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class EthStaticAbiBenchmark {
+    private static final String SIGNER = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final Event NOTARIZED_EVENT = new Event("Notarized",
+            Arrays.asList(new TypeReference<Address>(true) {
+            }, new TypeReference<Bytes32>() {
+            }));
+
+    private byte[] documentHash;
+    private EthStaticAbiEncoder encoder;
+    private EthStaticAbiEvent notarized;
+    private byte[] decodedHash;
+    private Log log;
+
+    @Setup
+    public void setup() {
+        documentHash = Hash.sha3("document".getBytes());
+        encoder = EthStaticAbiFunction.of("notarizeDocument(bytes32)").encoder();
+        notarized = EthStaticAbiEvent.of("Notarized(address,bytes32)");
+        decodedHash = new byte[32];
+        log = new Log();
+        log.setAddress(SIGNER);
+        log.setTopics(Arrays.asList(EventEncoder.encode(NOTARIZED_EVENT), Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(SIGNER), 64)));
+        log.setData(Numeric.toHexString(documentHash));
+    }
+
+    @Benchmark
+    public String encodeNotarizeDocumentWeb3j() {
+        return FunctionEncoder.encode(new Function("notarizeDocument", Collections.singletonList(new Bytes32(documentHash)), Collections.emptyList()));
+    }
+
+    @Benchmark
+    public String encodeNotarizeDocumentStatic() {
+        return encoder.putBytes32(documentHash).encode();
+    }
+
+    @Benchmark
+    public void decodeNotarizedWeb3j(Blackhole blackhole) {
+        //same path used by the generated DataRegistry wrapper
+        EventValues values = Contract.staticExtractEventParameters(NOTARIZED_EVENT, log);
+        blackhole.consume(values.getIndexedValues().get(0).getValue());
+        blackhole.consume(values.getNonIndexedValues().get(0).getValue());
+    }
+
+    @Benchmark
+    public void decodeNotarizedStatic(Blackhole blackhole) {
+        if (notarized.matches(log.getTopics())) {
+            blackhole.consume(EthStaticAbiDecoder.address(log.getTopics().get(1), 0));
+            EthStaticAbiDecoder.bytes32(log.getData(), 0, decodedHash);
+            blackhole.consume(decodedHash);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.SignedRawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.security.SignatureException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process development node answering the JSON-RPC methods used by balance reads and ether transfers.
+ * Every transaction is mined right away in a new block and its receipt is available on the first request,
+ * so round trips measure the client and the loopback transport only, never a real chain.
+ * Answers are deterministic: the same requests always get the same responses.
+ */
+public class EthStubNode implements AutoCloseable {
+    public static final long CHAIN_ID = 1337;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String BALANCE = Numeric.encodeQuantity(BigInteger.TEN.pow(21));
+
+    static {
+        //headers and body are written separately, without TCP_NODELAY every response waits for the delayed ack of the client
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong blockNumber = new AtomicLong(1);
+    private final Map<String, AtomicLong> nonces = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> receipts = new ConcurrentHashMap<>();
+
+    public EthStubNode() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "eth-stub-node");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public EthBlockchain getBlockchain() {
+        return new EthBlockchain("http", "localhost", String.valueOf(server.getAddress().getPort()));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonNode request;
+        try (InputStream is = exchange.getRequestBody()) {
+            request = MAPPER.readTree(is);
+        }
+        JsonNode response;
+        if (request.isArray()) {
+            ArrayNode responses = MAPPER.createArrayNode();
+            request.forEach(r -> responses.add(answer(r)));
+            response = responses;
+        } else {
+            response = answer(request);
+        }
+        byte[] body = MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private JsonNode answer(JsonNode request) {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        try {
+            response.set("result", MAPPER.valueToTree(result(request.get("method").asText(), request.get("params"))));
+        } catch (RuntimeException e) {
+            ObjectNode error = response.putObject("error");
+            error.put("code", -32601);
+            error.put("message", e.getMessage());
+        }
+        return response;
+    }
+
+    private Object result(String method, JsonNode params) {
+        switch (method) {
+            case "eth_chainId":
+                return Numeric.encodeQuantity(BigInteger.valueOf(CHAIN_ID));
+            case "eth_blockNumber":
+                return Numeric.encodeQuantity(BigInteger.valueOf(blockNumber.get()));
+            case "eth_getBlockByNumber":
+                return null;
+            case "eth_gasPrice":
+                return "0x3b9aca00";
+            case "eth_getBalance":
+                return BALANCE;
+            case "eth_getTransactionCount":
+                return Numeric.encodeQuantity(BigInteger.valueOf(nonce(params.get(0).asText()).get()));
+            case "eth_sendRawTransaction":
+                return sendRawTransaction(params.get(0).asText());
+            case "eth_getTransactionReceipt":
+                //receipts are read once by the receipt tracker, so the node keeps no state per transfer
+                return receipts.remove(params.get(0).asText());
+            default:
+                //eth_feeHistory included, so clients fall back to eth_gasPrice
+                throw new IllegalArgumentException("Method not found: " + method);
+        }
+    }
+
+    private AtomicLong nonce(String address) {
+        return nonces.computeIfAbsent(address.toLowerCase(), a -> new AtomicLong());
+    }
+
+    private String sendRawTransaction(String raw) {
+        SignedRawTransaction transaction = (SignedRawTransaction) TransactionDecoder.decode(raw);
+        String from;
+        try {
+            from = transaction.getFrom();
+        } catch (SignatureException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        nonce(from).incrementAndGet();
+        String hash = Hash.sha3(raw);
+        long block = blockNumber.incrementAndGet();
+        Map<String, Object> receipt = new LinkedHashMap<>();
+        receipt.put("transactionHash", hash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockHash", Hash.sha3(Numeric.encodeQuantity(BigInteger.valueOf(block))));
+        receipt.put("blockNumber", Numeric.encodeQuantity(BigInteger.valueOf(block)));
+        receipt.put("from", from);
+        receipt.put("to", transaction.getTo());
+        receipt.put("gasUsed", "0x5208");
+        receipt.put("cumulativeGasUsed", "0x5208");
+        receipt.put("effectiveGasPrice", "0x3b9aca00");
+        receipt.put("status", "0x1");
+        receipt.put("logs", Collections.emptyList());
+        receipts.put(hash, receipt);
+        return hash;
+    }
+}
@@ -9,10 +9,13 @@ import it.water.core.validation.annotations.NoMalitiusCode;
 import it.water.core.validation.annotations.NotNullOnPersist;
 import it.water.repository.jpa.model.AbstractJpaEntity;
 import jakarta.persistence.*;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.*;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Entity
@@ -56,7 +59,20 @@ public class EthBlockchain extends AbstractJpaEntity implements ProtectedEntity
     @Column(columnDefinition = "VARCHAR(20) NOT NULL")
     private String port;
 
+    //additional nodes of the same chain, requests are balanced between them and the host above
+    @Valid
+    @Setter
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "ethereum_blockchain_endpoint", joinColumns = @JoinColumn(name = "blockchain_id"))
+    @OrderColumn(name = "endpoint_order")
+    private List<EthBlockchainEndpoint> endpoints = new ArrayList<>();
+
     @OneToMany(mappedBy = "blockchain", cascade = {CascadeType.PERSIST, CascadeType.REMOVE,CascadeType.MERGE})
     @JsonIgnore
     private Set<EthSmartContract> contracts = new HashSet<>();
+
+    @OneToMany(mappedBy = "blockchain", cascade = {CascadeType.REMOVE})
+    @JsonIgnore
+    @ToString.Exclude
+    private Set<EthReceipt> receipts = new HashSet<>();
 }
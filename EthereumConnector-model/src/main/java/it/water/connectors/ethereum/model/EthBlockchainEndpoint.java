@@ -0,0 +1,38 @@
+package it.water.connectors.ethereum.model;
+
+import it.water.core.validation.annotations.NoMalitiusCode;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.*;
+
+
+/**
+ * Additional RPC node of a blockchain.
+ * Requests are balanced between the blockchain host and its endpoints, which must serve the same chain.
+ */
+@Embeddable
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@RequiredArgsConstructor
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class EthBlockchainEndpoint {
+
+    @NotEmpty
+    @NoMalitiusCode
+    @NonNull
+    @Column(columnDefinition = "VARCHAR(50) NOT NULL")
+    private String protocol;
+
+    @NonNull
+    @Column(columnDefinition = "VARCHAR(1000) NOT NULL")
+    private String host;
+
+    @NotEmpty
+    @NoMalitiusCode
+    @NonNull
+    @Column(columnDefinition = "VARCHAR(20) NOT NULL")
+    private String port;
+}
@@ -7,4 +7,10 @@ import lombok.NoArgsConstructor;
 public class EthConstants {
     public static final String ETH_CONNECTOR_CLIENT_FACTORY = "clientFactoryType";
     public static final String ETH_CONNECTOR_CLIENT_FACTORY_WEB3J = "Web3J";
+    public static final String ETH_PROTOCOL_HTTP = "http";
+    public static final String ETH_PROTOCOL_HTTPS = "https";
+    public static final String ETH_PROTOCOL_WS = "ws";
+    public static final String ETH_PROTOCOL_WSS = "wss";
+    //unix domain socket, the blockchain host is the socket path
+    public static final String ETH_PROTOCOL_IPC = "ipc";
 }
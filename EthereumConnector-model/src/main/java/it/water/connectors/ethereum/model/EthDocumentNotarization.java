@@ -0,0 +1,150 @@
+package it.water.connectors.ethereum.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonView;
+import it.water.core.api.entity.owned.OwnedResource;
+import it.water.core.api.permission.ProtectedEntity;
+import it.water.core.api.service.rest.WaterJsonView;
+import it.water.core.permission.action.CrudActions;
+import it.water.core.permission.annotations.AccessControl;
+import it.water.core.permission.annotations.DefaultRoleAccess;
+import it.water.core.validation.annotations.NoMalitiusCode;
+import it.water.core.validation.annotations.NotNullOnPersist;
+import it.water.repository.jpa.model.AbstractJpaEntity;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Document notarized inside a Merkle batch by a MerkleDataRegistry smart contract.
+ * Only the batch root is stored on chain, the inclusion proof stored here allows to verify the document offline.
+ */
+//JPA
+@Entity
+@Table(name = "ethereum_document_notarization", uniqueConstraints = {@UniqueConstraint(columnNames = {"documentHash", "smart_contract_id"})},
+        indexes = {@Index(name = "ethereum_document_notarization_root_idx", columnList = "merkleRoot")})
+@Access(AccessType.FIELD)
+//Lombok
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@RequiredArgsConstructor
+@Getter
+@Setter(AccessLevel.PROTECTED)
+@ToString
+@EqualsAndHashCode(of = {"documentHash", "smartContract"}, callSuper = true)
+@AccessControl(availableActions = {CrudActions.SAVE, CrudActions.FIND, CrudActions.FIND_ALL, CrudActions.REMOVE},
+        rolesPermissions = {
+                //Admin role can do everything
+                @DefaultRoleAccess(roleName = EthDocumentNotarization.DEFAULT_MANAGER_ROLE, actions = {CrudActions.SAVE, CrudActions.FIND, CrudActions.FIND_ALL, CrudActions.REMOVE}),
+                //Viwer has read only access
+                @DefaultRoleAccess(roleName = EthDocumentNotarization.DEFAULT_VIEWER_ROLE, actions = {CrudActions.FIND, CrudActions.FIND_ALL}),
+                //Editor can notarize but not remove
+                @DefaultRoleAccess(roleName = EthDocumentNotarization.DEFAULT_EDITOR_ROLE, actions = {CrudActions.SAVE, CrudActions.FIND, CrudActions.FIND_ALL})
+        })
+public class EthDocumentNotarization extends AbstractJpaEntity implements ProtectedEntity, OwnedResource {
+
+    public static final String DEFAULT_MANAGER_ROLE = "ethereumDocumentNotarizationManager";
+    public static final String DEFAULT_VIEWER_ROLE = "ethereumDocumentNotarizationViewer";
+    public static final String DEFAULT_EDITOR_ROLE = "ethereumDocumentNotarizationEditor";
+    private static final String PROOF_SEPARATOR = ",";
+
+    //32 bytes document hash, 0x prefixed lower case hex
+    @NoMalitiusCode
+    @NotNull
+    @NotNullOnPersist
+    @NonNull
+    @Pattern(regexp = "0x[0-9a-f]{64}")
+    @Column(length = 66)
+    @JsonView(WaterJsonView.Public.class)
+    private String documentHash;
+
+    //account sending the root transaction
+    @NoMalitiusCode
+    @NotNull
+    @NotNullOnPersist
+    @NonNull
+    @JsonView(WaterJsonView.Public.class)
+    private String signerAddress;
+
+    @Setter
+    @Enumerated(EnumType.STRING)
+    @JsonView(WaterJsonView.Public.class)
+    private EthNotarizationStatus status = EthNotarizationStatus.PENDING;
+
+    @Setter
+    @Column(length = 66)
+    @JsonView(WaterJsonView.Public.class)
+    private String merkleRoot;
+
+    @Setter
+    @JsonView(WaterJsonView.Public.class)
+    private Integer leafIndex;
+
+    //sibling hashes from the leaf up to the root, comma separated
+    @Lob
+    @JsonIgnore
+    @ToString.Exclude
+    private String merkleProof;
+
+    @Setter
+    @JsonView(WaterJsonView.Public.class)
+    private String transactionHash;
+
+    @Setter
+    @JsonView(WaterJsonView.Public.class)
+    private Long blockNumber;
+
+    @NotNullOnPersist
+    @ManyToOne
+    @JoinColumn(name = "smart_contract_id")
+    @NonNull
+    @JsonIgnore
+    @ToString.Exclude
+    private EthSmartContract smartContract;
+
+    //Owner user id of the entity
+    @Setter
+    @JsonIgnore
+    @JsonView({WaterJsonView.Extended.class})
+    private Long ownerUserId;
+
+    @Transient
+    @JsonProperty("proof")
+    @JsonView(WaterJsonView.Public.class)
+    public List<String> getProof() {
+        if (merkleProof == null || merkleProof.isEmpty())
+            return Collections.emptyList();
+        return Arrays.asList(merkleProof.split(PROOF_SEPARATOR));
+    }
+
+    public void setProof(List<String> proof) {
+        this.merkleProof = proof == null ? null : String.join(PROOF_SEPARATOR, proof);
+    }
+
+    //used just for rest communication
+    @Transient
+    @JsonProperty("smartContractId")
+    @JsonView(WaterJsonView.Public.class)
+    public Long getSmartContractId() {
+        return smartContract.getId();
+    }
+
+    /**
+     * Used when set from rest the smart contract internal object is forced to be the one with the rigth id.
+     * It is needed just to link the relation
+     *
+     * @param smartContractId
+     */
+    public void setSmartContractId(Long smartContractId) {
+        EthSmartContract relatedSmartContract = new EthSmartContract("", "", "", "", new EthBlockchain("", "", ""), 0L);
+        relatedSmartContract.setId(smartContractId);
+        this.setSmartContract(relatedSmartContract);
+    }
+
+}
@@ -0,0 +1,41 @@
+package it.water.connectors.ethereum.model;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import it.water.core.api.service.rest.WaterJsonView;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * Health of a blockchain RPC endpoint as seen by the client side balancer.
+ * Latency is the exponentially weighted moving average of the request times, -1 until the endpoint has been used.
+ * Endpoints which fail or fall behind the chain head are not available until a probe brings them back.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class EthEndpointHealth {
+    @JsonView(WaterJsonView.Public.class)
+    private String url;
+
+    @JsonView(WaterJsonView.Public.class)
+    private boolean available;
+
+    @JsonView(WaterJsonView.Public.class)
+    private double latencyMillis;
+
+    //-1 when unknown
+    @JsonView(WaterJsonView.Public.class)
+    private long blockNumber;
+
+    @JsonView(WaterJsonView.Public.class)
+    private long blocksBehind;
+
+    @JsonView(WaterJsonView.Public.class)
+    private int consecutiveFailures;
+
+    @JsonView(WaterJsonView.Public.class)
+    private String lastError;
+}
@@ -0,0 +1,43 @@
+package it.water.connectors.ethereum.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import it.water.core.validation.annotations.NotNullOnPersist;
+import it.water.repository.jpa.model.AbstractJpaEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+
+/**
+ * Last block indexed for a smart contract, the event indexer resumes from it after a restart.
+ * The block hash tells if the block has been replaced by a reorg in the meanwhile.
+ */
+//JPA
+@Entity
+@Table(name = "ethereum_event_index_checkpoint", uniqueConstraints = {@UniqueConstraint(columnNames = {"smart_contract_id"})})
+@Access(AccessType.FIELD)
+//Lombok
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@RequiredArgsConstructor
+@Getter
+@Setter(AccessLevel.PROTECTED)
+@ToString
+@EqualsAndHashCode(of = {"smartContract"}, callSuper = true)
+public class EthEventIndexCheckpoint extends AbstractJpaEntity {
+
+    @NotNullOnPersist
+    @OneToOne
+    @JoinColumn(name = "smart_contract_id")
+    @NonNull
+    @JsonIgnore
+    @ToString.Exclude
+    private EthSmartContract smartContract;
+
+    //-1 when the indexed blocks have all been rolled back
+    @Setter
+    private long blockNumber = -1;
+
+    @Setter
+    @Column(length = 66)
+    private String blockHash;
+
+}
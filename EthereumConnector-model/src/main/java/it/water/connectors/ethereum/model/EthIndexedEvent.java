@@ -0,0 +1,126 @@
+package it.water.connectors.ethereum.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.annotation.JsonView;
+import it.water.core.api.service.rest.WaterJsonView;
+import it.water.core.validation.annotations.NotNullOnPersist;
+import it.water.repository.jpa.model.AbstractJpaEntity;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+
+/**
+ * Contract event ingested by the event indexer.
+ * Raw topics are kept beside the decoded values, so events can be looked up by indexed parameter without decoding them.
+ * The first word of the log data is kept too, it is the first non indexed parameter when that is a static type, like a document hash.
+ * Each filterable column is indexed together with the contract and the log position, so a filtered page is read in chain order from the index.
+ */
+//JPA
+@Entity
+@Table(name = "ethereum_indexed_event", uniqueConstraints = {@UniqueConstraint(columnNames = {"smart_contract_id", "transactionHash", "logIndex"})},
+        indexes = {@Index(name = "ethereum_indexed_event_block_idx", columnList = "smart_contract_id,blockNumber,logIndex"),
+                @Index(name = "ethereum_indexed_event_topic0_idx", columnList = "smart_contract_id,topic0,blockNumber,logIndex"),
+                @Index(name = "ethereum_indexed_event_topic1_idx", columnList = "smart_contract_id,topic1,blockNumber,logIndex"),
+                @Index(name = "ethereum_indexed_event_topic2_idx", columnList = "smart_contract_id,topic2,blockNumber,logIndex"),
+                @Index(name = "ethereum_indexed_event_topic3_idx", columnList = "smart_contract_id,topic3,blockNumber,logIndex"),
+                @Index(name = "ethereum_indexed_event_data_word_idx", columnList = "smart_contract_id,dataWord,blockNumber,logIndex"),
+                @Index(name = "ethereum_indexed_event_sender_idx", columnList = "smart_contract_id,sender,blockNumber,logIndex")})
+@Access(AccessType.FIELD)
+//Lombok
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@RequiredArgsConstructor
+@Getter
+@Setter(AccessLevel.PROTECTED)
+@ToString
+@EqualsAndHashCode(of = {"smartContract", "transactionHash", "logIndex"}, callSuper = true)
+public class EthIndexedEvent extends AbstractJpaEntity {
+
+    @NotNullOnPersist
+    @ManyToOne
+    @JoinColumn(name = "smart_contract_id")
+    @NonNull
+    @JsonIgnore
+    @ToString.Exclude
+    private EthSmartContract smartContract;
+
+    @NotNull
+    @NonNull
+    @JsonView(WaterJsonView.Public.class)
+    private String eventName;
+
+    @NotNull
+    @NonNull
+    @Column(length = 66)
+    @JsonView(WaterJsonView.Public.class)
+    private String transactionHash;
+
+    @NotNull
+    @NonNull
+    @JsonView(WaterJsonView.Public.class)
+    private Long logIndex;
+
+    @NotNull
+    @NonNull
+    @JsonView(WaterJsonView.Public.class)
+    private Long blockNumber;
+
+    //account which sent the transaction
+    @Setter
+    @Column(length = 42)
+    @JsonView(WaterJsonView.Public.class)
+    private String sender;
+
+    //event topic, then the indexed parameters
+    @Setter
+    @Column(length = 66)
+    @JsonView(WaterJsonView.Public.class)
+    private String topic0;
+
+    @Setter
+    @Column(length = 66)
+    @JsonView(WaterJsonView.Public.class)
+    private String topic1;
+
+    @Setter
+    @Column(length = 66)
+    @JsonView(WaterJsonView.Public.class)
+    private String topic2;
+
+    @Setter
+    @Column(length = 66)
+    @JsonView(WaterJsonView.Public.class)
+    private String topic3;
+
+    //first 32 bytes of the log data
+    @Setter
+    @Column(length = 66)
+    @JsonView(WaterJsonView.Public.class)
+    private String dataWord;
+
+    //raw log data
+    @Setter
+    @Lob
+    @ToString.Exclude
+    @JsonView(WaterJsonView.Extended.class)
+    private String data;
+
+    //decoded parameters as JSON object, bytes are 0x prefixed hex and integers are decimal strings
+    @Setter
+    @Lob
+    @ToString.Exclude
+    @JsonRawValue
+    @JsonView(WaterJsonView.Public.class)
+    private String eventValues;
+
+    //used just for rest communication
+    @Transient
+    @JsonProperty("smartContractId")
+    @JsonView(WaterJsonView.Public.class)
+    public Long getSmartContractId() {
+        return smartContract.getId();
+    }
+
+}
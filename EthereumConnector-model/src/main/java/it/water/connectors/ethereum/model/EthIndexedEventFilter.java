@@ -0,0 +1,25 @@
+package it.water.connectors.ethereum.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * Filter of indexed events, null fields match any value.
+ * Topics and data word are 32 bytes 0x prefixed hex values, addresses passed as topics are left padded to 32 bytes.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class EthIndexedEventFilter {
+    private String eventName;
+    private String topic0;
+    private String topic1;
+    private String topic2;
+    private String topic3;
+    private String dataWord;
+    private String sender;
+    private Long fromBlock;
+    private Long toBlock;
+}
@@ -0,0 +1,26 @@
+package it.water.connectors.ethereum.model;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import it.water.core.api.service.rest.WaterJsonView;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+/**
+ * Page of indexed events in chain order.
+ * The next cursor points after the last event of the page, it is null when there are no more events.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class EthIndexedEventPage {
+    @JsonView(WaterJsonView.Public.class)
+    private List<EthIndexedEvent> results;
+
+    @JsonView(WaterJsonView.Public.class)
+    private String nextCursor;
+}
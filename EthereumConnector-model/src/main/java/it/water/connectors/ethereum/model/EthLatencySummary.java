@@ -0,0 +1,36 @@
+package it.water.connectors.ethereum.model;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import it.water.core.api.service.rest.WaterJsonView;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * Latency distribution of a set of samples, in milliseconds.
+ * Percentiles are read from a histogram, so they are approximated within a few percent of their value.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class EthLatencySummary {
+    @JsonView(WaterJsonView.Public.class)
+    private long count;
+
+    @JsonView(WaterJsonView.Public.class)
+    private double meanMillis;
+
+    @JsonView(WaterJsonView.Public.class)
+    private double p50Millis;
+
+    @JsonView(WaterJsonView.Public.class)
+    private double p90Millis;
+
+    @JsonView(WaterJsonView.Public.class)
+    private double p99Millis;
+
+    @JsonView(WaterJsonView.Public.class)
+    private double maxMillis;
+}
@@ -0,0 +1,13 @@
+package it.water.connectors.ethereum.model;
+
+/**
+ * Lifecycle of a document notarized inside a Merkle batch.
+ */
+public enum EthNotarizationStatus {
+    //queued, waiting for its batch root to be mined
+    PENDING,
+    //root mined, merkle root and inclusion proof are set
+    NOTARIZED,
+    //root transaction failed, the document must be notarized again
+    FAILED
+}
@@ -0,0 +1,109 @@
+package it.water.connectors.ethereum.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonView;
+import it.water.core.api.service.rest.WaterJsonView;
+import it.water.core.validation.annotations.NotNullOnPersist;
+import it.water.repository.jpa.model.AbstractJpaEntity;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.util.List;
+
+
+/**
+ * Transaction receipt stored with typed columns, so receipts can be queried by hash, block, gas or status.
+ * Logs are kept in binary form and decoded only when they are read through getLogs.
+ */
+//JPA
+@Entity
+@Table(name = "ethereum_transaction_receipt", uniqueConstraints = {@UniqueConstraint(columnNames = {"blockchain_id", "transactionHash"})},
+        indexes = {@Index(name = "ethereum_transaction_receipt_block_idx", columnList = "blockNumber"),
+                @Index(name = "ethereum_transaction_receipt_status_idx", columnList = "status"),
+                @Index(name = "ethereum_transaction_receipt_gas_used_idx", columnList = "gasUsed"),
+                @Index(name = "ethereum_transaction_receipt_gas_price_idx", columnList = "effectiveGasPrice")})
+@Access(AccessType.FIELD)
+//Lombok
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@RequiredArgsConstructor
+@Getter
+@Setter(AccessLevel.PROTECTED)
+@ToString
+@EqualsAndHashCode(of = {"blockchain", "transactionHash"}, callSuper = true)
+public class EthReceipt extends AbstractJpaEntity {
+
+    @NotNullOnPersist
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blockchain_id")
+    @NonNull
+    @JsonIgnore
+    @ToString.Exclude
+    private EthBlockchain blockchain;
+
+    @NotNull
+    @NonNull
+    @Column(length = 66)
+    @JsonView(WaterJsonView.Public.class)
+    private String transactionHash;
+
+    @Setter
+    @JsonView(WaterJsonView.Public.class)
+    private Long blockNumber;
+
+    @Setter
+    @Column(length = 66)
+    @JsonView(WaterJsonView.Public.class)
+    private String blockHash;
+
+    @Setter
+    @Column(length = 42)
+    @JsonView(WaterJsonView.Public.class)
+    private String fromAddress;
+
+    @Setter
+    @Column(length = 42)
+    @JsonView(WaterJsonView.Public.class)
+    private String toAddress;
+
+    @Setter
+    @Column(length = 42)
+    @JsonView(WaterJsonView.Public.class)
+    private String contractAddress;
+
+    @Setter
+    @JsonView(WaterJsonView.Public.class)
+    private Long gasUsed;
+
+    //1 success, 0 failure, null before byzantium
+    @Setter
+    @JsonView(WaterJsonView.Public.class)
+    private Integer status;
+
+    //wei per gas unit
+    @Setter
+    @JsonView(WaterJsonView.Public.class)
+    private Long effectiveGasPrice;
+
+    @Setter
+    @JsonView(WaterJsonView.Public.class)
+    private int logCount;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @JsonIgnore
+    @ToString.Exclude
+    private byte[] encodedLogs;
+
+    @Transient
+    @JsonIgnore
+    public List<EthReceiptLog> getLogs() {
+        return EthReceiptLog.decode(encodedLogs);
+    }
+
+    public void setLogs(List<EthReceiptLog> logs) {
+        this.encodedLogs = logs == null ? null : EthReceiptLog.encode(logs);
+        this.logCount = logs == null ? 0 : logs.size();
+    }
+
+}
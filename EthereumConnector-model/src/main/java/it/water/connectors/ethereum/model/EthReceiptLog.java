@@ -0,0 +1,145 @@
+package it.water.connectors.ethereum.model;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import it.water.core.api.service.rest.WaterJsonView;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Log of a stored transaction receipt.
+ * Logs are stored as binary, each one is the 20 bytes address, the log index, the 32 bytes topics and the data,
+ * which takes less than half the room of their JSON hex form.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@EqualsAndHashCode
+public class EthReceiptLog {
+    private static final byte FORMAT_VERSION = 1;
+    private static final int ADDRESS_LENGTH = 20;
+    private static final int WORD_LENGTH = 32;
+
+    @JsonView(WaterJsonView.Public.class)
+    private String address;
+
+    @JsonView(WaterJsonView.Public.class)
+    private Long logIndex;
+
+    @JsonView(WaterJsonView.Public.class)
+    private List<String> topics;
+
+    @JsonView(WaterJsonView.Public.class)
+    private String data;
+
+    /**
+     * @param logs logs, addresses and topics must be 0x prefixed hex of 20 and 32 bytes
+     * @return binary form of the logs
+     */
+    public static byte[] encode(List<EthReceiptLog> logs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, logs.size());
+        for (EthReceiptLog log : logs) {
+            writeBytes(out, toBytes(log.address, ADDRESS_LENGTH));
+            //0 means no log index, pending logs have none
+            writeVarLong(out, log.logIndex == null ? 0 : log.logIndex + 1);
+            List<String> logTopics = log.topics == null ? Collections.emptyList() : log.topics;
+            out.write(logTopics.size());
+            logTopics.forEach(topic -> writeBytes(out, toBytes(topic, WORD_LENGTH)));
+            byte[] logData = toBytes(log.data, -1);
+            writeVarLong(out, logData.length);
+            writeBytes(out, logData);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param encoded binary form of the logs
+     * @return logs
+     */
+    public static List<EthReceiptLog> decode(byte[] encoded) {
+        if (encoded == null || encoded.length == 0)
+            return Collections.emptyList();
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        if (in.get() != FORMAT_VERSION)
+            throw new IllegalArgumentException("Unsupported receipt logs format");
+        int count = (int) readVarLong(in);
+        List<EthReceiptLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String logAddress = toHex(readBytes(in, ADDRESS_LENGTH));
+            long index = readVarLong(in);
+            int topicCount = in.get() & 0xFF;
+            List<String> logTopics = new ArrayList<>(topicCount);
+            for (int j = 0; j < topicCount; j++)
+                logTopics.add(toHex(readBytes(in, WORD_LENGTH)));
+            String logData = toHex(readBytes(in, (int) readVarLong(in)));
+            logs.add(new EthReceiptLog(logAddress, index == 0 ? null : index - 1, logTopics, logData));
+        }
+        return logs;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] readBytes(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @param length expected length in bytes, -1 for any length
+     */
+    private static byte[] toBytes(String hex, int length) {
+        String digits = hex == null ? "" : hex.startsWith("0x") || hex.startsWith("0X") ? hex.substring(2) : hex;
+        if (digits.length() % 2 != 0 || (length >= 0 && digits.length() != length * 2))
+            throw new IllegalArgumentException("Invalid hex value: " + hex);
+        byte[] bytes = new byte[digits.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(digits.charAt(2 * i), 16);
+            int low = Character.digit(digits.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0)
+                throw new IllegalArgumentException("Invalid hex value: " + hex);
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 + bytes.length * 2).append("0x");
+        for (byte b : bytes)
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return hex.toString();
+    }
+}
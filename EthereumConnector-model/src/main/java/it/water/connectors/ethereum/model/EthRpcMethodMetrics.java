@@ -0,0 +1,43 @@
+package it.water.connectors.ethereum.model;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import it.water.core.api.service.rest.WaterJsonView;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * Metrics of a JSON-RPC method sent to the nodes of a blockchain.
+ * Errors include timeouts and JSON-RPC error responses, bytes are measured only on http(s) transports.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class EthRpcMethodMetrics {
+    @JsonView(WaterJsonView.Public.class)
+    private String method;
+
+    @JsonView(WaterJsonView.Public.class)
+    private long requests;
+
+    @JsonView(WaterJsonView.Public.class)
+    private long errors;
+
+    @JsonView(WaterJsonView.Public.class)
+    private long timeouts;
+
+    //requests sent and not answered yet
+    @JsonView(WaterJsonView.Public.class)
+    private long inFlight;
+
+    @JsonView(WaterJsonView.Public.class)
+    private long bytesSent;
+
+    @JsonView(WaterJsonView.Public.class)
+    private long bytesReceived;
+
+    @JsonView(WaterJsonView.Public.class)
+    private EthLatencySummary latency;
+}
@@ -0,0 +1,30 @@
+package it.water.connectors.ethereum.model;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import it.water.core.api.service.rest.WaterJsonView;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+/**
+ * JSON-RPC metrics of a blockchain, collected since its first connection.
+ * Receipt wait is the time from the submission of a transaction to the arrival of its receipt.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class EthRpcMetrics {
+    @JsonView(WaterJsonView.Public.class)
+    private long blockchainId;
+
+    //ordered by method name
+    @JsonView(WaterJsonView.Public.class)
+    private List<EthRpcMethodMetrics> methods;
+
+    @JsonView(WaterJsonView.Public.class)
+    private EthLatencySummary receiptWait;
+}
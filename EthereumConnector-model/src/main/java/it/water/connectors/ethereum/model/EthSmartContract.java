@@ -17,6 +17,9 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 
+import java.util.HashSet;
+import java.util.Set;
+
 
 /**
  * @Generated by Water Generator
@@ -73,13 +76,25 @@ public class EthSmartContract extends AbstractJpaEntity implements ProtectedEnti
     @JsonView(WaterJsonView.Extended.class)
     private String address;
 
+    //hash of the deployment transaction, its receipt is stored as EthReceipt.
+    //Mapped on the column of the former transactionReceipt field, so existing contracts are kept
     @NoMalitiusCode
     @NotNull
     @NonNull
     @NotNullOnPersist
     @Setter
+    @Column(name = "transactionReceipt")
     @JsonView(WaterJsonView.Extended.class)
-    private String transactionReceipt;
+    private String transactionHash;
+
+    //Optional ABI JSON, it allows to invoke the contract at runtime without a generated wrapper class.
+    //Accepted on save and update but never returned with the contract, it is read through the abi API
+    @Lob
+    @Setter
+    @ToString.Exclude
+    @JsonView(WaterJsonView.Extended.class)
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private String abi;
 
     @NotNullOnPersist
     @ManyToOne
@@ -95,6 +110,21 @@ public class EthSmartContract extends AbstractJpaEntity implements ProtectedEnti
     @JsonView({WaterJsonView.Extended.class})
     private Long ownerUserId;
 
+    @OneToMany(mappedBy = "smartContract", cascade = {CascadeType.REMOVE})
+    @JsonIgnore
+    @ToString.Exclude
+    private Set<EthDocumentNotarization> notarizations = new HashSet<>();
+
+    @OneToMany(mappedBy = "smartContract", cascade = {CascadeType.REMOVE})
+    @JsonIgnore
+    @ToString.Exclude
+    private Set<EthIndexedEvent> indexedEvents = new HashSet<>();
+
+    @OneToOne(mappedBy = "smartContract", cascade = {CascadeType.REMOVE})
+    @JsonIgnore
+    @ToString.Exclude
+    private EthEventIndexCheckpoint eventIndexCheckpoint;
+
     //used just for rest communication
     @Transient
     @JsonProperty("blockchainId")
@@ -102,6 +132,27 @@ public class EthSmartContract extends AbstractJpaEntity implements ProtectedEnti
         return blockchain.getId();
     }
 
+    /**
+     * @deprecated replaced by transactionHash, kept for the rest clients of the former transactionReceipt field
+     */
+    @Deprecated
+    @Transient
+    @JsonProperty("transactionReceipt")
+    @JsonView(WaterJsonView.Extended.class)
+    public String getTransactionReceipt() {
+        return transactionHash;
+    }
+
+    /**
+     * @deprecated replaced by transactionHash, kept for the rest clients of the former transactionReceipt field
+     * @param transactionReceipt deployment transaction hash
+     */
+    @Deprecated
+    @JsonProperty("transactionReceipt")
+    public void setTransactionReceipt(String transactionReceipt) {
+        this.transactionHash = transactionReceipt;
+    }
+
     /**
      * Used when set from rest the blockchain internal object is forced to be the one with the rigth id.
      * It is needed just to link the relation
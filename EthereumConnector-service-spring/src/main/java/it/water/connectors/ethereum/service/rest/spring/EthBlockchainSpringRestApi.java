@@ -19,6 +19,8 @@ package it.water.connectors.ethereum.service.rest.spring;
 import com.fasterxml.jackson.annotation.JsonView;
 import it.water.connectors.ethereum.api.rest.BlockchainRestApi;
 import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import it.water.connectors.ethereum.model.EthRpcMetrics;
 import it.water.core.api.model.PaginableResult;
 import it.water.core.api.service.rest.FrameworkRestApi;
 import it.water.core.api.service.rest.WaterJsonView;
@@ -26,6 +28,8 @@ import it.water.service.rest.api.security.LoggedIn;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * @Author Aristide Cittadino
  * Interface exposing same methods of its parent EthereumConnectorRestApi but adding Spring annotations.
@@ -49,6 +53,16 @@ public interface EthBlockchainSpringRestApi extends BlockchainRestApi {
     @JsonView(WaterJsonView.Public.class)
     EthBlockchain find(@PathVariable("id") long id);
 
+    @LoggedIn
+    @GetMapping("/{id}/health")
+    @JsonView(WaterJsonView.Public.class)
+    List<EthEndpointHealth> getEndpointsHealth(@PathVariable("id") long id);
+
+    @LoggedIn
+    @GetMapping("/{id}/metrics")
+    @JsonView(WaterJsonView.Public.class)
+    EthRpcMetrics getMetrics(@PathVariable("id") long id);
+
     @LoggedIn
     @GetMapping
     @JsonView(WaterJsonView.Public.class)
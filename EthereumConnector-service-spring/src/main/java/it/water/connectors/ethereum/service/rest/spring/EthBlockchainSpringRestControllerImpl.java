@@ -2,12 +2,16 @@
 package it.water.connectors.ethereum.service.rest.spring;
 
 import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import it.water.connectors.ethereum.model.EthRpcMetrics;
 import it.water.connectors.ethereum.service.rest.EthBlockchainRestControllerImpl;
 import it.water.core.api.model.PaginableResult;
 import it.water.core.api.repository.query.Query;
 import it.water.core.api.repository.query.QueryOrder;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 
 /**
  * @Generated by Water Generator
@@ -51,4 +55,16 @@ public class EthBlockchainSpringRestControllerImpl extends EthBlockchainRestCont
     public PaginableResult<EthBlockchain> findAll() {
         return super.findAll();
     }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public List<EthEndpointHealth> getEndpointsHealth(long id) {
+        return super.getEndpointsHealth(id);
+    }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public EthRpcMetrics getMetrics(long id) {
+        return super.getMetrics(id);
+    }
 }
@@ -0,0 +1,50 @@
+package it.water.connectors.ethereum.service.rest.spring;
+
+import it.water.connectors.ethereum.service.rest.EthDocumentNotarizationRestControllerImpl;
+import it.water.core.api.model.*;
+import it.water.connectors.ethereum.model.*;
+import org.springframework.web.bind.annotation.RestController;
+
+
+/**
+ * Rest Api Class for EthDocumentNotarization entity. It just overrides method invoking super in order to let spring find web methods.
+ */
+@RestController
+public class EthDocumentNotarizationSpringRestControllerImpl extends EthDocumentNotarizationRestControllerImpl implements EthDocumentNotarizationSpringRestApi {
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public EthDocumentNotarization notarize(EthDocumentNotarization notarization) {
+        return super.notarize(notarization);
+    }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public void remove(long id) {
+        super.remove(id);
+    }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public EthDocumentNotarization find(long id) {
+        return super.find(id);
+    }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public PaginableResult<EthDocumentNotarization> findAll() {
+        return super.findAll();
+    }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public EthDocumentNotarization findByDocumentHash(long smartContractId, String documentHash) {
+        return super.findByDocumentHash(smartContractId, documentHash);
+    }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public boolean verify(long smartContractId, String documentHash) {
+        return super.verify(smartContractId, documentHash);
+    }
+}
@@ -25,6 +25,9 @@ import it.water.service.rest.api.security.LoggedIn;
 import com.fasterxml.jackson.annotation.JsonView;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.util.List;
 
 /**
  * @Author Aristide Cittadino
@@ -54,6 +57,30 @@ public interface EthSmartContractSpringRestApi extends SmartContractRestApi {
     @JsonView(WaterJsonView.Public.class)
     PaginableResult<EthSmartContract> findAll();
 
+    @LoggedIn
+    @GetMapping("/{id}/events")
+    @JsonView(WaterJsonView.Public.class)
+    EthIndexedEventPage findEvents(@PathVariable("id") long id, @RequestParam(value = "eventName", required = false) String eventName,
+                                   @RequestParam(value = "topic0", required = false) String topic0, @RequestParam(value = "topic1", required = false) String topic1,
+                                   @RequestParam(value = "topic2", required = false) String topic2, @RequestParam(value = "topic3", required = false) String topic3,
+                                   @RequestParam(value = "dataWord", required = false) String dataWord, @RequestParam(value = "sender", required = false) String sender,
+                                   @RequestParam(value = "fromBlock", required = false) Long fromBlock, @RequestParam(value = "toBlock", required = false) Long toBlock,
+                                   @RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "limit", defaultValue = "100") int limit);
+
+    @LoggedIn
+    @GetMapping("/{id}/receipt")
+    @JsonView(WaterJsonView.Public.class)
+    EthReceipt findReceipt(@PathVariable("id") long id);
+
+    @LoggedIn
+    @GetMapping("/{id}/receipt/logs")
+    @JsonView(WaterJsonView.Public.class)
+    List<EthReceiptLog> findReceiptLogs(@PathVariable("id") long id);
+
+    @LoggedIn
+    @GetMapping(value = "/{id}/abi", produces = MediaType.APPLICATION_JSON_VALUE)
+    String findAbi(@PathVariable("id") long id);
+
     @LoggedIn
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
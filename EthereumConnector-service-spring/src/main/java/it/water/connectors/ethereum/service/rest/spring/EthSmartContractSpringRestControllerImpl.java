@@ -7,6 +7,8 @@ import it.water.core.api.repository.query.*;
 import it.water.connectors.ethereum.model.*;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 
 /**
  * @Generated by Water Generator
@@ -50,4 +52,29 @@ public class EthSmartContractSpringRestControllerImpl extends EthSmartContractRe
     public PaginableResult<EthSmartContract> findAll() {
         return super.findAll();
     }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public EthIndexedEventPage findEvents(long id, String eventName, String topic0, String topic1, String topic2, String topic3,
+                                          String dataWord, String sender, Long fromBlock, Long toBlock, String cursor, int limit) {
+        return super.findEvents(id, eventName, topic0, topic1, topic2, topic3, dataWord, sender, fromBlock, toBlock, cursor, limit);
+    }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public EthReceipt findReceipt(long id) {
+        return super.findReceipt(id);
+    }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public List<EthReceiptLog> findReceiptLogs(long id) {
+        return super.findReceiptLogs(id);
+    }
+
+    @Override
+    @SuppressWarnings("java:S1185") //disabling sonar because spring needs to override this method
+    public String findAbi(long id) {
+        return super.findAbi(id);
+    }
 }
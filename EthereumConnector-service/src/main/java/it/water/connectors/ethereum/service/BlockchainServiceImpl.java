@@ -3,6 +3,8 @@ package it.water.connectors.ethereum.service;
 import it.water.connectors.ethereum.api.BlockchainApi;
 import it.water.connectors.ethereum.api.BlockchainSystemApi;
 import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import it.water.connectors.ethereum.model.EthRpcMetrics;
 import it.water.core.api.registry.ComponentRegistry;
 import it.water.core.interceptors.annotations.FrameworkComponent;
 import it.water.core.interceptors.annotations.Inject;
@@ -10,6 +12,8 @@ import it.water.repository.service.BaseEntityServiceImpl;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 
 /**
  * @Generated by Water Generator
@@ -31,4 +35,14 @@ public class BlockchainServiceImpl extends BaseEntityServiceImpl<EthBlockchain>
     public BlockchainServiceImpl() {
         super(EthBlockchain.class);
     }
+
+    @Override
+    public List<EthEndpointHealth> getEndpointsHealth(long blockchainId) {
+        return systemService.getEndpointsHealth(find(blockchainId));
+    }
+
+    @Override
+    public EthRpcMetrics getMetrics(long blockchainId) {
+        return systemService.getMetrics(find(blockchainId));
+    }
 }
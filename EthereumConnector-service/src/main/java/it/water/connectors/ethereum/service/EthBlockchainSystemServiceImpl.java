@@ -2,7 +2,14 @@ package it.water.connectors.ethereum.service;
 
 import it.water.connectors.ethereum.api.BlockchainRepository;
 import it.water.connectors.ethereum.api.BlockchainSystemApi;
+import it.water.connectors.ethereum.api.EthClientRegistry;
+import it.water.connectors.ethereum.api.EthRpcMetricsRegistry;
+import it.water.connectors.ethereum.api.IndexedEventSystemApi;
 import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import it.water.connectors.ethereum.model.EthLatencySummary;
+import it.water.connectors.ethereum.model.EthRpcMetrics;
+import it.water.core.api.registry.ComponentRegistry;
 import it.water.core.api.registry.filter.ComponentFilterBuilder;
 import it.water.core.interceptors.annotations.FrameworkComponent;
 import it.water.core.interceptors.annotations.Inject;
@@ -10,10 +17,15 @@ import it.water.repository.service.BaseEntitySystemServiceImpl;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Collections;
+import java.util.List;
+
 
 /**
  * @Generated by Water Generator
  * System Service Api Class for EthereumConnector entity.
+ * Pooled client connections are evicted when a blockchain is updated or removed, its metrics are dropped when it is removed.
+ * Event indexers of its contracts are stopped before the eviction, and resumed from their checkpoints on the new connection after an update.
  */
 @FrameworkComponent
 public class EthBlockchainSystemServiceImpl extends BaseEntitySystemServiceImpl<EthBlockchain> implements BlockchainSystemApi {
@@ -26,8 +38,69 @@ public class EthBlockchainSystemServiceImpl extends BaseEntitySystemServiceImpl<
     @Setter
     private ComponentFilterBuilder componentFilterBuilder;
 
+    @Inject
+    @Setter
+    private ComponentRegistry componentRegistry;
+
+    @Inject
+    @Setter
+    private IndexedEventSystemApi indexedEventSystemApi;
+
     public EthBlockchainSystemServiceImpl() {
         super(EthBlockchain.class);
     }
 
+    @Override
+    public EthBlockchain update(EthBlockchain entity) {
+        EthBlockchain updated = super.update(entity);
+        //indexers hold the connection being evicted, they are restarted on a connection with the new endpoints
+        List<Long> indexedContracts = indexedEventSystemApi.stopBlockchainIndexing(updated.getId());
+        evictClients(updated.getId());
+        indexedEventSystemApi.resumeIndexing(indexedContracts);
+        return updated;
+    }
+
+    @Override
+    public void remove(long id) {
+        super.remove(id);
+        indexedEventSystemApi.stopBlockchainIndexing(id);
+        evictClients(id);
+        clearMetrics(id);
+    }
+
+    @Override
+    public List<EthEndpointHealth> getEndpointsHealth(EthBlockchain blockchain) {
+        if (componentRegistry == null)
+            return Collections.emptyList();
+        List<EthClientRegistry> clientRegistries = componentRegistry.findComponents(EthClientRegistry.class, null);
+        if (clientRegistries == null || clientRegistries.isEmpty())
+            return Collections.emptyList();
+        return clientRegistries.get(0).getEndpointsHealth(blockchain);
+    }
+
+    @Override
+    public EthRpcMetrics getMetrics(EthBlockchain blockchain) {
+        List<EthRpcMetricsRegistry> metricsRegistries = componentRegistry == null ? null : componentRegistry.findComponents(EthRpcMetricsRegistry.class, null);
+        if (metricsRegistries == null || metricsRegistries.isEmpty())
+            return new EthRpcMetrics(blockchain.getId(), Collections.emptyList(), new EthLatencySummary(0, 0, 0, 0, 0, 0));
+        return metricsRegistries.get(0).getMetrics(blockchain.getId());
+    }
+
+    private void evictClients(long blockchainId) {
+        //client registry is optional, it is available only when a client implementation is installed
+        if (componentRegistry == null)
+            return;
+        List<EthClientRegistry> clientRegistries = componentRegistry.findComponents(EthClientRegistry.class, null);
+        if (clientRegistries != null)
+            clientRegistries.forEach(clientRegistry -> clientRegistry.evict(blockchainId));
+    }
+
+    private void clearMetrics(long blockchainId) {
+        if (componentRegistry == null)
+            return;
+        List<EthRpcMetricsRegistry> metricsRegistries = componentRegistry.findComponents(EthRpcMetricsRegistry.class, null);
+        if (metricsRegistries != null)
+            metricsRegistries.forEach(metricsRegistry -> metricsRegistry.clear(blockchainId));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package it.water.connectors.ethereum.service;
+
+import it.water.connectors.ethereum.api.DocumentNotarizationApi;
+import it.water.connectors.ethereum.api.DocumentNotarizationSystemApi;
+import it.water.connectors.ethereum.model.EthDocumentNotarization;
+import it.water.connectors.ethereum.model.EthNotarizationStatus;
+import it.water.core.api.registry.ComponentRegistry;
+import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.core.interceptors.annotations.Inject;
+import it.water.repository.entity.model.exceptions.NoResultException;
+import it.water.repository.service.BaseEntityServiceImpl;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Service Api Class for EthDocumentNotarization entity.
+ * Permissions are checked through the base save and find methods, the system service does the batching.
+ */
+@FrameworkComponent
+public class EthDocumentNotarizationServiceImpl extends BaseEntityServiceImpl<EthDocumentNotarization> implements DocumentNotarizationApi {
+
+    @Inject
+    @Getter
+    @Setter
+    private DocumentNotarizationSystemApi systemService;
+
+    @Inject
+    @Getter
+    @Setter
+    private ComponentRegistry componentRegistry;
+
+    public EthDocumentNotarizationServiceImpl() {
+        super(EthDocumentNotarization.class);
+    }
+
+    @Override
+    public EthDocumentNotarization notarize(EthDocumentNotarization notarization) {
+        //proof related fields are set by the batch only
+        notarization.setStatus(EthNotarizationStatus.PENDING);
+        notarization.setMerkleRoot(null);
+        notarization.setLeafIndex(null);
+        notarization.setProof(null);
+        notarization.setTransactionHash(null);
+        notarization.setBlockNumber(null);
+        EthDocumentNotarization saved = save(notarization);
+        systemService.enqueue(saved);
+        //status may already be changed if the notarization could not be queued
+        return systemService.find(saved.getId());
+    }
+
+    @Override
+    public EthDocumentNotarization findByDocumentHash(long smartContractId, String documentHash) {
+        EthDocumentNotarization notarization = systemService.findByDocumentHash(smartContractId, documentHash);
+        if (notarization == null)
+            throw new NoResultException();
+        return find(notarization.getId());
+    }
+
+    @Override
+    public boolean verify(long smartContractId, String documentHash) {
+        return systemService.verify(findByDocumentHash(smartContractId, documentHash));
+    }
+}
@@ -0,0 +1,136 @@
+package it.water.connectors.ethereum.service;
+
+import it.water.connectors.ethereum.api.DocumentNotarizationRepository;
+import it.water.connectors.ethereum.api.DocumentNotarizationSystemApi;
+import it.water.connectors.ethereum.api.EthClient;
+import it.water.connectors.ethereum.api.EthClientRegistry;
+import it.water.connectors.ethereum.api.EthDocumentProof;
+import it.water.connectors.ethereum.api.SmartContractSystemApi;
+import it.water.connectors.ethereum.model.EthDocumentNotarization;
+import it.water.connectors.ethereum.model.EthNotarizationStatus;
+import it.water.connectors.ethereum.model.EthSmartContract;
+import it.water.core.api.model.PaginableResult;
+import it.water.core.api.registry.ComponentRegistry;
+import it.water.core.api.repository.query.Query;
+import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.core.interceptors.annotations.Inject;
+import it.water.core.interceptors.annotations.OnActivate;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import it.water.repository.service.BaseEntitySystemServiceImpl;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+
+/**
+ * System Service Api Class for EthDocumentNotarization entity.
+ * Document hashes are handed to the merkle notarizer of the pooled client, the notarization is updated when its batch completes
+ * by repositoryExecutor, not by the thread completing the batch.
+ * Batches are kept in memory, so notarizations still pending on activation are queued again.
+ */
+@FrameworkComponent
+public class EthDocumentNotarizationSystemServiceImpl extends BaseEntitySystemServiceImpl<EthDocumentNotarization> implements DocumentNotarizationSystemApi {
+    private static Logger logger = LoggerFactory.getLogger(EthDocumentNotarizationSystemServiceImpl.class);
+    private static final int ACTIVATION_PAGE_SIZE = 100;
+
+    @Inject
+    @Getter
+    @Setter
+    private DocumentNotarizationRepository repository;
+
+    @Inject
+    @Setter
+    private SmartContractSystemApi smartContractSystemApi;
+
+    @Inject
+    @Setter
+    private ComponentRegistry componentRegistry;
+
+    @Setter
+    private Executor repositoryExecutor = EthRepositoryExecutor.EXECUTOR;
+
+    public EthDocumentNotarizationSystemServiceImpl() {
+        super(EthDocumentNotarization.class);
+    }
+
+    @OnActivate
+    public void onActivate() {
+        //ids are collected first, since enqueue may mark a notarization as failed and move it out of the pending pages
+        List<Long> pending = new ArrayList<>();
+        Query pendingFilter = repository.getQueryBuilderInstance().createQueryFilter("status=" + EthNotarizationStatus.PENDING);
+        int page = 1;
+        PaginableResult<EthDocumentNotarization> notarizations;
+        do {
+            notarizations = repository.findAll(ACTIVATION_PAGE_SIZE, page++, pendingFilter, null);
+            if (notarizations == null)
+                break;
+            notarizations.getResults().forEach(notarization -> pending.add(notarization.getId()));
+        } while (notarizations.getResults().size() == ACTIVATION_PAGE_SIZE);
+        if (!pending.isEmpty())
+            logger.info("Queuing again {} pending notarizations", pending.size());
+        pending.forEach(notarizationId -> enqueue(repository.find(notarizationId)));
+    }
+
+    @Override
+    public void enqueue(EthDocumentNotarization notarization) {
+        long notarizationId = notarization.getId();
+        try {
+            EthSmartContract smartContract = smartContractSystemApi.find(notarization.getSmartContract().getId());
+            clientOf(smartContract).merkleNotarizer(smartContract, notarization.getSignerAddress())
+                    .notarizeAsync(notarization.getDocumentHash())
+                    .whenCompleteAsync((proof, error) -> onBatchCompleted(notarizationId, proof, error), repositoryExecutor);
+        } catch (RuntimeException e) {
+            //the notarization is kept as failed, so it is never left pending
+            onBatchCompleted(notarizationId, null, e);
+        }
+    }
+
+    @Override
+    public EthDocumentNotarization findByDocumentHash(long smartContractId, String documentHash) {
+        return repository.findByDocumentHash(smartContractId, documentHash);
+    }
+
+    @Override
+    public boolean verify(EthDocumentNotarization notarization) {
+        if (notarization.getStatus() != EthNotarizationStatus.NOTARIZED)
+            return false;
+        EthSmartContract smartContract = smartContractSystemApi.find(notarization.getSmartContract().getId());
+        EthClient client = clientOf(smartContract);
+        return client.verifyMerkleProof(notarization.getDocumentHash(), notarization.getProof(), notarization.getMerkleRoot())
+                && client.isMerkleRootNotarized(smartContract, notarization.getMerkleRoot());
+    }
+
+    private void onBatchCompleted(long notarizationId, EthDocumentProof proof, Throwable error) {
+        try {
+            EthDocumentNotarization notarization = repository.find(notarizationId);
+            if (error != null) {
+                logger.warn("Notarization {} failed: {}", notarizationId, error.getMessage());
+                notarization.setStatus(EthNotarizationStatus.FAILED);
+            } else {
+                notarization.setStatus(EthNotarizationStatus.NOTARIZED);
+                notarization.setMerkleRoot(proof.getRoot());
+                notarization.setLeafIndex(proof.getLeafIndex());
+                notarization.setProof(proof.getProof());
+                notarization.setTransactionHash(proof.getTransactionHash());
+                notarization.setBlockNumber(proof.getBlockNumber() != null ? proof.getBlockNumber().longValue() : null);
+            }
+            repository.update(notarization);
+        } catch (RuntimeException e) {
+            logger.error("Cannot update notarization {}: {}", notarizationId, e.getMessage());
+        }
+    }
+
+    private EthClient clientOf(EthSmartContract smartContract) {
+        //client registry is available only when a client implementation is installed
+        List<EthClientRegistry> clientRegistries = componentRegistry != null ? componentRegistry.findComponents(EthClientRegistry.class, null) : null;
+        if (clientRegistries == null || clientRegistries.isEmpty())
+            throw new WaterRuntimeException("No ethereum client registry available");
+        return clientRegistries.get(0).getClient(smartContract.getBlockchain());
+    }
+
+}
@@ -0,0 +1,343 @@
+package it.water.connectors.ethereum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.water.connectors.ethereum.api.BlockchainRepository;
+import it.water.connectors.ethereum.api.EthClientRegistry;
+import it.water.connectors.ethereum.api.EthContractEvent;
+import it.water.connectors.ethereum.api.EthEventIndexStore;
+import it.water.connectors.ethereum.api.EthEventIndexer;
+import it.water.connectors.ethereum.api.EventIndexCheckpointRepository;
+import it.water.connectors.ethereum.api.IndexedEventRepository;
+import it.water.connectors.ethereum.api.IndexedEventSystemApi;
+import it.water.connectors.ethereum.api.SmartContractRepository;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthEventIndexCheckpoint;
+import it.water.connectors.ethereum.model.EthIndexedEvent;
+import it.water.connectors.ethereum.model.EthIndexedEventFilter;
+import it.water.connectors.ethereum.model.EthIndexedEventPage;
+import it.water.connectors.ethereum.model.EthSmartContract;
+import it.water.core.api.model.PaginableResult;
+import it.water.core.api.registry.ComponentRegistry;
+import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.core.interceptors.annotations.Inject;
+import it.water.core.interceptors.annotations.OnActivate;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import it.water.repository.service.BaseEntitySystemServiceImpl;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+
+/**
+ * System Service Api Class for EthIndexedEvent entity.
+ * Each contract with an ABI gets an event indexer of the pooled client, its events and checkpoint are stored through the repositories.
+ * Indexing is resumed on activation for the contracts already registered.
+ * Indexers of a blockchain are stopped while its pooled connection is replaced and resumed from their checkpoints.
+ */
+@FrameworkComponent
+public class EthIndexedEventSystemServiceImpl extends BaseEntitySystemServiceImpl<EthIndexedEvent> implements IndexedEventSystemApi {
+    private static Logger logger = LoggerFactory.getLogger(EthIndexedEventSystemServiceImpl.class);
+    private static final int ACTIVATION_PAGE_SIZE = 100;
+    public static final int DEFAULT_EVENTS_PAGE_SIZE = 100;
+    public static final int MAX_EVENTS_PAGE_SIZE = 1000;
+    private static final Pattern WORD = Pattern.compile("0x[0-9a-f]{64}");
+    private static final Pattern ADDRESS = Pattern.compile("0x[0-9a-f]{40}");
+    private static final String ADDRESS_PADDING = "000000000000000000000000";
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Inject
+    @Getter
+    @Setter
+    private IndexedEventRepository repository;
+
+    @Inject
+    @Setter
+    private EventIndexCheckpointRepository checkpointRepository;
+
+    @Inject
+    @Setter
+    private SmartContractRepository smartContractRepository;
+
+    @Inject
+    @Setter
+    private BlockchainRepository blockchainRepository;
+
+    @Inject
+    @Setter
+    private ComponentRegistry componentRegistry;
+
+    private final Map<Long, EthEventIndexer> indexers = new ConcurrentHashMap<>();
+    //blockchain of each indexed contract, its indexers are stopped before its pooled connection is evicted
+    private final Map<Long, Long> indexedBlockchains = new ConcurrentHashMap<>();
+    //stores of the same contract are serialized, a replaced indexer may still be completing its last range
+    private final Map<Long, Object> storeLocks = new ConcurrentHashMap<>();
+
+    public EthIndexedEventSystemServiceImpl() {
+        super(EthIndexedEvent.class);
+    }
+
+    @OnActivate
+    public void onActivate() {
+        int page = 1;
+        PaginableResult<EthSmartContract> smartContracts;
+        do {
+            smartContracts = smartContractRepository.findAll(ACTIVATION_PAGE_SIZE, page++, null, null);
+            if (smartContracts == null)
+                return;
+            smartContracts.getResults().forEach(this::startIndexing);
+        } while (smartContracts.getResults().size() == ACTIVATION_PAGE_SIZE);
+    }
+
+    @Override
+    public void startIndexing(EthSmartContract smartContract) {
+        long smartContractId = smartContract.getId();
+        if (smartContract.getAbi() == null || smartContract.getAbi().isEmpty()) {
+            stopIndexing(smartContractId);
+            return;
+        }
+        EthClientRegistry clientRegistry = clientRegistry();
+        if (clientRegistry == null) {
+            logger.warn("No ethereum client registry available, events of smart contract {} are not indexed", smartContractId);
+            return;
+        }
+        try {
+            //contracts may reference the blockchain by id only, its endpoints are read from the repository
+            EthBlockchain blockchain = blockchainRepository.find(smartContract.getBlockchain().getId());
+            EthEventIndexer indexer = clientRegistry.getClient(blockchain)
+                    .eventIndexer(smartContract, new SmartContractEventStore(smartContract));
+            EthEventIndexer previous = indexers.put(smartContractId, indexer);
+            indexedBlockchains.put(smartContractId, blockchain.getId());
+            if (previous != null)
+                previous.stop();
+            indexer.start();
+        } catch (RuntimeException e) {
+            //indexing must not prevent the contract from being saved
+            logger.error("Cannot index events of smart contract {}: {}", smartContractId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void stopIndexing(long smartContractId) {
+        EthEventIndexer indexer = indexers.remove(smartContractId);
+        indexedBlockchains.remove(smartContractId);
+        if (indexer != null)
+            indexer.stop();
+    }
+
+    @Override
+    public List<Long> stopBlockchainIndexing(long blockchainId) {
+        List<Long> stopped = new ArrayList<>();
+        indexedBlockchains.forEach((smartContractId, indexedBlockchainId) -> {
+            if (indexedBlockchainId == blockchainId && indexers.containsKey(smartContractId)) {
+                stopIndexing(smartContractId);
+                stopped.add(smartContractId);
+            }
+        });
+        return stopped;
+    }
+
+    @Override
+    public void resumeIndexing(List<Long> smartContractIds) {
+        smartContractIds.forEach(smartContractId -> {
+            EthSmartContract smartContract;
+            try {
+                smartContract = smartContractRepository.find(smartContractId);
+            } catch (RuntimeException e) {
+                logger.warn("Cannot resume indexing of smart contract {}: {}", smartContractId, e.getMessage());
+                return;
+            }
+            if (smartContract != null)
+                startIndexing(smartContract);
+        });
+    }
+
+    @Override
+    public boolean isIndexing(long smartContractId) {
+        EthEventIndexer indexer = indexers.get(smartContractId);
+        return indexer != null && indexer.isRunning();
+    }
+
+    @Override
+    public EthIndexedEventPage findEvents(long smartContractId, EthIndexedEventFilter filter, String cursor, int limit) {
+        EthIndexedEventFilter normalized = new EthIndexedEventFilter();
+        if (filter != null) {
+            normalized.setEventName(filter.getEventName());
+            normalized.setTopic0(toWord(filter.getTopic0(), "topic0"));
+            normalized.setTopic1(toWord(filter.getTopic1(), "topic1"));
+            normalized.setTopic2(toWord(filter.getTopic2(), "topic2"));
+            normalized.setTopic3(toWord(filter.getTopic3(), "topic3"));
+            normalized.setDataWord(toWord(filter.getDataWord(), "dataWord"));
+            normalized.setSender(toAddress(filter.getSender()));
+            normalized.setFromBlock(filter.getFromBlock());
+            normalized.setToBlock(filter.getToBlock());
+        }
+        Long afterBlock = null;
+        Long afterLogIndex = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = cursor.split(":");
+            try {
+                if (position.length != 2)
+                    throw new NumberFormatException();
+                afterBlock = Long.parseLong(position[0]);
+                afterLogIndex = Long.parseLong(position[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+        int pageSize = limit <= 0 ? DEFAULT_EVENTS_PAGE_SIZE : Math.min(limit, MAX_EVENTS_PAGE_SIZE);
+        //one more event tells whether there is a next page
+        List<EthIndexedEvent> events = repository.findPage(smartContractId, normalized, afterBlock, afterLogIndex, pageSize + 1);
+        if (events.size() <= pageSize)
+            return new EthIndexedEventPage(events, null);
+        List<EthIndexedEvent> page = events.subList(0, pageSize);
+        EthIndexedEvent last = page.get(pageSize - 1);
+        return new EthIndexedEventPage(page, last.getBlockNumber() + ":" + last.getLogIndex());
+    }
+
+    /**
+     * @return value as lower case 32 bytes word, addresses are left padded as they are in topics
+     */
+    private static String toWord(String value, String name) {
+        if (value == null || value.isEmpty())
+            return null;
+        String word = value.toLowerCase();
+        if (ADDRESS.matcher(word).matches())
+            word = "0x" + ADDRESS_PADDING + word.substring(2);
+        if (!WORD.matcher(word).matches())
+            throw new IllegalArgumentException("Invalid " + name + ", 32 bytes hex expected: " + value);
+        return word;
+    }
+
+    private static String toAddress(String value) {
+        if (value == null || value.isEmpty())
+            return null;
+        String address = value.toLowerCase();
+        if (!ADDRESS.matcher(address).matches())
+            throw new IllegalArgumentException("Invalid sender address: " + value);
+        return address;
+    }
+
+    private EthClientRegistry clientRegistry() {
+        //client registry is available only when a client implementation is installed
+        List<EthClientRegistry> clientRegistries = componentRegistry != null ? componentRegistry.findComponents(EthClientRegistry.class, null) : null;
+        return clientRegistries == null || clientRegistries.isEmpty() ? null : clientRegistries.get(0);
+    }
+
+    private EthIndexedEvent toIndexedEvent(EthSmartContract smartContract, EthContractEvent event) {
+        EthIndexedEvent indexedEvent = new EthIndexedEvent(smartContract, event.getName(), event.getTransactionHash(),
+                event.getLogIndex().longValue(), event.getBlockNumber().longValue());
+        List<String> topics = event.getTopics();
+        indexedEvent.setTopic0(topicAt(topics, 0));
+        indexedEvent.setTopic1(topicAt(topics, 1));
+        indexedEvent.setTopic2(topicAt(topics, 2));
+        indexedEvent.setTopic3(topicAt(topics, 3));
+        indexedEvent.setSender(event.getSender() != null ? event.getSender().toLowerCase() : null);
+        indexedEvent.setData(event.getData());
+        indexedEvent.setDataWord(firstWord(event.getData()));
+        try {
+            indexedEvent.setEventValues(mapper.writeValueAsString(toJsonValue(event.getValues())));
+        } catch (JsonProcessingException e) {
+            throw new WaterRuntimeException(e.getMessage());
+        }
+        return indexedEvent;
+    }
+
+    private static String firstWord(String data) {
+        //data is 0x prefixed, a word is 64 hex digits
+        return data != null && data.length() >= 66 ? data.substring(0, 66).toLowerCase() : null;
+    }
+
+    private static String topicAt(List<String> topics, int index) {
+        return topics != null && topics.size() > index ? topics.get(index).toLowerCase() : null;
+    }
+
+    private static Object toJsonValue(Object value) {
+        if (value instanceof byte[]) {
+            StringBuilder hex = new StringBuilder("0x");
+            for (byte b : (byte[]) value)
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return hex.toString();
+        }
+        //integers may exceed the javascript safe range
+        if (value instanceof BigInteger)
+            return value.toString();
+        if (value instanceof List)
+            return ((List<?>) value).stream().map(EthIndexedEventSystemServiceImpl::toJsonValue).collect(Collectors.toList());
+        if (value instanceof Map) {
+            Map<Object, Object> jsonMap = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> jsonMap.put(k, toJsonValue(v)));
+            return jsonMap;
+        }
+        return value;
+    }
+
+    private class SmartContractEventStore implements EthEventIndexStore {
+        private final EthSmartContract smartContract;
+        private final long smartContractId;
+
+        private SmartContractEventStore(EthSmartContract smartContract) {
+            this.smartContract = smartContract;
+            this.smartContractId = smartContract.getId();
+        }
+
+        @Override
+        public long getCheckpointBlockNumber() {
+            EthEventIndexCheckpoint checkpoint = checkpointRepository.findBySmartContract(smartContractId);
+            return checkpoint != null ? checkpoint.getBlockNumber() : -1;
+        }
+
+        @Override
+        public String getCheckpointBlockHash() {
+            EthEventIndexCheckpoint checkpoint = checkpointRepository.findBySmartContract(smartContractId);
+            return checkpoint != null ? checkpoint.getBlockHash() : null;
+        }
+
+        @Override
+        public void store(List<EthContractEvent> events, long blockNumber, String blockHash) {
+            synchronized (lock()) {
+                EthEventIndexCheckpoint checkpoint = checkpointRepository.findBySmartContract(smartContractId);
+                //events left by a range interrupted before its checkpoint was saved are stored again
+                repository.removeAfterBlock(smartContractId, checkpoint != null ? checkpoint.getBlockNumber() : -1);
+                events.forEach(event -> repository.persist(toIndexedEvent(smartContract, event)));
+                moveCheckpoint(checkpoint, blockNumber, blockHash);
+            }
+        }
+
+        @Override
+        public void rollback(long blockNumber, String blockHash) {
+            synchronized (lock()) {
+                repository.removeAfterBlock(smartContractId, blockNumber);
+                moveCheckpoint(checkpointRepository.findBySmartContract(smartContractId), blockNumber, blockHash);
+            }
+        }
+
+        private void moveCheckpoint(EthEventIndexCheckpoint checkpoint, long blockNumber, String blockHash) {
+            if (checkpoint == null) {
+                checkpoint = new EthEventIndexCheckpoint(smartContract);
+                checkpoint.setBlockNumber(blockNumber);
+                checkpoint.setBlockHash(blockHash);
+                checkpointRepository.persist(checkpoint);
+                return;
+            }
+            checkpoint.setBlockNumber(blockNumber);
+            checkpoint.setBlockHash(blockHash);
+            checkpointRepository.update(checkpoint);
+        }
+
+        private Object lock() {
+            return storeLocks.computeIfAbsent(smartContractId, id -> new Object());
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package it.water.connectors.ethereum.service;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor of the repository writes done when a blockchain request completes.
+ * Client futures complete on the threads of the client, which must not be held by blocking persistence.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class EthRepositoryExecutor {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "eth-repository-writer-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+}
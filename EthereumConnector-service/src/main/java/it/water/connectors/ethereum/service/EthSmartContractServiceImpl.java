@@ -1,15 +1,23 @@
 package it.water.connectors.ethereum.service;
 
+import it.water.connectors.ethereum.api.IndexedEventSystemApi;
 import it.water.connectors.ethereum.api.SmartContractApi;
 import it.water.connectors.ethereum.api.SmartContractSystemApi;
+import it.water.connectors.ethereum.model.EthIndexedEventFilter;
+import it.water.connectors.ethereum.model.EthIndexedEventPage;
+import it.water.connectors.ethereum.model.EthReceipt;
+import it.water.connectors.ethereum.model.EthReceiptLog;
 import it.water.connectors.ethereum.model.EthSmartContract;
 import it.water.core.api.registry.ComponentRegistry;
 import it.water.core.interceptors.annotations.FrameworkComponent;
 import it.water.core.interceptors.annotations.Inject;
+import it.water.repository.entity.model.exceptions.NoResultException;
 import it.water.repository.service.BaseEntityServiceImpl;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 
 /**
  * @Generated by Water Generator
@@ -29,7 +37,39 @@ public class EthSmartContractServiceImpl extends BaseEntityServiceImpl<EthSmartC
     @Setter
     private ComponentRegistry componentRegistry;
 
+    @Inject
+    @Setter
+    private IndexedEventSystemApi indexedEventSystemApi;
+
     public EthSmartContractServiceImpl() {
         super(EthSmartContract.class);
     }
+
+    @Override
+    public EthIndexedEventPage findEvents(long smartContractId, EthIndexedEventFilter filter, String cursor, int limit) {
+        //events are readable by whoever can read their contract
+        find(smartContractId);
+        return indexedEventSystemApi.findEvents(smartContractId, filter, cursor, limit);
+    }
+
+    @Override
+    public EthReceipt findReceipt(long smartContractId) {
+        EthReceipt receipt = systemService.findReceipt(find(smartContractId));
+        if (receipt == null)
+            throw new NoResultException();
+        return receipt;
+    }
+
+    @Override
+    public List<EthReceiptLog> findReceiptLogs(long smartContractId) {
+        return findReceipt(smartContractId).getLogs();
+    }
+
+    @Override
+    public String findAbi(long smartContractId) {
+        String abi = find(smartContractId).getAbi();
+        if (abi == null)
+            throw new NoResultException();
+        return abi;
+    }
 }
@@ -1,22 +1,47 @@
 package it.water.connectors.ethereum.service;
 
+import it.water.connectors.ethereum.api.BlockchainRepository;
+import it.water.connectors.ethereum.api.EthClientRegistry;
+import it.water.connectors.ethereum.api.EthEventLog;
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import it.water.connectors.ethereum.api.IndexedEventSystemApi;
+import it.water.connectors.ethereum.api.ReceiptRepository;
 import it.water.connectors.ethereum.api.SmartContractRepository;
 import it.water.connectors.ethereum.api.SmartContractSystemApi;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthReceipt;
+import it.water.connectors.ethereum.model.EthReceiptLog;
 import it.water.connectors.ethereum.model.EthSmartContract;
+import it.water.core.api.registry.ComponentRegistry;
 import it.water.core.api.registry.filter.ComponentFilterBuilder;
 import it.water.core.interceptors.annotations.FrameworkComponent;
 import it.water.core.interceptors.annotations.Inject;
 import it.water.repository.service.BaseEntitySystemServiceImpl;
 import lombok.Getter;
 import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 
 /**
  * @Generated by Water Generator
  * System Service Api Class for EthereumConnector entity.
+ * State cached by the pooled clients for a contract is evicted when the contract is updated or removed.
+ * Events of contracts with an ABI are indexed from the moment they are saved.
+ * The receipt of the deployment transaction is awaited through the receipt tracker of the blockchain connection after save,
+ * without holding the transaction, and stored as EthReceipt if the deployment is mined within receiptTimeoutMillis.
+ * Receipts are stored by repositoryExecutor, not by the thread completing the client request.
  */
 @FrameworkComponent
 public class EthSmartContractSystemServiceImpl extends BaseEntitySystemServiceImpl<EthSmartContract> implements SmartContractSystemApi {
+    private static Logger logger = LoggerFactory.getLogger(EthSmartContractSystemServiceImpl.class);
+    public static final long DEFAULT_RECEIPT_TIMEOUT_MILLIS = 600000;
+
     @Inject
     @Getter
     @Setter
@@ -26,8 +51,192 @@ public class EthSmartContractSystemServiceImpl extends BaseEntitySystemServiceIm
     @Setter
     private ComponentFilterBuilder componentFilterBuilder;
 
+    @Inject
+    @Setter
+    private ComponentRegistry componentRegistry;
+
+    @Inject
+    @Setter
+    private IndexedEventSystemApi indexedEventSystemApi;
+
+    @Inject
+    @Setter
+    private ReceiptRepository receiptRepository;
+
+    @Inject
+    @Setter
+    private BlockchainRepository blockchainRepository;
+
+    @Getter
+    @Setter
+    private long receiptTimeoutMillis = DEFAULT_RECEIPT_TIMEOUT_MILLIS;
+
+    @Setter
+    private Executor repositoryExecutor = EthRepositoryExecutor.EXECUTOR;
+
     public EthSmartContractSystemServiceImpl() {
         super(EthSmartContract.class);
     }
 
+    @Override
+    public EthSmartContract save(EthSmartContract entity) {
+        EthSmartContract saved = super.save(entity);
+        storeReceipt(saved);
+        indexedEventSystemApi.startIndexing(saved);
+        return saved;
+    }
+
+    @Override
+    public EthReceipt findReceipt(EthSmartContract smartContract) {
+        return receiptRepository.findByTransactionHash(smartContract.getBlockchain().getId(), smartContract.getTransactionHash());
+    }
+
+    @Override
+    public EthSmartContract update(EthSmartContract entity) {
+        //address and blockchain are read before updating, the stored entity may be the same instance being updated
+        ContractRef previous = ContractRef.of(findQuietly(entity.getId()));
+        EthSmartContract updated = super.update(entity);
+        evictContract(previous);
+        evictContract(ContractRef.of(updated));
+        storeReceipt(updated);
+        //the indexer is replaced, so a changed address or ABI is picked up
+        indexedEventSystemApi.startIndexing(updated);
+        return updated;
+    }
+
+    @Override
+    public void remove(long id) {
+        EthSmartContract smartContract = findQuietly(id);
+        ContractRef removed = ContractRef.of(smartContract);
+        //indexed events and checkpoint are removed with the contract
+        indexedEventSystemApi.stopIndexing(id);
+        super.remove(id);
+        evictContract(removed);
+        if (smartContract != null)
+            removeReceipt(smartContract);
+    }
+
+    private void storeReceipt(EthSmartContract smartContract) {
+        //contracts may reference the blockchain by id only, its endpoints are read from the repository
+        EthBlockchain blockchain = findBlockchain(smartContract);
+        if (blockchain == null || smartContract.getTransactionHash() == null)
+            return;
+        String transactionHash = smartContract.getTransactionHash();
+        if (receiptRepository.findByTransactionHash(blockchain.getId(), transactionHash) != null)
+            return;
+        List<EthClientRegistry> clientRegistries = componentRegistry != null ? componentRegistry.findComponents(EthClientRegistry.class, null) : null;
+        if (clientRegistries == null || clientRegistries.isEmpty())
+            return;
+        try {
+            //the receipt is optional, it is stored once the deployment is mined and must not prevent the contract from being saved
+            clientRegistries.get(0).getClient(blockchain)
+                    .waitForTransactionReceiptAsync(transactionHash, receiptTimeoutMillis)
+                    .whenCompleteAsync((receipt, error) -> onReceipt(blockchain, transactionHash, receipt, error), repositoryExecutor);
+        } catch (RuntimeException e) {
+            onReceipt(blockchain, transactionHash, null, e);
+        }
+    }
+
+    private void onReceipt(EthBlockchain blockchain, String transactionHash, EthTransactionReceipt receipt, Throwable error) {
+        if (error != null) {
+            logger.warn("Cannot store receipt of transaction {}: {}", transactionHash, error.getMessage());
+            return;
+        }
+        if (receipt == null)
+            return;
+        try {
+            //another contract deployed by the same transaction may have stored it in the meantime
+            if (receiptRepository.findByTransactionHash(blockchain.getId(), transactionHash) == null)
+                receiptRepository.persist(toReceipt(blockchain, receipt));
+        } catch (RuntimeException e) {
+            logger.warn("Cannot store receipt of transaction {}: {}", transactionHash, e.getMessage());
+        }
+    }
+
+    private EthBlockchain findBlockchain(EthSmartContract smartContract) {
+        if (smartContract.getBlockchain() == null)
+            return null;
+        try {
+            return blockchainRepository.find(smartContract.getBlockchain().getId());
+        } catch (RuntimeException e) {
+            logger.warn("Cannot find blockchain {} of smart contract {}: {}", smartContract.getBlockchain().getId(), smartContract.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void removeReceipt(EthSmartContract smartContract) {
+        EthReceipt receipt = findReceipt(smartContract);
+        if (receipt == null)
+            return;
+        //a transaction may deploy more contracts
+        long sharing = countAll(repository.getQueryBuilderInstance().createQueryFilter("transactionHash=" + smartContract.getTransactionHash())
+                .and(repository.getQueryBuilderInstance().createQueryFilter("blockchain.id=" + smartContract.getBlockchain().getId())));
+        if (sharing == 0)
+            receiptRepository.remove(receipt.getId());
+    }
+
+    private static EthReceipt toReceipt(EthBlockchain blockchain, EthTransactionReceipt receipt) {
+        EthReceipt stored = new EthReceipt(blockchain, receipt.getTransactionHash().toLowerCase());
+        stored.setBlockNumber(receipt.getBlockNumber() != null ? receipt.getBlockNumber().longValue() : null);
+        stored.setBlockHash(receipt.getBlockHash());
+        stored.setFromAddress(receipt.getFrom());
+        stored.setToAddress(receipt.getTo());
+        stored.setContractAddress(receipt.getContractAddress());
+        stored.setGasUsed(receipt.getGasUsed() != null ? receipt.getGasUsed().longValue() : null);
+        BigInteger status = quantity(receipt.getStatus());
+        stored.setStatus(status != null ? status.intValue() : null);
+        BigInteger effectiveGasPrice = quantity(receipt.getEffectiveGasPrice());
+        stored.setEffectiveGasPrice(effectiveGasPrice != null ? effectiveGasPrice.longValue() : null);
+        List<EthReceiptLog> logs = new ArrayList<>();
+        if (receipt.getLogs() != null) {
+            for (EthEventLog log : receipt.getLogs())
+                logs.add(new EthReceiptLog(log.getAddress(), log.getLogIndex() != null ? log.getLogIndex().longValue() : null, log.getTopics(), log.getData()));
+        }
+        stored.setLogs(logs);
+        return stored;
+    }
+
+    /**
+     * @return value of a JSON-RPC quantity, 0x prefixed hex or decimal
+     */
+    private static BigInteger quantity(String value) {
+        if (value == null || value.isEmpty() || value.equals("0x"))
+            return null;
+        return value.startsWith("0x") ? new BigInteger(value.substring(2), 16) : new BigInteger(value);
+    }
+
+    private EthSmartContract findQuietly(long id) {
+        try {
+            return find(id);
+        } catch (RuntimeException e) {
+            //missing entities are reported by the update or remove itself
+            return null;
+        }
+    }
+
+    private void evictContract(ContractRef contract) {
+        //client registry is optional, it is available only when a client implementation is installed
+        if (componentRegistry == null || contract == null)
+            return;
+        List<EthClientRegistry> clientRegistries = componentRegistry.findComponents(EthClientRegistry.class, null);
+        if (clientRegistries != null)
+            clientRegistries.forEach(clientRegistry -> clientRegistry.evictContract(contract.blockchainId, contract.address));
+    }
+
+    private static class ContractRef {
+        private final long blockchainId;
+        private final String address;
+
+        private ContractRef(long blockchainId, String address) {
+            this.blockchainId = blockchainId;
+            this.address = address;
+        }
+
+        private static ContractRef of(EthSmartContract contract) {
+            if (contract == null || contract.getBlockchain() == null || contract.getAddress() == null)
+                return null;
+            return new ContractRef(contract.getBlockchain().getId(), contract.getAddress());
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package it.water.connectors.ethereum.service.repository;
+
+import it.water.connectors.ethereum.api.DocumentNotarizationRepository;
+import it.water.connectors.ethereum.model.EthDocumentNotarization;
+import it.water.core.api.repository.query.QueryBuilder;
+import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.repository.entity.model.exceptions.NoResultException;
+import it.water.repository.jpa.WaterJpaRepositoryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@FrameworkComponent
+public class EthDocumentNotarizationRepositoryImpl extends WaterJpaRepositoryImpl<EthDocumentNotarization> implements DocumentNotarizationRepository {
+
+    private static final String DOCUMENT_NOTARIZATION_PERSISTENCE_UNIT = "ethereum-persistence-unit";
+    @SuppressWarnings({ "java:S1068", "unused" })
+    private static Logger logger = LoggerFactory.getLogger(EthDocumentNotarizationRepositoryImpl.class);
+
+    public EthDocumentNotarizationRepositoryImpl() {
+        super(EthDocumentNotarization.class, DOCUMENT_NOTARIZATION_PERSISTENCE_UNIT);
+    }
+
+    @Override
+    public EthDocumentNotarization findByDocumentHash(long smartContractId, String documentHash) {
+        QueryBuilder queryBuilder = getQueryBuilderInstance();
+        try {
+            return find(queryBuilder.createQueryFilter("documentHash=" + documentHash.toLowerCase())
+                    .and(queryBuilder.createQueryFilter("smartContract.id=" + smartContractId)));
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package it.water.connectors.ethereum.service.repository;
+
+import it.water.connectors.ethereum.api.EventIndexCheckpointRepository;
+import it.water.connectors.ethereum.model.EthEventIndexCheckpoint;
+import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.repository.entity.model.exceptions.NoResultException;
+import it.water.repository.jpa.WaterJpaRepositoryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@FrameworkComponent
+public class EthEventIndexCheckpointRepositoryImpl extends WaterJpaRepositoryImpl<EthEventIndexCheckpoint> implements EventIndexCheckpointRepository {
+
+    private static final String EVENT_INDEX_CHECKPOINT_PERSISTENCE_UNIT = "ethereum-persistence-unit";
+    @SuppressWarnings({ "java:S1068", "unused" })
+    private static Logger logger = LoggerFactory.getLogger(EthEventIndexCheckpointRepositoryImpl.class);
+
+    public EthEventIndexCheckpointRepositoryImpl() {
+        super(EthEventIndexCheckpoint.class, EVENT_INDEX_CHECKPOINT_PERSISTENCE_UNIT);
+    }
+
+    @Override
+    public EthEventIndexCheckpoint findBySmartContract(long smartContractId) {
+        try {
+            return find(getQueryBuilderInstance().createQueryFilter("smartContract.id=" + smartContractId));
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package it.water.connectors.ethereum.service.repository;
+
+import it.water.connectors.ethereum.api.IndexedEventRepository;
+import it.water.connectors.ethereum.model.EthIndexedEvent;
+import it.water.connectors.ethereum.model.EthIndexedEventFilter;
+import it.water.core.api.model.PaginableResult;
+import it.water.core.api.repository.query.Query;
+import it.water.core.api.repository.query.QueryBuilder;
+import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.repository.jpa.WaterJpaRepositoryImpl;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@FrameworkComponent
+public class EthIndexedEventRepositoryImpl extends WaterJpaRepositoryImpl<EthIndexedEvent> implements IndexedEventRepository {
+
+    private static final String INDEXED_EVENT_PERSISTENCE_UNIT = "ethereum-persistence-unit";
+    //events removed per query, a deep reorg may drop many of them
+    private static final int REMOVE_PAGE_SIZE = 500;
+    @SuppressWarnings({ "java:S1068", "unused" })
+    private static Logger logger = LoggerFactory.getLogger(EthIndexedEventRepositoryImpl.class);
+
+    public EthIndexedEventRepositoryImpl() {
+        super(EthIndexedEvent.class, INDEXED_EVENT_PERSISTENCE_UNIT);
+    }
+
+    @Override
+    public void removeAfterBlock(long smartContractId, long blockNumber) {
+        QueryBuilder queryBuilder = getQueryBuilderInstance();
+        Query filter = queryBuilder.createQueryFilter("smartContract.id=" + smartContractId)
+                .and(queryBuilder.createQueryFilter("blockNumber>" + blockNumber));
+        //the first page is read again each time, since the previous one has been removed
+        PaginableResult<EthIndexedEvent> page = findAll(REMOVE_PAGE_SIZE, 1, filter, null);
+        while (page != null && !page.getResults().isEmpty()) {
+            page.getResults().forEach(this::remove);
+            if (page.getResults().size() < REMOVE_PAGE_SIZE)
+                return;
+            page = findAll(REMOVE_PAGE_SIZE, 1, filter, null);
+        }
+    }
+
+    @Override
+    public List<EthIndexedEvent> findPage(long smartContractId, EthIndexedEventFilter filter, Long afterBlock, Long afterLogIndex, int limit) {
+        //keyset pagination over (blockNumber, logIndex), served by the block index of the contract or by the index of the filtered column
+        StringBuilder jpql = new StringBuilder("from EthIndexedEvent e where e.smartContract.id = :smartContractId");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("smartContractId", smartContractId);
+        if (filter != null) {
+            addCondition(jpql, parameters, "eventName", filter.getEventName());
+            addCondition(jpql, parameters, "topic0", filter.getTopic0());
+            addCondition(jpql, parameters, "topic1", filter.getTopic1());
+            addCondition(jpql, parameters, "topic2", filter.getTopic2());
+            addCondition(jpql, parameters, "topic3", filter.getTopic3());
+            addCondition(jpql, parameters, "dataWord", filter.getDataWord());
+            addCondition(jpql, parameters, "sender", filter.getSender());
+            if (filter.getFromBlock() != null) {
+                jpql.append(" and e.blockNumber >= :fromBlock");
+                parameters.put("fromBlock", filter.getFromBlock());
+            }
+            if (filter.getToBlock() != null) {
+                jpql.append(" and e.blockNumber <= :toBlock");
+                parameters.put("toBlock", filter.getToBlock());
+            }
+        }
+        if (afterBlock != null) {
+            jpql.append(" and (e.blockNumber > :afterBlock or (e.blockNumber = :afterBlock and e.logIndex > :afterLogIndex))");
+            parameters.put("afterBlock", afterBlock);
+            parameters.put("afterLogIndex", afterLogIndex != null ? afterLogIndex : -1L);
+        }
+        jpql.append(" order by e.blockNumber, e.logIndex");
+        return txExpr(Transactional.TxType.REQUIRED, entityManager -> {
+            TypedQuery<EthIndexedEvent> query = entityManager.createQuery(jpql.toString(), EthIndexedEvent.class);
+            parameters.forEach(query::setParameter);
+            return query.setMaxResults(limit).getResultList();
+        });
+    }
+
+    private static void addCondition(StringBuilder jpql, Map<String, Object> parameters, String field, String value) {
+        if (value == null)
+            return;
+        jpql.append(" and e.").append(field).append(" = :").append(field);
+        parameters.put(field, value);
+    }
+
+}
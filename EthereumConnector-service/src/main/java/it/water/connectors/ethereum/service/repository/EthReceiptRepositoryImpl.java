@@ -0,0 +1,34 @@
+package it.water.connectors.ethereum.service.repository;
+
+import it.water.connectors.ethereum.api.ReceiptRepository;
+import it.water.connectors.ethereum.model.EthReceipt;
+import it.water.core.api.repository.query.QueryBuilder;
+import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.repository.entity.model.exceptions.NoResultException;
+import it.water.repository.jpa.WaterJpaRepositoryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@FrameworkComponent
+public class EthReceiptRepositoryImpl extends WaterJpaRepositoryImpl<EthReceipt> implements ReceiptRepository {
+
+    private static final String RECEIPT_PERSISTENCE_UNIT = "ethereum-persistence-unit";
+    @SuppressWarnings({ "java:S1068", "unused" })
+    private static Logger logger = LoggerFactory.getLogger(EthReceiptRepositoryImpl.class);
+
+    public EthReceiptRepositoryImpl() {
+        super(EthReceipt.class, RECEIPT_PERSISTENCE_UNIT);
+    }
+
+    @Override
+    public EthReceipt findByTransactionHash(long blockchainId, String transactionHash) {
+        QueryBuilder queryBuilder = getQueryBuilderInstance();
+        try {
+            return find(queryBuilder.createQueryFilter("transactionHash=" + transactionHash.toLowerCase())
+                    .and(queryBuilder.createQueryFilter("blockchain.id=" + blockchainId)));
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+
+}
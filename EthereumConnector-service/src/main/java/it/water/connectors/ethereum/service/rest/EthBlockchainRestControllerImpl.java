@@ -3,6 +3,8 @@ package it.water.connectors.ethereum.service.rest;
 import it.water.connectors.ethereum.api.BlockchainApi;
 import it.water.connectors.ethereum.api.rest.BlockchainRestApi;
 import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import it.water.connectors.ethereum.model.EthRpcMetrics;
 import it.water.core.api.service.BaseEntityApi;
 import it.water.core.api.service.rest.FrameworkRestController;
 import it.water.core.interceptors.annotations.Inject;
@@ -11,6 +13,8 @@ import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 
 /**
  * @Generated by Water Generator
@@ -30,4 +34,14 @@ public class EthBlockchainRestControllerImpl extends BaseEntityRestApi<EthBlockc
         return blockChainApi;
     }
 
+    @Override
+    public List<EthEndpointHealth> getEndpointsHealth(long id) {
+        return blockChainApi.getEndpointsHealth(id);
+    }
+
+    @Override
+    public EthRpcMetrics getMetrics(long id) {
+        return blockChainApi.getMetrics(id);
+    }
+
 }
@@ -0,0 +1,47 @@
+package it.water.connectors.ethereum.service.rest;
+
+import it.water.connectors.ethereum.api.DocumentNotarizationApi;
+import it.water.connectors.ethereum.api.rest.DocumentNotarizationRestApi;
+import it.water.connectors.ethereum.model.EthDocumentNotarization;
+import it.water.core.api.service.BaseEntityApi;
+import it.water.core.api.service.rest.FrameworkRestController;
+import it.water.core.interceptors.annotations.Inject;
+import it.water.service.rest.persistence.BaseEntityRestApi;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rest Api Class for EthDocumentNotarization entity.
+ */
+@FrameworkRestController(referredRestApi = DocumentNotarizationRestApi.class)
+public class EthDocumentNotarizationRestControllerImpl extends BaseEntityRestApi<EthDocumentNotarization>
+        implements DocumentNotarizationRestApi {
+    @SuppressWarnings({ "java:S1068", "unused" }) // still mantain the variable even if not used
+    private static Logger log = LoggerFactory.getLogger(EthDocumentNotarizationRestControllerImpl.class.getName());
+
+    @Inject
+    @Setter
+    private DocumentNotarizationApi documentNotarizationApi;
+
+    @Override
+    protected BaseEntityApi<EthDocumentNotarization> getEntityService() {
+        return documentNotarizationApi;
+    }
+
+    @Override
+    public EthDocumentNotarization notarize(EthDocumentNotarization notarization) {
+        return documentNotarizationApi.notarize(notarization);
+    }
+
+    @Override
+    public EthDocumentNotarization findByDocumentHash(long smartContractId, String documentHash) {
+        return documentNotarizationApi.findByDocumentHash(smartContractId, documentHash);
+    }
+
+    @Override
+    public boolean verify(long smartContractId, String documentHash) {
+        return documentNotarizationApi.verify(smartContractId, documentHash);
+    }
+
+}
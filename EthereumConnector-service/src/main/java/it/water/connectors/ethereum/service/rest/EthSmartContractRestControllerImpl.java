@@ -3,6 +3,10 @@ package it.water.connectors.ethereum.service.rest;
 
 import it.water.connectors.ethereum.api.SmartContractApi;
 import it.water.connectors.ethereum.api.rest.SmartContractRestApi;
+import it.water.connectors.ethereum.model.EthIndexedEventFilter;
+import it.water.connectors.ethereum.model.EthIndexedEventPage;
+import it.water.connectors.ethereum.model.EthReceipt;
+import it.water.connectors.ethereum.model.EthReceiptLog;
 import it.water.connectors.ethereum.model.EthSmartContract;
 import it.water.core.api.service.BaseEntityApi;
 import it.water.core.api.service.rest.FrameworkRestController;
@@ -12,6 +16,8 @@ import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 /**
  * @Generated by Water Generator
  *            Rest Api Class for EthereumConnector entity.
@@ -32,4 +38,35 @@ public class EthSmartContractRestControllerImpl extends BaseEntityRestApi<EthSma
         return ethSmartContractApi;
     }
 
+    @Override
+    public EthIndexedEventPage findEvents(long id, String eventName, String topic0, String topic1, String topic2, String topic3,
+                                          String dataWord, String sender, Long fromBlock, Long toBlock, String cursor, int limit) {
+        EthIndexedEventFilter filter = new EthIndexedEventFilter();
+        filter.setEventName(eventName);
+        filter.setTopic0(topic0);
+        filter.setTopic1(topic1);
+        filter.setTopic2(topic2);
+        filter.setTopic3(topic3);
+        filter.setDataWord(dataWord);
+        filter.setSender(sender);
+        filter.setFromBlock(fromBlock);
+        filter.setToBlock(toBlock);
+        return ethSmartContractApi.findEvents(id, filter, cursor, limit);
+    }
+
+    @Override
+    public EthReceipt findReceipt(long id) {
+        return ethSmartContractApi.findReceipt(id);
+    }
+
+    @Override
+    public List<EthReceiptLog> findReceiptLogs(long id) {
+        return ethSmartContractApi.findReceiptLogs(id);
+    }
+
+    @Override
+    public String findAbi(long id) {
+        return ethSmartContractApi.findAbi(id);
+    }
+
 }
@@ -13,6 +13,7 @@ import it.water.connectors.ethereum.api.BlockchainApi;
 import it.water.connectors.ethereum.api.BlockchainRepository;
 import it.water.connectors.ethereum.api.BlockchainSystemApi;
 import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthBlockchainEndpoint;
 import it.water.core.api.bundle.Runtime;
 import it.water.core.api.model.PaginableResult;
 import it.water.core.api.model.Role;
@@ -32,6 +33,8 @@ import it.water.core.testing.utils.runtime.TestRuntimeUtils;
 import it.water.repository.entity.model.exceptions.DuplicateEntityException;
 import lombok.Setter;
 
+import java.util.List;
+
 /**
  * Generated with Water Generator.
  * Test class for EthereumConnector Services.
@@ -276,6 +279,19 @@ class EthBlockchainApiTest implements Service {
         Assertions.assertThrows(UnauthorizedException.class, () -> this.blockchainApi.remove(savedEntityId));
     }
 
+    @Order(13)
+    @Test
+    void endpointsShouldBeSavedWithBlockchain() {
+        TestRuntimeInitializer.getInstance().impersonate(blockchainManagerUser, runtime);
+        EthBlockchain entity = createBlockchian(401);
+        entity.setEndpoints(List.of(new EthBlockchainEndpoint("http", "host402", "402"), new EthBlockchainEndpoint("http", "host403", "403")));
+        long id = this.blockchainApi.save(entity).getId();
+        EthBlockchain found = this.blockchainApi.find(id);
+        Assertions.assertEquals(2, found.getEndpoints().size());
+        Assertions.assertEquals("host402", found.getEndpoints().get(0).getHost());
+        Assertions.assertEquals("host403", found.getEndpoints().get(1).getHost());
+    }
+
     private EthBlockchain createBlockchian(int seed) {
         EthBlockchain entity = new EthBlockchain("exampleField" + seed, "host" + seed, String.valueOf(seed));
         return entity;
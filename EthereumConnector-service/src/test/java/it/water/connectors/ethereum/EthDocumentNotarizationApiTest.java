@@ -0,0 +1,156 @@
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.BlockchainApi;
+import it.water.connectors.ethereum.api.DocumentNotarizationApi;
+import it.water.connectors.ethereum.api.DocumentNotarizationRepository;
+import it.water.connectors.ethereum.api.DocumentNotarizationSystemApi;
+import it.water.connectors.ethereum.api.SmartContractApi;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthDocumentNotarization;
+import it.water.connectors.ethereum.model.EthNotarizationStatus;
+import it.water.connectors.ethereum.model.EthSmartContract;
+import it.water.core.api.bundle.Runtime;
+import it.water.core.api.model.Role;
+import it.water.core.api.registry.ComponentRegistry;
+import it.water.core.api.role.RoleManager;
+import it.water.core.api.service.Service;
+import it.water.core.api.user.UserManager;
+import it.water.core.interceptors.annotations.Inject;
+import it.water.core.model.exceptions.ValidationException;
+import it.water.core.permission.exceptions.UnauthorizedException;
+import it.water.core.testing.utils.bundle.TestRuntimeInitializer;
+import it.water.core.testing.utils.junit.WaterTestExtension;
+import it.water.core.testing.utils.runtime.TestRuntimeUtils;
+import it.water.repository.entity.model.exceptions.DuplicateEntityException;
+import it.water.repository.entity.model.exceptions.NoResultException;
+import lombok.Setter;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.Arrays;
+
+/**
+ * Test class for document notarization services.
+ * No client implementation is installed in this module, so notarizations cannot be queued and are kept as failed.
+ */
+@ExtendWith(WaterTestExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class EthDocumentNotarizationApiTest implements Service {
+    private static final String SIGNER = "0x00000000000000000000000000000000000000aa";
+
+    @Inject
+    @Setter
+    private ComponentRegistry componentRegistry;
+
+    @Inject
+    @Setter
+    private DocumentNotarizationApi documentNotarizationApi;
+
+    @Inject
+    @Setter
+    private SmartContractApi smartContractApi;
+
+    @Inject
+    @Setter
+    private BlockchainApi blockchainApi;
+
+    @Inject
+    @Setter
+    private Runtime runtime;
+
+    @Inject
+    @Setter
+    //test role manager
+    private UserManager userManager;
+
+    @Inject
+    @Setter
+    //test role manager
+    private RoleManager roleManager;
+
+    private it.water.core.api.model.User notarizationViewerUser;
+
+    private EthSmartContract smartContract;
+
+    @BeforeAll
+    void beforeAll() {
+        Role notarizationViewerRole = roleManager.getRole(EthDocumentNotarization.DEFAULT_VIEWER_ROLE);
+        Assertions.assertNotNull(roleManager.getRole(EthDocumentNotarization.DEFAULT_MANAGER_ROLE));
+        Assertions.assertNotNull(roleManager.getRole(EthDocumentNotarization.DEFAULT_EDITOR_ROLE));
+        Assertions.assertNotNull(notarizationViewerRole);
+        notarizationViewerUser = userManager.addUser("notarizationViewer", "notarizationViewer", "notarizationViewer", "ntViewer@a.com", "TempPassword1_", "salt", false);
+        roleManager.addRole(notarizationViewerUser.getId(), notarizationViewerRole);
+        //default security context is admin
+        TestRuntimeUtils.impersonateAdmin(componentRegistry);
+        EthBlockchain blockchain = new EthBlockchain("http", "localhost", "8586");
+        blockchainApi.save(blockchain);
+        smartContract = smartContractApi.save(new EthSmartContract("MerkleDataRegistry", "merkleRegistry", "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0", "0x0", blockchain, 0L));
+    }
+
+    @Test
+    @Order(1)
+    void componentsInsantiatedCorrectly() {
+        Assertions.assertNotNull(this.documentNotarizationApi);
+        Assertions.assertNotNull(this.componentRegistry.findComponent(DocumentNotarizationSystemApi.class, null));
+        Assertions.assertNotNull(this.componentRegistry.findComponent(DocumentNotarizationRepository.class, null));
+    }
+
+    @Test
+    @Order(2)
+    void notarizeShouldKeepFailedNotarizationsWithoutClient() {
+        EthDocumentNotarization notarization = this.documentNotarizationApi.notarize(createNotarization(1));
+        Assertions.assertTrue(notarization.getId() > 0);
+        Assertions.assertEquals(EthNotarizationStatus.FAILED, notarization.getStatus());
+        Assertions.assertNull(notarization.getMerkleRoot());
+        Assertions.assertTrue(notarization.getProof().isEmpty());
+        EthDocumentNotarization found = this.documentNotarizationApi.findByDocumentHash(smartContract.getId(), documentHash(1));
+        Assertions.assertEquals(notarization.getId(), found.getId());
+        Assertions.assertEquals(smartContract.getId(), found.getSmartContractId());
+        Assertions.assertFalse(this.documentNotarizationApi.verify(smartContract.getId(), documentHash(1)));
+    }
+
+    @Test
+    @Order(3)
+    void notarizeShouldFailOnDuplicatedOrInvalidHash() {
+        Assertions.assertThrows(DuplicateEntityException.class, () -> this.documentNotarizationApi.notarize(createNotarization(1)));
+        EthDocumentNotarization invalid = new EthDocumentNotarization("0x01", SIGNER, smartContract);
+        Assertions.assertThrows(ValidationException.class, () -> this.documentNotarizationApi.notarize(invalid));
+    }
+
+    @Test
+    @Order(4)
+    void proofShouldBeStoredAsList() {
+        EthDocumentNotarization notarization = createNotarization(2);
+        notarization.setProof(Arrays.asList(documentHash(3), documentHash(4)));
+        Assertions.assertEquals(Arrays.asList(documentHash(3), documentHash(4)), notarization.getProof());
+        notarization.setProof(null);
+        Assertions.assertTrue(notarization.getProof().isEmpty());
+    }
+
+    @Test
+    @Order(5)
+    void viewerCannotNotarize() {
+        TestRuntimeInitializer.getInstance().impersonate(notarizationViewerUser, runtime);
+        EthDocumentNotarization notarization = createNotarization(5);
+        Assertions.assertThrows(UnauthorizedException.class, () -> this.documentNotarizationApi.notarize(notarization));
+        TestRuntimeUtils.impersonateAdmin(componentRegistry);
+    }
+
+    @Test
+    @Order(6)
+    void findShouldFailOnUnknownDocument() {
+        long smartContractId = smartContract.getId();
+        String unknownHash = documentHash(6);
+        Assertions.assertThrows(NoResultException.class, () -> this.documentNotarizationApi.findByDocumentHash(smartContractId, unknownHash));
+        Assertions.assertNull(this.componentRegistry.findComponent(DocumentNotarizationSystemApi.class, null).findByDocumentHash(smartContractId, unknownHash));
+    }
+
+    private EthDocumentNotarization createNotarization(int seed) {
+        return new EthDocumentNotarization(documentHash(seed), SIGNER, smartContract);
+    }
+
+    private static String documentHash(int seed) {
+        return String.format("0x%064x", seed);
+    }
+}
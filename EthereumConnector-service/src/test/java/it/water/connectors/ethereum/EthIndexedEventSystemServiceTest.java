@@ -0,0 +1,94 @@
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.BlockchainRepository;
+import it.water.connectors.ethereum.api.EthClient;
+import it.water.connectors.ethereum.api.EthClientRegistry;
+import it.water.connectors.ethereum.api.EthEventIndexer;
+import it.water.connectors.ethereum.api.SmartContractRepository;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthSmartContract;
+import it.water.connectors.ethereum.service.EthIndexedEventSystemServiceImpl;
+import it.water.core.api.registry.ComponentRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Contracts saved through the rest api reference their blockchain by id only,
+ * indexing must read the blockchain endpoints from the repository.
+ * Indexers of a blockchain are stopped and resumed when its pooled connection is replaced.
+ */
+class EthIndexedEventSystemServiceTest {
+
+    @Test
+    void indexingShouldResolveBlockchainSetById() {
+        EthBlockchain blockchain = new EthBlockchain("http", "localhost", "8545");
+        blockchain.setId(7);
+        BlockchainRepository blockchainRepository = Mockito.mock(BlockchainRepository.class);
+        Mockito.when(blockchainRepository.find(7L)).thenReturn(blockchain);
+        EthEventIndexer indexer = Mockito.mock(EthEventIndexer.class);
+        Mockito.when(indexer.isRunning()).thenReturn(true);
+        EthClient client = Mockito.mock(EthClient.class);
+        Mockito.when(client.eventIndexer(Mockito.any(), Mockito.any())).thenReturn(indexer);
+        EthClientRegistry clientRegistry = Mockito.mock(EthClientRegistry.class);
+        Mockito.when(clientRegistry.getClient(blockchain)).thenReturn(client);
+        ComponentRegistry componentRegistry = Mockito.mock(ComponentRegistry.class);
+        Mockito.when(componentRegistry.findComponents(EthClientRegistry.class, null)).thenReturn(Collections.singletonList(clientRegistry));
+
+        EthIndexedEventSystemServiceImpl indexedEventSystemService = new EthIndexedEventSystemServiceImpl();
+        indexedEventSystemService.setBlockchainRepository(blockchainRepository);
+        indexedEventSystemService.setComponentRegistry(componentRegistry);
+        EthSmartContract smartContract = new EthSmartContract("MerkleDataRegistry", "merkleRegistry", "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0", "0x0", null, 1L);
+        smartContract.setId(3);
+        smartContract.setBlockchainId(7L);
+        smartContract.setAbi("[]");
+        indexedEventSystemService.startIndexing(smartContract);
+
+        Mockito.verify(clientRegistry).getClient(blockchain);
+        Mockito.verify(indexer).start();
+        Assertions.assertTrue(indexedEventSystemService.isIndexing(3));
+        indexedEventSystemService.stopIndexing(3);
+        Mockito.verify(indexer).stop();
+    }
+
+    @Test
+    void blockchainIndexersShouldBeStoppedAndResumed() {
+        EthBlockchain blockchain = new EthBlockchain("http", "localhost", "8545");
+        blockchain.setId(7);
+        BlockchainRepository blockchainRepository = Mockito.mock(BlockchainRepository.class);
+        Mockito.when(blockchainRepository.find(7L)).thenReturn(blockchain);
+        EthEventIndexer indexer = Mockito.mock(EthEventIndexer.class);
+        Mockito.when(indexer.isRunning()).thenReturn(true);
+        EthClient client = Mockito.mock(EthClient.class);
+        Mockito.when(client.eventIndexer(Mockito.any(), Mockito.any())).thenReturn(indexer);
+        EthClientRegistry clientRegistry = Mockito.mock(EthClientRegistry.class);
+        Mockito.when(clientRegistry.getClient(blockchain)).thenReturn(client);
+        ComponentRegistry componentRegistry = Mockito.mock(ComponentRegistry.class);
+        Mockito.when(componentRegistry.findComponents(EthClientRegistry.class, null)).thenReturn(Collections.singletonList(clientRegistry));
+        EthSmartContract smartContract = new EthSmartContract("MerkleDataRegistry", "merkleRegistry", "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0", "0x0", null, 1L);
+        smartContract.setId(3);
+        smartContract.setBlockchainId(7L);
+        smartContract.setAbi("[]");
+        SmartContractRepository smartContractRepository = Mockito.mock(SmartContractRepository.class);
+        Mockito.when(smartContractRepository.find(3L)).thenReturn(smartContract);
+
+        EthIndexedEventSystemServiceImpl indexedEventSystemService = new EthIndexedEventSystemServiceImpl();
+        indexedEventSystemService.setBlockchainRepository(blockchainRepository);
+        indexedEventSystemService.setSmartContractRepository(smartContractRepository);
+        indexedEventSystemService.setComponentRegistry(componentRegistry);
+        indexedEventSystemService.startIndexing(smartContract);
+
+        Assertions.assertTrue(indexedEventSystemService.stopBlockchainIndexing(8).isEmpty());
+        List<Long> stopped = indexedEventSystemService.stopBlockchainIndexing(7);
+        Assertions.assertEquals(Collections.singletonList(3L), stopped);
+        Mockito.verify(indexer).stop();
+        Assertions.assertFalse(indexedEventSystemService.isIndexing(3));
+        //resumed from the checkpoint on the client of the updated blockchain
+        indexedEventSystemService.resumeIndexing(stopped);
+        Mockito.verify(indexer, Mockito.times(2)).start();
+        Assertions.assertTrue(indexedEventSystemService.isIndexing(3));
+    }
+}
@@ -1,10 +1,18 @@
 package it.water.connectors.ethereum;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import it.water.connectors.ethereum.api.BlockchainApi;
+import it.water.connectors.ethereum.api.IndexedEventRepository;
+import it.water.connectors.ethereum.api.ReceiptRepository;
 import it.water.connectors.ethereum.api.SmartContractApi;
 import it.water.connectors.ethereum.api.SmartContractRepository;
 import it.water.connectors.ethereum.api.SmartContractSystemApi;
 import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthIndexedEvent;
+import it.water.connectors.ethereum.model.EthIndexedEventFilter;
+import it.water.connectors.ethereum.model.EthIndexedEventPage;
+import it.water.connectors.ethereum.model.EthReceipt;
+import it.water.connectors.ethereum.model.EthReceiptLog;
 import it.water.connectors.ethereum.model.EthSmartContract;
 import it.water.core.api.bundle.Runtime;
 import it.water.core.api.model.PaginableResult;
@@ -28,6 +36,9 @@ import lombok.Setter;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Generated with Water Generator.
  * Test class for EthereumConnector Services.
@@ -59,6 +70,14 @@ class EthSmartContractApiTest implements Service {
     @Setter
     private SmartContractRepository ethereumConnectorRepository;
 
+    @Inject
+    @Setter
+    private IndexedEventRepository indexedEventRepository;
+
+    @Inject
+    @Setter
+    private ReceiptRepository receiptRepository;
+
     @Inject
     @Setter
     //default permission manager in test environment;
@@ -240,7 +259,7 @@ class EthSmartContractApiTest implements Service {
     @Test
     @Order(9)
     void updateShouldFailOnValidationFailure() {
-        EthSmartContract newEntity = new EthSmartContract("<script>function(){alert('ciao')!}</script>", "name", "localhost", "transactionReceopt",blockchain, 0L);
+        EthSmartContract newEntity = new EthSmartContract("<script>function(){alert('ciao')!}</script>", "name", "localhost", "transactionHash",blockchain, 0L);
         Assertions.assertThrows(ValidationException.class, () -> this.smartContractApi.save(newEntity));
     }
 
@@ -298,8 +317,102 @@ class EthSmartContractApiTest implements Service {
         Assertions.assertThrows(NoResultException.class, () -> this.smartContractApi.find(savedEntityId));
     }
 
+    @Order(14)
+    @Test
+    void indexedEventsShouldBeQueriedWithKeysetPagination() {
+        TestRuntimeUtils.impersonateAdmin(componentRegistry);
+        EthSmartContract smartContract = this.smartContractApi.save(createSmartContract(501));
+        String signerTopic = "0x00000000000000000000000000000000000000000000000000000000000000aa";
+        for (long i = 1; i <= 5; i++) {
+            EthIndexedEvent event = new EthIndexedEvent(smartContract, "Notarized", String.format("0x%064x", i), 0L, 10 * i);
+            event.setTopic0("0x" + "ab".repeat(32));
+            event.setTopic1(i % 2 == 0 ? signerTopic : "0x" + "00".repeat(32));
+            event.setDataWord(String.format("0x%064x", 100 + i));
+            event.setSender("0x00000000000000000000000000000000000000bb");
+            event.setEventValues("{}");
+            indexedEventRepository.persist(event);
+        }
+        EthIndexedEventPage page = this.smartContractApi.findEvents(smartContract.getId(), null, null, 2);
+        Assertions.assertEquals(2, page.getResults().size());
+        Assertions.assertEquals("20:0", page.getNextCursor());
+        page = this.smartContractApi.findEvents(smartContract.getId(), null, page.getNextCursor(), 2);
+        Assertions.assertEquals(30L, page.getResults().get(0).getBlockNumber());
+        page = this.smartContractApi.findEvents(smartContract.getId(), null, page.getNextCursor(), 2);
+        Assertions.assertEquals(1, page.getResults().size());
+        Assertions.assertNull(page.getNextCursor());
+        //addresses are padded as they are in topics
+        EthIndexedEventFilter filter = new EthIndexedEventFilter();
+        filter.setTopic1("0x00000000000000000000000000000000000000AA");
+        Assertions.assertEquals(2, this.smartContractApi.findEvents(smartContract.getId(), filter, null, 10).getResults().size());
+        filter = new EthIndexedEventFilter();
+        filter.setDataWord(String.format("0x%064x", 103));
+        filter.setSender("0x00000000000000000000000000000000000000BB");
+        page = this.smartContractApi.findEvents(smartContract.getId(), filter, null, 10);
+        Assertions.assertEquals(1, page.getResults().size());
+        Assertions.assertEquals(30L, page.getResults().get(0).getBlockNumber());
+        filter = new EthIndexedEventFilter();
+        filter.setFromBlock(20L);
+        filter.setToBlock(40L);
+        Assertions.assertEquals(3, this.smartContractApi.findEvents(smartContract.getId(), filter, null, 10).getResults().size());
+        EthIndexedEventFilter invalidFilter = new EthIndexedEventFilter();
+        invalidFilter.setTopic0("0x1234");
+        long smartContractId = smartContract.getId();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.smartContractApi.findEvents(smartContractId, invalidFilter, null, 10));
+        //events of removed contracts are removed too
+        this.smartContractApi.remove(smartContractId);
+        Assertions.assertEquals(0, indexedEventRepository.findPage(smartContractId, null, null, null, 10).size());
+    }
+
+    @Order(15)
+    @Test
+    void receiptShouldBeStoredWithTypedColumnsAndBinaryLogs() {
+        TestRuntimeUtils.impersonateAdmin(componentRegistry);
+        String transactionHash = String.format("0x%064x", 601);
+        EthSmartContract smartContract = this.smartContractApi.save(new EthSmartContract("exampleField601", "name601", "localhost601", transactionHash, blockchain, 0L));
+        //no client is installed in this module, so the receipt is not read from the chain
+        long smartContractId = smartContract.getId();
+        Assertions.assertThrows(NoResultException.class, () -> this.smartContractApi.findReceipt(smartContractId));
+        EthReceipt receipt = new EthReceipt(blockchain, transactionHash);
+        receipt.setBlockNumber(42L);
+        receipt.setGasUsed(21000L);
+        receipt.setStatus(1);
+        receipt.setEffectiveGasPrice(1000000000L);
+        List<EthReceiptLog> logs = Arrays.asList(
+                new EthReceiptLog("0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0", 0L, Arrays.asList("0x" + "ab".repeat(32), "0x" + "00".repeat(31) + "aa"), "0x" + "cd".repeat(32)),
+                new EthReceiptLog("0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0", 1L, Arrays.asList(), "0x"));
+        receipt.setLogs(logs);
+        receiptRepository.persist(receipt);
+        EthReceipt found = this.smartContractApi.findReceipt(smartContractId);
+        Assertions.assertEquals(42L, found.getBlockNumber());
+        Assertions.assertEquals(21000L, found.getGasUsed());
+        Assertions.assertEquals(1, found.getStatus());
+        Assertions.assertEquals(2, found.getLogCount());
+        Assertions.assertEquals(logs, this.smartContractApi.findReceiptLogs(smartContractId));
+        //receipts can be queried by their typed columns
+        Assertions.assertEquals(1, receiptRepository.countAll(receiptRepository.getQueryBuilderInstance().createQueryFilter("status=1")));
+        this.smartContractApi.remove(smartContractId);
+        Assertions.assertNull(receiptRepository.findByTransactionHash(blockchain.getId(), transactionHash));
+    }
+
+    @Order(16)
+    @Test
+    void abiShouldBeReadOnlyThroughItsApi() throws Exception {
+        TestRuntimeUtils.impersonateAdmin(componentRegistry);
+        EthSmartContract entity = createSmartContract(701);
+        String abi = "[{\"type\":\"function\",\"name\":\"isNotarized\",\"inputs\":[],\"outputs\":[]}]";
+        entity.setAbi(abi);
+        EthSmartContract smartContract = this.smartContractApi.save(entity);
+        Assertions.assertEquals(abi, this.smartContractApi.findAbi(smartContract.getId()));
+        //the abi is accepted as input but never serialized with the contract
+        ObjectMapper mapper = new ObjectMapper();
+        Assertions.assertFalse(mapper.writeValueAsString(smartContract).contains("isNotarized"));
+        Assertions.assertEquals(abi, mapper.readValue("{\"abi\":" + mapper.writeValueAsString(abi) + "}", EthSmartContract.class).getAbi());
+        long withoutAbiId = this.smartContractApi.save(createSmartContract(702)).getId();
+        Assertions.assertThrows(NoResultException.class, () -> this.smartContractApi.findAbi(withoutAbiId));
+    }
+
     private EthSmartContract createSmartContract(int seed) {
-        EthSmartContract entity = new EthSmartContract("exampleField" + seed, "name"+seed, "localhost"+seed, "transactionReceopt"+seed,blockchain, 0L);
+        EthSmartContract entity = new EthSmartContract("exampleField" + seed, "name"+seed, "localhost"+seed, "transactionHash"+seed,blockchain, 0L);
         return entity;
     }
 }
@@ -4,6 +4,7 @@
 Feature: Check Smart Contracts Rest Api Response
 
   Scenario: Ethereum Smart Contracts CRUD Operations
+    # transactionReceipt is the former name of transactionHash, still accepted and returned for existing rest clients
 
     Given header Content-Type = 'application/json'
     And header Accept = 'application/json'
@@ -26,6 +27,7 @@ Feature: Check Smart Contracts Rest Api Response
         "address":"address",
         "contractClass": 'exampleField',
         "name":"contract",
+        "transactionHash":"transaction",
         "transactionReceipt":"transaction",
         "blockchainId": #number
        }
@@ -64,6 +66,7 @@ Feature: Check Smart Contracts Rest Api Response
         "address":"address",
         "contractClass": 'exampleFieldUpdated',
         "name":"contract",
+        "transactionHash":"transaction",
         "transactionReceipt":"transaction",
         "blockchainId": #number
        }
@@ -89,6 +92,7 @@ Feature: Check Smart Contracts Rest Api Response
         "address":"address",
         "contractClass": 'exampleFieldUpdated',
         "name":"contract",
+        "transactionHash":"transaction",
         "transactionReceipt":"transaction",
         "blockchainId": #number
        }
@@ -113,6 +117,7 @@ Feature: Check Smart Contracts Rest Api Response
         "address":"address",
         "contractClass": 'exampleFieldUpdated',
         "name":"contract",
+        "transactionHash":"transaction",
         "transactionReceipt":"transaction",
         "blockchainId": #number
       }
@@ -126,3 +131,73 @@ Feature: Check Smart Contracts Rest Api Response
     When method DELETE
     # 204 because delete response is empty, so the status code is "no content" but is ok
     Then status 204
+
+  Scenario: Ethereum Smart Contracts saved with the deployment transaction hash
+
+    Given header Content-Type = 'application/json'
+    And header Accept = 'application/json'
+    Given url serviceBaseUrl+'/water/ethereum/smart-contracts'
+    And request
+    """ { "contractClass": "exampleField","name":"contractByHash","address":"addressByHash","transactionHash":"transactionByHash","blockchainId": "#(blockchainId)"}; """
+    When method POST
+    Then status 200
+    And match response ==
+    """
+      { "id": #number,
+        "entityVersion":1,
+        "entityCreateDate":'#number',
+        "entityModifyDate":'#number',
+        "categoryIds": '#ignore',
+        "tagIds": '#ignore',
+        "address":"addressByHash",
+        "contractClass": 'exampleField',
+        "name":"contractByHash",
+        "transactionHash":"transactionByHash",
+        "transactionReceipt":"transactionByHash",
+        "blockchainId": #number
+       }
+    """
+    * def entityId = response.id
+
+  # --------------- UPDATE -----------------------------
+
+    Given header Content-Type = 'application/json'
+    And header Accept = 'application/json'
+    Given url serviceBaseUrl+'/water/ethereum/smart-contracts'
+    And request
+    """ {
+          "id":"#(entityId)",
+          "entityVersion":1,
+          "address":"addressByHash",
+          "contractClass": 'exampleField',
+          "name":"contractByHash",
+          "transactionHash":"transactionByHashUpdated",
+          "blockchainId": "#(blockchainId)"
+    }
+    """
+    When method PUT
+    Then status 200
+    And match response ==
+    """
+      { "id": #number,
+        "entityVersion":2,
+        "entityCreateDate":'#number',
+        "entityModifyDate":'#number',
+        "categoryIds": '#ignore',
+        "tagIds": '#ignore',
+        "address":"addressByHash",
+        "contractClass": 'exampleField',
+        "name":"contractByHash",
+        "transactionHash":"transactionByHashUpdated",
+        "transactionReceipt":"transactionByHashUpdated",
+        "blockchainId": #number
+       }
+    """
+
+  # --------------- DELETE -----------------------------
+
+    Given header Content-Type = 'application/json'
+    And header Accept = 'application/json'
+    Given url serviceBaseUrl+'/water/ethereum/smart-contracts/'+entityId
+    When method DELETE
+    Then status 204
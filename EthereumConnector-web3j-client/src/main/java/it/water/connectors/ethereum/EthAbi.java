@@ -0,0 +1,359 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import it.water.connectors.ethereum.api.EthEventLog;
+import lombok.Getter;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.core.methods.response.AbiDefinition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * @Author Aristide Cittadino
+ * Contract ABI compiled for runtime invocation.
+ * The ABI JSON is parsed once, each function and event is compiled the first time it is used into an encoder/decoder
+ * holding its selector (or topic), its argument converters and its result type references, then it is reused.
+ * Functions whose parameters and results are all bytes32, address, uint256 or bool go through the fast path codec.
+ * Tuple parameters and anonymous events are not supported.
+ */
+public class EthAbi {
+    private static final String FUNCTION = "function";
+    private static final String EVENT = "event";
+
+    private final Map<String, List<AbiDefinition>> functionDefinitions = new HashMap<>();
+    private final Map<String, AbiDefinition> eventDefinitions = new HashMap<>();
+    private final Map<String, CompiledFunction> functions = new ConcurrentHashMap<>();
+    private final Map<String, CompiledEvent> events = new ConcurrentHashMap<>();
+    //built on first lookup by topic
+    private volatile Map<String, CompiledEvent> eventsByTopic;
+
+    private EthAbi(AbiDefinition[] definitions) {
+        for (AbiDefinition definition : definitions) {
+            if (FUNCTION.equals(definition.getType()))
+                functionDefinitions.computeIfAbsent(definition.getName(), name -> new ArrayList<>()).add(definition);
+            else if (EVENT.equals(definition.getType()))
+                eventDefinitions.putIfAbsent(definition.getName(), definition);
+        }
+    }
+
+    /**
+     * @param abiJson contract ABI JSON
+     * @return parsed ABI, functions and events are compiled lazily
+     */
+    public static EthAbi parse(String abiJson) {
+        if (abiJson == null || abiJson.isEmpty())
+            throw new IllegalArgumentException("abi is empty");
+        try {
+            return new EthAbi(ObjectMapperFactory.getObjectMapper().readValue(abiJson, AbiDefinition[].class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid ABI: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * @param function function name or full signature
+     * @param argCount number of arguments, used to choose between overloaded functions
+     * @return compiled function
+     */
+    public CompiledFunction function(String function, int argCount) {
+        if (function == null || function.isEmpty())
+            throw new IllegalArgumentException("function is empty");
+        boolean bySignature = function.indexOf('(') >= 0;
+        String key = bySignature ? function : function + "/" + argCount;
+        CompiledFunction compiled = functions.get(key);
+        if (compiled == null)
+            compiled = functions.computeIfAbsent(key, k -> new CompiledFunction(bySignature ? findBySignature(function) : findByArgCount(function, argCount)));
+        return compiled;
+    }
+
+    /**
+     * @param event event name
+     * @return compiled event
+     */
+    public CompiledEvent event(String event) {
+        if (event == null || event.isEmpty())
+            throw new IllegalArgumentException("event is empty");
+        CompiledEvent compiled = events.get(event);
+        if (compiled == null) {
+            compiled = events.computeIfAbsent(event, name -> {
+                AbiDefinition definition = eventDefinitions.get(name);
+                if (definition == null)
+                    throw new IllegalArgumentException("No event " + name + " in ABI");
+                return new CompiledEvent(definition);
+            });
+        }
+        return compiled;
+    }
+
+    /**
+     * @param log transaction log
+     * @return compiled event which emitted the log, null if the ABI has no such event
+     */
+    public CompiledEvent eventOf(EthEventLog log) {
+        if (log == null || log.getTopics() == null || log.getTopics().isEmpty())
+            return null;
+        Map<String, CompiledEvent> byTopic = eventsByTopic;
+        if (byTopic == null) {
+            byTopic = new HashMap<>();
+            for (String name : eventDefinitions.keySet()) {
+                CompiledEvent compiled = event(name);
+                byTopic.put(compiled.getTopic(), compiled);
+            }
+            eventsByTopic = byTopic;
+        }
+        CompiledEvent compiled = byTopic.get(log.getTopics().get(0).toLowerCase(Locale.ROOT));
+        return compiled != null && compiled.matches(log) ? compiled : null;
+    }
+
+    private AbiDefinition findByArgCount(String name, int argCount) {
+        List<AbiDefinition> definitions = functionDefinitions.getOrDefault(name, Collections.emptyList());
+        AbiDefinition found = null;
+        for (AbiDefinition definition : definitions) {
+            if (definition.getInputs().size() != argCount)
+                continue;
+            if (found != null)
+                throw new IllegalArgumentException("Function " + name + " with " + argCount + " arguments is overloaded, use its signature");
+            found = definition;
+        }
+        if (found == null)
+            throw new IllegalArgumentException("No function " + name + " with " + argCount + " arguments in ABI");
+        return found;
+    }
+
+    private AbiDefinition findBySignature(String signature) {
+        String name = signature.substring(0, signature.indexOf('(')).trim();
+        String canonicalSignature = signature.replace(" ", "");
+        for (AbiDefinition definition : functionDefinitions.getOrDefault(name, Collections.emptyList())) {
+            if (signatureOf(definition).equals(canonicalSignature))
+                return definition;
+        }
+        throw new IllegalArgumentException("No function " + signature + " in ABI");
+    }
+
+    private static String signatureOf(AbiDefinition definition) {
+        StringBuilder signature = new StringBuilder(definition.getName()).append('(');
+        List<AbiDefinition.NamedType> inputs = definition.getInputs();
+        for (int i = 0; i < inputs.size(); i++) {
+            if (i > 0)
+                signature.append(',');
+            signature.append(EthAbiTypes.canonical(inputs.get(i).getType()));
+        }
+        return signature.append(')').toString();
+    }
+
+    /**
+     * Function encoder/decoder.
+     */
+    public static class CompiledFunction {
+        @Getter
+        private final String name;
+        @Getter
+        private final String signature;
+        @Getter
+        private final String selector;
+        @Getter
+        private final boolean readOnly;
+        private final List<Function<Object, Type>> encoders;
+        private final List<TypeReference<Type>> outputs;
+        //fast path, null when a parameter or a result type is not supported by the static codec
+        private final ThreadLocal<EthStaticAbiEncoder> staticEncoder;
+        private final List<EthStaticAbiType> staticOutputs;
+
+        private CompiledFunction(AbiDefinition definition) {
+            this.name = definition.getName();
+            this.signature = signatureOf(definition);
+            this.selector = Hash.sha3String(signature).substring(0, 10);
+            this.readOnly = definition.isPureOrView() || definition.isConstant();
+            List<Function<Object, Type>> inputEncoders = new ArrayList<>();
+            definition.getInputs().forEach(input -> inputEncoders.add(EthAbiTypes.encoderOf(EthAbiTypes.canonical(input.getType()))));
+            this.encoders = Collections.unmodifiableList(inputEncoders);
+            List<TypeReference<Type>> outputReferences = new ArrayList<>();
+            definition.getOutputs().forEach(output -> outputReferences.add(EthAbiTypes.typeReferenceOf(EthAbiTypes.canonical(output.getType()))));
+            this.outputs = Collections.unmodifiableList(outputReferences);
+            EthStaticAbiFunction staticFunction = EthStaticAbiFunction.isSupported(signature) ? EthStaticAbiFunction.of(signature) : null;
+            this.staticEncoder = staticFunction == null ? null : ThreadLocal.withInitial(staticFunction::encoder);
+            this.staticOutputs = staticTypesOf(definition.getOutputs());
+        }
+
+        /**
+         * @param args function arguments
+         * @return call data
+         */
+        public String encode(Object... args) {
+            int argCount = args == null ? 0 : args.length;
+            if (argCount != encoders.size())
+                throw new IllegalArgumentException("Function " + signature + " expects " + encoders.size() + " arguments, found " + argCount);
+            if (staticEncoder != null && !hasWeb3jTypes(args)) {
+                EthStaticAbiEncoder encoder = staticEncoder.get().reset();
+                for (int i = 0; i < argCount; i++)
+                    encoder.put(args[i]);
+                return encoder.encode();
+            }
+            List<Type> values = new ArrayList<>(argCount);
+            for (int i = 0; i < argCount; i++)
+                values.add(encoders.get(i).apply(args[i]));
+            return selector + FunctionEncoder.encodeConstructor(values);
+        }
+
+        /**
+         * @param output eth_call result
+         * @return decoded return values
+         */
+        public List<Object> decode(String output) {
+            if (outputs.isEmpty())
+                return Collections.emptyList();
+            if (staticOutputs != null && EthStaticAbiDecoder.words(output) >= staticOutputs.size())
+                return decodeStatic(output);
+            List<Type> values = FunctionReturnDecoder.decode(output, outputs);
+            if (values.size() != outputs.size())
+                throw new IllegalArgumentException("Cannot decode the result of " + signature);
+            List<Object> result = new ArrayList<>(values.size());
+            values.forEach(value -> result.add(EthAbiTypes.toJava(value)));
+            return result;
+        }
+
+        private List<Object> decodeStatic(String output) {
+            List<Object> result = new ArrayList<>(staticOutputs.size());
+            for (int i = 0; i < staticOutputs.size(); i++) {
+                switch (staticOutputs.get(i)) {
+                    case BYTES32:
+                        result.add(EthStaticAbiDecoder.bytes32(output, i));
+                        break;
+                    case ADDRESS:
+                        result.add(EthStaticAbiDecoder.address(output, i));
+                        break;
+                    case UINT256:
+                        result.add(EthStaticAbiDecoder.uint256(output, i));
+                        break;
+                    default:
+                        result.add(EthStaticAbiDecoder.bool(output, i));
+                        break;
+                }
+            }
+            return result;
+        }
+
+        private static boolean hasWeb3jTypes(Object[] args) {
+            if (args == null)
+                return false;
+            for (Object arg : args) {
+                if (arg instanceof Type)
+                    return true;
+            }
+            return false;
+        }
+
+        private static List<EthStaticAbiType> staticTypesOf(List<AbiDefinition.NamedType> parameters) {
+            List<EthStaticAbiType> types = new ArrayList<>(parameters.size());
+            try {
+                parameters.forEach(parameter -> types.add(EthStaticAbiType.of(EthAbiTypes.canonical(parameter.getType()))));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            return Collections.unmodifiableList(types);
+        }
+    }
+
+    /**
+     * Event decoder.
+     * Indexed parameters of dynamic types are returned as their topic hash, since the value is not part of the log.
+     */
+    public static class CompiledEvent {
+        @Getter
+        private final String name;
+        @Getter
+        private final String signature;
+        @Getter
+        private final String topic;
+        private final List<String> parameterNames;
+        private final boolean[] indexed;
+        //null for indexed dynamic parameters
+        private final List<TypeReference<Type>> indexedReferences;
+        private final List<TypeReference<Type>> dataReferences;
+
+        private CompiledEvent(AbiDefinition definition) {
+            this.name = definition.getName();
+            this.signature = signatureOf(definition);
+            this.topic = Hash.sha3String(signature);
+            List<AbiDefinition.NamedType> inputs = definition.getInputs();
+            List<String> names = new ArrayList<>(inputs.size());
+            this.indexed = new boolean[inputs.size()];
+            this.indexedReferences = new ArrayList<>();
+            this.dataReferences = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                AbiDefinition.NamedType input = inputs.get(i);
+                String type = EthAbiTypes.canonical(input.getType());
+                names.add(input.getName() == null || input.getName().isEmpty() ? String.valueOf(i) : input.getName());
+                indexed[i] = input.isIndexed();
+                if (!input.isIndexed())
+                    dataReferences.add(EthAbiTypes.typeReferenceOf(type));
+                else
+                    indexedReferences.add(EthAbiTypes.isDynamic(type) ? null : EthAbiTypes.typeReferenceOf(type));
+            }
+            this.parameterNames = Collections.unmodifiableList(names);
+        }
+
+        /**
+         * @param log transaction log
+         * @return true if the log has been emitted for this event
+         */
+        public boolean matches(EthEventLog log) {
+            List<String> topics = log.getTopics();
+            return topics != null && topics.size() == indexedReferences.size() + 1 && topic.equals(topics.get(0).toLowerCase(Locale.ROOT));
+        }
+
+        /**
+         * @param topics log topics
+         * @param data   log data
+         * @return event parameters by name, in the ABI order
+         */
+        public Map<String, Object> decode(List<String> topics, String data) {
+            List<Type> dataValues = dataReferences.isEmpty() ? Collections.emptyList() : FunctionReturnDecoder.decode(data, dataReferences);
+            if (dataValues.size() != dataReferences.size())
+                throw new IllegalArgumentException("Cannot decode the data of event " + signature);
+            Map<String, Object> values = new LinkedHashMap<>();
+            int topicIndex = 0;
+            int dataIndex = 0;
+            for (int i = 0; i < indexed.length; i++) {
+                if (indexed[i]) {
+                    TypeReference<Type> reference = indexedReferences.get(topicIndex);
+                    String indexedTopic = topics.get(++topicIndex);
+                    values.put(parameterNames.get(i), reference == null ? indexedTopic : EthAbiTypes.toJava(FunctionReturnDecoder.decodeIndexedValue(indexedTopic, reference)));
+                } else {
+                    values.put(parameterNames.get(i), EthAbiTypes.toJava(dataValues.get(dataIndex++)));
+                }
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @Author Aristide Cittadino
+ * Compiled ABIs by ABI JSON, shared by all the clients of a blockchain connection.
+ * Least recently used ABIs are evicted once max size is reached.
+ */
+public class EthAbiCache {
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    /**
+     * Max number of compiled ABIs kept.
+     */
+    @Getter
+    @Setter
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    //guarded by this
+    private final LinkedHashMap<String, EthAbi> abis = new LinkedHashMap<String, EthAbi>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, EthAbi> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * ABIs are parsed outside the lock, if two threads parse the same ABI the first one wins.
+     *
+     * @param abiJson contract ABI JSON
+     * @return compiled ABI
+     */
+    public EthAbi get(String abiJson) {
+        if (abiJson == null || abiJson.isEmpty())
+            throw new IllegalArgumentException("abi is empty");
+        synchronized (this) {
+            EthAbi abi = abis.get(abiJson);
+            if (abi != null)
+                return abi;
+        }
+        EthAbi parsed = EthAbi.parse(abiJson);
+        synchronized (this) {
+            return abis.computeIfAbsent(abiJson, json -> parsed);
+        }
+    }
+
+    public synchronized void clear() {
+        abis.clear();
+    }
+
+    public synchronized int size() {
+        return abis.size();
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Array;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Bytes;
+import org.web3j.abi.datatypes.BytesType;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.Int;
+import org.web3j.abi.datatypes.NumericType;
+import org.web3j.abi.datatypes.StaticArray;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Uint;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.utils.Numeric;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * @Author Aristide Cittadino
+ * Conversions between plain java values and web3j ABI types.
+ * Converters are resolved once for each ABI type when a function is compiled, so no type lookup nor reflection
+ * happens when arguments are encoded.
+ */
+final class EthAbiTypes {
+
+    private EthAbiTypes() {
+    }
+
+    /**
+     * @param type ABI type
+     * @return canonical ABI type as used inside signatures, i.e. uint becomes uint256
+     */
+    static String canonical(String type) {
+        if (type == null || type.isEmpty())
+            throw new IllegalArgumentException("ABI type is empty");
+        if (type.startsWith("tuple"))
+            throw new IllegalArgumentException("Tuple parameters are not supported");
+        int arrayStart = type.indexOf('[');
+        String baseType = arrayStart < 0 ? type : type.substring(0, arrayStart);
+        String arraySuffix = arrayStart < 0 ? "" : type.substring(arrayStart);
+        if (baseType.equals("uint") || baseType.equals("int"))
+            baseType = baseType + "256";
+        return baseType + arraySuffix;
+    }
+
+    /**
+     * @param type canonical ABI type
+     * @return type reference used by web3j to decode values of the given type
+     */
+    @SuppressWarnings("unchecked")
+    static TypeReference<Type> typeReferenceOf(String type) {
+        try {
+            return (TypeReference<Type>) (TypeReference<?>) TypeReference.makeTypeReference(type);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unsupported ABI type: " + type);
+        }
+    }
+
+    private static Class<Type> classOf(String type) {
+        try {
+            return typeReferenceOf(type).getClassType();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unsupported ABI type: " + type);
+        }
+    }
+
+    /**
+     * @param type canonical ABI type
+     * @return true if values of the given type are encoded out of place
+     */
+    static boolean isDynamic(String type) {
+        if (type.equals("string") || type.equals("bytes") || type.endsWith("[]"))
+            return true;
+        int arrayStart = type.lastIndexOf('[');
+        return arrayStart >= 0 && isDynamic(type.substring(0, arrayStart));
+    }
+
+    /**
+     * Web3j types given as argument are passed through as they are.
+     *
+     * @param type canonical ABI type
+     * @return converter from java values to the web3j type
+     */
+    static Function<Object, Type> encoderOf(String type) {
+        Function<Object, Type> encoder = valueEncoderOf(type);
+        return value -> {
+            if (value == null)
+                throw new IllegalArgumentException("Null value for ABI type " + type);
+            if (value instanceof Type)
+                return (Type) value;
+            return encoder.apply(value);
+        };
+    }
+
+    /**
+     * @param value web3j value
+     * @return plain java value: String for addresses and strings, BigInteger for numbers, Boolean for bool,
+     * byte[] for bytes and List for arrays
+     */
+    static Object toJava(Type<?> value) {
+        if (value instanceof Array) {
+            List<?> elements = ((Array<?>) value).getValue();
+            List<Object> values = new ArrayList<>(elements.size());
+            elements.forEach(element -> values.add(toJava((Type<?>) element)));
+            return values;
+        }
+        if (value instanceof Address)
+            return value.toString();
+        return value.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Type> valueEncoderOf(String type) {
+        int arrayStart = type.lastIndexOf('[');
+        if (arrayStart >= 0) {
+            String elementType = type.substring(0, arrayStart);
+            String size = type.substring(arrayStart + 1, type.length() - 1);
+            Function<Object, Type> elementEncoder = encoderOf(elementType);
+            Class<Type> elementClass = classOf(elementType);
+            if (size.isEmpty())
+                return value -> new DynamicArray<>(elementClass, encodeElements(value, elementEncoder, -1));
+            int length = Integer.parseInt(size);
+            return value -> new StaticArray<Type>(elementClass, encodeElements(value, elementEncoder, length)) {
+            };
+        }
+        switch (type) {
+            case "address":
+                return value -> new Address(value.toString());
+            case "bool":
+                return EthAbiTypes::toBool;
+            case "string":
+                return value -> new Utf8String(value.toString());
+            case "bytes":
+                return value -> new DynamicBytes(toBytes(value));
+            default:
+                break;
+        }
+        if (type.startsWith("bytes")) {
+            int byteSize = parseSize(type, "bytes", 1, 32);
+            return value -> new FixedBytes(byteSize, toBytes(value));
+        }
+        if (type.startsWith("uint")) {
+            int bitSize = parseBitSize(type, "uint");
+            return value -> new SizedUint(bitSize, toBigInteger(value));
+        }
+        if (type.startsWith("int")) {
+            int bitSize = parseBitSize(type, "int");
+            return value -> new SizedInt(bitSize, toBigInteger(value));
+        }
+        throw new IllegalArgumentException("Unsupported ABI type: " + type);
+    }
+
+    private static List<Type> encodeElements(Object value, Function<Object, Type> elementEncoder, int length) {
+        List<?> elements;
+        if (value instanceof List)
+            elements = (List<?>) value;
+        else if (value instanceof Object[])
+            elements = Arrays.asList((Object[]) value);
+        else
+            throw new IllegalArgumentException("Expected a List or an array, found " + value.getClass().getName());
+        if (length >= 0 && elements.size() != length)
+            throw new IllegalArgumentException("Expected " + length + " elements, found " + elements.size());
+        List<Type> encoded = new ArrayList<>(elements.size());
+        elements.forEach(element -> encoded.add(elementEncoder.apply(element)));
+        return encoded;
+    }
+
+    private static Bool toBool(Object value) {
+        if (value instanceof Boolean)
+            return new Bool((Boolean) value);
+        String text = value.toString();
+        if (!text.equalsIgnoreCase("true") && !text.equalsIgnoreCase("false"))
+            throw new IllegalArgumentException("Not a bool value: " + text);
+        return new Bool(Boolean.parseBoolean(text));
+    }
+
+    private static byte[] toBytes(Object value) {
+        if (value instanceof byte[])
+            return (byte[]) value;
+        return Numeric.hexStringToByteArray(value.toString());
+    }
+
+    private static BigInteger toBigInteger(Object value) {
+        if (value instanceof BigInteger)
+            return (BigInteger) value;
+        if (value instanceof BigDecimal)
+            return ((BigDecimal) value).toBigIntegerExact();
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            return BigInteger.valueOf(((Number) value).longValue());
+        String text = value.toString();
+        if (Numeric.containsHexPrefix(text))
+            return Numeric.toBigInt(text);
+        return new BigInteger(text);
+    }
+
+    private static int parseBitSize(String type, String prefix) {
+        int bitSize = parseSize(type, prefix, 8, 256);
+        if (bitSize % 8 != 0)
+            throw new IllegalArgumentException("Unsupported ABI type: " + type);
+        return bitSize;
+    }
+
+    private static int parseSize(String type, String prefix, int min, int max) {
+        try {
+            int size = Integer.parseInt(type.substring(prefix.length()));
+            if (size >= min && size <= max)
+                return size;
+        } catch (NumberFormatException e) {
+            //handled below
+        }
+        throw new IllegalArgumentException("Unsupported ABI type: " + type);
+    }
+
+    private static class FixedBytes extends Bytes {
+        private FixedBytes(int byteSize, byte[] value) {
+            super(byteSize, checkLength(byteSize, value));
+        }
+
+        private static byte[] checkLength(int byteSize, byte[] value) {
+            if (value.length != byteSize)
+                throw new IllegalArgumentException("Expected " + byteSize + " bytes, found " + value.length);
+            return value;
+        }
+    }
+
+    private static class SizedUint extends Uint {
+        private SizedUint(int bitSize, BigInteger value) {
+            super(bitSize, checkRange(bitSize, value));
+        }
+
+        private static BigInteger checkRange(int bitSize, BigInteger value) {
+            if (value.signum() < 0 || value.bitLength() > bitSize)
+                throw new IllegalArgumentException(value + " is out of range for uint" + bitSize);
+            return value;
+        }
+    }
+
+    private static class SizedInt extends Int {
+        private SizedInt(int bitSize, BigInteger value) {
+            super(bitSize, checkRange(bitSize, value));
+        }
+
+        private static BigInteger checkRange(int bitSize, BigInteger value) {
+            if (value.bitLength() > bitSize - 1)
+                throw new IllegalArgumentException(value + " is out of range for int" + bitSize);
+            return value;
+        }
+    }
+}
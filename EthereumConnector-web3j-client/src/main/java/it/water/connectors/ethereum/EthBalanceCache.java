@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @Author Aristide Cittadino
+ * Balance cache shared by all the clients of a blockchain connection, keyed by address and block number.
+ * Balances at the chain head are kept until a new head is published, balances at blocks deep enough below the head
+ * cannot change anymore and are kept permanently in a separate segment.
+ * Both segments are bounded and evict the least recently used entries.
+ * Concurrent reads of the same balance share the same node request.
+ */
+public class EthBalanceCache {
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final int DEFAULT_MAX_HISTORICAL_SIZE = 10000;
+    public static final int DEFAULT_HISTORICAL_CONFIRMATIONS = 12;
+
+    private final EthChainHeadTracker headTracker;
+    private final Consumer<EthChainHead> headListener = this::onNewHead;
+    private final AtomicBoolean listening = new AtomicBoolean(false);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Max number of balances cached for the head block.
+     */
+    @Getter
+    @Setter
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * Max number of balances cached for historical blocks.
+     */
+    @Getter
+    @Setter
+    private volatile int maxHistoricalSize = DEFAULT_MAX_HISTORICAL_SIZE;
+
+    /**
+     * Blocks at least this number of blocks below the head are considered final, so their balances are cached permanently.
+     */
+    @Getter
+    @Setter
+    private volatile int historicalConfirmations = DEFAULT_HISTORICAL_CONFIRMATIONS;
+
+    //all the segments are guarded by this
+    private final LinkedHashMap<BalanceKey, CompletableFuture<BigInteger>> headBalances = new LinkedHashMap<BalanceKey, CompletableFuture<BigInteger>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BalanceKey, CompletableFuture<BigInteger>> eldest) {
+            return size() > maxSize;
+        }
+    };
+    private final LinkedHashMap<BalanceKey, CompletableFuture<BigInteger>> historicalBalances = new LinkedHashMap<BalanceKey, CompletableFuture<BigInteger>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BalanceKey, CompletableFuture<BigInteger>> eldest) {
+            return size() > maxHistoricalSize;
+        }
+    };
+    private BigInteger headBlock;
+
+    public EthBalanceCache(EthChainHeadTracker headTracker) {
+        if (headTracker == null)
+            throw new IllegalArgumentException("headTracker is null");
+        this.headTracker = headTracker;
+    }
+
+    /**
+     * Returns the balances of the given addresses at the given block.
+     * Missing balances are read with a single invocation of the loader.
+     *
+     * @param addresses   distinct account addresses
+     * @param blockNumber block number
+     * @param loader      reads the given balances from the node at the given block
+     * @return balance future of each address
+     */
+    public Map<String, CompletableFuture<BigInteger>> getAll(Collection<String> addresses, BigInteger blockNumber, Function<List<String>, CompletableFuture<Map<String, BigInteger>>> loader) {
+        //the cache follows the heads read by the clients, it never keeps the head polled by itself
+        if (listening.compareAndSet(false, true))
+            headTracker.addListener(headListener, () -> false);
+        Map<String, CompletableFuture<BigInteger>> balances = new LinkedHashMap<>();
+        Map<String, CompletableFuture<BigInteger>> missing = new LinkedHashMap<>();
+        LinkedHashMap<BalanceKey, CompletableFuture<BigInteger>> segment;
+        synchronized (this) {
+            segment = segmentOf(blockNumber);
+            for (String address : addresses) {
+                BalanceKey key = new BalanceKey(address, blockNumber);
+                CompletableFuture<BigInteger> balance = segment != null ? segment.get(key) : null;
+                if (balance != null) {
+                    hits.incrementAndGet();
+                } else {
+                    misses.incrementAndGet();
+                    balance = new CompletableFuture<>();
+                    missing.put(address, balance);
+                    if (segment != null)
+                        segment.put(key, balance);
+                }
+                balances.put(address, balance);
+            }
+        }
+        if (!missing.isEmpty())
+            load(missing, blockNumber, segment, loader);
+        return balances;
+    }
+
+    public CompletableFuture<BigInteger> get(String address, BigInteger blockNumber, Function<List<String>, CompletableFuture<Map<String, BigInteger>>> loader) {
+        List<String> addresses = new ArrayList<>(1);
+        addresses.add(address);
+        return getAll(addresses, blockNumber, loader).get(address);
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized int getSize() {
+        return headBalances.size();
+    }
+
+    public synchronized int getHistoricalSize() {
+        return historicalBalances.size();
+    }
+
+    public synchronized void clear() {
+        headBalances.clear();
+        historicalBalances.clear();
+        headBlock = null;
+    }
+
+    private void onNewHead(EthChainHead head) {
+        synchronized (this) {
+            //also a reorganization at the same height invalidates the head balances
+            headBalances.clear();
+            headBlock = head.getBlockNumber();
+        }
+    }
+
+    /**
+     * Must be invoked holding the lock.
+     *
+     * @return the segment where balances of the given block are cached, null if they must not be cached
+     */
+    private LinkedHashMap<BalanceKey, CompletableFuture<BigInteger>> segmentOf(BigInteger blockNumber) {
+        EthChainHead head = headTracker.getHead();
+        if (head != null && blockNumber.compareTo(head.getBlockNumber().subtract(BigInteger.valueOf(Math.max(1, historicalConfirmations)))) <= 0)
+            return historicalBalances;
+        if (headBlock == null || blockNumber.compareTo(headBlock) > 0) {
+            headBalances.clear();
+            headBlock = blockNumber;
+        }
+        //recent blocks below the head may still be reorganized
+        return blockNumber.equals(headBlock) ? headBalances : null;
+    }
+
+    private void load(Map<String, CompletableFuture<BigInteger>> missing, BigInteger blockNumber, Map<BalanceKey, CompletableFuture<BigInteger>> segment, Function<List<String>, CompletableFuture<Map<String, BigInteger>>> loader) {
+        CompletableFuture<Map<String, BigInteger>> loaded;
+        try {
+            loaded = loader.apply(new ArrayList<>(missing.keySet()));
+        } catch (RuntimeException e) {
+            loaded = new CompletableFuture<>();
+            loaded.completeExceptionally(e);
+        }
+        loaded.whenComplete((values, error) -> missing.forEach((address, balance) -> {
+            BigInteger value = error == null && values != null ? values.get(address) : null;
+            if (value != null) {
+                balance.complete(value);
+                return;
+            }
+            if (segment != null) {
+                synchronized (this) {
+                    segment.remove(new BalanceKey(address, blockNumber), balance);
+                }
+            }
+            balance.completeExceptionally(error != null ? error : new IllegalStateException("Balance of " + address + " not returned by the node"));
+        }));
+    }
+
+    @EqualsAndHashCode
+    private static class BalanceKey {
+        private final String address;
+        private final BigInteger blockNumber;
+
+        private BalanceKey(String address, BigInteger blockNumber) {
+            this.address = address.toLowerCase(Locale.ROOT);
+            this.blockNumber = blockNumber;
+        }
+    }
+}
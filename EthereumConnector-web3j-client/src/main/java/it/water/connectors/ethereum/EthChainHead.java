@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigInteger;
+
+/**
+ * @Author Aristide Cittadino
+ * Latest block observed on a blockchain connection.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class EthChainHead {
+    private final BigInteger blockNumber;
+    //may be null when the head has been observed through eth_blockNumber and the block could not be read
+    private final String blockHash;
+
+    public EthChainHead(BigInteger blockNumber, String blockHash) {
+        if (blockNumber == null)
+            throw new IllegalArgumentException("blockNumber is null");
+        this.blockNumber = blockNumber;
+        this.blockHash = blockHash;
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import io.reactivex.disposables.Disposable;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.websocket.events.NewHead;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * @Author Aristide Cittadino
+ * Tracks the head of the chain for all the clients of a blockchain connection and publishes every new head to the registered listeners.
+ * When the transport supports subscriptions (WebSocket) heads are pushed by the node through newHeads,
+ * while eth_blockNumber is polled only as a slow heartbeat or when the subscription is not available.
+ * Over HTTP a single eth_blockNumber poll is shared by all the consumers, its interval follows the observed block time.
+ * Polling starts on first use and stops once nothing needs the head: no listener keeps it running and the head
+ * has not been read for idleTimeoutMillis. The next read or listener restarts it, reading the head from the node again
+ * since the one kept while stopped may be stale.
+ */
+public class EthChainHeadTracker {
+    public static final long DEFAULT_INITIAL_POLLING_INTERVAL_MILLIS = 1000;
+    public static final long DEFAULT_MIN_POLLING_INTERVAL_MILLIS = 100;
+    public static final long DEFAULT_MAX_POLLING_INTERVAL_MILLIS = 15000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60000;
+    //polling is done more often than blocks are mined, so new heads are seen shortly after the block
+    private static final int POLLS_PER_BLOCK = 4;
+    private static final double BLOCK_TIME_SMOOTHING = 0.3;
+    private static Logger logger = LoggerFactory.getLogger(EthChainHeadTracker.class);
+
+    private final Web3j web3j;
+    private final ScheduledExecutorService scheduler;
+    private final boolean subscriptionsSupported;
+    private final List<HeadListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Getter
+    @Setter
+    private long minPollingIntervalMillis = DEFAULT_MIN_POLLING_INTERVAL_MILLIS;
+
+    /**
+     * Upper bound of the polling interval, it is also the heartbeat interval while newHeads subscription is active.
+     */
+    @Getter
+    @Setter
+    private long maxPollingIntervalMillis = DEFAULT_MAX_POLLING_INTERVAL_MILLIS;
+
+    @Getter
+    @Setter
+    private volatile long pollingIntervalMillis = DEFAULT_INITIAL_POLLING_INTERVAL_MILLIS;
+
+    /**
+     * Time the head keeps being polled after the last read, when no listener needs it.
+     */
+    @Getter
+    @Setter
+    private volatile long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+
+    @Getter
+    private volatile EthChainHead head;
+    private long headTimestamp;
+    private double blockTimeMillis = -1;
+    private CompletableFuture<EthChainHead> refreshing;
+    private Disposable subscription;
+    private volatile boolean subscribed;
+    private volatile boolean shutdown;
+    private volatile long lastReadMillis;
+
+    public EthChainHeadTracker(Web3j web3j, ScheduledExecutorService scheduler, boolean subscriptionsSupported) {
+        if (web3j == null || scheduler == null)
+            throw new IllegalArgumentException("web3j or scheduler is null");
+        this.web3j = web3j;
+        this.scheduler = scheduler;
+        this.subscriptionsSupported = subscriptionsSupported;
+    }
+
+    /**
+     * @return current head, the node is queried only if no head has been observed yet
+     */
+    public CompletableFuture<EthChainHead> getHeadAsync() {
+        lastReadMillis = System.currentTimeMillis();
+        boolean restarted = start();
+        EthChainHead current = head;
+        return current != null && !restarted ? CompletableFuture.completedFuture(current) : refresh();
+    }
+
+    /**
+     * Registers a listener notified on every new head, listeners must not block.
+     * The head is polled as long as the listener is registered.
+     *
+     * @param listener listener
+     */
+    public void addListener(Consumer<EthChainHead> listener) {
+        addListener(listener, () -> true);
+    }
+
+    /**
+     * Registers a listener notified on every new head, which keeps the head polled only while demand returns true.
+     * When its demand appears the consumer calls start, since the tracker may have been stopped.
+     *
+     * @param listener listener
+     * @param demand   true while the listener needs new heads
+     */
+    public void addListener(Consumer<EthChainHead> listener, BooleanSupplier demand) {
+        HeadListener headListener = new HeadListener(listener, demand);
+        listeners.add(headListener);
+        if (headListener.isActive())
+            start();
+    }
+
+    public void removeListener(Consumer<EthChainHead> listener) {
+        listeners.removeIf(headListener -> headListener.getConsumer() == listener);
+    }
+
+    /**
+     * @return true while the head is polled or pushed by the node
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * @return true if heads are currently pushed by the node
+     */
+    public boolean isSubscribed() {
+        return subscribed;
+    }
+
+    /**
+     * @return smoothed block time observed on the node, -1 if not known yet
+     */
+    public synchronized long getBlockTimeMillis() {
+        return (long) blockTimeMillis;
+    }
+
+    /**
+     * Updates the head with a block observed by other means, for example the block of a transaction receipt.
+     * Listeners are notified only if the block is newer than the current head or replaces it after a reorganization.
+     *
+     * @param blockNumber block number
+     * @param blockHash   block hash, may be null
+     * @return the current head after the update
+     */
+    public EthChainHead onBlockObserved(BigInteger blockNumber, String blockHash) {
+        EthChainHead published;
+        synchronized (this) {
+            EthChainHead current = head;
+            boolean newer = current == null || blockNumber.compareTo(current.getBlockNumber()) > 0;
+            boolean reorganized = current != null && blockNumber.equals(current.getBlockNumber()) && current.getBlockHash() != null && blockHash != null && !blockHash.equals(current.getBlockHash());
+            if (!newer && !reorganized) {
+                //same head, just completing the hash when missing
+                if (current.getBlockHash() == null && blockHash != null && blockNumber.equals(current.getBlockNumber()))
+                    head = new EthChainHead(blockNumber, blockHash);
+                return head;
+            }
+            long now = System.currentTimeMillis();
+            if (current != null && newer) {
+                double sample = (double) (now - headTimestamp) / blockNumber.subtract(current.getBlockNumber()).longValue();
+                blockTimeMillis = blockTimeMillis < 0 ? sample : BLOCK_TIME_SMOOTHING * sample + (1 - BLOCK_TIME_SMOOTHING) * blockTimeMillis;
+                pollingIntervalMillis = Math.max(minPollingIntervalMillis, Math.min(maxPollingIntervalMillis, (long) blockTimeMillis / POLLS_PER_BLOCK));
+            }
+            headTimestamp = now;
+            published = new EthChainHead(blockNumber, blockHash);
+            head = published;
+        }
+        listeners.forEach(listener -> notifyListener(listener.getConsumer(), published));
+        return published;
+    }
+
+    /**
+     * Subscribes again to newHeads once the transport has reconnected, since the subscription was bound to the lost connection.
+     * Heads are pushed again right away instead of after the next heartbeat.
+     */
+    public void onReconnect() {
+        if (!subscriptionsSupported || shutdown || !running.get())
+            return;
+        try {
+            //subscribing blocks until the node answers, while reconnect listeners run on the thread sending a request
+            scheduler.execute(this::subscribe);
+        } catch (RejectedExecutionException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        listeners.clear();
+        synchronized (this) {
+            if (subscription != null)
+                subscription.dispose();
+            subscription = null;
+            subscribed = false;
+        }
+    }
+
+    /**
+     * Starts tracking the head, unless it is already tracked.
+     *
+     * @return true if the tracker has been started by this call
+     */
+    public boolean start() {
+        if (shutdown || !running.compareAndSet(false, true))
+            return false;
+        if (subscriptionsSupported)
+            subscribe();
+        schedule(0);
+        return true;
+    }
+
+    private void stop() {
+        synchronized (this) {
+            if (subscription != null)
+                subscription.dispose();
+            subscription = null;
+            subscribed = false;
+        }
+        running.set(false);
+        //a reader or a listener may have come while stopping
+        if (hasDemand())
+            start();
+    }
+
+    private boolean hasDemand() {
+        if (System.currentTimeMillis() - lastReadMillis < idleTimeoutMillis)
+            return true;
+        return listeners.stream().anyMatch(HeadListener::isActive);
+    }
+
+    private void schedule(long delayMillis) {
+        try {
+            scheduler.schedule(this::poll, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    private void poll() {
+        if (shutdown)
+            return;
+        if (!hasDemand()) {
+            stop();
+            return;
+        }
+        if (subscriptionsSupported && !subscribed)
+            subscribe();
+        refresh().whenComplete((result, error) -> {
+            if (error != null)
+                logger.debug("Error while reading chain head: {}", error.getMessage());
+            schedule(subscribed ? maxPollingIntervalMillis : pollingIntervalMillis);
+        });
+    }
+
+    /**
+     * Reads the head from the node, concurrent calls share the same request.
+     */
+    private CompletableFuture<EthChainHead> refresh() {
+        CompletableFuture<EthChainHead> current;
+        synchronized (this) {
+            if (refreshing == null) {
+                refreshing = web3j.ethBlockNumber().sendAsync().thenCompose(response -> {
+                    if (response.hasError())
+                        throw new WaterRuntimeException(response.getError().getMessage());
+                    BigInteger blockNumber = response.getBlockNumber();
+                    EthChainHead known = head;
+                    if (known != null && known.getBlockNumber().equals(blockNumber))
+                        return CompletableFuture.completedFuture(known);
+                    return web3j.ethGetBlockByNumber(DefaultBlockParameter.valueOf(blockNumber), false).sendAsync()
+                            .handle((block, error) -> error == null && !block.hasError() && block.getBlock() != null ? block.getBlock().getHash() : null)
+                            .thenApply(blockHash -> onBlockObserved(blockNumber, blockHash));
+                });
+            }
+            current = refreshing;
+        }
+        current.whenComplete((result, error) -> {
+            synchronized (this) {
+                if (refreshing == current)
+                    refreshing = null;
+            }
+        });
+        return current;
+    }
+
+    /**
+     * The subscription request blocks until the node answers, which is read by the transport thread publishing the heads:
+     * it must be sent without holding the tracker lock.
+     */
+    private void subscribe() {
+        synchronized (this) {
+            if (subscribed || shutdown)
+                return;
+            subscribed = true;
+        }
+        Disposable created = web3j.newHeadsNotifications().subscribe(notification -> {
+            NewHead newHead = notification.getParams().getResult();
+            onBlockObserved(Numeric.decodeQuantity(newHead.getNumber()), newHead.getHash());
+        }, error -> {
+            logger.debug("newHeads subscription closed, falling back to polling: {}", error.getMessage());
+            subscribed = false;
+        });
+        Disposable discarded = created;
+        synchronized (this) {
+            //unless stopped or shut down while subscribing, it replaces the subscription closed by the node
+            if (subscribed && !shutdown) {
+                discarded = subscription;
+                subscription = created;
+            }
+        }
+        if (discarded != null)
+            discarded.dispose();
+    }
+
+    private void notifyListener(Consumer<EthChainHead> listener, EthChainHead newHead) {
+        try {
+            listener.accept(newHead);
+        } catch (RuntimeException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    private static class HeadListener {
+        @Getter
+        private final Consumer<EthChainHead> consumer;
+        private final BooleanSupplier demand;
+
+        private HeadListener(Consumer<EthChainHead> consumer, BooleanSupplier demand) {
+            this.consumer = consumer;
+            this.demand = demand;
+        }
+
+        private boolean isActive() {
+            return demand.getAsBoolean();
+        }
+    }
+}
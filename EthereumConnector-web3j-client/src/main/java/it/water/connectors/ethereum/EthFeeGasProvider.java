@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import org.web3j.tx.gas.ContractEIP1559GasProvider;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * @Author Aristide Cittadino
+ * Contract gas provider backed by the EthFeeOracle of a connection.
+ * Fees follow the chain head, gas limits are given by the caller:
+ * a null gas limit lets EthNonceTransactionManager take it from the connection gas estimator.
+ */
+public class EthFeeGasProvider implements ContractEIP1559GasProvider {
+    private final EthFeeOracle feeOracle;
+    private final long chainId;
+    private final BigInteger gasLimit;
+    private final Map<String, BigInteger> functionsGasLimit;
+
+    public EthFeeGasProvider(EthFeeOracle feeOracle, long chainId, BigInteger gasLimit, Map<String, BigInteger> functionsGasLimit) {
+        if (feeOracle == null)
+            throw new IllegalArgumentException("feeOracle is null");
+        this.feeOracle = feeOracle;
+        this.chainId = chainId;
+        this.gasLimit = gasLimit;
+        this.functionsGasLimit = functionsGasLimit;
+    }
+
+    @Override
+    public boolean isEIP1559Enabled() {
+        return feeOracle.getFees().isEip1559();
+    }
+
+    @Override
+    public long getChainId() {
+        return chainId;
+    }
+
+    @Override
+    public BigInteger getMaxFeePerGas(String contractFunc) {
+        return feeOracle.getFees().getMaxFeePerGas();
+    }
+
+    @Override
+    public BigInteger getMaxPriorityFeePerGas(String contractFunc) {
+        return feeOracle.getFees().getMaxPriorityFeePerGas();
+    }
+
+    @Override
+    public BigInteger getGasPrice(String contractFunc) {
+        return feeOracle.getFees().getGasPrice();
+    }
+
+    @Override
+    @Deprecated
+    public BigInteger getGasPrice() {
+        return getGasPrice(null);
+    }
+
+    @Override
+    public BigInteger getGasLimit(String contractFunc) {
+        if (functionsGasLimit != null && functionsGasLimit.containsKey(contractFunc))
+            return functionsGasLimit.get(contractFunc);
+        return gasLimit;
+    }
+
+    @Override
+    @Deprecated
+    public BigInteger getGasLimit() {
+        return gasLimit;
+    }
+}
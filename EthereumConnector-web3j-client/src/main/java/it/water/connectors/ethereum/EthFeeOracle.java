@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.response.EthFeeHistory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * @Author Aristide Cittadino
+ * EIP-1559 fee oracle shared by all the clients of a blockchain connection.
+ * Fees are computed from eth_feeHistory once per chain head and cached until a new head is observed:
+ * the tip is the median of the given reward percentile over the last blocks, the fee cap is the next base fee
+ * multiplied by baseFeeMultiplier plus the tip.
+ * When the node does not support eth_feeHistory (method not found) or the chain has no base fee, the legacy eth_gasPrice is used,
+ * still once per head. Other fee history errors fall back to eth_gasPrice for the current head only, the fee history is tried again on the next one.
+ */
+public class EthFeeOracle {
+    private static Logger logger = LoggerFactory.getLogger(EthFeeOracle.class);
+    public static final int DEFAULT_BLOCK_COUNT = 10;
+    public static final double DEFAULT_REWARD_PERCENTILE = 50;
+    public static final long DEFAULT_BASE_FEE_MULTIPLIER = 2;
+    public static final BigInteger DEFAULT_PRIORITY_FEE_PER_GAS = BigInteger.valueOf(1000000000L);
+    private static final int METHOD_NOT_FOUND = -32601;
+
+    private final Web3j web3j;
+    private final EthChainHeadTracker headTracker;
+
+    /**
+     * Number of blocks read through eth_feeHistory.
+     */
+    @Getter
+    @Setter
+    private volatile int blockCount = DEFAULT_BLOCK_COUNT;
+
+    /**
+     * Percentile of the rewards paid in each block used to suggest the tip.
+     */
+    @Getter
+    @Setter
+    private volatile double rewardPercentile = DEFAULT_REWARD_PERCENTILE;
+
+    /**
+     * The fee cap covers this many times the next base fee, so transactions stay valid while the base fee grows.
+     */
+    @Getter
+    @Setter
+    private volatile long baseFeeMultiplier = DEFAULT_BASE_FEE_MULTIPLIER;
+
+    /**
+     * Tip suggested when the fee history contains no rewards.
+     */
+    @Getter
+    @Setter
+    private volatile BigInteger defaultPriorityFeePerGas = DEFAULT_PRIORITY_FEE_PER_GAS;
+
+    //guarded by this
+    private BigInteger cachedBlock;
+    private CompletableFuture<EthFees> cachedFees;
+    private volatile boolean feeHistorySupported = true;
+
+    public EthFeeOracle(Web3j web3j, EthChainHeadTracker headTracker) {
+        if (web3j == null || headTracker == null)
+            throw new IllegalArgumentException("web3j or headTracker is null");
+        this.web3j = web3j;
+        this.headTracker = headTracker;
+    }
+
+    /**
+     * @return fees for the current chain head
+     */
+    public EthFees getFees() {
+        try {
+            return getFeesAsync().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WaterRuntimeException(e.getMessage());
+        } catch (ExecutionException e) {
+            throw new WaterRuntimeException(e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Fees are requested to the node only once per head, concurrent callers share the same request.
+     *
+     * @return future completed with the fees for the current chain head
+     */
+    public CompletableFuture<EthFees> getFeesAsync() {
+        //the head kept by a stopped tracker may be stale, so it is read through getHeadAsync
+        return headTracker.getHeadAsync().thenCompose(head -> getFeesAt(head.getBlockNumber()));
+    }
+
+    private synchronized CompletableFuture<EthFees> getFeesAt(BigInteger blockNumber) {
+        if (cachedFees != null && !cachedFees.isCompletedExceptionally() && cachedBlock.compareTo(blockNumber) >= 0)
+            return cachedFees;
+        cachedBlock = blockNumber;
+        cachedFees = feeHistorySupported ? loadFeeHistory(blockNumber) : loadGasPrice(blockNumber);
+        return cachedFees;
+    }
+
+    private CompletableFuture<EthFees> loadFeeHistory(BigInteger blockNumber) {
+        return web3j.ethFeeHistory(Math.max(1, blockCount), DefaultBlockParameter.valueOf(blockNumber), Collections.singletonList(rewardPercentile)).sendAsync()
+                .thenCompose(response -> {
+                    if (response.hasError()) {
+                        if (response.getError().getCode() == METHOD_NOT_FOUND) {
+                            logger.info("Fee history not supported by the node ({}), using legacy gas price", response.getError().getMessage());
+                            feeHistorySupported = false;
+                        } else {
+                            //transient error, the fee history is read again on the next head
+                            logger.warn("Cannot read fee history at block {} ({}), using legacy gas price", blockNumber, response.getError().getMessage());
+                        }
+                        return loadGasPrice(blockNumber);
+                    }
+                    EthFeeHistory.FeeHistory feeHistory = response.getFeeHistory();
+                    List<BigInteger> baseFees = feeHistory != null ? feeHistory.getBaseFeePerGas() : null;
+                    if (baseFees == null || baseFees.isEmpty() || baseFees.get(baseFees.size() - 1) == null) {
+                        //pre-London chain
+                        logger.info("Fee history has no base fee, using legacy gas price");
+                        feeHistorySupported = false;
+                        return loadGasPrice(blockNumber);
+                    }
+                    //the last base fee is the one of the next block
+                    BigInteger nextBaseFee = baseFees.get(baseFees.size() - 1);
+                    BigInteger priorityFee = medianReward(feeHistory.getReward());
+                    BigInteger maxFee = nextBaseFee.multiply(BigInteger.valueOf(Math.max(1, baseFeeMultiplier))).add(priorityFee);
+                    return CompletableFuture.completedFuture(EthFees.eip1559(blockNumber, nextBaseFee, priorityFee, maxFee));
+                });
+    }
+
+    private CompletableFuture<EthFees> loadGasPrice(BigInteger blockNumber) {
+        return web3j.ethGasPrice().sendAsync().thenApply(response -> {
+            if (response.hasError())
+                throw new CompletionException(new WaterRuntimeException(response.getError().getMessage()));
+            return EthFees.legacy(blockNumber, response.getGasPrice());
+        });
+    }
+
+    private BigInteger medianReward(List<List<BigInteger>> rewards) {
+        List<BigInteger> blockRewards = new ArrayList<>();
+        if (rewards != null) {
+            rewards.forEach(reward -> {
+                if (reward != null && !reward.isEmpty() && reward.get(0) != null)
+                    blockRewards.add(reward.get(0));
+            });
+        }
+        if (blockRewards.isEmpty())
+            return defaultPriorityFeePerGas;
+        Collections.sort(blockRewards);
+        int middle = blockRewards.size() / 2;
+        if (blockRewards.size() % 2 == 1)
+            return blockRewards.get(middle);
+        return new BigDecimal(blockRewards.get(middle - 1).add(blockRewards.get(middle))).divide(BigDecimal.valueOf(2), 0, RoundingMode.CEILING).toBigInteger();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigInteger;
+
+/**
+ * @Author Aristide Cittadino
+ * Fees suggested by the EthFeeOracle for transactions sent on top of a block.
+ * On chains without EIP-1559 only the legacy gas price is available.
+ */
+@Getter
+@ToString
+public class EthFees {
+    private final BigInteger blockNumber;
+    private final boolean eip1559;
+    private final BigInteger baseFeePerGas;
+    private final BigInteger maxPriorityFeePerGas;
+    private final BigInteger maxFeePerGas;
+    private final BigInteger gasPrice;
+
+    private EthFees(BigInteger blockNumber, boolean eip1559, BigInteger baseFeePerGas, BigInteger maxPriorityFeePerGas, BigInteger maxFeePerGas, BigInteger gasPrice) {
+        this.blockNumber = blockNumber;
+        this.eip1559 = eip1559;
+        this.baseFeePerGas = baseFeePerGas;
+        this.maxPriorityFeePerGas = maxPriorityFeePerGas;
+        this.maxFeePerGas = maxFeePerGas;
+        this.gasPrice = gasPrice;
+    }
+
+    /**
+     * @param blockNumber          block the fees have been computed at
+     * @param baseFeePerGas        base fee of the next block
+     * @param maxPriorityFeePerGas suggested tip
+     * @param maxFeePerGas         suggested fee cap
+     * @return EIP-1559 fees, the legacy gas price is the fee cap
+     */
+    public static EthFees eip1559(BigInteger blockNumber, BigInteger baseFeePerGas, BigInteger maxPriorityFeePerGas, BigInteger maxFeePerGas) {
+        return new EthFees(blockNumber, true, baseFeePerGas, maxPriorityFeePerGas, maxFeePerGas, maxFeePerGas);
+    }
+
+    /**
+     * @param blockNumber block the gas price has been read at
+     * @param gasPrice    node gas price
+     * @return legacy fees
+     */
+    public static EthFees legacy(BigInteger blockNumber, BigInteger gasPrice) {
+        return new EthFees(blockNumber, false, null, null, null, gasPrice);
+    }
+}
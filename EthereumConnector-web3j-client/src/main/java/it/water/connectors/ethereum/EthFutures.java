@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @Author Aristide Cittadino
+ * Helpers shared by the transports to chain futures.
+ * Cancelling a dependent future does not cancel the one it depends on, so transports link them explicitly:
+ * when a caller gives up, the request it was waiting for is cancelled too.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class EthFutures {
+
+    /**
+     * Cancels the request when the result is cancelled.
+     *
+     * @param result  future returned to the caller
+     * @param request future the result is waiting for
+     */
+    static void cancelWith(CompletableFuture<?> result, CompletableFuture<?> request) {
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled())
+                request.cancel(true);
+        });
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author Aristide Cittadino
+ * Gas limit estimator shared by all the clients of a blockchain connection.
+ * The node is asked through eth_estimateGas only the first time a function (contract address, selector) is called,
+ * then the limit is served from memory: it is the highest gas used by the last observed transactions, padded.
+ * The node estimate is kept as a floor, so a limit never goes below it even when the observed transactions used less gas.
+ * Observations come from the receipts of the successful transactions sent through the clients:
+ * reverted transactions may stop early and would understate the gas needed.
+ * Contract deployments are always estimated by the node.
+ */
+public class EthGasEstimator {
+    public static final int DEFAULT_PADDING_PERCENT = 20;
+    public static final int DEFAULT_WINDOW_SIZE = 16;
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    private static final int SELECTOR_LENGTH = 10;
+    private static final String STATUS_OK = "0x1";
+
+    private final Web3j web3j;
+    private final AtomicLong estimates = new AtomicLong();
+
+    /**
+     * Percent added to the observed gas used.
+     */
+    @Getter
+    @Setter
+    private volatile int paddingPercent = DEFAULT_PADDING_PERCENT;
+
+    /**
+     * Number of observations kept for each function.
+     */
+    @Getter
+    @Setter
+    private volatile int windowSize = DEFAULT_WINDOW_SIZE;
+
+    /**
+     * Max number of functions kept, least recently used ones are evicted.
+     */
+    @Getter
+    @Setter
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    //guarded by this
+    private final LinkedHashMap<FunctionKey, FunctionGas> functions = new LinkedHashMap<FunctionKey, FunctionGas>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<FunctionKey, FunctionGas> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    public EthGasEstimator(Web3j web3j) {
+        if (web3j == null)
+            throw new IllegalArgumentException("web3j is null");
+        this.web3j = web3j;
+    }
+
+    public BigInteger estimate(String from, String to, String data, BigInteger value) throws IOException {
+        try {
+            return estimateAsync(from, to, data, value).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Concurrent first calls of the same function share the same eth_estimateGas request.
+     *
+     * @param from  sender address
+     * @param to    contract address, null for deployments
+     * @param data  call data
+     * @param value wei sent with the call, may be null
+     * @return future completed with the padded gas limit
+     */
+    public CompletableFuture<BigInteger> estimateAsync(String from, String to, String data, BigInteger value) {
+        FunctionKey key = FunctionKey.of(to, data);
+        if (key == null)
+            return requestEstimate(from, to, data, value).thenApply(this::pad);
+        FunctionGas functionGas;
+        CompletableFuture<BigInteger> estimate;
+        synchronized (this) {
+            functionGas = functions.get(key);
+            if (functionGas == null) {
+                functionGas = new FunctionGas();
+                functions.put(key, functionGas);
+            }
+            if (functionGas.getNodeEstimate() != null)
+                return CompletableFuture.completedFuture(pad(functionGas.limit()));
+            if (functionGas.getEstimate() == null)
+                functionGas.setEstimate(requestEstimate(from, to, data, value));
+            estimate = functionGas.getEstimate();
+        }
+        FunctionGas estimatedFunction = functionGas;
+        return estimate.handle((gas, error) -> {
+            synchronized (this) {
+                if (estimatedFunction.getEstimate() == estimate)
+                    estimatedFunction.setEstimate(null);
+                if (error != null)
+                    throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                estimatedFunction.setNodeEstimate(gas);
+                return pad(estimatedFunction.limit());
+            }
+        });
+    }
+
+    /**
+     * Adds the gas used by a mined transaction to the model of its function, receipts without status OK are ignored.
+     *
+     * @param to      contract address
+     * @param data    call data
+     * @param receipt receipt of the transaction
+     */
+    public void observe(String to, String data, TransactionReceipt receipt) {
+        FunctionKey key = FunctionKey.of(to, data);
+        if (key == null || receipt == null || receipt.getGasUsedRaw() == null || !STATUS_OK.equals(receipt.getStatus()))
+            return;
+        synchronized (this) {
+            functions.computeIfAbsent(key, k -> new FunctionGas()).observe(receipt.getGasUsed(), Math.max(1, windowSize));
+        }
+    }
+
+    /**
+     * Drops the models of all the functions of the given contract, they are estimated again on next call.
+     *
+     * @param contractAddress contract address
+     */
+    public synchronized void evict(String contractAddress) {
+        if (contractAddress == null)
+            return;
+        String address = contractAddress.toLowerCase(Locale.ROOT);
+        functions.keySet().removeIf(key -> key.getAddress().equals(address));
+    }
+
+    public synchronized void clear() {
+        functions.clear();
+    }
+
+    public synchronized int size() {
+        return functions.size();
+    }
+
+    /**
+     * @return number of eth_estimateGas requests sent to the node
+     */
+    public long getEstimateCount() {
+        return estimates.get();
+    }
+
+    private CompletableFuture<BigInteger> requestEstimate(String from, String to, String data, BigInteger value) {
+        estimates.incrementAndGet();
+        return web3j.ethEstimateGas(Transaction.createEthCallTransaction(from, to, data, value)).sendAsync().thenApply(response -> {
+            if (response.hasError())
+                throw new CompletionException(new WaterRuntimeException(response.getError().getMessage()));
+            return response.getAmountUsed();
+        });
+    }
+
+    private BigInteger pad(BigInteger gas) {
+        return gas.multiply(BigInteger.valueOf(100L + Math.max(0, paddingPercent))).add(BigInteger.valueOf(99)).divide(BigInteger.valueOf(100));
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    private static class FunctionKey {
+        private final String address;
+        private final String selector;
+
+        private FunctionKey(String address, String selector) {
+            this.address = address;
+            this.selector = selector;
+        }
+
+        /**
+         * @return the key of the called function, null for deployments and plain transfers
+         */
+        private static FunctionKey of(String to, String data) {
+            if (to == null || to.isEmpty() || data == null || data.length() < SELECTOR_LENGTH)
+                return null;
+            return new FunctionKey(to.toLowerCase(Locale.ROOT), data.substring(0, SELECTOR_LENGTH).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    //not thread safe, every access is synchronized on the estimator
+    private static class FunctionGas {
+        private final Deque<BigInteger> observed = new ArrayDeque<>();
+        @Getter
+        @Setter
+        private CompletableFuture<BigInteger> estimate;
+        @Getter
+        @Setter
+        private BigInteger nodeEstimate;
+
+        private void observe(BigInteger gasUsed, int windowSize) {
+            observed.addLast(gasUsed);
+            while (observed.size() > windowSize)
+                observed.removeFirst();
+        }
+
+        //highest gas used by the observed transactions, never below the node estimate
+        private BigInteger limit() {
+            BigInteger max = nodeEstimate;
+            for (BigInteger gas : observed) {
+                if (max == null || gas.compareTo(max) > 0)
+                    max = gas;
+            }
+            return max;
+        }
+    }
+}
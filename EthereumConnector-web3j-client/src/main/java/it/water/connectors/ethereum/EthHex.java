@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import java.util.Arrays;
+
+/**
+ * @Author Aristide Cittadino
+ * Hex codec working on caller supplied buffers, so no intermediate String, byte[] or BigInteger is created.
+ * Digits are written lower case, both cases are accepted when reading.
+ */
+public final class EthHex {
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++)
+            VALUES['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private EthHex() {
+    }
+
+    /**
+     * Writes 2 * length hex digits into the destination.
+     */
+    public static void encode(byte[] src, int srcOffset, int length, char[] dst, int dstOffset) {
+        for (int i = 0; i < length; i++) {
+            int value = src[srcOffset + i] & 0xff;
+            dst[dstOffset++] = DIGITS[value >>> 4];
+            dst[dstOffset++] = DIGITS[value & 0x0f];
+        }
+    }
+
+    /**
+     * Reads 2 * length hex digits from the source.
+     */
+    public static void decode(CharSequence src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            int high = digit(src.charAt(srcOffset++));
+            int low = digit(src.charAt(srcOffset++));
+            dst[dstOffset + i] = (byte) ((high << 4) | low);
+        }
+    }
+
+    /**
+     * @return "0x" prefixed lower case hex string
+     */
+    public static String toHexString(byte[] value) {
+        char[] chars = new char[2 + value.length * 2];
+        chars[0] = '0';
+        chars[1] = 'x';
+        encode(value, 0, value.length, chars, 2);
+        return new String(chars);
+    }
+
+    /**
+     * @return bytes of the given hex string, with or without "0x" prefix
+     */
+    public static byte[] toBytes(CharSequence hex) {
+        int offset = prefixLength(hex);
+        int digits = hex.length() - offset;
+        if (digits % 2 != 0)
+            throw new IllegalArgumentException("Odd number of hex digits");
+        byte[] value = new byte[digits / 2];
+        decode(hex, offset, value, 0, value.length);
+        return value;
+    }
+
+    /**
+     * @return 2 if the given hex string starts with "0x", 0 otherwise
+     */
+    public static int prefixLength(CharSequence hex) {
+        return hex.length() >= 2 && hex.charAt(0) == '0' && (hex.charAt(1) == 'x' || hex.charAt(1) == 'X') ? 2 : 0;
+    }
+
+    /**
+     * @return lower case hex digit of the given 4 bits value
+     */
+    public static char toDigit(int value) {
+        return DIGITS[value & 0x0f];
+    }
+
+    /**
+     * @return value of the given hex digit
+     */
+    public static int digit(char c) {
+        int value = c < 128 ? VALUES[c] : -1;
+        if (value < 0)
+            throw new IllegalArgumentException("Invalid hex digit: " + c);
+        return value;
+    }
+}
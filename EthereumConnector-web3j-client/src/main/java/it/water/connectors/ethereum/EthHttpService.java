@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * @Author Aristide Cittadino
+ * Http transport whose asynchronous requests are OkHttp calls queued on the client dispatcher, instead of web3j tasks
+ * each blocking a thread of an unbounded pool. Cancelling a returned future cancels its call, so a hedged request
+ * which lost the race is closed and does not keep its connection busy. Calls still wait for their response
+ * on a dispatcher thread, whose running calls are bounded by the dispatcher limits, the others are queued.
+ * Responses are parsed on the dispatcher thread completing the call. Synchronous requests are sent as web3j does.
+ */
+public class EthHttpService extends HttpService {
+    //OkHttp allows 5 concurrent calls per host by default, a single node gets all the calls of its connection
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+
+    private final OkHttpClient httpClient;
+
+    public EthHttpService(String url) {
+        this(url, HttpService.getOkHttpClientBuilder().dispatcher(dispatcher()).build());
+    }
+
+    public EthHttpService(String url, OkHttpClient httpClient) {
+        super(url, httpClient);
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        CompletableFuture<InputStream> io;
+        try {
+            io = performIOAsync(objectMapper.writeValueAsString(request));
+        } catch (IOException | RuntimeException e) {
+            return failed(e);
+        }
+        CompletableFuture<T> result = io.thenApply(response -> {
+            try (InputStream in = response) {
+                return objectMapper.readValue(in, responseType);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        EthFutures.cancelWith(result, io);
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.isEmpty())
+            return CompletableFuture.completedFuture(new BatchResponse(Collections.emptyList(), Collections.emptyList()));
+        CompletableFuture<InputStream> io;
+        try {
+            io = performIOAsync(objectMapper.writeValueAsString(requests));
+        } catch (IOException | RuntimeException e) {
+            return failed(e);
+        }
+        CompletableFuture<BatchResponse> result = io.thenApply(response -> {
+            try (InputStream in = response) {
+                //responses are matched to requests by position, as web3j does
+                JsonNode nodes = objectMapper.readTree(in);
+                List<Response<?>> responses = new ArrayList<>(nodes.size());
+                for (int i = 0; i < nodes.size(); i++)
+                    responses.add(objectMapper.treeToValue(nodes.get(i), requests.get(i).getResponseType()));
+                return new BatchResponse(requests, responses);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        EthFutures.cancelWith(result, io);
+        return result;
+    }
+
+    /**
+     * Queues the request on the OkHttp dispatcher.
+     *
+     * @param request JSON-RPC payload
+     * @return future completed with the response body, cancelling it cancels the call
+     */
+    protected CompletableFuture<InputStream> performIOAsync(String request) {
+        okhttp3.Request httpRequest = new okhttp3.Request.Builder()
+                .url(getUrl())
+                .headers(Headers.of(getHeaders()))
+                .post(RequestBody.create(request, JSON_MEDIA_TYPE))
+                .build();
+        Call call = httpClient.newCall(httpRequest);
+        CompletableFuture<InputStream> future = new CompletableFuture<>();
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled())
+                call.cancel();
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call failedCall, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call completedCall, okhttp3.Response response) {
+                try (ResponseBody body = response.body()) {
+                    processHeaders(response.headers());
+                    if (!response.isSuccessful()) {
+                        future.completeExceptionally(new ClientConnectionException("Invalid response received: " + response.code() + "; " + (body == null ? "N/A" : body.string())));
+                        return;
+                    }
+                    //the body is read here, the response is closed once this callback returns
+                    future.complete(new ByteArrayInputStream(body == null ? new byte[0] : body.bytes()));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    private static Dispatcher dispatcher() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(DEFAULT_MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(DEFAULT_MAX_REQUESTS);
+        return dispatcher;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+}
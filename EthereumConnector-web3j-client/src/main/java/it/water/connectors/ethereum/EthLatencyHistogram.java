@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.model.EthLatencySummary;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Author Aristide Cittadino
+ * Lock free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * Values are recorded in microseconds: every power of two is split in 32 linear sub buckets,
+ * so percentiles are exact below 64 micros and approximated within 1/32 of their value above, up to about 50 days.
+ * Recording is a couple of atomic increments and never allocates.
+ */
+class EthLatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    //highest power of two tracked, greater values are recorded in the last bucket
+    private static final int MAX_EXPONENT = 41;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final double MICROS_PER_MILLI = 1000d;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos latency in nanoseconds, negative values are recorded as 0
+     */
+    void record(long nanos) {
+        long micros = Math.min(MAX_VALUE, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        counts.incrementAndGet(bucketIndex(micros));
+        count.increment();
+        sum.add(micros);
+        if (micros > max.get())
+            max.accumulateAndGet(micros, Math::max);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return latency in microseconds below which the given percentage of the samples falls, 0 when empty
+     */
+    long getPercentileMicros(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(max.get(), bucketMedian(i));
+        }
+        return max.get();
+    }
+
+    /**
+     * @return summary of the recorded samples
+     */
+    EthLatencySummary toSummary() {
+        long samples = getCount();
+        if (samples == 0)
+            return new EthLatencySummary(0, 0, 0, 0, 0, 0);
+        return new EthLatencySummary(samples, sum.sum() / MICROS_PER_MILLI / samples,
+                getPercentileMicros(50) / MICROS_PER_MILLI, getPercentileMicros(90) / MICROS_PER_MILLI,
+                getPercentileMicros(99) / MICROS_PER_MILLI, max.get() / MICROS_PER_MILLI);
+    }
+
+    //values below 2 * SUB_BUCKETS have a bucket each, then every power of two has SUB_BUCKETS buckets
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    private static long bucketMedian(int index) {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = index / SUB_BUCKETS - 1;
+        return bucketLowerBound(index) + (1L << (shift - 1));
+    }
+}
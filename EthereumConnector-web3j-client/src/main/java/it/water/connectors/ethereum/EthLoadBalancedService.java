@@ -0,0 +1,539 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import io.reactivex.Flowable;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @Author Aristide Cittadino
+ * Transport balancing requests between several nodes of the same chain.
+ * Every request goes to the available endpoint with the lowest average latency and, when the transport fails,
+ * it is sent again to the next one. Transactions are sent again only when the failed endpoint refused the connection,
+ * otherwise they may have been received already.
+ * Endpoints are ejected when they fail and probed periodically with eth_blockNumber: the ones lagging more than
+ * maxBlockLag blocks behind the others are ejected too, the ones answering in time are brought back.
+ * When every endpoint is ejected requests are still tried on all of them.
+ * Idempotent reads not answered within the hedgePercentile latency of their endpoint are hedged: a duplicate, with its
+ * own request id, is sent to the next available endpoint, the first reply wins and the other request is cancelled.
+ * Reads are hedged only when another endpoint is available, so a single node never gets duplicates.
+ * Transactions are never hedged.
+ * Cancelling a returned future cancels the request it is waiting for and stops the failover.
+ */
+public class EthLoadBalancedService implements Web3jService {
+    public static final double DEFAULT_LATENCY_ALPHA = 0.3;
+    public static final int DEFAULT_MAX_FAILURES = 1;
+    public static final long DEFAULT_MAX_BLOCK_LAG = 5;
+    public static final long DEFAULT_PROBE_INTERVAL_MILLIS = 5000;
+    public static final double DEFAULT_HEDGE_PERCENTILE = 95;
+    public static final long DEFAULT_MIN_HEDGE_DELAY_MILLIS = 10;
+    //latencies needed before hedging, percentiles of fewer samples would hedge too often
+    static final int MIN_HEDGE_SAMPLES = 20;
+    private static Logger logger = LoggerFactory.getLogger(EthLoadBalancedService.class);
+
+    private final List<EthRpcEndpoint> endpoints;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    /**
+     * Weight of the last measure in the average latency
+     */
+    @Getter
+    @Setter
+    private volatile double latencyAlpha = DEFAULT_LATENCY_ALPHA;
+
+    /**
+     * Consecutive transport failures which eject an endpoint
+     */
+    @Getter
+    @Setter
+    private volatile int maxFailures = DEFAULT_MAX_FAILURES;
+
+    @Getter
+    @Setter
+    private volatile long maxBlockLag = DEFAULT_MAX_BLOCK_LAG;
+
+    @Getter
+    private long probeIntervalMillis = DEFAULT_PROBE_INTERVAL_MILLIS;
+
+    /**
+     * Latency percentile after which idempotent reads are hedged, 0 disables hedging
+     */
+    @Getter
+    @Setter
+    private volatile double hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+
+    /**
+     * Lower bound of the hedge delay, so that fast endpoints are not flooded with duplicates
+     */
+    @Getter
+    @Setter
+    private volatile long minHedgeDelayMillis = DEFAULT_MIN_HEDGE_DELAY_MILLIS;
+
+    private final AtomicLong hedgedRequests = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    private ScheduledFuture<?> probeTask;
+    private boolean closed;
+
+    /**
+     * @param endpoints balanced endpoints, in order of preference until their latency is known
+     * @param executor  executor running the probes
+     */
+    public EthLoadBalancedService(List<EthRpcEndpoint> endpoints, ScheduledExecutorService executor) {
+        if (endpoints == null || endpoints.isEmpty())
+            throw new IllegalArgumentException("endpoints are empty");
+        if (executor == null)
+            throw new IllegalArgumentException("executor is null");
+        this.endpoints = List.copyOf(endpoints);
+        this.executor = executor;
+        scheduleProbes();
+    }
+
+    public List<EthRpcEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @param probeIntervalMillis interval between probes, 0 disables them
+     */
+    public synchronized void setProbeIntervalMillis(long probeIntervalMillis) {
+        this.probeIntervalMillis = probeIntervalMillis;
+        scheduleProbes();
+    }
+
+    /**
+     * @return health of the endpoints, blocks behind are computed against the highest block seen
+     */
+    public List<EthEndpointHealth> getHealth() {
+        long headBlock = endpoints.stream().mapToLong(EthRpcEndpoint::getBlockNumber).max().orElse(-1);
+        return endpoints.stream().map(endpoint -> endpoint.toHealth(headBlock)).collect(Collectors.toList());
+    }
+
+    /**
+     * @return number of duplicates sent for reads answered late
+     */
+    public long getHedgedRequests() {
+        return hedgedRequests.get();
+    }
+
+    /**
+     * @return number of hedged reads answered by the duplicate first
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        //hedged reads go through the asynchronous path, which can wait for two replies at once
+        if (isHedgingEnabled() && EthRpcMethods.isIdempotent(request))
+            return await(sendAsync(request, responseType));
+        return send(EthRpcMethods.isTransaction(request), service -> service.send(request, responseType));
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        return sendHedgedAsync(EthRpcMethods.isIdempotent(request), EthRpcMethods.isTransaction(request),
+                service -> service.sendAsync(request, responseType), service -> sendDuplicateAsync(service, request, responseType));
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        if (isHedgingEnabled() && EthRpcMethods.isIdempotent(batchRequest))
+            return await(sendBatchAsync(batchRequest));
+        return send(EthRpcMethods.isTransaction(batchRequest), service -> service.sendBatch(batchRequest));
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return sendHedgedAsync(EthRpcMethods.isIdempotent(batchRequest), EthRpcMethods.isTransaction(batchRequest),
+                service -> service.sendBatchAsync(batchRequest), service -> sendDuplicateBatchAsync(service, batchRequest));
+    }
+
+    /**
+     * Subscriptions are bound to the endpoint chosen when subscribing, they are not moved when it is ejected.
+     */
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod, Class<T> responseType) {
+        return candidates().get(0).getService().subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            if (probeTask != null)
+                probeTask.cancel(false);
+            probeTask = null;
+        }
+        IOException failure = null;
+        for (EthRpcEndpoint endpoint : endpoints) {
+            try {
+                endpoint.getService().close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Asks every endpoint its last block, ejecting the ones failing or lagging and bringing back the others.
+     *
+     * @return future completed when all the endpoints have answered or failed
+     */
+    public CompletableFuture<Void> probe() {
+        List<CompletableFuture<Boolean>> probes = endpoints.stream().map(this::probe).collect(Collectors.toList());
+        return CompletableFuture.allOf(probes.toArray(new CompletableFuture[0])).thenRun(() -> {
+            List<EthRpcEndpoint> answered = new ArrayList<>();
+            for (int i = 0; i < endpoints.size(); i++) {
+                if (Boolean.TRUE.equals(probes.get(i).join()))
+                    answered.add(endpoints.get(i));
+            }
+            long headBlock = answered.stream().mapToLong(EthRpcEndpoint::getBlockNumber).max().orElse(-1);
+            answered.forEach(endpoint -> {
+                long behind = headBlock - endpoint.getBlockNumber();
+                if (behind > maxBlockLag) {
+                    if (endpoint.eject("Behind the chain head by " + behind + " blocks"))
+                        logger.warn("Endpoint {} ejected, it is {} blocks behind the chain head", endpoint.getUrl(), behind);
+                } else if (endpoint.reinstate()) {
+                    logger.info("Endpoint {} is available again", endpoint.getUrl());
+                }
+            });
+        });
+    }
+
+    /**
+     * @return endpoints in order of preference: available ones by latency, then ejected ones by latency
+     */
+    List<EthRpcEndpoint> candidates() {
+        //latencies change concurrently, sorting on a snapshot keeps the comparator consistent
+        boolean[] available = new boolean[endpoints.size()];
+        double[] latency = new double[endpoints.size()];
+        Integer[] order = new Integer[endpoints.size()];
+        for (int i = 0; i < order.length; i++) {
+            EthRpcEndpoint endpoint = endpoints.get(i);
+            available[i] = endpoint.isAvailable();
+            latency[i] = endpoint.getLatencyMillis();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer, Boolean>comparing(i -> !available[i]).thenComparingDouble(i -> latency[i]));
+        List<EthRpcEndpoint> candidates = new ArrayList<>(order.length);
+        for (Integer i : order)
+            candidates.add(endpoints.get(i));
+        return candidates;
+    }
+
+    private <T> T send(boolean transaction, EndpointCall<T> call) throws IOException {
+        Exception failure = null;
+        for (EthRpcEndpoint endpoint : candidates()) {
+            long start = System.nanoTime();
+            try {
+                T result = call.send(endpoint.getService());
+                endpoint.recordSuccess(System.nanoTime() - start, latencyAlpha);
+                return result;
+            } catch (IOException | ClientConnectionException e) {
+                onFailure(endpoint, e);
+                failure = e;
+                if (!canRetry(transaction, e))
+                    break;
+            }
+        }
+        if (failure instanceof IOException)
+            throw (IOException) failure;
+        throw (ClientConnectionException) failure;
+    }
+
+    /**
+     * Sends the request with failover and, when it can be hedged, schedules a duplicate after the hedge delay.
+     * The first successful reply completes the result and cancels the other request, the result fails only when both requests fail.
+     */
+    private <T> CompletableFuture<T> sendHedgedAsync(boolean idempotent, boolean transaction, Function<Web3jService, CompletableFuture<T>> call,
+                                                     Function<Web3jService, CompletableFuture<T>> duplicateCall) {
+        List<EthRpcEndpoint> candidates = candidates();
+        EthRpcEndpoint hedgeTarget = hedgeTarget(candidates);
+        long hedgeDelayMillis = idempotent && !transaction && hedgeTarget != null ? hedgeDelayMillis(candidates.get(0)) : -1;
+        CompletableFuture<T> primary = sendAsync(candidates.iterator(), transaction, call, null);
+        if (hedgeDelayMillis < 0)
+            return primary;
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicBoolean answered = new AtomicBoolean();
+        AtomicReference<CompletableFuture<T>> duplicate = new AtomicReference<>();
+        primary.whenComplete((value, error) -> onReply(result, pending, answered, value, error, false));
+        ScheduledFuture<?> hedge = executor.schedule(() -> {
+            if (result.isDone())
+                return;
+            pending.incrementAndGet();
+            hedgedRequests.incrementAndGet();
+            CompletableFuture<T> hedged = sendAsync(List.of(hedgeTarget).iterator(), false, duplicateCall, null);
+            duplicate.set(hedged);
+            hedged.whenComplete((value, error) -> onReply(result, pending, answered, value, error, true));
+            //the result may have been completed while the duplicate was being sent
+            if (result.isDone())
+                hedged.cancel(true);
+        }, hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        //the loser is cancelled, the winner is already done
+        result.whenComplete((value, error) -> {
+            hedge.cancel(false);
+            primary.cancel(true);
+            CompletableFuture<T> hedged = duplicate.get();
+            if (hedged != null)
+                hedged.cancel(true);
+        });
+        return result;
+    }
+
+    private <T> void onReply(CompletableFuture<T> result, AtomicInteger pending, AtomicBoolean answered, T value, Throwable error, boolean hedged) {
+        if (error == null) {
+            //the winner is counted before completing, callers may read the counters as soon as they get the reply
+            if (answered.compareAndSet(false, true)) {
+                if (hedged)
+                    hedgeWins.incrementAndGet();
+                result.complete(value);
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(unwrap(error));
+        }
+    }
+
+    //the next available endpoint, null when there is none: a duplicate sent to the same node would just double its load
+    private static EthRpcEndpoint hedgeTarget(List<EthRpcEndpoint> candidates) {
+        if (candidates.size() > 1 && candidates.get(1).isAvailable())
+            return candidates.get(1);
+        return null;
+    }
+
+    private long hedgeDelayMillis(EthRpcEndpoint endpoint) {
+        if (!isHedgingEnabled())
+            return -1;
+        double percentileMillis = endpoint.getLatencyPercentileMillis(hedgePercentile, MIN_HEDGE_SAMPLES);
+        if (percentileMillis < 0)
+            return -1;
+        return Math.max(minHedgeDelayMillis, (long) Math.ceil(percentileMillis));
+    }
+
+    private boolean isHedgingEnabled() {
+        return hedgePercentile > 0;
+    }
+
+    private <T> CompletableFuture<T> sendAsync(Iterator<EthRpcEndpoint> candidates, boolean transaction, Function<Web3jService, CompletableFuture<T>> call, Throwable previousFailure) {
+        if (!candidates.hasNext())
+            return CompletableFuture.failedFuture(previousFailure);
+        EthRpcEndpoint endpoint = candidates.next();
+        long start = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<T> attempt = invoke(call, endpoint);
+        EthFutures.cancelWith(result, attempt);
+        attempt.whenComplete((value, error) -> {
+            //cancelled by the caller, nothing left to do
+            if (result.isDone())
+                return;
+            if (error == null) {
+                endpoint.recordSuccess(System.nanoTime() - start, latencyAlpha);
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (!isTransportFailure(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            onFailure(endpoint, cause);
+            if (!canRetry(transaction, cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            CompletableFuture<T> retry = sendAsync(candidates, transaction, call, cause);
+            EthFutures.cancelWith(result, retry);
+            retry.whenComplete((retryValue, retryError) -> {
+                if (retryError == null)
+                    result.complete(retryValue);
+                else
+                    result.completeExceptionally(unwrap(retryError));
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Sends a copy of the request with a new id, so that it does not collide with the original one on a shared connection.
+     * The reply gets the id of the original request back.
+     */
+    private static <T extends Response> CompletableFuture<T> sendDuplicateAsync(Web3jService service, Request<?, ?> request, Class<T> responseType) {
+        CompletableFuture<T> sent = service.sendAsync(duplicate(request), responseType);
+        CompletableFuture<T> reply = sent.thenApply(response -> {
+            response.setId(request.getId());
+            return response;
+        });
+        EthFutures.cancelWith(reply, sent);
+        return reply;
+    }
+
+    private static CompletableFuture<BatchResponse> sendDuplicateBatchAsync(Web3jService service, BatchRequest batchRequest) {
+        BatchRequest duplicateBatch = new BatchRequest(service);
+        Map<Long, Long> originalIds = new HashMap<>();
+        batchRequest.getRequests().forEach(request -> {
+            Request<?, ? extends Response<?>> duplicate = duplicate(request);
+            originalIds.put(duplicate.getId(), request.getId());
+            duplicateBatch.add(duplicate);
+        });
+        CompletableFuture<BatchResponse> sent = service.sendBatchAsync(duplicateBatch);
+        CompletableFuture<BatchResponse> reply = sent.thenApply(batchResponse -> {
+            if (batchResponse.getResponses() != null)
+                batchResponse.getResponses().forEach(response -> response.setId(originalIds.getOrDefault(response.getId(), response.getId())));
+            return batchResponse;
+        });
+        EthFutures.cancelWith(reply, sent);
+        return reply;
+    }
+
+    //the new request takes the next id
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T extends Response<?>> Request<?, T> duplicate(Request<?, T> request) {
+        return new Request(request.getMethod(), request.getParams(), null, request.getResponseType());
+    }
+
+    private CompletableFuture<Boolean> probe(EthRpcEndpoint endpoint) {
+        long start = System.nanoTime();
+        Request<?, EthBlockNumber> request = new Request<>("eth_blockNumber", Collections.emptyList(), endpoint.getService(), EthBlockNumber.class);
+        return invoke(service -> service.sendAsync(request, EthBlockNumber.class), endpoint).handle((response, error) -> {
+            if (error != null) {
+                onFailure(endpoint, unwrap(error));
+                return false;
+            }
+            if (response.hasError()) {
+                if (endpoint.recordFailure(response.getError().getMessage(), maxFailures))
+                    logger.warn("Endpoint {} ejected: {}", endpoint.getUrl(), response.getError().getMessage());
+                return false;
+            }
+            endpoint.recordSuccess(System.nanoTime() - start, latencyAlpha);
+            endpoint.recordBlock(response.getBlockNumber().longValue());
+            return true;
+        });
+    }
+
+    private void onFailure(EthRpcEndpoint endpoint, Throwable error) {
+        if (endpoint.recordFailure(error, maxFailures))
+            logger.warn("Endpoint {} ejected: {}", endpoint.getUrl(), error.getMessage());
+    }
+
+    private synchronized void scheduleProbes() {
+        if (probeTask != null)
+            probeTask.cancel(false);
+        probeTask = null;
+        if (closed || probeIntervalMillis <= 0)
+            return;
+        probeTask = executor.scheduleWithFixedDelay(this::probeOnce, probeIntervalMillis, probeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //probes are asynchronous, a probe is skipped while the previous one is still waiting for slow endpoints
+    private void probeOnce() {
+        if (!probing.compareAndSet(false, true))
+            return;
+        try {
+            probe().whenComplete((result, error) -> probing.set(false));
+        } catch (RuntimeException e) {
+            probing.set(false);
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> invoke(Function<Web3jService, CompletableFuture<T>> call, EthRpcEndpoint endpoint) {
+        try {
+            return call.apply(endpoint.getService());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    //a refused connection means the request has never been received, so even transactions can be sent elsewhere
+    private static boolean canRetry(boolean transaction, Throwable failure) {
+        return !transaction || failure instanceof ConnectException;
+    }
+
+    private static boolean isTransportFailure(Throwable error) {
+        return error instanceof IOException || error instanceof ClientConnectionException;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null)
+            cause = cause.getCause();
+        return cause;
+    }
+
+    @FunctionalInterface
+    private interface EndpointCall<T> {
+        T send(Web3jService service) throws IOException;
+    }
+}
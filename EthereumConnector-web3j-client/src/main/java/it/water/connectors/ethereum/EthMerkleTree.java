@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import org.web3j.crypto.Hash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @Author Aristide Cittadino
+ * Merkle tree over a batch of 32 bytes document hashes, laid out as the MerkleDataRegistry contract expects.
+ * Leaves are keccak256(documentHash) and each parent is keccak256 of its two children sorted, so proofs carry no
+ * left/right flags. When a level has an odd number of nodes the last one is promoted to the upper level as is.
+ * Hashing the leaves keeps them distinct from inner nodes, which hash 64 bytes.
+ */
+public final class EthMerkleTree {
+    private static final int HASH_LENGTH = 32;
+
+    //levels.get(0) are the leaves, the last level holds the root only
+    private final List<byte[][]> levels;
+
+    private EthMerkleTree(List<byte[][]> levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * @param documentHashes 32 bytes document hashes, in leaf order
+     * @return tree
+     */
+    public static EthMerkleTree of(List<byte[]> documentHashes) {
+        if (documentHashes == null || documentHashes.isEmpty())
+            throw new IllegalArgumentException("documentHashes is empty");
+        byte[][] level = new byte[documentHashes.size()][];
+        for (int i = 0; i < level.length; i++)
+            level[i] = leaf(documentHashes.get(i));
+        List<byte[][]> levels = new ArrayList<>();
+        levels.add(level);
+        while (level.length > 1) {
+            byte[][] parent = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < parent.length; i++) {
+                int left = 2 * i;
+                parent[i] = left + 1 < level.length ? hashPair(level[left], level[left + 1]) : level[left];
+            }
+            levels.add(parent);
+            level = parent;
+        }
+        return new EthMerkleTree(levels);
+    }
+
+    /**
+     * @return number of leaves
+     */
+    public int size() {
+        return levels.get(0).length;
+    }
+
+    public byte[] getRoot() {
+        return levels.get(levels.size() - 1)[0].clone();
+    }
+
+    /**
+     * @param index leaf index
+     * @return sibling hashes from the leaf up to the root, empty for a single leaf tree
+     */
+    public List<byte[]> getProof(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Leaf index " + index + " out of bounds for size " + size());
+        if (levels.size() == 1)
+            return Collections.emptyList();
+        List<byte[]> proof = new ArrayList<>(levels.size() - 1);
+        for (int i = 0; i < levels.size() - 1; i++) {
+            byte[][] level = levels.get(i);
+            int sibling = index ^ 1;
+            //promoted nodes have no sibling at this level
+            if (sibling < level.length)
+                proof.add(level[sibling].clone());
+            index >>= 1;
+        }
+        return proof;
+    }
+
+    /**
+     * @param documentHash 32 bytes document hash
+     * @return leaf hash
+     */
+    public static byte[] leaf(byte[] documentHash) {
+        if (documentHash == null || documentHash.length != HASH_LENGTH)
+            throw new IllegalArgumentException("Document hash must be " + HASH_LENGTH + " bytes long");
+        return Hash.sha3(documentHash);
+    }
+
+    /**
+     * Verifies the inclusion of a document without the rest of the tree, exactly as MerkleDataRegistry.isNotarized does.
+     *
+     * @param documentHash 32 bytes document hash
+     * @param proof        sibling hashes from the leaf up to the root
+     * @param root         merkle root
+     * @return true if the proof leads to the root
+     */
+    public static boolean verify(byte[] documentHash, List<byte[]> proof, byte[] root) {
+        if (root == null || root.length != HASH_LENGTH)
+            return false;
+        byte[] node = leaf(documentHash);
+        if (proof != null) {
+            for (byte[] sibling : proof) {
+                if (sibling == null || sibling.length != HASH_LENGTH)
+                    return false;
+                node = hashPair(node, sibling);
+            }
+        }
+        return Arrays.equals(node, root);
+    }
+
+    private static byte[] hashPair(byte[] a, byte[] b) {
+        byte[] pair = new byte[2 * HASH_LENGTH];
+        boolean aFirst = Arrays.compareUnsigned(a, b) < 0;
+        System.arraycopy(aFirst ? a : b, 0, pair, 0, HASH_LENGTH);
+        System.arraycopy(aFirst ? b : a, 0, pair, HASH_LENGTH, HASH_LENGTH);
+        return Hash.sha3(pair);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package it.water.connectors.ethereum;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @Author Aristide Cittadino
+ * Http transport measuring the payloads exchanged with the node.
+ * Bytes are attributed to the JSON-RPC method of the request, batches of different methods are recorded as "batch".
+ * Response bytes are counted while web3j reads them, and recorded when the response stream is closed.
+ */
+public class EthMeteredHttpService extends EthHttpService {
+    static final String BATCH_METHOD = "batch";
+    private static final String METHOD_FIELD = "\"method\":\"";
+
+    private final EthRpcMetricsRecorder metrics;
+
+    public EthMeteredHttpService(String url, EthRpcMetricsRecorder metrics) {
+        super(url);
+        if (metrics == null)
+            throw new IllegalArgumentException("metrics is null");
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected InputStream performIO(String request) throws IOException {
+        String method = methodOf(request);
+        long bytesSent = utf8Length(request);
+        InputStream response;
+        try {
+            response = super.performIO(request);
+        } catch (IOException | RuntimeException e) {
+            metrics.bytesTransferred(method, bytesSent, 0);
+            throw e;
+        }
+        return new CountingInputStream(response, method, bytesSent);
+    }
+
+    @Override
+    protected CompletableFuture<InputStream> performIOAsync(String request) {
+        String method = methodOf(request);
+        long bytesSent = utf8Length(request);
+        CompletableFuture<InputStream> response = super.performIOAsync(request);
+        response.whenComplete((in, error) -> {
+            if (error != null)
+                metrics.bytesTransferred(method, bytesSent, 0);
+        });
+        CompletableFuture<InputStream> counted = response.thenApply(in -> new CountingInputStream(in, method, bytesSent));
+        EthFutures.cancelWith(counted, response);
+        return counted;
+    }
+
+    //requests are serialized by web3j, so the method field has no spaces around its colon
+    static String methodOf(String payload) {
+        int start = payload.indexOf(METHOD_FIELD);
+        if (start < 0)
+            return "unknown";
+        start += METHOD_FIELD.length();
+        int end = payload.indexOf('"', start);
+        if (end < 0)
+            return "unknown";
+        String method = payload.substring(start, end);
+        if (payload.charAt(0) != '[')
+            return method;
+        int next = payload.indexOf(METHOD_FIELD, end);
+        while (next >= 0) {
+            next += METHOD_FIELD.length();
+            if (!payload.startsWith(method + "\"", next))
+                return BATCH_METHOD;
+            next = payload.indexOf(METHOD_FIELD, next);
+        }
+        return method;
+    }
+
+    static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private class CountingInputStream extends FilterInputStream {
+        private final String method;
+        private final long bytesSent;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private long bytesReceived;
+
+        private CountingInputStream(InputStream in, String method, long bytesSent) {
+            super(in);
+            this.method = method;
+            this.bytesSent = bytesSent;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                bytesReceived++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0)
+                bytesReceived += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytesReceived += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (closed.compareAndSet(false, true))
+                    metrics.bytesTransferred(method, bytesSent, bytesReceived);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package it.water.connectors.ethereum;
+
+import io.reactivex.Flowable;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @Author Aristide Cittadino
+ * Transport recording the requests sent to the nodes of a blockchain: counters, in flight requests and latency of each JSON-RPC method.
+ * It sits below the single flight layer, so coalesced reads are counted once, as they are sent.
+ * Requests of a batch are recorded one by one with the latency of the whole batch.
+ * Requests cancelled by their caller are recorded as failed when they are cancelled.
+ */
+public class EthMeteredService implements Web3jService {
+    private final Web3jService delegate;
+    private final EthRpcMetricsRecorder metrics;
+
+    public EthMeteredService(Web3jService delegate, EthRpcMetricsRecorder metrics) {
+        if (delegate == null || metrics == null)
+            throw new IllegalArgumentException("delegate or metrics is null");
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        String method = request.getMethod();
+        metrics.requestStarted(method);
+        long start = System.nanoTime();
+        try {
+            T response = delegate.send(request, responseType);
+            metrics.requestCompleted(method, System.nanoTime() - start, response.hasError(), false);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            metrics.requestCompleted(method, System.nanoTime() - start, true, isTimeout(e));
+            throw e;
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        String method = request.getMethod();
+        metrics.requestStarted(method);
+        long start = System.nanoTime();
+        CompletableFuture<T> response;
+        try {
+            response = delegate.sendAsync(request, responseType);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> recorded = new CompletableFuture<>();
+        response.whenComplete((value, error) -> {
+            if (error == null)
+                metrics.requestCompleted(method, System.nanoTime() - start, value.hasError(), false);
+            else
+                metrics.requestCompleted(method, System.nanoTime() - start, true, isTimeout(error));
+            complete(recorded, value, error);
+        });
+        EthFutures.cancelWith(recorded, response);
+        return recorded;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        batchStarted(batchRequest);
+        long start = System.nanoTime();
+        try {
+            BatchResponse response = delegate.sendBatch(batchRequest);
+            batchCompleted(batchRequest, response, System.nanoTime() - start, null);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            batchCompleted(batchRequest, null, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        batchStarted(batchRequest);
+        long start = System.nanoTime();
+        CompletableFuture<BatchResponse> response;
+        try {
+            response = delegate.sendBatchAsync(batchRequest);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<BatchResponse> recorded = new CompletableFuture<>();
+        response.whenComplete((value, error) -> {
+            batchCompleted(batchRequest, value, System.nanoTime() - start, error);
+            complete(recorded, value, error);
+        });
+        EthFutures.cancelWith(recorded, response);
+        return recorded;
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod, Class<T> responseType) {
+        return delegate.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private void batchStarted(BatchRequest batchRequest) {
+        batchRequest.getRequests().forEach(request -> metrics.requestStarted(request.getMethod()));
+    }
+
+    //response errors are matched to their request by id
+    private void batchCompleted(BatchRequest batchRequest, BatchResponse batchResponse, long latencyNanos, Throwable error) {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (error != null || batchResponse == null || batchResponse.getResponses() == null) {
+            boolean timedOut = error != null && isTimeout(error);
+            requests.forEach(request -> metrics.requestCompleted(request.getMethod(), latencyNanos, true, timedOut));
+            return;
+        }
+        Map<Long, Boolean> failedById = new HashMap<>();
+        batchResponse.getResponses().forEach(response -> failedById.put(response.getId(), response.hasError()));
+        requests.forEach(request -> metrics.requestCompleted(request.getMethod(), latencyNanos,
+                failedById.getOrDefault(request.getId(), true), false));
+    }
+
+    //a cancelled caller cancels the request, which is then recorded as failed
+    private static <T> void complete(CompletableFuture<T> recorded, T value, Throwable error) {
+        if (error == null)
+            recorded.complete(value);
+        else
+            recorded.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+    }
+
+    static boolean isTimeout(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        //SocketTimeoutException and the call timeout of OkHttp are interrupted IO exceptions
+        return cause instanceof InterruptedIOException || cause instanceof TimeoutException;
+    }
+}
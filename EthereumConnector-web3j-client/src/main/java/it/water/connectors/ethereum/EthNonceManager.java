@@ -0,0 +1,252 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.core.model.exceptions.WaterRuntimeException;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * @Author Aristide Cittadino
+ * Local nonce manager for the accounts sending transactions on a single blockchain connection.
+ * Each account nonce is read from the node (pending transaction count) only once, then it is incremented in memory.
+ * The nonce is read again from the node when the node rejects a transaction for a nonce error
+ * or when a nonce has been allocated but the transaction never reached the node, leaving a gap in the sequence.
+ */
+public class EthNonceManager {
+    //geth, besu and nethermind say "nonce too low", openethereum "transaction nonce is too low"
+    private static final Pattern NONCE_ERROR = Pattern.compile("nonce (is )?too (low|high)", Pattern.CASE_INSENSITIVE);
+    private final Web3j web3j;
+    private final Map<String, AccountNonce> accounts = new ConcurrentHashMap<>();
+
+    public EthNonceManager(Web3j web3j) {
+        if (web3j == null)
+            throw new IllegalArgumentException("web3j is null");
+        this.web3j = web3j;
+    }
+
+    /**
+     * Allocates the next nonce of the given account.
+     *
+     * @param address account address
+     * @return nonce to be used for the next transaction
+     * @throws IOException if the nonce must be read from the node and the request fails
+     */
+    public BigInteger next(String address) throws IOException {
+        try {
+            return nextAsync(address).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Asynchronous version of next, the node is queried only when the account is not synced.
+     * Concurrent requests for an account which is not synced share the same node request.
+     *
+     * @param address account address
+     * @return future completed with the nonce to be used for the next transaction
+     */
+    public CompletableFuture<BigInteger> nextAsync(String address) {
+        AccountNonce account = account(address);
+        CompletableFuture<BigInteger> seeding;
+        synchronized (account) {
+            if (account.isSynced())
+                return CompletableFuture.completedFuture(account.allocate());
+            if (account.getSeeding() == null) {
+                account.setSeeding(web3j.ethGetTransactionCount(address, DefaultBlockParameterName.PENDING).sendAsync()
+                        .thenApply(response -> checkResponse(response).getTransactionCount()));
+            }
+            seeding = account.getSeeding();
+        }
+        return seeding.handle((pendingCount, error) -> {
+            synchronized (account) {
+                if (account.getSeeding() == seeding)
+                    account.setSeeding(null);
+                if (error != null)
+                    throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                //the first request completing the seed initializes the account
+                if (!account.isSynced())
+                    account.seed(pendingCount);
+                return account.allocate();
+            }
+        });
+    }
+
+    /**
+     * Gives back a nonce whose transaction has not been accepted by the node.
+     * If it is the last allocated nonce it is reused, otherwise there is a gap in the sequence and the account is resynced.
+     *
+     * @param address account address
+     * @param nonce   allocated nonce
+     */
+    public void release(String address, BigInteger nonce) {
+        AccountNonce account = account(address);
+        synchronized (account) {
+            account.release(nonce);
+        }
+    }
+
+    /**
+     * Forces the account nonce to be read again from the node on next allocation.
+     *
+     * @param address account address
+     */
+    public void resync(String address) {
+        AccountNonce account = account(address);
+        synchronized (account) {
+            account.invalidate();
+        }
+    }
+
+    /**
+     * Updates the nonce state based on the node response to a raw transaction.
+     *
+     * @param address  account address
+     * @param nonce    nonce used by the transaction
+     * @param response node response
+     * An already known transaction and an underpriced replacement keep their nonce, since a transaction with that nonce is pending on the node.
+     * The account is resynced only when the nonce is too low or too high.
+     *
+     * @return true if the transaction has been rejected for a nonce error and the account has been resynced
+     */
+    public boolean onTransactionSent(String address, BigInteger nonce, EthSendTransaction response) {
+        if (response == null || !response.hasError())
+            return false;
+        String message = response.getError().getMessage();
+        if (isNonceError(message)) {
+            resync(address);
+            return true;
+        }
+        if (!isAlreadyKnown(message) && !isReplacementUnderpriced(message))
+            release(address, nonce);
+        return false;
+    }
+
+    /**
+     * @param address account address
+     * @return the nonce which will be allocated next, null if the account has not been synced yet
+     */
+    public BigInteger peek(String address) {
+        AccountNonce account = account(address);
+        synchronized (account) {
+            return account.isSynced() ? account.getNext() : null;
+        }
+    }
+
+    /**
+     * @return true if the node rejected the transaction because its nonce is too low or too high
+     */
+    static boolean isNonceError(String message) {
+        return message != null && NONCE_ERROR.matcher(message).find();
+    }
+
+    /**
+     * @return true if the node already has the very same transaction, which is then pending with its own hash
+     */
+    static boolean isAlreadyKnown(String message) {
+        if (message == null)
+            return false;
+        String lowerCaseMessage = message.toLowerCase(Locale.ROOT);
+        return lowerCaseMessage.contains("already known") || lowerCaseMessage.contains("known transaction") || lowerCaseMessage.contains("already imported");
+    }
+
+    /**
+     * @return true if the node has another transaction with the same nonce and the new one does not pay enough to replace it
+     */
+    static boolean isReplacementUnderpriced(String message) {
+        return message != null && message.toLowerCase(Locale.ROOT).contains("replacement transaction underpriced");
+    }
+
+    private AccountNonce account(String address) {
+        if (address == null)
+            throw new IllegalArgumentException("address is null");
+        return accounts.computeIfAbsent(address.toLowerCase(Locale.ROOT), a -> new AccountNonce());
+    }
+
+    private static EthGetTransactionCount checkResponse(EthGetTransactionCount response) {
+        if (response.hasError())
+            throw new WaterRuntimeException(response.getError().getMessage());
+        return response;
+    }
+
+    //not thread safe, every access is synchronized on the instance
+    private static class AccountNonce {
+        private BigInteger next;
+        private boolean synced;
+        private CompletableFuture<BigInteger> seeding;
+
+        private CompletableFuture<BigInteger> getSeeding() {
+            return seeding;
+        }
+
+        private void setSeeding(CompletableFuture<BigInteger> seeding) {
+            this.seeding = seeding;
+        }
+
+        private boolean isSynced() {
+            return synced;
+        }
+
+        private BigInteger getNext() {
+            return next;
+        }
+
+        private void seed(BigInteger pendingCount) {
+            this.next = pendingCount;
+            this.synced = true;
+        }
+
+        private BigInteger allocate() {
+            BigInteger allocated = next;
+            next = next.add(BigInteger.ONE);
+            return allocated;
+        }
+
+        private void release(BigInteger nonce) {
+            if (!synced || nonce == null)
+                return;
+            if (nonce.add(BigInteger.ONE).equals(next))
+                next = nonce;
+            else if (nonce.compareTo(next) < 0)
+                //gap detected: following nonces have already been allocated
+                invalidate();
+        }
+
+        private void invalidate() {
+            this.synced = false;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.tx.RawTransactionManager;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+/**
+ * @Author Aristide Cittadino
+ * Raw transaction manager which takes nonces from the shared EthNonceManager instead of asking them to the node for each transaction.
+ * A transaction rejected because its nonce is too low or too high is sent once more with a resynced nonce.
+ * A transaction already known by the node is pending, so it is reported as sent with its locally computed hash.
+ * Receipts are waited through the connection receipt tracker.
+ * A null or zero gas limit is replaced by the connection gas estimator, which learns from the receipts of contract calls.
+ */
+public class EthNonceTransactionManager extends RawTransactionManager {
+    private final EthNonceManager nonceManager;
+    private final EthGasEstimator gasEstimator;
+    private final EthReceiptTracker receiptTracker;
+
+    public EthNonceTransactionManager(EthWeb3JConnection connection, Credentials credentials, long chainId) {
+        super(connection.getWeb3j(), credentials, chainId, new EthTrackedReceiptProcessor(connection.getWeb3j(), connection.getReceiptTracker()));
+        this.nonceManager = connection.getNonceManager();
+        this.gasEstimator = connection.getGasEstimator();
+        this.receiptTracker = connection.getReceiptTracker();
+    }
+
+    @Override
+    protected BigInteger getNonce() throws IOException {
+        return nonceManager.next(getFromAddress());
+    }
+
+    @Override
+    public EthSendTransaction signAndSend(RawTransaction rawTransaction) throws IOException {
+        EthSendTransaction response;
+        try {
+            response = super.signAndSend(rawTransaction);
+        } catch (IOException | RuntimeException e) {
+            nonceManager.release(getFromAddress(), rawTransaction.getNonce());
+            throw e;
+        }
+        nonceManager.onTransactionSent(getFromAddress(), rawTransaction.getNonce(), response);
+        if (response.hasError() && EthNonceManager.isAlreadyKnown(response.getError().getMessage()))
+            return sent(response, Hash.sha3(sign(rawTransaction)));
+        return response;
+    }
+
+    @Override
+    public EthSendTransaction sendTransaction(BigInteger gasPrice, BigInteger gasLimit, String to, String data, BigInteger value, boolean constructor) throws IOException {
+        BigInteger limit = gasLimitOf(gasLimit, to, data, value);
+        EthSendTransaction response = super.sendTransaction(gasPrice, limit, to, data, value, constructor);
+        if (isNonceError(response))
+            response = super.sendTransaction(gasPrice, limit, to, data, value, constructor);
+        return observe(response, to, data);
+    }
+
+    @Override
+    public EthSendTransaction sendEIP1559Transaction(long chainId, BigInteger maxPriorityFeePerGas, BigInteger maxFeePerGas, BigInteger gasLimit, String to, String data, BigInteger value, boolean constructor) throws IOException {
+        BigInteger limit = gasLimitOf(gasLimit, to, data, value);
+        EthSendTransaction response = super.sendEIP1559Transaction(chainId, maxPriorityFeePerGas, maxFeePerGas, limit, to, data, value, constructor);
+        if (isNonceError(response))
+            response = super.sendEIP1559Transaction(chainId, maxPriorityFeePerGas, maxFeePerGas, limit, to, data, value, constructor);
+        return observe(response, to, data);
+    }
+
+    private BigInteger gasLimitOf(BigInteger gasLimit, String to, String data, BigInteger value) throws IOException {
+        if (gasLimit != null && gasLimit.signum() > 0)
+            return gasLimit;
+        return gasEstimator.estimate(getFromAddress(), to, data, value);
+    }
+
+    /**
+     * The gas used by the transaction is fed to the gas estimator once the receipt is available.
+     */
+    private EthSendTransaction observe(EthSendTransaction response, String to, String data) {
+        if (!response.hasError() && response.getTransactionHash() != null && to != null && !to.isEmpty())
+            receiptTracker.track(response.getTransactionHash()).thenAccept(receipt -> gasEstimator.observe(to, data, receipt));
+        return response;
+    }
+
+    private static EthSendTransaction sent(EthSendTransaction response, String transactionHash) {
+        EthSendTransaction sent = new EthSendTransaction();
+        sent.setId(response.getId());
+        sent.setJsonrpc(response.getJsonrpc());
+        sent.setResult(transactionHash);
+        return sent;
+    }
+
+    private boolean isNonceError(EthSendTransaction response) {
+        return response.hasError() && EthNonceManager.isNonceError(response.getError().getMessage());
+    }
+}
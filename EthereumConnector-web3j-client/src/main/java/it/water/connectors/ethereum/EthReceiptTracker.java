@@ -0,0 +1,305 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * @Author Aristide Cittadino
+ * Receipt tracker shared by all the clients of a blockchain connection.
+ * Instead of polling each transaction on its own, pending transaction hashes are collected and their receipts
+ * are fetched with JSON-RPC batches only when the chain head tracker publishes a new block.
+ * Newly tracked transactions are checked once against the current head, so transactions already mined are resolved without waiting for the next block.
+ */
+public class EthReceiptTracker {
+    public static final long DEFAULT_RECEIPT_TIMEOUT_MILLIS = 600000;
+    public static final long DEFAULT_FIRST_CHECK_DELAY_MILLIS = 50;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    private static Logger logger = LoggerFactory.getLogger(EthReceiptTracker.class);
+
+    private final Web3j web3j;
+    private final EthChainHeadTracker headTracker;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, PendingReceipt> pendingReceipts = new ConcurrentHashMap<>();
+    private final AtomicBoolean listening = new AtomicBoolean(false);
+    private final AtomicBoolean firstCheckScheduled = new AtomicBoolean(false);
+    private final Consumer<EthChainHead> headListener = this::onNewHead;
+
+    @Getter
+    @Setter
+    private long receiptTimeoutMillis = DEFAULT_RECEIPT_TIMEOUT_MILLIS;
+
+    /**
+     * Newly tracked transactions are collected for this delay and checked together.
+     */
+    @Getter
+    @Setter
+    private long firstCheckDelayMillis = DEFAULT_FIRST_CHECK_DELAY_MILLIS;
+
+    @Getter
+    @Setter
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Notified with the nanoseconds waited by each tracked transaction when its receipt arrives, null when not needed.
+     */
+    @Setter
+    private volatile LongConsumer receiptWaitListener;
+
+    private volatile boolean shutdown;
+
+    public EthReceiptTracker(Web3j web3j, EthChainHeadTracker headTracker, ScheduledExecutorService scheduler) {
+        if (web3j == null || headTracker == null || scheduler == null)
+            throw new IllegalArgumentException("web3j, headTracker or scheduler is null");
+        this.web3j = web3j;
+        this.headTracker = headTracker;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Starts tracking the given transaction until receiptTimeoutMillis.
+     * Tracking the same transaction twice returns the same future.
+     *
+     * @param transactionHash transaction hash
+     * @return future completed with the receipt once the transaction has been mined
+     */
+    public CompletableFuture<TransactionReceipt> track(String transactionHash) {
+        return track(transactionHash, receiptTimeoutMillis);
+    }
+
+    /**
+     * Starts tracking the given transaction until the given timeout.
+     * Tracking the same transaction twice with the same timeout returns the same future,
+     * with a different timeout the returned future fails on its own timeout while the transaction is still tracked for the other callers.
+     *
+     * @param transactionHash transaction hash
+     * @param timeoutMillis   max time to wait for the receipt in milliseconds
+     * @return future completed with the receipt once the transaction has been mined
+     */
+    public CompletableFuture<TransactionReceipt> track(String transactionHash, long timeoutMillis) {
+        if (transactionHash == null)
+            throw new IllegalArgumentException("transactionHash is null");
+        if (timeoutMillis <= 0)
+            throw new IllegalArgumentException("timeoutMillis must be positive");
+        if (shutdown)
+            throw new IllegalStateException("Receipt tracker has been shut down");
+        //heads are needed only while receipts are pending
+        if (listening.compareAndSet(false, true))
+            headTracker.addListener(headListener, () -> !pendingReceipts.isEmpty());
+        PendingReceipt created = new PendingReceipt(timeoutMillis);
+        PendingReceipt pendingReceipt = pendingReceipts.putIfAbsent(transactionHash, created);
+        if (pendingReceipt != null)
+            return pendingReceipt.getTimeoutMillis() == timeoutMillis ? pendingReceipt.getFuture() : withTimeout(transactionHash, pendingReceipt.getFuture(), timeoutMillis);
+        headTracker.start();
+        LongConsumer waitListener = receiptWaitListener;
+        if (waitListener != null) {
+            long start = System.nanoTime();
+            created.getFuture().thenRun(() -> waitListener.accept(System.nanoTime() - start));
+        }
+        scheduleTimeout(transactionHash, created);
+        scheduleFirstCheck();
+        return created.getFuture();
+    }
+
+    /**
+     * @return number of transactions waiting for their receipt
+     */
+    public int getPendingCount() {
+        return pendingReceipts.size();
+    }
+
+    /**
+     * Stops tracking and fails all the pending receipts.
+     */
+    public void shutdown() {
+        shutdown = true;
+        headTracker.removeListener(headListener);
+        pendingReceipts.forEach((hash, pendingReceipt) -> {
+            if (pendingReceipts.remove(hash, pendingReceipt))
+                pendingReceipt.getFuture().completeExceptionally(new WaterRuntimeException("Receipt tracker has been shut down"));
+        });
+    }
+
+    private void onNewHead(EthChainHead head) {
+        if (!pendingReceipts.isEmpty())
+            fetchReceipts(head.getBlockNumber());
+    }
+
+    private void scheduleFirstCheck() {
+        if (!firstCheckScheduled.compareAndSet(false, true))
+            return;
+        try {
+            scheduler.schedule(() -> {
+                firstCheckScheduled.set(false);
+                headTracker.getHeadAsync().whenComplete((head, error) -> {
+                    if (error != null)
+                        logger.debug("Error while reading chain head: {}", error.getMessage());
+                    else
+                        fetchReceipts(head.getBlockNumber());
+                });
+            }, firstCheckDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            firstCheckScheduled.set(false);
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    private void scheduleTimeout(String transactionHash, PendingReceipt pendingReceipt) {
+        long timeoutMillis = pendingReceipt.getTimeoutMillis();
+        try {
+            ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+                if (pendingReceipts.remove(transactionHash, pendingReceipt))
+                    pendingReceipt.getFuture().completeExceptionally(timeoutException(transactionHash, timeoutMillis));
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            pendingReceipt.getFuture().whenComplete((receipt, error) -> timeout.cancel(false));
+        } catch (RejectedExecutionException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return future of a caller waiting for an already tracked receipt for a different time
+     */
+    private CompletableFuture<TransactionReceipt> withTimeout(String transactionHash, CompletableFuture<TransactionReceipt> tracked, long timeoutMillis) {
+        CompletableFuture<TransactionReceipt> result = new CompletableFuture<>();
+        try {
+            ScheduledFuture<?> timeout = scheduler.schedule(() -> result.completeExceptionally(timeoutException(transactionHash, timeoutMillis)), timeoutMillis, TimeUnit.MILLISECONDS);
+            result.whenComplete((receipt, error) -> timeout.cancel(false));
+        } catch (RejectedExecutionException e) {
+            logger.error(e.getMessage(), e);
+        }
+        tracked.whenComplete((receipt, error) -> {
+            if (error == null)
+                result.complete(receipt);
+            else
+                result.completeExceptionally(error);
+        });
+        return result;
+    }
+
+    private static TransactionException timeoutException(String transactionHash, long timeoutMillis) {
+        return new TransactionException("Transaction receipt was not generated after " + timeoutMillis + " millis for transaction: " + transactionHash);
+    }
+
+    /**
+     * Fetches the receipts of the transactions which have not been checked against the given block yet.
+     */
+    private void fetchReceipts(BigInteger blockNumber) {
+        List<String> toCheck = new ArrayList<>();
+        pendingReceipts.forEach((hash, pendingReceipt) -> {
+            if (pendingReceipt.markChecked(blockNumber))
+                toCheck.add(hash);
+        });
+        int chunkSize = Math.max(1, batchSize);
+        for (int i = 0; i < toCheck.size(); i += chunkSize)
+            fetchReceiptsBatch(toCheck.subList(i, Math.min(i + chunkSize, toCheck.size())));
+    }
+
+    private void fetchReceiptsBatch(List<String> hashes) {
+        BatchRequest batch = web3j.newBatch();
+        Map<Long, String> hashesByRequestId = new HashMap<>();
+        hashes.forEach(hash -> {
+            Request<?, EthGetTransactionReceipt> request = web3j.ethGetTransactionReceipt(hash);
+            hashesByRequestId.put(request.getId(), hash);
+            batch.add(request);
+        });
+        batch.sendAsync().whenComplete((batchResponse, error) -> {
+            if (error != null) {
+                logger.debug("Error while fetching transaction receipts: {}", error.getMessage());
+                //checked again on next head
+                hashes.forEach(hash -> resetChecked(hash));
+                return;
+            }
+            batchResponse.getResponses().forEach(response -> {
+                String hash = hashesByRequestId.get(response.getId());
+                PendingReceipt pendingReceipt = hash != null ? pendingReceipts.get(hash) : null;
+                if (pendingReceipt == null)
+                    return;
+                Optional<TransactionReceipt> receipt = response.hasError() ? Optional.empty() : ((EthGetTransactionReceipt) response).getTransactionReceipt();
+                if (!receipt.isPresent()) {
+                    if (response.hasError())
+                        resetChecked(hash);
+                    return;
+                }
+                //the receipt block is a head not observed yet, reads pinned to the head must see it
+                if (receipt.get().getBlockNumberRaw() != null)
+                    headTracker.onBlockObserved(receipt.get().getBlockNumber(), receipt.get().getBlockHash());
+                if (pendingReceipts.remove(hash, pendingReceipt))
+                    pendingReceipt.getFuture().complete(receipt.get());
+            });
+        });
+    }
+
+    private void resetChecked(String hash) {
+        PendingReceipt pendingReceipt = pendingReceipts.get(hash);
+        if (pendingReceipt != null)
+            pendingReceipt.resetChecked();
+    }
+
+    private static class PendingReceipt {
+        @Getter
+        private final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        @Getter
+        private final long timeoutMillis;
+        private BigInteger checkedBlock;
+
+        private PendingReceipt(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        /**
+         * @return true if the receipt has not been checked against the given block yet
+         */
+        private synchronized boolean markChecked(BigInteger blockNumber) {
+            if (checkedBlock != null && checkedBlock.compareTo(blockNumber) >= 0)
+                return false;
+            checkedBlock = blockNumber;
+            return true;
+        }
+
+        private synchronized void resetChecked() {
+            checkedBlock = null;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import lombok.Getter;
+import org.web3j.protocol.Web3jService;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author Aristide Cittadino
+ * RPC endpoint balanced by EthLoadBalancedService.
+ * It keeps the exponentially weighted moving average of the request latency, the recent latencies used to decide when
+ * requests are hedged, and tells if the endpoint can be used:
+ * endpoints are ejected when they fail or fall behind the chain head, probes bring them back.
+ */
+public class EthRpcEndpoint {
+    //recent latencies kept for percentiles
+    private static final int LATENCY_SAMPLES = 256;
+    @Getter
+    private final String url;
+    @Getter
+    private final Web3jService service;
+    //-1 until the first measure
+    private double latencyMillis = -1;
+    private final long[] latencySamples = new long[LATENCY_SAMPLES];
+    private int latencySampleCount;
+    private int nextLatencySample;
+    private boolean ejected;
+    private int consecutiveFailures;
+    private long blockNumber = -1;
+    private String lastError;
+
+    public EthRpcEndpoint(String url, Web3jService service) {
+        if (service == null)
+            throw new IllegalArgumentException("service is null");
+        this.url = url;
+        this.service = service;
+    }
+
+    /**
+     * @return average latency, endpoints never used are reported as the fastest ones so they are tried soon
+     */
+    public synchronized double getLatencyMillis() {
+        return Math.max(0, latencyMillis);
+    }
+
+    /**
+     * @param percentile percentile, between 0 and 100
+     * @param minSamples samples needed to compute the percentile
+     * @return latency percentile over the recent requests, -1 when there are not enough samples
+     */
+    public double getLatencyPercentileMillis(double percentile, int minSamples) {
+        long[] samples;
+        synchronized (this) {
+            if (latencySampleCount == 0 || latencySampleCount < minSamples)
+                return -1;
+            samples = Arrays.copyOf(latencySamples, latencySampleCount);
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * samples.length) - 1;
+        return (double) samples[Math.max(0, index)] / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public synchronized boolean isAvailable() {
+        return !ejected;
+    }
+
+    public synchronized long getBlockNumber() {
+        return blockNumber;
+    }
+
+    /**
+     * Records a successful request, the endpoint is not reinstated since it may still be behind: only probes do it.
+     *
+     * @param elapsedNanos request time
+     * @param alpha        weight of the new measure
+     */
+    public synchronized void recordSuccess(long elapsedNanos, double alpha) {
+        double elapsedMillis = (double) elapsedNanos / TimeUnit.MILLISECONDS.toNanos(1);
+        latencyMillis = latencyMillis < 0 ? elapsedMillis : alpha * elapsedMillis + (1 - alpha) * latencyMillis;
+        latencySamples[nextLatencySample] = elapsedNanos;
+        nextLatencySample = (nextLatencySample + 1) % LATENCY_SAMPLES;
+        latencySampleCount = Math.min(LATENCY_SAMPLES, latencySampleCount + 1);
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Records a transport failure, ejecting the endpoint when failures reach the given threshold.
+     *
+     * @param error       failure
+     * @param maxFailures consecutive failures which eject the endpoint
+     * @return true if the endpoint has just been ejected
+     */
+    public boolean recordFailure(Throwable error, int maxFailures) {
+        return recordFailure(error.getMessage() == null ? error.getClass().getSimpleName() : error.getMessage(), maxFailures);
+    }
+
+    /**
+     * @param reason      failure description
+     * @param maxFailures consecutive failures which eject the endpoint
+     * @return true if the endpoint has just been ejected
+     */
+    public synchronized boolean recordFailure(String reason, int maxFailures) {
+        consecutiveFailures++;
+        lastError = reason;
+        if (!ejected && consecutiveFailures >= maxFailures) {
+            ejected = true;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void recordBlock(long blockNumber) {
+        this.blockNumber = blockNumber;
+    }
+
+    synchronized boolean eject(String reason) {
+        lastError = reason;
+        boolean changed = !ejected;
+        ejected = true;
+        return changed;
+    }
+
+    synchronized boolean reinstate() {
+        boolean changed = ejected;
+        ejected = false;
+        consecutiveFailures = 0;
+        return changed;
+    }
+
+    /**
+     * @param headBlock highest block seen between the balanced endpoints, -1 if unknown
+     * @return health snapshot
+     */
+    public synchronized EthEndpointHealth toHealth(long headBlock) {
+        long behind = headBlock < 0 || blockNumber < 0 ? 0 : Math.max(0, headBlock - blockNumber);
+        return new EthEndpointHealth(url, !ejected, latencyMillis, blockNumber, behind, consecutiveFailures, lastError);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.Request;
+
+import java.util.Set;
+
+/**
+ * @Author Aristide Cittadino
+ * Classification of the JSON-RPC methods used by the transports.
+ * Idempotent methods only read the node state, so they can be duplicated or shared between callers,
+ * while transactions must be sent exactly once.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class EthRpcMethods {
+    private static final Set<String> TRANSACTION_METHODS = Set.of("eth_sendRawTransaction", "eth_sendTransaction");
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("eth_accounts", "eth_blockNumber", "eth_call", "eth_chainId",
+            "eth_estimateGas", "eth_feeHistory", "eth_gasPrice", "eth_getBalance", "eth_getBlockByHash", "eth_getBlockByNumber",
+            "eth_getCode", "eth_getLogs", "eth_getStorageAt", "eth_getTransactionByHash", "eth_getTransactionCount",
+            "eth_getTransactionReceipt", "eth_maxPriorityFeePerGas", "net_version", "web3_clientVersion");
+
+    static boolean isTransaction(Request<?, ?> request) {
+        return TRANSACTION_METHODS.contains(request.getMethod());
+    }
+
+    static boolean isTransaction(BatchRequest batchRequest) {
+        return batchRequest.getRequests().stream().anyMatch(EthRpcMethods::isTransaction);
+    }
+
+    static boolean isIdempotent(Request<?, ?> request) {
+        return IDEMPOTENT_METHODS.contains(request.getMethod());
+    }
+
+    static boolean isIdempotent(BatchRequest batchRequest) {
+        return batchRequest.getRequests().stream().allMatch(EthRpcMethods::isIdempotent);
+    }
+}
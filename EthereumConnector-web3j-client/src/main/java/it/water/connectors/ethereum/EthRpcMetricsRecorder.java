@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthRpcMetricsRegistry;
+import lombok.Getter;
+
+/**
+ * @Author Aristide Cittadino
+ * Binds the metrics registry to the blockchain of a connection.
+ * A recorder without registry drops everything, so components never check if metrics are enabled.
+ */
+public class EthRpcMetricsRecorder {
+    static final EthRpcMetricsRecorder DISABLED = new EthRpcMetricsRecorder(null, 0);
+
+    private final EthRpcMetricsRegistry registry;
+    @Getter
+    private final long blockchainId;
+
+    public EthRpcMetricsRecorder(EthRpcMetricsRegistry registry, long blockchainId) {
+        this.registry = registry;
+        this.blockchainId = blockchainId;
+    }
+
+    public boolean isEnabled() {
+        return registry != null;
+    }
+
+    public void requestStarted(String method) {
+        if (registry != null)
+            registry.requestStarted(blockchainId, method);
+    }
+
+    public void requestCompleted(String method, long latencyNanos, boolean failed, boolean timedOut) {
+        if (registry != null)
+            registry.requestCompleted(blockchainId, method, latencyNanos, failed, timedOut);
+    }
+
+    public void bytesTransferred(String method, long bytesSent, long bytesReceived) {
+        if (registry != null)
+            registry.bytesTransferred(blockchainId, method, bytesSent, bytesReceived);
+    }
+
+    public void deadlineExceeded(String method) {
+        if (registry != null)
+            registry.deadlineExceeded(blockchainId, method);
+    }
+
+    public void receiptReceived(long waitNanos) {
+        if (registry != null)
+            registry.receiptReceived(blockchainId, waitNanos);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.reactivex.Flowable;
+import lombok.Getter;
+import lombok.Setter;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author Aristide Cittadino
+ * Transport sharing in flight reads between callers.
+ * Concurrent idempotent requests with the same method and params (block tag included) are sent once
+ * and every caller gets the same response. A request arriving after the response starts a new one, so nothing is cached.
+ * The shared request is cancelled only when every caller waiting for it has cancelled its own future.
+ * Batches, whose responses are matched by request id, and transactions are always sent as they are.
+ */
+public class EthSingleFlightService implements Web3jService {
+    private final Web3jService delegate;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong sentRequests = new AtomicLong();
+    private final AtomicLong coalescedRequests = new AtomicLong();
+
+    @Getter
+    @Setter
+    private volatile boolean enabled = true;
+
+    public EthSingleFlightService(Web3jService delegate) {
+        if (delegate == null)
+            throw new IllegalArgumentException("delegate is null");
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return idempotent requests actually sent to the node
+     */
+    public long getSentRequests() {
+        return sentRequests.get();
+    }
+
+    /**
+     * @return idempotent requests served by a request already in flight
+     */
+    public long getCoalescedRequests() {
+        return coalescedRequests.get();
+    }
+
+    /**
+     * @return number of distinct reads waiting for their response
+     */
+    public int getInFlightRequests() {
+        return inFlight.size();
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        String key = flightKey(request, responseType);
+        if (key == null)
+            return delegate.send(request, responseType);
+        Flight flight = new Flight();
+        Flight current = join(key, flight);
+        if (current != null) {
+            coalescedRequests.incrementAndGet();
+            return responseType.cast(await(current.getResponse()));
+        }
+        sentRequests.incrementAndGet();
+        try {
+            T response = delegate.send(request, responseType);
+            inFlight.remove(key, flight);
+            flight.getResponse().complete(response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            inFlight.remove(key, flight);
+            flight.getResponse().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        String key = flightKey(request, responseType);
+        if (key == null)
+            return delegate.sendAsync(request, responseType);
+        Flight flight = new Flight();
+        Flight current = join(key, flight);
+        if (current != null) {
+            coalescedRequests.incrementAndGet();
+            return caller(key, current, responseType);
+        }
+        sentRequests.incrementAndGet();
+        CompletableFuture<T> response;
+        try {
+            response = delegate.sendAsync(request, responseType);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        flight.setRequest(response);
+        //removed before completing, so callers arriving from now on send a new request
+        response.whenComplete((value, error) -> {
+            inFlight.remove(key, flight);
+            if (error == null)
+                flight.getResponse().complete(value);
+            else
+                flight.getResponse().completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+        });
+        return caller(key, flight, responseType);
+    }
+
+    /**
+     * @return flight already sending the same request, null if the given flight has been registered and must be sent
+     */
+    private Flight join(String key, Flight flight) {
+        while (true) {
+            Flight current = inFlight.putIfAbsent(key, flight);
+            if (current == null || current.join())
+                return current;
+            //every caller of the current flight has cancelled, it is being removed
+            inFlight.remove(key, current);
+        }
+    }
+
+    //every caller gets its own future, the request is cancelled when the last one is
+    private <T> CompletableFuture<T> caller(String key, Flight flight, Class<T> responseType) {
+        CompletableFuture<T> result = flight.getResponse().thenApply(responseType::cast);
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled() && flight.leave()) {
+                inFlight.remove(key, flight);
+                flight.getRequest().cancel(true);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return delegate.sendBatch(batchRequest);
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return delegate.sendBatchAsync(batchRequest);
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod, Class<T> responseType) {
+        return delegate.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    //null when the request must not be shared
+    private String flightKey(Request<?, ?> request, Class<?> responseType) {
+        if (!enabled || !EthRpcMethods.isIdempotent(request))
+            return null;
+        try {
+            return responseType.getName() + "|" + request.getMethod() + "|" + ObjectMapperFactory.getObjectMapper().writeValueAsString(request.getParams());
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static Response<?> await(CompletableFuture<Response<?>> flight) throws IOException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static class Flight {
+        @Getter
+        private final CompletableFuture<Response<?>> response = new CompletableFuture<>();
+        private final AtomicInteger callers = new AtomicInteger(1);
+        @Getter
+        @Setter
+        private volatile CompletableFuture<?> request;
+
+        //fails once every caller has left, the flight is then being cancelled
+        private boolean join() {
+            int count;
+            do {
+                count = callers.get();
+                if (count == 0)
+                    return false;
+            } while (!callers.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        private boolean leave() {
+            return callers.decrementAndGet() == 0;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import java.math.BigInteger;
+
+/**
+ * @Author Aristide Cittadino
+ * Reads static ABI values straight from hex strings (eth_call results, log data or topics) by word index,
+ * without converting the whole string to bytes first.
+ */
+public final class EthStaticAbiDecoder {
+    private static final int WORD_DIGITS = 64;
+
+    private EthStaticAbiDecoder() {
+    }
+
+    /**
+     * @return number of 32 bytes words inside the given hex string
+     */
+    public static int words(CharSequence hex) {
+        return (hex.length() - EthHex.prefixLength(hex)) / WORD_DIGITS;
+    }
+
+    /**
+     * Decodes a bytes32 value into the given buffer, starting from its first byte.
+     */
+    public static void bytes32(CharSequence hex, int word, byte[] dst) {
+        if (dst.length < 32)
+            throw new IllegalArgumentException("Destination must be at least 32 bytes long");
+        EthHex.decode(hex, offset(hex, word), dst, 0, 32);
+    }
+
+    public static byte[] bytes32(CharSequence hex, int word) {
+        byte[] value = new byte[32];
+        bytes32(hex, word, value);
+        return value;
+    }
+
+    /**
+     * @return "0x" prefixed lower case address
+     */
+    public static String address(CharSequence hex, int word) {
+        int offset = offset(hex, word);
+        for (int i = 0; i < 24; i++) {
+            if (hex.charAt(offset + i) != '0')
+                throw new IllegalArgumentException("Word " + word + " is not an address");
+        }
+        char[] address = new char[42];
+        address[0] = '0';
+        address[1] = 'x';
+        for (int i = 0; i < 40; i++)
+            address[2 + i] = EthHex.toDigit(EthHex.digit(hex.charAt(offset + 24 + i)));
+        return new String(address);
+    }
+
+    /**
+     * @return value of the word, if it fits a long
+     * @throws ArithmeticException if the value does not fit a long
+     */
+    public static long uint256AsLong(CharSequence hex, int word) {
+        int offset = offset(hex, word);
+        for (int i = 0; i < WORD_DIGITS - 16; i++) {
+            if (hex.charAt(offset + i) != '0')
+                throw new ArithmeticException("uint256 value does not fit a long");
+        }
+        long value = 0;
+        for (int i = WORD_DIGITS - 16; i < WORD_DIGITS; i++)
+            value = (value << 4) | EthHex.digit(hex.charAt(offset + i));
+        if (value < 0)
+            throw new ArithmeticException("uint256 value does not fit a long");
+        return value;
+    }
+
+    public static BigInteger uint256(CharSequence hex, int word) {
+        return new BigInteger(1, bytes32(hex, word));
+    }
+
+    public static boolean bool(CharSequence hex, int word) {
+        return uint256AsLong(hex, word) != 0;
+    }
+
+    private static int offset(CharSequence hex, int word) {
+        int offset = EthHex.prefixLength(hex) + word * WORD_DIGITS;
+        if (word < 0 || offset + WORD_DIGITS > hex.length())
+            throw new IllegalArgumentException("No word " + word + " inside the given hex string");
+        return offset;
+    }
+}
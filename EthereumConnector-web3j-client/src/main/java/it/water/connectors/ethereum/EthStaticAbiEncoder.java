@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @Author Aristide Cittadino
+ * Call data encoder writing directly into a reusable char buffer.
+ * The selector is written once, each argument overwrites its own word, so the only allocation of a call is the resulting String.
+ * Arguments must be put in the order of the function parameters. Not thread safe.
+ */
+public final class EthStaticAbiEncoder {
+    private static final int WORD_DIGITS = 64;
+    private static final int SELECTOR_DIGITS = 10;
+
+    private final EthStaticAbiFunction function;
+    private final List<EthStaticAbiType> types;
+    private final char[] buffer;
+    private int argIndex;
+
+    EthStaticAbiEncoder(EthStaticAbiFunction function) {
+        this.function = function;
+        this.types = function.getParameterTypes();
+        this.buffer = new char[SELECTOR_DIGITS + WORD_DIGITS * types.size()];
+        function.getSelector().getChars(0, SELECTOR_DIGITS, buffer, 0);
+    }
+
+    public EthStaticAbiFunction getFunction() {
+        return function;
+    }
+
+    /**
+     * Discards the arguments put so far.
+     */
+    public EthStaticAbiEncoder reset() {
+        argIndex = 0;
+        return this;
+    }
+
+    public EthStaticAbiEncoder putBytes32(byte[] value) {
+        int offset = next(EthStaticAbiType.BYTES32);
+        if (value == null || value.length != 32)
+            throw new IllegalArgumentException("bytes32 value must be 32 bytes long");
+        EthHex.encode(value, 0, 32, buffer, offset);
+        return this;
+    }
+
+    /**
+     * @param value 64 hex digits, with or without "0x" prefix
+     */
+    public EthStaticAbiEncoder putBytes32(CharSequence value) {
+        int offset = next(EthStaticAbiType.BYTES32);
+        int prefix = EthHex.prefixLength(value);
+        if (value.length() - prefix != WORD_DIGITS)
+            throw new IllegalArgumentException("bytes32 value must be 64 hex digits long");
+        copyDigits(value, prefix, WORD_DIGITS, offset);
+        return this;
+    }
+
+    /**
+     * @param address 40 hex digits, with or without "0x" prefix
+     */
+    public EthStaticAbiEncoder putAddress(CharSequence address) {
+        int offset = next(EthStaticAbiType.ADDRESS);
+        int prefix = EthHex.prefixLength(address);
+        if (address.length() - prefix != 40)
+            throw new IllegalArgumentException("address must be 40 hex digits long");
+        Arrays.fill(buffer, offset, offset + 24, '0');
+        copyDigits(address, prefix, 40, offset + 24);
+        return this;
+    }
+
+    public EthStaticAbiEncoder putUint256(long value) {
+        int offset = next(EthStaticAbiType.UINT256);
+        if (value < 0)
+            throw new IllegalArgumentException("uint256 value is negative");
+        Arrays.fill(buffer, offset, offset + WORD_DIGITS - 16, '0');
+        int end = offset + WORD_DIGITS;
+        for (int i = 1; i <= 16; i++) {
+            buffer[end - i] = EthHex.toDigit((int) value);
+            value >>>= 4;
+        }
+        return this;
+    }
+
+    public EthStaticAbiEncoder putUint256(BigInteger value) {
+        if (value == null || value.signum() < 0 || value.bitLength() > 256)
+            throw new IllegalArgumentException(value + " is out of range for uint256");
+        if (value.bitLength() < 64)
+            return putUint256(value.longValue());
+        int offset = next(EthStaticAbiType.UINT256);
+        byte[] bytes = value.toByteArray();
+        //toByteArray adds a sign byte when the highest bit is set
+        int start = bytes.length > 32 ? 1 : 0;
+        int length = bytes.length - start;
+        Arrays.fill(buffer, offset, offset + (32 - length) * 2, '0');
+        EthHex.encode(bytes, start, length, buffer, offset + (32 - length) * 2);
+        return this;
+    }
+
+    public EthStaticAbiEncoder putBool(boolean value) {
+        int offset = next(EthStaticAbiType.BOOL);
+        Arrays.fill(buffer, offset, offset + WORD_DIGITS - 1, '0');
+        buffer[offset + WORD_DIGITS - 1] = value ? '1' : '0';
+        return this;
+    }
+
+    /**
+     * Puts a plain java value, converted according to the type of the next parameter:
+     * byte[] or hex String for bytes32, String for address, Number or String for uint256, Boolean for bool.
+     */
+    public EthStaticAbiEncoder put(Object value) {
+        if (argIndex >= types.size())
+            throw new IllegalStateException("Function " + function.getSignature() + " expects " + types.size() + " arguments");
+        if (value == null)
+            throw new IllegalArgumentException("Null value for ABI type " + types.get(argIndex).getAbiType());
+        switch (types.get(argIndex)) {
+            case BYTES32:
+                return value instanceof byte[] ? putBytes32((byte[]) value) : putBytes32(value.toString());
+            case ADDRESS:
+                return putAddress(value.toString());
+            case UINT256:
+                if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+                    return putUint256(((Number) value).longValue());
+                if (value instanceof BigInteger)
+                    return putUint256((BigInteger) value);
+                String text = value.toString();
+                return putUint256(EthHex.prefixLength(text) > 0 ? new BigInteger(text.substring(2), 16) : new BigDecimal(text).toBigIntegerExact());
+            default:
+                if (value instanceof Boolean)
+                    return putBool((Boolean) value);
+                if (!value.toString().equalsIgnoreCase("true") && !value.toString().equalsIgnoreCase("false"))
+                    throw new IllegalArgumentException("Not a bool value: " + value);
+                return putBool(Boolean.parseBoolean(value.toString()));
+        }
+    }
+
+    /**
+     * @return "0x" prefixed call data, the encoder is reset so it can be reused for the next call
+     */
+    public String encode() {
+        if (argIndex != types.size())
+            throw new IllegalStateException("Function " + function.getSignature() + " expects " + types.size() + " arguments, found " + argIndex);
+        argIndex = 0;
+        return new String(buffer);
+    }
+
+    private int next(EthStaticAbiType type) {
+        if (argIndex >= types.size())
+            throw new IllegalStateException("Function " + function.getSignature() + " expects " + types.size() + " arguments");
+        if (types.get(argIndex) != type)
+            throw new IllegalArgumentException("Argument " + argIndex + " of " + function.getSignature() + " is " + types.get(argIndex).getAbiType());
+        return SELECTOR_DIGITS + WORD_DIGITS * argIndex++;
+    }
+
+    private void copyDigits(CharSequence src, int srcOffset, int length, int dstOffset) {
+        for (int i = 0; i < length; i++)
+            buffer[dstOffset + i] = EthHex.toDigit(EthHex.digit(src.charAt(srcOffset + i)));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import org.web3j.crypto.Hash;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Author Aristide Cittadino
+ * Event matched by the fast path codec, events are cached by signature so the topic is hashed only once.
+ * Values are read from topics and data through EthStaticAbiDecoder.
+ */
+public final class EthStaticAbiEvent {
+    private static final Map<String, EthStaticAbiEvent> EVENTS = new ConcurrentHashMap<>();
+
+    private final String signature;
+    private final String topic;
+
+    private EthStaticAbiEvent(String signature) {
+        EthStaticAbiFunction.parseParameterTypes(signature);
+        this.signature = signature;
+        this.topic = Hash.sha3String(signature);
+    }
+
+    /**
+     * @param signature canonical event signature, i.e. "Notarized(address,bytes32)"
+     * @return cached event
+     */
+    public static EthStaticAbiEvent of(String signature) {
+        if (signature == null)
+            throw new IllegalArgumentException("signature is null");
+        EthStaticAbiEvent event = EVENTS.get(signature);
+        if (event == null)
+            event = EVENTS.computeIfAbsent(signature, EthStaticAbiEvent::new);
+        return event;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * @return "0x" prefixed lower case topic
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * @param topics log topics
+     * @return true if the log has been emitted for this event
+     */
+    public boolean matches(List<String> topics) {
+        return topics != null && !topics.isEmpty() && topic.equalsIgnoreCase(topics.get(0));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import org.web3j.crypto.Hash;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Author Aristide Cittadino
+ * Function whose parameters are all static ABI types supported by the fast path codec (bytes32, address, uint256, bool).
+ * Functions are cached by signature, so the selector is hashed only once.
+ */
+public final class EthStaticAbiFunction {
+    private static final Map<String, EthStaticAbiFunction> FUNCTIONS = new ConcurrentHashMap<>();
+
+    private final String signature;
+    private final String selector;
+    private final List<EthStaticAbiType> parameterTypes;
+
+    private EthStaticAbiFunction(String signature) {
+        this.parameterTypes = parseParameterTypes(signature);
+        this.signature = signature;
+        this.selector = Hash.sha3String(signature).substring(0, 10);
+    }
+
+    /**
+     * @param signature canonical function signature, i.e. "notarizeDocument(bytes32)"
+     * @return cached function
+     */
+    public static EthStaticAbiFunction of(String signature) {
+        if (signature == null)
+            throw new IllegalArgumentException("signature is null");
+        EthStaticAbiFunction function = FUNCTIONS.get(signature);
+        if (function == null)
+            function = FUNCTIONS.computeIfAbsent(signature, EthStaticAbiFunction::new);
+        return function;
+    }
+
+    /**
+     * @param signature canonical function signature
+     * @return true if all the parameters of the given signature are supported by the fast path codec
+     */
+    public static boolean isSupported(String signature) {
+        try {
+            parseParameterTypes(signature);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Encoders are not thread safe, each thread should keep its own and reuse it.
+     *
+     * @return new encoder of this function
+     */
+    public EthStaticAbiEncoder encoder() {
+        return new EthStaticAbiEncoder(this);
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * @return "0x" prefixed selector
+     */
+    public String getSelector() {
+        return selector;
+    }
+
+    public List<EthStaticAbiType> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    static List<EthStaticAbiType> parseParameterTypes(String signature) {
+        int open = signature.indexOf('(');
+        if (open <= 0 || !signature.endsWith(")"))
+            throw new IllegalArgumentException("Invalid signature: " + signature);
+        String parameters = signature.substring(open + 1, signature.length() - 1);
+        if (parameters.isEmpty())
+            return Collections.emptyList();
+        List<EthStaticAbiType> types = new ArrayList<>();
+        for (String parameter : parameters.split(","))
+            types.add(EthStaticAbiType.of(parameter));
+        return Collections.unmodifiableList(types);
+    }
+}
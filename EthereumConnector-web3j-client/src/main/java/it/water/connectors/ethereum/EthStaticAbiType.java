@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+/**
+ * @Author Aristide Cittadino
+ * Static ABI types handled by the fast path codec, each one is encoded in a single 32 bytes word.
+ */
+public enum EthStaticAbiType {
+    BYTES32("bytes32"),
+    ADDRESS("address"),
+    UINT256("uint256"),
+    BOOL("bool");
+
+    private final String abiType;
+
+    EthStaticAbiType(String abiType) {
+        this.abiType = abiType;
+    }
+
+    public String getAbiType() {
+        return abiType;
+    }
+
+    /**
+     * @param abiType canonical ABI type
+     * @return matching static type
+     */
+    public static EthStaticAbiType of(String abiType) {
+        for (EthStaticAbiType type : values()) {
+            if (type.abiType.equals(abiType))
+                return type;
+        }
+        throw new IllegalArgumentException("ABI type not supported by the fast path codec: " + abiType);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.tx.response.TransactionReceiptProcessor;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * @Author Aristide Cittadino
+ * Web3j receipt processor backed by the connection EthReceiptTracker,
+ * so synchronous transfers and contract calls share the same batched polling of async ones.
+ */
+public class EthTrackedReceiptProcessor extends TransactionReceiptProcessor {
+    private final EthReceiptTracker receiptTracker;
+
+    public EthTrackedReceiptProcessor(Web3j web3j, EthReceiptTracker receiptTracker) {
+        super(web3j);
+        if (receiptTracker == null)
+            throw new IllegalArgumentException("receiptTracker is null");
+        this.receiptTracker = receiptTracker;
+    }
+
+    @Override
+    public TransactionReceipt waitForTransactionReceipt(String transactionHash) throws IOException, TransactionException {
+        try {
+            return receiptTracker.track(transactionHash).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransactionException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TransactionException)
+                throw (TransactionException) e.getCause();
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new TransactionException(e.getCause());
+        }
+    }
+}
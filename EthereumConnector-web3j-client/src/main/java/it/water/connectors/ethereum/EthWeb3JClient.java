@@ -18,48 +18,154 @@
 package it.water.connectors.ethereum;
 
 import it.water.connectors.ethereum.api.EthClient;
+import it.water.connectors.ethereum.api.EthEventIndexStore;
+import it.water.connectors.ethereum.api.EthEventLog;
 import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import it.water.connectors.ethereum.model.EthSmartContract;
 import it.water.core.model.exceptions.WaterRuntimeException;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.web3j.crypto.Credentials;
-import org.web3j.crypto.WalletUtils;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
-import org.web3j.tx.RawTransactionManager;
 import org.web3j.tx.TransactionManager;
 import org.web3j.tx.Transfer;
 import org.web3j.tx.gas.ContractGasProvider;
 import org.web3j.utils.Convert;
+import org.web3j.utils.Numeric;
 
-import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 /**
  * @Author Aristide Cittadino
- * Ethereum Web3J Client implementation
+ * Ethereum Web3J Client implementation.
+ * The client holds no credentials and can be shared between threads, transactions are sent through EthWeb3JSigner views.
  */
 public class EthWeb3JClient implements EthClient {
     private static Logger logger = LoggerFactory.getLogger(EthWeb3JClient.class);
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
     @Getter
     private final Web3j web3j;
 
-    private Credentials credentials;
+    @Getter
+    private final EthWeb3JConnection connection;
+
+    /**
+     * Executor used to complete async results.
+     */
+    @Getter
+    private final Executor asyncExecutor;
+
+    /**
+     * Max number of requests sent inside a single JSON-RPC batch.
+     */
+    @Getter
+    private final int batchSize;
+
+    /**
+     * When enabled balances are read through the block scoped cache shared by the connection.
+     */
+    @Getter
+    private final boolean balanceCacheEnabled;
+
+    /**
+     * Max time of reads in milliseconds, 0 means no deadline.
+     */
+    @Getter
+    private final long deadlineMillis;
+
+    @Getter
+    private final EthWeb3JSignerRegistry signerRegistry;
+
+    /**
+     * Signer set through the deprecated setCredentials methods.
+     */
+    private volatile EthWeb3JSigner defaultSigner;
 
     public EthWeb3JClient(Web3j web3j) {
-        if (web3j == null)
+        this(web3j == null ? null : new EthWeb3JConnection(web3j));
+    }
+
+    public EthWeb3JClient(EthWeb3JConnection connection) {
+        this(connection, new EthWeb3JSignerRegistry());
+    }
+
+    public EthWeb3JClient(EthWeb3JConnection connection, EthWeb3JSignerRegistry signerRegistry) {
+        this(connection, signerRegistry, EthWeb3JConnection.COMPLETION_EXECUTOR, DEFAULT_BATCH_SIZE, true, 0);
+    }
+
+    /**
+     * Settings are fixed at creation time, clients are configured through the EthWeb3JClientFactory.
+     */
+    EthWeb3JClient(EthWeb3JConnection connection, EthWeb3JSignerRegistry signerRegistry, Executor asyncExecutor, int batchSize, boolean balanceCacheEnabled, long deadlineMillis) {
+        if (connection == null)
             throw new IllegalArgumentException("web3j is null");
-        this.web3j = web3j;
+        if (signerRegistry == null)
+            throw new IllegalArgumentException("signerRegistry is null");
+        if (asyncExecutor == null)
+            throw new IllegalArgumentException("asyncExecutor is null");
+        if (deadlineMillis < 0)
+            throw new IllegalArgumentException("deadlineMillis is negative");
+        this.connection = connection;
+        this.web3j = connection.getWeb3j();
+        this.signerRegistry = signerRegistry;
+        this.asyncExecutor = asyncExecutor;
+        this.batchSize = batchSize;
+        this.balanceCacheEnabled = balanceCacheEnabled;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Creates a transaction manager signing with the registered signer of the given address.
+     * Nonces and receipts are handled by the nonce manager and the receipt tracker shared by all the clients of the same connection.
+     *
+     * @param fromAddress signer address
+     * @param chainId     chain id
+     * @return transaction manager
+     */
+    public TransactionManager createNewTransactionManager(String fromAddress, long chainId) {
+        return new EthNonceTransactionManager(connection, signerOf(fromAddress), chainId);
     }
 
-    public TransactionManager createNewTransactionManager(long chainId) {
-        return new RawTransactionManager(web3j, credentials, chainId);
+    /**
+     * Creates a gas provider whose fees are suggested by the connection fee oracle, so they follow the chain head.
+     *
+     * @param gasLimit          default gas limit, null to estimate it through the connection gas estimator
+     * @param functionsGasLimit gas limit by contract function, may be null
+     * @return gas provider
+     */
+    public EthFeeGasProvider createFeeGasProvider(BigInteger gasLimit, Map<String, BigInteger> functionsGasLimit) {
+        return new EthFeeGasProvider(connection.getFeeOracle(), connection.getChainIdAsync().join(), gasLimit, functionsGasLimit);
     }
 
     public ContractGasProvider createContractGasProvider(
@@ -76,6 +182,7 @@ public class EthWeb3JClient implements EthClient {
             }
 
             @Override
+            @Deprecated
             public BigInteger getGasPrice() {
                 return gasPrice;
             }
@@ -88,6 +195,7 @@ public class EthWeb3JClient implements EthClient {
             }
 
             @Override
+            @Deprecated
             public BigInteger getGasLimit() {
                 return gasLimit;
             }
@@ -95,62 +203,434 @@ public class EthWeb3JClient implements EthClient {
     }
 
     @Override
-    public void setCredentials(String username, String password) {
-        if (username == null || password == null || username.isEmpty() || password.isEmpty())
-            throw new IllegalArgumentException("username or password is null");
+    public EthWeb3JSigner withCredentials(String password, String keystorePath) {
+        if (password == null || keystorePath == null || password.isEmpty() || keystorePath.isEmpty())
+            throw new IllegalArgumentException("password or keystorePath is null");
+        return new EthWeb3JSigner(this, signerRegistry.loadKeystore(keystorePath, password));
+    }
+
+    @Override
+    @Deprecated
+    public void setCredentials(String password, String keystorePath) {
+        if (password == null || keystorePath == null || password.isEmpty() || keystorePath.isEmpty())
+            throw new IllegalArgumentException("password or keystorePath is null");
         try {
-            this.credentials = WalletUtils.loadCredentials(username, password);
+            this.defaultSigner = withCredentials(password, keystorePath);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         }
     }
 
     @Override
+    @Deprecated
     public void setCredentials(String privateKey) {
         if (privateKey == null || privateKey.isEmpty())
             throw new IllegalArgumentException("privateKey is null");
         try {
-            this.credentials = Credentials.create(privateKey);
+            this.defaultSigner = withPrivateKey(privateKey);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         }
     }
 
     @Override
+    public EthWeb3JSigner withPrivateKey(String privateKey) {
+        if (privateKey == null || privateKey.isEmpty())
+            throw new IllegalArgumentException("privateKey is null");
+        Credentials credentials = Credentials.create(privateKey);
+        signerRegistry.add(credentials);
+        return new EthWeb3JSigner(this, credentials);
+    }
+
+    @Override
+    public EthWeb3JSigner withSigner(String address) {
+        return new EthWeb3JSigner(this, signerOf(address));
+    }
+
+    @Override
+    public EthWeb3JSenderPool withSenders(Collection<String> addresses) {
+        if (addresses == null || addresses.isEmpty())
+            throw new IllegalArgumentException("addresses is empty");
+        List<EthWeb3JSigner> signers = new ArrayList<>(addresses.size());
+        new LinkedHashSet<>(addresses).forEach(address -> signers.add(withSigner(address)));
+        return new EthWeb3JSenderPool(this, signers);
+    }
+
+    @Override
+    public EthWeb3JContract contract(EthSmartContract smartContract) {
+        if (smartContract == null)
+            throw new IllegalArgumentException("smartContract is null");
+        if (smartContract.getAbi() == null || smartContract.getAbi().isEmpty())
+            throw new IllegalArgumentException("No ABI set for smart contract " + smartContract.getName());
+        return contract(smartContract.getAddress(), smartContract.getAbi());
+    }
+
+    @Override
+    public EthWeb3JContract contract(String address, String abi) {
+        return new EthWeb3JContract(this, address, connection.getAbiCache().get(abi));
+    }
+
+    @Override
+    public EthWeb3JMulticall multicall() {
+        return connection.getMulticall();
+    }
+
+    @Override
+    public EthWeb3JMerkleNotarizer merkleNotarizer(EthSmartContract smartContract, String signerAddress) {
+        //fails fast when the signer is not registered
+        signerOf(signerAddress);
+        return connection.getMerkleNotarizer(merkleRegistryOf(smartContract), signerAddress);
+    }
+
+    @Override
+    public boolean verifyMerkleProof(String documentHash, List<String> proof, String root) {
+        try {
+            List<byte[]> siblings = new ArrayList<>(proof == null ? 0 : proof.size());
+            if (proof != null)
+                proof.forEach(sibling -> siblings.add(EthHex.toBytes(sibling)));
+            return EthMerkleTree.verify(EthHex.toBytes(documentHash), siblings, EthHex.toBytes(root));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            //malformed proofs are just not valid
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isMerkleRootNotarized(EthSmartContract smartContract, String root) {
+        List<Object> result = merkleRegistryOf(smartContract).call("isRootNotarized", root);
+        return Boolean.TRUE.equals(result.get(0));
+    }
+
+    @Override
+    public EthWeb3JEventIndexer eventIndexer(EthSmartContract smartContract, EthEventIndexStore store) {
+        EthWeb3JEventIndexer indexer = new EthWeb3JEventIndexer(this, contract(smartContract), store);
+        indexer.setDeploymentTransactionHash(smartContract.getTransactionHash());
+        connection.registerEventIndexer(indexer);
+        return indexer;
+    }
+
+    private EthWeb3JContract merkleRegistryOf(EthSmartContract smartContract) {
+        if (smartContract == null)
+            throw new IllegalArgumentException("smartContract is null");
+        String abi = smartContract.getAbi();
+        return contract(smartContract.getAddress(), abi == null || abi.isEmpty() ? EthWeb3JMerkleNotarizer.MERKLE_DATA_REGISTRY_ABI : abi);
+    }
+
+    @Override
+    public EthTransactionReceipt transferEther(String fromAddress, String destination, BigDecimal amount) throws InterruptedException {
+        return transferEther(signerOf(fromAddress), destination, amount);
+    }
+
+    @Override
+    @Deprecated
     public EthTransactionReceipt transferEther(String destination, BigDecimal amount) throws InterruptedException {
-        if (this.credentials == null)
+        return defaultSigner().transferEther(destination, amount);
+    }
+
+    @Override
+    @Deprecated
+    public CompletableFuture<EthTransactionReceipt> transferEtherAsync(String destination, BigDecimal amount) {
+        return defaultSigner().transferEtherAsync(destination, amount);
+    }
+
+    private EthWeb3JSigner defaultSigner() {
+        EthWeb3JSigner signer = this.defaultSigner;
+        if (signer == null)
             throw new IllegalStateException("credentials is null");
-        TransactionReceipt receipt = null;
+        return signer;
+    }
+
+    /**
+     * Synchronous transfers share the asynchronous pipeline, so they use the fee oracle too.
+     */
+    EthTransactionReceipt transferEther(Credentials signer, String destination, BigDecimal amount) throws InterruptedException {
         try {
-            receipt = Transfer.sendFunds(this.web3j, this.credentials, destination, amount, Convert.Unit.ETHER).send();
-        } catch (InterruptedException e) {
-            throw e;
-        } catch (Exception e) {
+            return transferEtherAsync(signer, destination, amount).get();
+        } catch (ExecutionException e) {
+            throw new WaterRuntimeException(e.getCause());
+        } catch (RuntimeException e) {
             throw new WaterRuntimeException(e);
         }
-        return wrapEthereumTransactionReceipt(receipt);
     }
 
     @Override
     public List<String> listAccounts() {
+        return await(listAccountsAsync());
+    }
+
+    @Override
+    public BigInteger getBalanceOf(String address) {
+        return await(getBalanceOfAsync(address));
+    }
+
+    @Override
+    public EthTransactionReceipt getTransactionReceipt(String transactionHash) {
+        return await(getTransactionReceiptAsync(transactionHash));
+    }
+
+    @Override
+    public CompletableFuture<EthTransactionReceipt> getTransactionReceiptAsync(String transactionHash) {
+        return withinDeadline(this.web3j.ethGetTransactionReceipt(transactionHash).sendAsync(), "eth_getTransactionReceipt")
+                .thenApplyAsync(response -> checkResponse(response).getTransactionReceipt().map(this::wrapEthereumTransactionReceipt).orElse(null), asyncExecutor);
+    }
+
+    @Override
+    public CompletableFuture<EthTransactionReceipt> waitForTransactionReceiptAsync(String transactionHash, long timeoutMillis) {
+        return connection.getReceiptTracker().track(transactionHash, timeoutMillis)
+                .thenApplyAsync(this::wrapEthereumTransactionReceipt, asyncExecutor);
+    }
+
+    @Override
+    public EthWeb3JClient withDeadline(long deadlineMillis) {
+        if (deadlineMillis < 0)
+            throw new IllegalArgumentException("deadlineMillis is negative");
+        return new EthWeb3JClient(connection, signerRegistry, asyncExecutor, batchSize, balanceCacheEnabled, deadlineMillis);
+    }
+
+    /**
+     * Bounds a read to the client deadline, the returned future fails with a TimeoutException when the deadline expires
+     * and the read is cancelled. Reads shared with other callers are futures of their own,
+     * the transports cancel the request only when all of them have given up.
+     */
+    <T> CompletableFuture<T> withinDeadline(CompletableFuture<T> future, String method) {
+        long deadline = deadlineMillis;
+        if (deadline <= 0)
+            return future;
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> timeout = EthWeb3JConnection.SHARED_EXECUTOR.schedule(() -> {
+            if (result.completeExceptionally(new TimeoutException(method + " not answered within " + deadline + " millis"))) {
+                connection.getMetrics().deadlineExceeded(method);
+                future.cancel(true);
+            }
+        }, deadline, TimeUnit.MILLISECONDS);
+        future.whenComplete((value, error) -> {
+            timeout.cancel(false);
+            if (error == null)
+                result.complete(value);
+            else
+                result.completeExceptionally(error);
+        });
+        return result;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
         try {
-            return this.web3j.ethAccounts().send().getAccounts();
-        } catch (Exception e) {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new WaterRuntimeException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null ? e.getCause().getCause() : e.getCause();
+            throw new WaterRuntimeException(cause.getMessage());
         }
     }
 
     @Override
-    public BigInteger getBalanceOf(String address) {
+    public CompletableFuture<EthTransactionReceipt> transferEtherAsync(String fromAddress, String destination, BigDecimal amount) {
+        return transferEtherAsync(signerOf(fromAddress), destination, amount);
+    }
+
+    CompletableFuture<EthTransactionReceipt> transferEtherAsync(Credentials signer, String destination, BigDecimal amount) {
+        final BigInteger value = Convert.toWei(amount, Convert.Unit.ETHER).toBigIntegerExact();
+        return sendRawTransactionAsync(signer, destination, value, "", Transfer.GAS_LIMIT, true)
+                .thenCompose(transactionHash -> connection.getReceiptTracker().track(transactionHash))
+                .thenApplyAsync(this::wrapEthereumTransactionReceipt, asyncExecutor);
+    }
+
+    /**
+     * Sends a contract transaction whose gas limit comes from the connection gas estimator,
+     * the gas used by the mined transaction is fed back to the estimator.
+     *
+     * @param signer signer
+     * @param to     contract address
+     * @param value  wei sent with the transaction
+     * @param data   call data
+     * @return future completed with the transaction receipt
+     */
+    CompletableFuture<EthTransactionReceipt> sendTransactionAsync(Credentials signer, String to, BigInteger value, String data) {
+        EthGasEstimator gasEstimator = connection.getGasEstimator();
+        return gasEstimator.estimateAsync(signer.getAddress(), to, data, value)
+                .thenCompose(gasLimit -> sendRawTransactionAsync(signer, to, value, data, gasLimit, true))
+                .thenCompose(transactionHash -> connection.getReceiptTracker().track(transactionHash))
+                .thenApplyAsync(receipt -> {
+                    gasEstimator.observe(to, data, receipt);
+                    return wrapEthereumTransactionReceipt(receipt);
+                }, asyncExecutor);
+    }
+
+    /**
+     * Signs and sends a transaction using the shared nonce manager and the fees suggested by the connection fee oracle.
+     * If the node rejects the transaction because its nonce is too low or too high, it is sent once more with a resynced nonce.
+     * A transaction already known by the node is pending, so its locally computed hash is returned.
+     *
+     * @return future completed with the transaction hash
+     */
+    private CompletableFuture<String> sendRawTransactionAsync(Credentials signer, String to, BigInteger value, String data, BigInteger gasLimit, boolean retryOnNonceError) {
+        EthNonceManager nonceManager = connection.getNonceManager();
+        String from = signer.getAddress();
+        CompletableFuture<EthFees> fees = connection.getFeeOracle().getFeesAsync();
+        CompletableFuture<Long> chainId = connection.getChainIdAsync();
+        return nonceManager.nextAsync(from).thenCompose(nonce -> {
+            CompletableFuture<String> signedTransaction = fees
+                    .thenCombine(chainId, (suggestedFees, id) -> Numeric.toHexString(signTransaction(signer, nonce, suggestedFees, id, gasLimit, to, value, data)));
+            return signedTransaction
+                    .thenCompose(transaction -> this.web3j.ethSendRawTransaction(transaction).sendAsync())
+                    .whenComplete((response, error) -> {
+                        if (error != null)
+                            nonceManager.release(from, nonce);
+                    })
+                    .thenCompose(response -> {
+                        if (nonceManager.onTransactionSent(from, nonce, response) && retryOnNonceError)
+                            return sendRawTransactionAsync(signer, to, value, data, gasLimit, false);
+                        //the very same transaction is already pending on the node
+                        if (response.hasError() && EthNonceManager.isAlreadyKnown(response.getError().getMessage()))
+                            return CompletableFuture.completedFuture(Hash.sha3(signedTransaction.join()));
+                        return CompletableFuture.completedFuture(checkResponse(response).getTransactionHash());
+                    });
+        });
+    }
+
+    static byte[] signTransaction(Credentials signer, BigInteger nonce, EthFees fees, long chainId, BigInteger gasLimit, String to, BigInteger value, String data) {
+        if (fees.isEip1559())
+            return TransactionEncoder.signMessage(RawTransaction.createTransaction(chainId, nonce, gasLimit, to, value, data, fees.getMaxPriorityFeePerGas(), fees.getMaxFeePerGas()), signer);
+        return TransactionEncoder.signMessage(RawTransaction.createTransaction(nonce, fees.getGasPrice(), gasLimit, to, value, data), chainId, signer);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> listAccountsAsync() {
+        return withinDeadline(this.web3j.ethAccounts().sendAsync(), "eth_accounts")
+                .thenApplyAsync(response -> checkResponse(response).getAccounts(), asyncExecutor);
+    }
+
+    /**
+     * Latest balance is read at the block of the tracked chain head.
+     */
+    @Override
+    public CompletableFuture<BigInteger> getBalanceOfAsync(String address) {
+        if (address == null)
+            throw new IllegalArgumentException("address is null");
+        return withinDeadline(connection.getChainHeadTracker().getHeadAsync()
+                .thenCompose(head -> getBalancesAt(Collections.singletonList(address), head.getBlockNumber()).get(address)), "eth_getBalance")
+                .thenApplyAsync(Function.identity(), asyncExecutor);
+    }
+
+    @Override
+    public Map<String, BigInteger> getBalancesOf(Collection<String> addresses, String blockTag) {
+        return await(getBalancesOfAsync(addresses, blockTag));
+    }
+
+    /**
+     * Latest balances are read at the block of the tracked chain head, explicit block numbers are read as they are,
+     * both are served by the balance cache when enabled. Other block names (pending, earliest, ...) are never cached.
+     */
+    @Override
+    public CompletableFuture<Map<String, BigInteger>> getBalancesOfAsync(Collection<String> addresses, String blockTag) {
+        if (addresses == null)
+            throw new IllegalArgumentException("addresses is null");
+        DefaultBlockParameter blockParameter = toBlockParameter(blockTag);
+        List<String> distinctAddresses = new ArrayList<>(new LinkedHashSet<>(addresses));
+        CompletableFuture<Map<String, CompletableFuture<BigInteger>>> balanceFutures;
+        if (blockParameter == DefaultBlockParameterName.LATEST) {
+            balanceFutures = connection.getChainHeadTracker().getHeadAsync().thenApply(head -> getBalancesAt(distinctAddresses, head.getBlockNumber()));
+        } else if (blockParameter instanceof DefaultBlockParameterNumber) {
+            balanceFutures = CompletableFuture.completedFuture(getBalancesAt(distinctAddresses, ((DefaultBlockParameterNumber) blockParameter).getBlockNumber()));
+        } else {
+            balanceFutures = CompletableFuture.completedFuture(toBalanceFutures(distinctAddresses, loadBalances(distinctAddresses, blockParameter)));
+        }
+        return withinDeadline(balanceFutures.thenCompose(futures -> CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).thenApply(v -> {
+            Map<String, BigInteger> balances = new LinkedHashMap<>();
+            distinctAddresses.forEach(address -> balances.put(address, futures.get(address).join()));
+            return balances;
+        })), "eth_getBalance").thenApplyAsync(Function.identity(), asyncExecutor);
+    }
+
+    private Map<String, CompletableFuture<BigInteger>> getBalancesAt(List<String> addresses, BigInteger blockNumber) {
+        DefaultBlockParameter blockParameter = DefaultBlockParameter.valueOf(blockNumber);
+        if (balanceCacheEnabled)
+            return connection.getBalanceCache().getAll(addresses, blockNumber, missing -> loadBalances(missing, blockParameter));
+        return toBalanceFutures(addresses, loadBalances(addresses, blockParameter));
+    }
+
+    private static Map<String, CompletableFuture<BigInteger>> toBalanceFutures(List<String> addresses, CompletableFuture<Map<String, BigInteger>> loaded) {
+        Map<String, CompletableFuture<BigInteger>> futures = new LinkedHashMap<>();
+        addresses.forEach(address -> futures.put(address, loaded.thenApply(balances -> balances.get(address))));
+        return futures;
+    }
+
+    /**
+     * A single address is read with a plain request, otherwise addresses are split in chunks of batchSize elements,
+     * each chunk is a single JSON-RPC batch and all chunks are sent in parallel.
+     */
+    private CompletableFuture<Map<String, BigInteger>> loadBalances(List<String> addresses, DefaultBlockParameter blockParameter) {
+        if (addresses.size() == 1) {
+            String address = addresses.get(0);
+            return this.web3j.ethGetBalance(address, blockParameter).sendAsync()
+                    .thenApply(response -> Collections.singletonMap(address, checkResponse(response).getBalance()));
+        }
+        int chunkSize = Math.max(1, batchSize);
+        List<CompletableFuture<Map<String, BigInteger>>> chunks = new ArrayList<>();
+        for (int i = 0; i < addresses.size(); i += chunkSize)
+            chunks.add(getBalancesOfChunk(addresses.subList(i, Math.min(i + chunkSize, addresses.size())), blockParameter));
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(v -> {
+            Map<String, BigInteger> balances = new HashMap<>();
+            chunks.forEach(chunk -> balances.putAll(chunk.join()));
+            return balances;
+        });
+    }
+
+    private CompletableFuture<Map<String, BigInteger>> getBalancesOfChunk(List<String> addresses, DefaultBlockParameter blockParameter) {
+        BatchRequest batch = this.web3j.newBatch();
+        Map<Long, String> addressesByRequestId = new HashMap<>();
+        for (String address : addresses) {
+            Request<?, EthGetBalance> request = this.web3j.ethGetBalance(address, blockParameter);
+            addressesByRequestId.put(request.getId(), address);
+            batch.add(request);
+        }
+        return batch.sendAsync().thenApply(batchResponse -> {
+            Map<String, BigInteger> balances = new HashMap<>();
+            //responses are matched by id since nodes are not required to keep the batch order
+            batchResponse.getResponses().forEach(response -> {
+                EthGetBalance balance = (EthGetBalance) checkResponse(response);
+                balances.put(addressesByRequestId.get(balance.getId()), balance.getBalance());
+            });
+            return balances;
+        });
+    }
+
+    /**
+     * Converts a block tag into a web3j block parameter.
+     *
+     * @param blockTag block number (decimal or hex) or block name, null means latest
+     * @return block parameter
+     */
+    static DefaultBlockParameter toBlockParameter(String blockTag) {
+        if (blockTag == null || blockTag.isEmpty())
+            return DefaultBlockParameterName.LATEST;
+        if (Numeric.containsHexPrefix(blockTag))
+            return DefaultBlockParameter.valueOf(Numeric.decodeQuantity(blockTag));
+        if (Character.isDigit(blockTag.charAt(0)))
+            return DefaultBlockParameter.valueOf(new BigInteger(blockTag));
         try {
-            EthGetBalance balance = this.web3j.ethGetBalance(address, DefaultBlockParameterName.LATEST).send();
-            return balance.getBalance();
-        } catch (IOException e) {
-            throw new WaterRuntimeException(e.getMessage());
+            return DefaultBlockParameterName.fromString(blockTag);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid block tag: " + blockTag);
         }
     }
 
-    private EthTransactionReceipt wrapEthereumTransactionReceipt(TransactionReceipt receipt) {
+    Credentials signerOf(String address) {
+        Credentials signer = signerRegistry.getCredentials(address);
+        if (signer == null)
+            throw new IllegalStateException("No signer registered for address " + address);
+        return signer;
+    }
+
+    static <T extends Response<?>> T checkResponse(T response) {
+        if (response.hasError())
+            throw new CompletionException(new WaterRuntimeException(response.getError().getMessage()));
+        return response;
+    }
+
+    EthTransactionReceipt wrapEthereumTransactionReceipt(TransactionReceipt receipt) {
         return new EthTransactionReceipt() {
             @Override
             public String getTransactionHash() {
@@ -221,6 +701,50 @@ public class EthWeb3JClient implements EthClient {
             public String getEffectiveGasPrice() {
                 return receipt.getEffectiveGasPrice();
             }
+
+            @Override
+            public List<EthEventLog> getLogs() {
+                List<Log> logs = receipt.getLogs();
+                if (logs == null)
+                    return Collections.emptyList();
+                List<EthEventLog> eventLogs = new ArrayList<>(logs.size());
+                logs.forEach(log -> eventLogs.add(wrapEthereumLog(log)));
+                return eventLogs;
+            }
+        };
+    }
+
+    static EthEventLog wrapEthereumLog(Log log) {
+        return new EthEventLog() {
+            @Override
+            public String getAddress() {
+                return log.getAddress();
+            }
+
+            @Override
+            public List<String> getTopics() {
+                return log.getTopics();
+            }
+
+            @Override
+            public String getData() {
+                return log.getData();
+            }
+
+            @Override
+            public BigInteger getLogIndex() {
+                return log.getLogIndex();
+            }
+
+            @Override
+            public BigInteger getBlockNumber() {
+                return log.getBlockNumber();
+            }
+
+            @Override
+            public String getTransactionHash() {
+                return log.getTransactionHash();
+            }
         };
     }
 }
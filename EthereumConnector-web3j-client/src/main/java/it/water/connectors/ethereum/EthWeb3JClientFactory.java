@@ -19,48 +19,125 @@ package it.water.connectors.ethereum;
 
 import it.water.connectors.ethereum.api.EthClient;
 import it.water.connectors.ethereum.api.EthClientFactory;
+import it.water.connectors.ethereum.api.EthClientRegistry;
 import it.water.connectors.ethereum.model.EthBlockchain;
 import it.water.connectors.ethereum.model.EthConstants;
 import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.core.interceptors.annotations.Inject;
 import lombok.Getter;
 import lombok.Setter;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
+
+import java.util.concurrent.Executor;
 
 /**
  * @Author Aristide Cittadino
  * Ethereum Web3J Client Factory.
+ * Clients are backed by the connections pooled inside the EthClientRegistry.
+ * The factory holds no blockchain: withEthereumBlockChain returns a new builder bound to the blockchain,
+ * so the same factory can be used concurrently without locking.
+ * Client settings are read by the builders at build time, built clients are immutable.
  */
 @FrameworkComponent(properties = EthConstants.ETH_CONNECTOR_CLIENT_FACTORY + "=" + EthConstants.ETH_CONNECTOR_CLIENT_FACTORY_WEB3J)
 public class EthWeb3JClientFactory implements EthClientFactory {
 
-    private EthBlockchain ethereumBlockChain;
-
     @Getter
     @Setter
     private String clientFactoryType; // used by spring to set framework component property
 
+    @Inject
+    @Setter
+    private volatile EthClientRegistry clientRegistry;
+
+    /**
+     * Executor used by the built clients to complete async results.
+     * By default it is a pool shared by the clients and kept apart from the timers of the connections.
+     */
+    @Getter
+    @Setter
+    private volatile Executor asyncExecutor = EthWeb3JConnection.COMPLETION_EXECUTOR;
+
+    /**
+     * Max number of requests the built clients send inside a single JSON-RPC batch.
+     */
+    @Getter
+    @Setter
+    private volatile int batchSize = EthWeb3JClient.DEFAULT_BATCH_SIZE;
+
+    /**
+     * When enabled the built clients read balances through the block scoped cache shared by the connection.
+     */
+    @Getter
+    @Setter
+    private volatile boolean balanceCacheEnabled = true;
+
+    /**
+     * Max time of reads of the built clients in milliseconds, 0 means no deadline.
+     */
+    @Getter
+    @Setter
+    private volatile long deadlineMillis;
+
     @Override
     public EthClientFactory withEthereumBlockChain(EthBlockchain ethereumBlockChain) {
         if (ethereumBlockChain == null)
             throw new IllegalArgumentException("EthereumBlockChain cannot be null");
-        this.ethereumBlockChain = ethereumBlockChain;
-        return this;
+        return new BlockchainClientFactory(this, ethereumBlockChain);
     }
 
+    /**
+     * The factory is not bound to any blockchain, clients are built by the builders returned by withEthereumBlockChain.
+     *
+     * @throws IllegalStateException always
+     * @deprecated use withEthereumBlockChain(blockchain).build()
+     */
+    @Deprecated
     @Override
     public EthClient build() {
-        Web3j web3j = Web3j.build(
-                new HttpService(ethereumBlockChain.getProtocol() +
-                        "://" + ethereumBlockChain.getHost() +
-                        ":" + ethereumBlockChain.getPort()));
-        EthClient web3jClient = new EthWeb3JClient(web3j);
-        this.reset();
-        return web3jClient;
+        throw new IllegalStateException("EthereumBlockChain not set, build from the builder returned by withEthereumBlockChain");
+    }
+
+    private EthClient build(EthBlockchain ethereumBlockChain) {
+        EthClientRegistry registry = getClientRegistry();
+        if (!(registry instanceof EthWeb3JClientRegistry))
+            return registry.getClient(ethereumBlockChain);
+        EthWeb3JClientRegistry web3jRegistry = (EthWeb3JClientRegistry) registry;
+        return new EthWeb3JClient(web3jRegistry.acquireConnection(ethereumBlockChain), web3jRegistry.getSignerRegistry(),
+                asyncExecutor, batchSize, balanceCacheEnabled, deadlineMillis);
     }
 
-    public void reset() {
-        this.ethereumBlockChain = null;
+    private EthClientRegistry getClientRegistry() {
+        EthClientRegistry registry = clientRegistry;
+        if (registry != null)
+            return registry;
+        synchronized (this) {
+            //factory created outside the framework, using a private registry
+            if (clientRegistry == null)
+                clientRegistry = new EthWeb3JClientRegistry();
+            return clientRegistry;
+        }
+    }
+
+    /**
+     * Immutable builder bound to a blockchain.
+     */
+    private static class BlockchainClientFactory implements EthClientFactory {
+        private final EthWeb3JClientFactory factory;
+        private final EthBlockchain ethereumBlockChain;
+
+        private BlockchainClientFactory(EthWeb3JClientFactory factory, EthBlockchain ethereumBlockChain) {
+            this.factory = factory;
+            this.ethereumBlockChain = ethereumBlockChain;
+        }
+
+        @Override
+        public EthClientFactory withEthereumBlockChain(EthBlockchain ethereumBlockChain) {
+            return factory.withEthereumBlockChain(ethereumBlockChain);
+        }
+
+        @Override
+        public EthClient build() {
+            return factory.build(ethereumBlockChain);
+        }
     }
 
 }
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthClient;
+import it.water.connectors.ethereum.api.EthClientRegistry;
+import it.water.connectors.ethereum.api.EthRpcMetricsRegistry;
+import it.water.connectors.ethereum.api.EthSignerRegistry;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthConstants;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.core.interceptors.annotations.Inject;
+import lombok.Getter;
+import lombok.Setter;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.ipc.UnixIpcService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author Aristide Cittadino
+ * Web3J connection registry.
+ * Keeps one Web3j instance for each blockchain (id and endpoints) and shares it between all the clients.
+ * The pool is bounded: least recently used connections are closed when the max size is reached
+ * and idle connections are closed by a background sweeper.
+ * Connections in use, i.e. with running event indexers or pending notarizations and transactions,
+ * are skipped by the idle sweeper and by the max size bound: the pool may grow over its max size until they are released.
+ * Explicitly evicted connections are always closed: queued notarizations are sent and pending receipts are awaited
+ * for up to drainTimeoutMillis, then the connection is shut down even if someone still holds it.
+ * Clients, Web3j instances and connections are not tracked: once their connection is closed their requests fail,
+ * so they must be taken again from the registry after an eviction.
+ */
+@FrameworkComponent
+public class EthWeb3JClientRegistry implements EthClientRegistry {
+    public static final int DEFAULT_MAX_SIZE = 16;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 300000;
+    public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 120000;
+    private static final long MIN_SWEEP_INTERVAL_MILLIS = 1000;
+
+    @Getter
+    @Setter
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    @Getter
+    @Setter
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+
+    /**
+     * Max time an evicted connection waits for its pending notarizations and transactions before being shut down
+     */
+    @Getter
+    @Setter
+    private long drainTimeoutMillis = DEFAULT_DRAIN_TIMEOUT_MILLIS;
+
+    /**
+     * Latency percentile after which reads sent to blockchains with several endpoints are hedged, 0 disables hedging
+     */
+    @Getter
+    @Setter
+    private double hedgePercentile = EthLoadBalancedService.DEFAULT_HEDGE_PERCENTILE;
+
+    @Inject
+    @Setter
+    private EthSignerRegistry signerRegistry;
+
+    @Inject
+    @Setter
+    private EthRpcMetricsRegistry metricsRegistry;
+
+    //access ordered map, the eldest entry is the least recently used one
+    private final LinkedHashMap<String, PooledConnection> connections = new LinkedHashMap<>(16, 0.75f, true);
+    private ScheduledExecutorService idleSweeper;
+
+    @Override
+    public EthClient getClient(EthBlockchain ethBlockchain) {
+        return new EthWeb3JClient(acquireConnection(ethBlockchain), getSignerRegistry());
+    }
+
+    /**
+     * @return signer registry shared by all the clients
+     */
+    public synchronized EthWeb3JSignerRegistry getSignerRegistry() {
+        //registry created outside the framework or a different signer registry implementation, using a private one
+        if (!(signerRegistry instanceof EthWeb3JSignerRegistry))
+            signerRegistry = new EthWeb3JSignerRegistry();
+        return (EthWeb3JSignerRegistry) signerRegistry;
+    }
+
+    /**
+     * @return metrics registry recording the requests of all the connections
+     */
+    public synchronized EthRpcMetricsRegistry getMetricsRegistry() {
+        //registry created outside the framework, using a private one
+        if (metricsRegistry == null)
+            metricsRegistry = new EthWeb3JRpcMetricsRegistry();
+        return metricsRegistry;
+    }
+
+    /**
+     * Returns the pooled Web3j instance of the given blockchain, creating it if needed.
+     *
+     * @param ethBlockchain blockchain
+     * @return shared Web3j instance
+     */
+    public Web3j acquire(EthBlockchain ethBlockchain) {
+        return acquireConnection(ethBlockchain).getWeb3j();
+    }
+
+    /**
+     * Returns the pooled connection of the given blockchain, creating it if needed.
+     *
+     * @param ethBlockchain blockchain
+     * @return shared connection
+     */
+    public EthWeb3JConnection acquireConnection(EthBlockchain ethBlockchain) {
+        if (ethBlockchain == null)
+            throw new IllegalArgumentException("EthereumBlockChain cannot be null");
+        String key = connectionKey(ethBlockchain);
+        List<PooledConnection> evicted = new ArrayList<>();
+        PooledConnection connection;
+        synchronized (connections) {
+            connection = connections.get(key);
+            if (connection == null) {
+                connection = new PooledConnection(ethBlockchain.getId(), createConnection(ethBlockchain));
+                connections.put(key, connection);
+                //connections in use are skipped, the sweeper trims the pool once they are released
+                Iterator<PooledConnection> it = connections.values().iterator();
+                int size = connections.size();
+                while (size > Math.max(1, maxSize) && it.hasNext()) {
+                    PooledConnection eldest = it.next();
+                    if (eldest != connection && !eldest.getConnection().isInUse()) {
+                        evicted.add(eldest);
+                        it.remove();
+                        size--;
+                    }
+                }
+                startIdleSweeper();
+            }
+            connection.touch();
+        }
+        close(evicted);
+        return connection.getConnection();
+    }
+
+    @Override
+    public void evict(EthBlockchain ethBlockchain) {
+        if (ethBlockchain == null)
+            return;
+        if (ethBlockchain.getId() > 0) {
+            evict(ethBlockchain.getId());
+            return;
+        }
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (connections) {
+            PooledConnection removed = connections.remove(connectionKey(ethBlockchain));
+            if (removed != null)
+                evicted.add(removed);
+        }
+        close(evicted);
+    }
+
+    @Override
+    public void evict(long ethBlockchainId) {
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (connections) {
+            Iterator<PooledConnection> it = connections.values().iterator();
+            while (it.hasNext()) {
+                PooledConnection connection = it.next();
+                if (connection.getBlockchainId() == ethBlockchainId) {
+                    evicted.add(connection);
+                    it.remove();
+                }
+            }
+            stopIdleSweeperIfUnused();
+        }
+        close(evicted);
+    }
+
+    @Override
+    public void evictContract(long ethBlockchainId, String contractAddress) {
+        List<EthWeb3JConnection> blockchainConnections = new ArrayList<>();
+        synchronized (connections) {
+            connections.values().forEach(connection -> {
+                if (connection.getBlockchainId() == ethBlockchainId)
+                    blockchainConnections.add(connection.getConnection());
+            });
+        }
+        blockchainConnections.forEach(connection -> {
+            connection.getGasEstimator().evict(contractAddress);
+            connection.evictMerkleNotarizers(contractAddress);
+        });
+    }
+
+    @Override
+    public void evictAll() {
+        List<PooledConnection> evicted;
+        synchronized (connections) {
+            evicted = new ArrayList<>(connections.values());
+            connections.clear();
+            stopIdleSweeperIfUnused();
+        }
+        close(evicted);
+    }
+
+    @Override
+    public int size() {
+        synchronized (connections) {
+            return connections.size();
+        }
+    }
+
+    /**
+     * Closes the connections which have not been used for more than idleTimeoutMillis and trims the pool to its max size.
+     * Connections in use are not closed, they count as used at each sweep.
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (connections) {
+            Iterator<PooledConnection> it = connections.values().iterator();
+            int size = connections.size();
+            while (it.hasNext()) {
+                PooledConnection connection = it.next();
+                if (connection.getConnection().isInUse()) {
+                    connection.touch();
+                } else if (now - connection.getLastAccess() >= idleTimeoutMillis || size > Math.max(1, maxSize)) {
+                    evicted.add(connection);
+                    it.remove();
+                    size--;
+                }
+            }
+            stopIdleSweeperIfUnused();
+        }
+        close(evicted);
+    }
+
+    protected EthWeb3JConnection createConnection(EthBlockchain ethBlockchain) {
+        EthRpcMetricsRecorder metrics = new EthRpcMetricsRecorder(getMetricsRegistry(), ethBlockchain.getId());
+        Web3jService web3jService = createWeb3jService(ethBlockchain, metrics);
+        //concurrent identical reads of all the clients share a single request, metered once when sent to the nodes
+        EthSingleFlightService singleFlightService = new EthSingleFlightService(new EthMeteredService(web3jService, metrics));
+        return new EthWeb3JConnection(Web3j.build(singleFlightService), web3jService, singleFlightService, metrics);
+    }
+
+    /**
+     * Builds the transport of the given blockchain without metrics.
+     *
+     * @param ethBlockchain blockchain
+     * @return web3j service
+     */
+    protected Web3jService createWeb3jService(EthBlockchain ethBlockchain) {
+        return createWeb3jService(ethBlockchain, null);
+    }
+
+    /**
+     * Builds the transport matching the blockchain protocol: http(s), ws(s) or ipc.
+     * For ipc the blockchain host is the path of the node unix domain socket and the port is ignored.
+     * When the blockchain has additional endpoints, requests are balanced between all the nodes.
+     *
+     * @param ethBlockchain blockchain
+     * @param metrics       recorder of the bytes exchanged with http(s) nodes, null to skip them
+     * @return web3j service
+     */
+    protected Web3jService createWeb3jService(EthBlockchain ethBlockchain, EthRpcMetricsRecorder metrics) {
+        if (ethBlockchain.getEndpoints() == null || ethBlockchain.getEndpoints().isEmpty())
+            return createWeb3jService(ethBlockchain.getProtocol(), ethBlockchain.getHost(), ethBlockchain.getPort(), metrics);
+        List<EthRpcEndpoint> endpoints = new ArrayList<>();
+        endpoints.add(new EthRpcEndpoint(endpointUrl(ethBlockchain.getProtocol(), ethBlockchain.getHost(), ethBlockchain.getPort()),
+                createWeb3jService(ethBlockchain.getProtocol(), ethBlockchain.getHost(), ethBlockchain.getPort(), metrics)));
+        ethBlockchain.getEndpoints().forEach(endpoint -> endpoints.add(new EthRpcEndpoint(endpointUrl(endpoint.getProtocol(), endpoint.getHost(), endpoint.getPort()),
+                createWeb3jService(endpoint.getProtocol(), endpoint.getHost(), endpoint.getPort(), metrics))));
+        EthLoadBalancedService service = new EthLoadBalancedService(endpoints, EthWeb3JConnection.SHARED_EXECUTOR);
+        service.setHedgePercentile(hedgePercentile);
+        return service;
+    }
+
+    /**
+     * Builds the transport of a single node.
+     *
+     * @param protocol node protocol
+     * @param host     node host, or socket path for ipc
+     * @param port     node port, ignored for ipc
+     * @param metrics  recorder of the bytes exchanged with http(s) nodes, null to skip them
+     * @return web3j service
+     */
+    protected Web3jService createWeb3jService(String protocol, String host, String port, EthRpcMetricsRecorder metrics) {
+        String normalizedProtocol = protocol == null ? "" : protocol.toLowerCase(Locale.ROOT);
+        switch (normalizedProtocol) {
+            case EthConstants.ETH_PROTOCOL_HTTP:
+            case EthConstants.ETH_PROTOCOL_HTTPS:
+                String url = endpointUrl(normalizedProtocol, host, port);
+                return metrics != null ? new EthMeteredHttpService(url, metrics) : new EthHttpService(url);
+            case EthConstants.ETH_PROTOCOL_WS:
+            case EthConstants.ETH_PROTOCOL_WSS:
+                return new EthWebSocketService(endpointUrl(normalizedProtocol, host, port));
+            case EthConstants.ETH_PROTOCOL_IPC:
+                return new UnixIpcService(host);
+            default:
+                throw new IllegalArgumentException("Unsupported protocol: " + protocol);
+        }
+    }
+
+    @Override
+    public List<EthEndpointHealth> getEndpointsHealth(EthBlockchain ethBlockchain) {
+        EthWeb3JConnection connection = acquireConnection(ethBlockchain);
+        if (connection.getService() instanceof EthLoadBalancedService)
+            return ((EthLoadBalancedService) connection.getService()).getHealth();
+        //single node connections are not probed, the node is checked on demand
+        String url = endpointUrl(ethBlockchain.getProtocol(), ethBlockchain.getHost(), ethBlockchain.getPort());
+        long start = System.nanoTime();
+        try {
+            EthBlockNumber response = connection.getWeb3j().ethBlockNumber().send();
+            if (response.hasError())
+                return Collections.singletonList(new EthEndpointHealth(url, false, -1, -1, 0, 1, response.getError().getMessage()));
+            double latencyMillis = (double) (System.nanoTime() - start) / TimeUnit.MILLISECONDS.toNanos(1);
+            return Collections.singletonList(new EthEndpointHealth(url, true, latencyMillis, response.getBlockNumber().longValue(), 0, 0, null));
+        } catch (IOException | RuntimeException e) {
+            return Collections.singletonList(new EthEndpointHealth(url, false, -1, -1, 0, 1, e.getMessage()));
+        }
+    }
+
+    private static String endpointUrl(String protocol, String host, String port) {
+        if (EthConstants.ETH_PROTOCOL_IPC.equalsIgnoreCase(protocol))
+            return EthConstants.ETH_PROTOCOL_IPC + "://" + host;
+        return protocol + "://" + host + ":" + port;
+    }
+
+    private String connectionKey(EthBlockchain ethBlockchain) {
+        StringBuilder key = new StringBuilder().append(ethBlockchain.getId()).append("|")
+                .append(endpointUrl(ethBlockchain.getProtocol(), ethBlockchain.getHost(), ethBlockchain.getPort()));
+        if (ethBlockchain.getEndpoints() != null)
+            ethBlockchain.getEndpoints().forEach(endpoint -> key.append("|").append(endpointUrl(endpoint.getProtocol(), endpoint.getHost(), endpoint.getPort())));
+        return key.toString();
+    }
+
+    //must be invoked holding the connections lock
+    private void startIdleSweeper() {
+        if (idleSweeper != null)
+            return;
+        long interval = Math.max(MIN_SWEEP_INTERVAL_MILLIS, idleTimeoutMillis / 2);
+        idleSweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "eth-client-registry-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        idleSweeper.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    //must be invoked holding the connections lock
+    private void stopIdleSweeperIfUnused() {
+        if (idleSweeper != null && connections.isEmpty()) {
+            idleSweeper.shutdown();
+            idleSweeper = null;
+        }
+    }
+
+    private void close(List<PooledConnection> evicted) {
+        evicted.forEach(connection -> connection.getConnection().close(drainTimeoutMillis));
+    }
+
+    private static class PooledConnection {
+        @Getter
+        private final long blockchainId;
+        @Getter
+        private final EthWeb3JConnection connection;
+        @Getter
+        private volatile long lastAccess;
+
+        private PooledConnection(long blockchainId, EthWeb3JConnection connection) {
+            this.blockchainId = blockchainId;
+            this.connection = connection;
+            this.touch();
+        }
+
+        private void touch() {
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+}
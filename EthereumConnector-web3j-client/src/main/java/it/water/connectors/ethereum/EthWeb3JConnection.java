@@ -0,0 +1,336 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @Author Aristide Cittadino
+ * Connection to a blockchain, served by a single node or balanced between several ones by EthLoadBalancedService.
+ * It groups the Web3j instance with the state which must be shared between all the clients using it.
+ * Chain head and receipts are tracked once per connection: head is pushed through newHeads when the transport is a single WebSocket,
+ * subscribed again when it reconnects, otherwise it is polled. Identical reads sent concurrently by its clients are coalesced by the single flight layer,
+ * below it the requests actually sent to the nodes are metered.
+ */
+public class EthWeb3JConnection {
+    private static Logger logger = LoggerFactory.getLogger(EthWeb3JConnection.class);
+    private static final long DRAIN_CHECK_MILLIS = 100;
+    //timers shared by all connections and clients, tasks running on it never block its threads
+    static final ScheduledExecutorService SHARED_EXECUTOR = Executors.newScheduledThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "eth-web3j-client-async");
+                t.setDaemon(true);
+                return t;
+            });
+    //default executor completing the async results of the clients, callers' stages run on it so it is kept apart from the timers
+    static final ExecutorService COMPLETION_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "eth-web3j-client-completion");
+                t.setDaemon(true);
+                return t;
+            });
+
+    @Getter
+    private final Web3j web3j;
+    //transport of the nodes, below the single flight layer, null when not known
+    @Getter
+    private final Web3jService service;
+    //null when reads are not coalesced
+    @Getter
+    private final EthSingleFlightService singleFlightService;
+    //disabled when the connection is not metered
+    @Getter
+    private final EthRpcMetricsRecorder metrics;
+    @Getter
+    private final EthNonceManager nonceManager;
+    @Getter
+    private final EthChainHeadTracker chainHeadTracker;
+    @Getter
+    private final EthReceiptTracker receiptTracker;
+    @Getter
+    private final EthBalanceCache balanceCache;
+    @Getter
+    private final EthFeeOracle feeOracle;
+    @Getter
+    private final EthGasEstimator gasEstimator;
+    @Getter
+    private final EthAbiCache abiCache;
+    @Getter
+    private final EthWeb3JMulticall multicall;
+    //keyed by contract address and signer address, weakly referenced since their contract pins a client:
+    //notarizers with queued documents are kept alive by their scheduled flush
+    private final Map<String, WeakReference<EthWeb3JMerkleNotarizer>> merkleNotarizers = new ConcurrentHashMap<>();
+    //stopped when the connection is closed, since their chain head tracker stops too
+    private final Set<EthWeb3JEventIndexer> eventIndexers = Collections.newSetFromMap(new WeakHashMap<>());
+    private final AtomicBoolean closing = new AtomicBoolean(false);
+    private volatile boolean closed;
+    private volatile CompletableFuture<Long> chainId;
+
+    public EthWeb3JConnection(Web3j web3j) {
+        this(web3j, null);
+    }
+
+    /**
+     * @param web3j   web3j instance
+     * @param service transport used by web3j, it tells if subscriptions are supported
+     */
+    public EthWeb3JConnection(Web3j web3j, Web3jService service) {
+        this(web3j, service, null);
+    }
+
+    /**
+     * @param web3j               web3j instance
+     * @param service             transport of the nodes, it tells if subscriptions are supported
+     * @param singleFlightService layer coalescing the reads of web3j, wrapping the service
+     */
+    public EthWeb3JConnection(Web3j web3j, Web3jService service, EthSingleFlightService singleFlightService) {
+        this(web3j, service, singleFlightService, null);
+    }
+
+    /**
+     * @param web3j               web3j instance
+     * @param service             transport of the nodes, it tells if subscriptions are supported
+     * @param singleFlightService layer coalescing the reads of web3j, wrapping the service
+     * @param metrics             recorder of the connection metrics, null when not metered
+     */
+    public EthWeb3JConnection(Web3j web3j, Web3jService service, EthSingleFlightService singleFlightService, EthRpcMetricsRecorder metrics) {
+        if (web3j == null)
+            throw new IllegalArgumentException("web3j is null");
+        this.web3j = web3j;
+        this.service = service;
+        this.singleFlightService = singleFlightService;
+        this.metrics = metrics == null ? EthRpcMetricsRecorder.DISABLED : metrics;
+        this.nonceManager = new EthNonceManager(web3j);
+        this.chainHeadTracker = new EthChainHeadTracker(web3j, SHARED_EXECUTOR, service instanceof EthWebSocketService);
+        if (service instanceof EthWebSocketService)
+            ((EthWebSocketService) service).addReconnectListener(chainHeadTracker::onReconnect);
+        this.receiptTracker = new EthReceiptTracker(web3j, chainHeadTracker, SHARED_EXECUTOR);
+        if (this.metrics.isEnabled())
+            this.receiptTracker.setReceiptWaitListener(this.metrics::receiptReceived);
+        this.balanceCache = new EthBalanceCache(chainHeadTracker);
+        this.feeOracle = new EthFeeOracle(web3j, chainHeadTracker);
+        this.gasEstimator = new EthGasEstimator(web3j);
+        this.abiCache = new EthAbiCache();
+        this.multicall = new EthWeb3JMulticall(web3j, SHARED_EXECUTOR);
+    }
+
+    /**
+     * Chain id is read from the node once and then cached.
+     *
+     * @return future completed with the chain id
+     */
+    public CompletableFuture<Long> getChainIdAsync() {
+        CompletableFuture<Long> current = chainId;
+        if (current == null || current.isCompletedExceptionally()) {
+            synchronized (this) {
+                current = chainId;
+                if (current == null || current.isCompletedExceptionally()) {
+                    current = web3j.ethChainId().sendAsync().thenApply(response -> {
+                        if (response.hasError())
+                            throw new WaterRuntimeException(response.getError().getMessage());
+                        return response.getChainId().longValue();
+                    });
+                    chainId = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Notarizers are created once per contract and signer, so documents sent through different clients share the same batches.
+     *
+     * @param contract      merkle registry contract
+     * @param signerAddress account sending the root transactions
+     * @return notarizer
+     */
+    public EthWeb3JMerkleNotarizer getMerkleNotarizer(EthWeb3JContract contract, String signerAddress) {
+        String key = merkleNotarizerKey(contract.getAddress(), signerAddress);
+        synchronized (merkleNotarizers) {
+            WeakReference<EthWeb3JMerkleNotarizer> reference = merkleNotarizers.get(key);
+            EthWeb3JMerkleNotarizer notarizer = reference == null ? null : reference.get();
+            if (notarizer == null) {
+                notarizer = new EthWeb3JMerkleNotarizer(contract, signerAddress, SHARED_EXECUTOR);
+                merkleNotarizers.put(key, new WeakReference<>(notarizer));
+            }
+            return notarizer;
+        }
+    }
+
+    /**
+     * Removes the notarizers of the given contract, documents already queued are notarized right away.
+     *
+     * @param contractAddress contract address
+     */
+    public void evictMerkleNotarizers(String contractAddress) {
+        if (contractAddress == null)
+            return;
+        String prefix = merkleNotarizerKey(contractAddress, "");
+        List<EthWeb3JMerkleNotarizer> evicted = new ArrayList<>();
+        synchronized (merkleNotarizers) {
+            merkleNotarizers.entrySet().removeIf(entry -> {
+                if (!entry.getKey().startsWith(prefix))
+                    return false;
+                EthWeb3JMerkleNotarizer notarizer = entry.getValue().get();
+                if (notarizer != null)
+                    evicted.add(notarizer);
+                return true;
+            });
+        }
+        evicted.forEach(EthWeb3JMerkleNotarizer::flush);
+    }
+
+    void registerEventIndexer(EthWeb3JEventIndexer indexer) {
+        synchronized (eventIndexers) {
+            eventIndexers.add(indexer);
+        }
+    }
+
+    /**
+     * Tells if the connection can't be closed without stopping someone:
+     * event indexers are running or notarizations and transactions are still pending.
+     * Clients are not tracked, a client whose connection has been closed fails its requests.
+     *
+     * @return true if the connection is in use
+     */
+    public boolean isInUse() {
+        synchronized (eventIndexers) {
+            if (eventIndexers.stream().anyMatch(EthWeb3JEventIndexer::isRunning))
+                return true;
+        }
+        return hasPendingWork();
+    }
+
+    /**
+     * @return true while notarizations are queued or waiting for their root transaction, or transactions are waiting for their receipt
+     */
+    public boolean hasPendingWork() {
+        return receiptTracker.getPendingCount() > 0 || merkleNotarizers().stream().anyMatch(notarizer -> !notarizer.isIdle());
+    }
+
+    /**
+     * Closes the connection without dropping its work: event indexers are stopped, since they restart from their checkpoint,
+     * queued notarizations are sent right away and the connection is shut down once notarizations and transactions
+     * have got their receipt, or when the drain timeout expires.
+     *
+     * @param drainTimeoutMillis max time waited for the pending work
+     * @return future completed when the connection has been shut down
+     */
+    public CompletableFuture<Void> close(long drainTimeoutMillis) {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        if (!closing.compareAndSet(false, true)) {
+            closed.complete(null);
+            return closed;
+        }
+        stopEventIndexers();
+        merkleNotarizers().forEach(EthWeb3JMerkleNotarizer::flush);
+        drain(closed, System.currentTimeMillis() + Math.max(0, drainTimeoutMillis));
+        return closed;
+    }
+
+    private void drain(CompletableFuture<Void> closed, long deadline) {
+        if (hasPendingWork() && System.currentTimeMillis() < deadline) {
+            try {
+                SHARED_EXECUTOR.schedule(() -> drain(closed, deadline), DRAIN_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                logger.warn("Connection closed before its pending work completed: {}", e.getMessage());
+            }
+        }
+        if (hasPendingWork())
+            logger.warn("Connection closed with pending work after the drain timeout");
+        shutdown();
+        closed.complete(null);
+    }
+
+    private List<EthWeb3JMerkleNotarizer> merkleNotarizers() {
+        List<EthWeb3JMerkleNotarizer> notarizers = new ArrayList<>();
+        synchronized (merkleNotarizers) {
+            merkleNotarizers.values().removeIf(reference -> {
+                EthWeb3JMerkleNotarizer notarizer = reference.get();
+                if (notarizer == null)
+                    return true;
+                notarizers.add(notarizer);
+                return false;
+            });
+        }
+        return notarizers;
+    }
+
+    private void stopEventIndexers() {
+        List<EthWeb3JEventIndexer> indexers;
+        synchronized (eventIndexers) {
+            indexers = new ArrayList<>(eventIndexers);
+            eventIndexers.clear();
+        }
+        indexers.forEach(EthWeb3JEventIndexer::stop);
+    }
+
+    private static String merkleNotarizerKey(String contractAddress, String signerAddress) {
+        return contractAddress.toLowerCase() + "/" + signerAddress.toLowerCase();
+    }
+
+    /**
+     * @return true once the connection has been shut down
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Shuts down the connection right away, failing the pending work. Use close to let it complete.
+     */
+    public void shutdown() {
+        closing.set(true);
+        closed = true;
+        stopEventIndexers();
+        //documents queued after close, there's no connection to notarize them anymore
+        merkleNotarizers().forEach(EthWeb3JMerkleNotarizer::discard);
+        synchronized (merkleNotarizers) {
+            merkleNotarizers.clear();
+        }
+        receiptTracker.shutdown();
+        chainHeadTracker.shutdown();
+        try {
+            web3j.shutdown();
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthContract;
+import it.water.connectors.ethereum.api.EthContractEvent;
+import it.water.connectors.ethereum.api.EthEventLog;
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.Getter;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * @Author Aristide Cittadino
+ * Web3J contract driven by a compiled ABI.
+ * Views are cheap, the compiled ABI is shared through the connection ABI cache.
+ * Transactions go through the same pipeline of ether transfers: shared nonce manager, fee oracle, gas estimator and receipt tracker.
+ * A mined transaction whose status is not OK fails with its revert reason.
+ */
+public class EthWeb3JContract implements EthContract {
+    static final String STATUS_OK = "0x1";
+    private final EthWeb3JClient client;
+    @Getter
+    private final String address;
+    @Getter
+    private final EthAbi abi;
+
+    public EthWeb3JContract(EthWeb3JClient client, String address, EthAbi abi) {
+        if (client == null)
+            throw new IllegalArgumentException("client is null");
+        if (address == null || address.isEmpty())
+            throw new IllegalArgumentException("address is null");
+        if (abi == null)
+            throw new IllegalArgumentException("abi is null");
+        this.client = client;
+        this.address = address;
+        this.abi = abi;
+    }
+
+    @Override
+    public List<Object> call(String function, Object... args) {
+        try {
+            return callAsync(function, args).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WaterRuntimeException(e.getMessage());
+        } catch (ExecutionException e) {
+            throw new WaterRuntimeException(e.getCause().getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Object>> callAsync(String function, Object... args) {
+        EthAbi.CompiledFunction compiledFunction = abi.function(function, args == null ? 0 : args.length);
+        String data = compiledFunction.encode(args);
+        return client.getWeb3j().ethCall(Transaction.createEthCallTransaction(null, address, data), DefaultBlockParameterName.LATEST).sendAsync()
+                .thenApplyAsync(response -> {
+                    EthWeb3JClient.checkResponse(response);
+                    if (response.isReverted())
+                        throw new CompletionException(new WaterRuntimeException("Call to " + compiledFunction.getSignature() + " reverted: " + response.getRevertReason()));
+                    return compiledFunction.decode(response.getValue());
+                }, client.getAsyncExecutor());
+    }
+
+    @Override
+    public EthTransactionReceipt send(String fromAddress, String function, Object... args) throws InterruptedException {
+        try {
+            return sendAsync(fromAddress, function, args).get();
+        } catch (ExecutionException e) {
+            throw new WaterRuntimeException(e.getCause().getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<EthTransactionReceipt> sendAsync(String fromAddress, String function, Object... args) {
+        EthAbi.CompiledFunction compiledFunction = abi.function(function, args == null ? 0 : args.length);
+        String data = compiledFunction.encode(args);
+        return client.sendTransactionAsync(client.signerOf(fromAddress), address, BigInteger.ZERO, data)
+                .thenCompose(receipt -> {
+                    //receipts of chains before byzantium have no status
+                    if (receipt.getStatus() == null || STATUS_OK.equals(receipt.getStatus()))
+                        return CompletableFuture.completedFuture(receipt);
+                    return revertReasonOf(receipt, data).<EthTransactionReceipt>thenApply(reason -> {
+                        throw new CompletionException(new WaterRuntimeException("Transaction " + receipt.getTransactionHash() + " calling "
+                                + compiledFunction.getSignature() + " reverted: " + reason));
+                    });
+                });
+    }
+
+    /**
+     * Few nodes put the revert reason in the receipt, otherwise it is read replaying the call at the block of the transaction.
+     */
+    private CompletableFuture<String> revertReasonOf(EthTransactionReceipt receipt, String data) {
+        if (receipt.getRevertReason() != null)
+            return CompletableFuture.completedFuture(receipt.getRevertReason());
+        DefaultBlockParameter block = receipt.getBlockNumber() != null ? DefaultBlockParameter.valueOf(receipt.getBlockNumber()) : DefaultBlockParameterName.LATEST;
+        return client.getWeb3j().ethCall(Transaction.createEthCallTransaction(receipt.getFrom(), address, data), block).sendAsync()
+                .handle((response, error) -> {
+                    if (error == null && response.getRevertReason() != null)
+                        return response.getRevertReason();
+                    if (error == null && response.hasError())
+                        return response.getError().getMessage();
+                    return "unknown reason, status " + receipt.getStatus();
+                });
+    }
+
+    @Override
+    public List<EthContractEvent> decodeEvents(EthTransactionReceipt receipt, String eventName) {
+        if (receipt == null)
+            throw new IllegalArgumentException("receipt is null");
+        EthAbi.CompiledEvent event = abi.event(eventName);
+        List<EthEventLog> logs = receipt.getLogs();
+        if (logs == null || logs.isEmpty())
+            return Collections.emptyList();
+        List<EthContractEvent> events = new ArrayList<>();
+        for (EthEventLog log : logs) {
+            if (address.equalsIgnoreCase(log.getAddress()) && event.matches(log))
+                events.add(new EthWeb3JContractEvent(event.getName(), log, event.decode(log.getTopics(), log.getData()), receipt.getFrom()));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthContractEvent;
+import it.water.connectors.ethereum.api.EthEventLog;
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Author Aristide Cittadino
+ * Event decoded through a compiled ABI.
+ */
+@Getter
+public class EthWeb3JContractEvent implements EthContractEvent {
+    private final String name;
+    private final String address;
+    private final String transactionHash;
+    private final BigInteger blockNumber;
+    private final BigInteger logIndex;
+    private final String sender;
+    private final List<String> topics;
+    private final String data;
+    private final Map<String, Object> values;
+
+    public EthWeb3JContractEvent(String name, EthEventLog log, Map<String, Object> values, String sender) {
+        this.name = name;
+        this.address = log.getAddress();
+        this.transactionHash = log.getTransactionHash();
+        this.blockNumber = log.getBlockNumber();
+        this.logIndex = log.getLogIndex();
+        this.sender = sender;
+        this.topics = log.getTopics() == null ? Collections.emptyList() : Collections.unmodifiableList(log.getTopics());
+        this.data = log.getData();
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    @Override
+    public Object get(String parameter) {
+        return values.get(parameter);
+    }
+}
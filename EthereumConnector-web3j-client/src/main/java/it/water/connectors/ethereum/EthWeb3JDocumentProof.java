@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthDocumentProof;
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @Author Aristide Cittadino
+ * Inclusion proof handed back by the Web3J merkle notarizer.
+ */
+@Getter
+public class EthWeb3JDocumentProof implements EthDocumentProof {
+    private final String documentHash;
+    private final String root;
+    private final int leafIndex;
+    private final List<String> proof;
+    private final String transactionHash;
+    private final BigInteger blockNumber;
+
+    public EthWeb3JDocumentProof(String documentHash, String root, int leafIndex, List<String> proof, String transactionHash, BigInteger blockNumber) {
+        this.documentHash = documentHash;
+        this.root = root;
+        this.leafIndex = leafIndex;
+        this.proof = Collections.unmodifiableList(proof);
+        this.transactionHash = transactionHash;
+        this.blockNumber = blockNumber;
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthContractEvent;
+import it.water.connectors.ethereum.api.EthEventIndexStore;
+import it.water.connectors.ethereum.api.EthEventIndexer;
+import it.water.connectors.ethereum.api.EthEventLog;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.EthTransaction;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * @Author Aristide Cittadino
+ * Web3J live event indexer of a single contract.
+ * A pass is run on every new chain head: the checkpoint block is checked first, if its hash changed the chain
+ * reorganized and the last confirmations blocks are rolled back, otherwise eth_getLogs is read over the blocks following
+ * the checkpoint, up to max block range at a time, until the head is reached.
+ * The hash of the last block of a range is read before and after eth_getLogs, so a range read while the chain was
+ * reorganizing is read again. When the node rejects a range as too large the range is halved.
+ * Without a checkpoint the first block read is the deployment block of the contract, so its older blocks are not scanned.
+ * Senders of the transactions emitting the events are fetched with JSON-RPC batches, once per transaction.
+ * Passes never overlap, store calls run on a dedicated executor since they usually hit a database.
+ */
+public class EthWeb3JEventIndexer implements EthEventIndexer {
+    private static Logger logger = LoggerFactory.getLogger(EthWeb3JEventIndexer.class);
+    public static final int DEFAULT_MAX_BLOCK_RANGE = 2000;
+    public static final int DEFAULT_CONFIRMATIONS = 12;
+    //store calls may block, so they never run on the shared client executor
+    private static final ExecutorService STORE_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "eth-web3j-event-indexer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final EthWeb3JClient client;
+    @Getter
+    private final EthWeb3JContract contract;
+    private final EthEventIndexStore store;
+    private final Consumer<EthChainHead> headListener = head -> requestPass();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * Max number of blocks read by a single eth_getLogs.
+     */
+    @Getter
+    @Setter
+    private volatile int maxBlockRange = DEFAULT_MAX_BLOCK_RANGE;
+
+    /**
+     * Number of blocks after which a block is considered final, they are rolled back when a reorg is detected.
+     */
+    @Getter
+    @Setter
+    private volatile int confirmations = DEFAULT_CONFIRMATIONS;
+
+    /**
+     * First block read when the store has no checkpoint, negative until known.
+     * When not set it is the block of the deployment transaction, or the chain head if the deployment is unknown or not mined yet.
+     */
+    @Getter
+    @Setter
+    private volatile long startBlock = -1;
+
+    /**
+     * Hash of the contract deployment transaction, null if unknown.
+     */
+    @Getter
+    @Setter
+    private volatile String deploymentTransactionHash;
+
+    //guarded by this
+    private boolean passRunning;
+    private boolean passRequested;
+    //written only by passes, which never overlap
+    private volatile boolean checkpointLoaded;
+    private volatile long checkpointBlockNumber = -1;
+    private volatile String checkpointBlockHash;
+    private int blockRange = DEFAULT_MAX_BLOCK_RANGE;
+
+    public EthWeb3JEventIndexer(EthWeb3JClient client, EthWeb3JContract contract, EthEventIndexStore store) {
+        if (client == null || contract == null || store == null)
+            throw new IllegalArgumentException("client, contract or store is null");
+        this.client = client;
+        this.contract = contract;
+        this.store = store;
+    }
+
+    @Override
+    public void start() {
+        if (running.compareAndSet(false, true)) {
+            blockRange = Math.max(1, maxBlockRange);
+            client.getConnection().getChainHeadTracker().addListener(headListener);
+            requestPass();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (running.compareAndSet(true, false))
+            client.getConnection().getChainHeadTracker().removeListener(headListener);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Override
+    public long getCheckpointBlockNumber() {
+        return checkpointBlockNumber;
+    }
+
+    private void requestPass() {
+        synchronized (this) {
+            if (!running.get())
+                return;
+            if (passRunning) {
+                passRequested = true;
+                return;
+            }
+            passRunning = true;
+        }
+        CompletableFuture<Boolean> pass;
+        try {
+            pass = loadCheckpoint()
+                    .thenCompose(loaded -> client.getConnection().getChainHeadTracker().getHeadAsync())
+                    .thenCompose(this::indexNext);
+        } catch (RuntimeException e) {
+            pass = new CompletableFuture<>();
+            pass.completeExceptionally(e);
+        }
+        pass.whenComplete((more, error) -> {
+            if (error != null)
+                logger.warn("Indexing of contract {} failed, retrying on next block: {}", contract.getAddress(), error.getMessage());
+            boolean again;
+            synchronized (this) {
+                passRunning = false;
+                again = passRequested || (error == null && Boolean.TRUE.equals(more));
+                passRequested = false;
+            }
+            if (again)
+                requestPass();
+        });
+    }
+
+    private CompletableFuture<Void> loadCheckpoint() {
+        if (checkpointLoaded)
+            return CompletableFuture.completedFuture(null);
+        return CompletableFuture.runAsync(() -> {
+            checkpointBlockNumber = store.getCheckpointBlockNumber();
+            checkpointBlockHash = store.getCheckpointBlockHash();
+            checkpointLoaded = true;
+        }, STORE_EXECUTOR);
+    }
+
+    /**
+     * @return future completed with true if there are more blocks to read right away
+     */
+    private CompletableFuture<Boolean> indexNext(EthChainHead head) {
+        long headNumber = head.getBlockNumber().longValue();
+        String checkpointHash = checkpointBlockHash;
+        if (checkpointHash == null)
+            return indexRange(headNumber);
+        //head hash, when known, saves the checkpoint check while the chain is idle
+        if (headNumber == checkpointBlockNumber && checkpointHash.equalsIgnoreCase(head.getBlockHash()))
+            return CompletableFuture.completedFuture(false);
+        return blockHashAsync(checkpointBlockNumber).thenCompose(hash -> {
+            if (checkpointHash.equalsIgnoreCase(hash))
+                return indexRange(headNumber);
+            return rollback().thenApply(v -> true);
+        });
+    }
+
+    private CompletableFuture<Void> rollback() {
+        long target = Math.max(-1, checkpointBlockNumber - Math.max(1, confirmations));
+        logger.warn("Chain reorganization detected at block {} on contract {}, rolling back to block {}", checkpointBlockNumber, contract.getAddress(), target);
+        CompletableFuture<String> targetHash = target < 0 ? CompletableFuture.completedFuture(null) : blockHashAsync(target);
+        return targetHash.thenAcceptAsync(hash -> {
+            store.rollback(target, hash);
+            checkpointBlockNumber = target;
+            checkpointBlockHash = hash;
+        }, STORE_EXECUTOR);
+    }
+
+    private CompletableFuture<Boolean> indexRange(long headNumber) {
+        if (checkpointBlockNumber < 0 && startBlock < 0)
+            return startBlockAsync(headNumber).thenCompose(block -> {
+                startBlock = block;
+                return indexRange(headNumber);
+            });
+        long from = checkpointBlockNumber < 0 ? startBlock : checkpointBlockNumber + 1;
+        long to = Math.min(headNumber, from + blockRange - 1);
+        if (from > to)
+            return CompletableFuture.completedFuture(false);
+        return blockHashAsync(to).thenCompose(toHash -> logsAsync(from, to).thenCompose(logs -> {
+            if (logs == null)
+                return CompletableFuture.completedFuture(true);
+            return blockHashAsync(to).thenCompose(confirmedHash -> {
+                if (toHash == null || !toHash.equalsIgnoreCase(confirmedHash)) {
+                    logger.debug("Block {} changed while reading contract {} logs, reading the range again", to, contract.getAddress());
+                    return CompletableFuture.completedFuture(true);
+                }
+                return sendersAsync(logs).thenApplyAsync(senders -> {
+                    List<EthContractEvent> events = decode(logs, senders);
+                    store.store(events, to, toHash);
+                    checkpointBlockNumber = to;
+                    checkpointBlockHash = toHash;
+                    blockRange = Math.min(Math.max(1, maxBlockRange), blockRange * 2);
+                    return to < headNumber;
+                }, STORE_EXECUTOR);
+            });
+        }));
+    }
+
+    /**
+     * @return future completed with the block of the deployment transaction, or with the head if it is unknown or not mined yet
+     */
+    private CompletableFuture<Long> startBlockAsync(long headNumber) {
+        String transactionHash = deploymentTransactionHash;
+        if (transactionHash == null || transactionHash.isEmpty())
+            return CompletableFuture.completedFuture(headNumber);
+        return client.getWeb3j().ethGetTransactionReceipt(transactionHash).sendAsync().thenApply(response -> {
+            //the head must not be used when the deployment cannot be read, its events would be skipped
+            if (response.hasError())
+                throw new WaterRuntimeException(response.getError().getMessage());
+            return response.getTransactionReceipt()
+                    .filter(receipt -> receipt.getBlockNumberRaw() != null)
+                    .map(receipt -> receipt.getBlockNumber().longValue())
+                    .orElse(headNumber);
+        });
+    }
+
+    /**
+     * @return future completed with the logs of the range, or with null if the range has been halved and must be read again
+     */
+    private CompletableFuture<List<Log>> logsAsync(long from, long to) {
+        EthFilter filter = new EthFilter(new DefaultBlockParameterNumber(from), new DefaultBlockParameterNumber(to), contract.getAddress());
+        return client.getWeb3j().ethGetLogs(filter).sendAsync().thenApply(response -> {
+            if (response.hasError()) {
+                //most nodes limit the size of a log query
+                if (to > from) {
+                    blockRange = (int) Math.max(1, (to - from + 1) / 2);
+                    logger.debug("eth_getLogs rejected blocks {}-{} of contract {}, range halved to {}: {}", from, to, contract.getAddress(), blockRange, response.getError().getMessage());
+                    return null;
+                }
+                throw new WaterRuntimeException(response.getError().getMessage());
+            }
+            List<Log> logs = new ArrayList<>();
+            if (response.getLogs() != null) {
+                for (EthLog.LogResult<?> result : response.getLogs()) {
+                    if (result.get() instanceof Log && !((Log) result.get()).isRemoved())
+                        logs.add((Log) result.get());
+                }
+            }
+            return logs;
+        });
+    }
+
+    private CompletableFuture<String> blockHashAsync(long blockNumber) {
+        return client.getWeb3j().ethGetBlockByNumber(new DefaultBlockParameterNumber(BigInteger.valueOf(blockNumber)), false).sendAsync()
+                .thenApply(response -> {
+                    EthWeb3JClient.checkResponse(response);
+                    return response.getBlock() != null ? response.getBlock().getHash() : null;
+                });
+    }
+
+    /**
+     * @return future completed with the senders of the transactions which emitted the logs, by transaction hash
+     */
+    private CompletableFuture<Map<String, String>> sendersAsync(List<Log> logs) {
+        Set<String> hashes = new LinkedHashSet<>();
+        logs.forEach(log -> hashes.add(log.getTransactionHash()));
+        List<String> toFetch = new ArrayList<>(hashes);
+        int chunkSize = Math.max(1, client.getBatchSize());
+        List<CompletableFuture<Map<String, String>>> chunks = new ArrayList<>();
+        for (int i = 0; i < toFetch.size(); i += chunkSize)
+            chunks.add(sendersOfChunk(toFetch.subList(i, Math.min(i + chunkSize, toFetch.size()))));
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(v -> {
+            Map<String, String> senders = new HashMap<>();
+            chunks.forEach(chunk -> senders.putAll(chunk.join()));
+            return senders;
+        });
+    }
+
+    private CompletableFuture<Map<String, String>> sendersOfChunk(List<String> hashes) {
+        BatchRequest batch = client.getWeb3j().newBatch();
+        Map<Long, String> hashesByRequestId = new HashMap<>();
+        for (String hash : hashes) {
+            Request<?, EthTransaction> request = client.getWeb3j().ethGetTransactionByHash(hash);
+            hashesByRequestId.put(request.getId(), hash);
+            batch.add(request);
+        }
+        return batch.sendAsync().thenApply(batchResponse -> {
+            Map<String, String> senders = new HashMap<>();
+            //responses are matched by id since nodes are not required to keep the batch order
+            batchResponse.getResponses().forEach(response -> {
+                EthTransaction transaction = (EthTransaction) EthWeb3JClient.checkResponse(response);
+                transaction.getTransaction().ifPresent(tx -> senders.put(hashesByRequestId.get(transaction.getId()), tx.getFrom()));
+            });
+            return senders;
+        });
+    }
+
+    private List<EthContractEvent> decode(List<Log> logs, Map<String, String> senders) {
+        EthAbi abi = contract.getAbi();
+        List<EthContractEvent> events = new ArrayList<>(logs.size());
+        for (Log log : logs) {
+            EthEventLog eventLog = EthWeb3JClient.wrapEthereumLog(log);
+            EthAbi.CompiledEvent event = abi.eventOf(eventLog);
+            if (event == null)
+                continue;
+            try {
+                events.add(new EthWeb3JContractEvent(event.getName(), eventLog, event.decode(eventLog.getTopics(), eventLog.getData()), senders.get(log.getTransactionHash())));
+            } catch (RuntimeException e) {
+                logger.warn("Cannot decode {} log {} of transaction {}: {}", event.getSignature(), log.getLogIndex(), log.getTransactionHash(), e.getMessage());
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthDocumentProof;
+import it.water.connectors.ethereum.api.EthMerkleNotarizer;
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Author Aristide Cittadino
+ * Web3J batching notarizer, shared by all the clients of a blockchain connection for the same contract and signer.
+ * Document hashes are queued until the window expires or the max batch size is reached, then the Merkle root of the batch
+ * is sent to MerkleDataRegistry.notarizeRoot through the usual transaction pipeline.
+ * The same hash queued twice inside a window shares a single leaf and a single proof.
+ */
+public class EthWeb3JMerkleNotarizer implements EthMerkleNotarizer {
+    private static Logger logger = LoggerFactory.getLogger(EthWeb3JMerkleNotarizer.class);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 4096;
+    public static final long DEFAULT_WINDOW_MILLIS = 5000;
+    /**
+     * ABI of the MerkleDataRegistry contract, shipped as solidity/MerkleNotarizeData.sol.
+     */
+    public static final String MERKLE_DATA_REGISTRY_ABI = "["
+            + "{\"type\":\"function\",\"name\":\"notarizeRoot\",\"stateMutability\":\"nonpayable\","
+            + "\"inputs\":[{\"name\":\"_root\",\"type\":\"bytes32\"},{\"name\":\"_size\",\"type\":\"uint256\"}],\"outputs\":[{\"name\":\"\",\"type\":\"bool\"}]},"
+            + "{\"type\":\"function\",\"name\":\"isRootNotarized\",\"stateMutability\":\"view\","
+            + "\"inputs\":[{\"name\":\"_root\",\"type\":\"bytes32\"}],\"outputs\":[{\"name\":\"\",\"type\":\"bool\"}]},"
+            + "{\"type\":\"function\",\"name\":\"isNotarized\",\"stateMutability\":\"view\","
+            + "\"inputs\":[{\"name\":\"_dataHash\",\"type\":\"bytes32\"},{\"name\":\"_proof\",\"type\":\"bytes32[]\"},{\"name\":\"_root\",\"type\":\"bytes32\"}],\"outputs\":[{\"name\":\"\",\"type\":\"bool\"}]},"
+            + "{\"type\":\"event\",\"name\":\"RootNotarized\",\"anonymous\":false,"
+            + "\"inputs\":[{\"name\":\"_signer\",\"type\":\"address\",\"indexed\":true},{\"name\":\"_root\",\"type\":\"bytes32\",\"indexed\":true},{\"name\":\"_size\",\"type\":\"uint256\",\"indexed\":false}]}"
+            + "]";
+    private static final String NOTARIZE_ROOT = "notarizeRoot";
+
+    @Getter
+    private final EthWeb3JContract contract;
+    @Getter
+    private final String signerAddress;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Max number of documents notarized by a single root.
+     */
+    @Getter
+    @Setter
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    /**
+     * Time documents are kept in queue waiting for other documents.
+     */
+    @Getter
+    @Setter
+    private volatile long windowMillis = DEFAULT_WINDOW_MILLIS;
+
+    //guarded by this, keys are lower case 0x prefixed hashes
+    private Map<String, CompletableFuture<EthDocumentProof>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    //root transactions sent and not mined yet
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+
+    public EthWeb3JMerkleNotarizer(EthWeb3JContract contract, String signerAddress, ScheduledExecutorService executor) {
+        if (contract == null)
+            throw new IllegalArgumentException("contract is null");
+        if (signerAddress == null || signerAddress.isEmpty())
+            throw new IllegalArgumentException("signerAddress is null");
+        this.contract = contract;
+        this.signerAddress = signerAddress;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<EthDocumentProof> notarizeAsync(String documentHash) {
+        String normalizedHash = EthHex.toHexString(toHash(documentHash));
+        CompletableFuture<EthDocumentProof> proof;
+        boolean flushNow;
+        boolean scheduleFlush;
+        synchronized (this) {
+            proof = pending.computeIfAbsent(normalizedHash, hash -> new CompletableFuture<>());
+            flushNow = pending.size() >= Math.max(1, maxBatchSize);
+            scheduleFlush = !flushNow && !flushScheduled;
+            if (scheduleFlush)
+                flushScheduled = true;
+        }
+        if (flushNow)
+            flush();
+        else if (scheduleFlush)
+            executor.schedule(this::flush, Math.max(0, windowMillis), TimeUnit.MILLISECONDS);
+        return proof;
+    }
+
+    @Override
+    public void flush() {
+        Map<String, CompletableFuture<EthDocumentProof>> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+            //counted before leaving the lock, so the batch is always seen either queued or in flight
+            if (!batch.isEmpty())
+                inFlightBatches.incrementAndGet();
+        }
+        if (batch.isEmpty())
+            return;
+        List<String> documentHashes = new ArrayList<>(batch.keySet());
+        List<byte[]> leaves = new ArrayList<>(documentHashes.size());
+        documentHashes.forEach(hash -> leaves.add(EthHex.toBytes(hash)));
+        EthMerkleTree tree;
+        try {
+            tree = EthMerkleTree.of(leaves);
+        } catch (RuntimeException e) {
+            inFlightBatches.decrementAndGet();
+            batch.values().forEach(proof -> proof.completeExceptionally(e));
+            return;
+        }
+        String root = EthHex.toHexString(tree.getRoot());
+        logger.debug("Notarizing root {} of {} documents on contract {}", root, documentHashes.size(), contract.getAddress());
+        CompletableFuture<EthTransactionReceipt> transaction;
+        try {
+            transaction = contract.sendAsync(signerAddress, NOTARIZE_ROOT, root, BigInteger.valueOf(documentHashes.size()));
+        } catch (RuntimeException e) {
+            transaction = new CompletableFuture<>();
+            transaction.completeExceptionally(e);
+        }
+        //reverted root transactions fail in the contract layer
+        transaction.whenComplete((receipt, error) -> {
+            inFlightBatches.decrementAndGet();
+            if (error != null) {
+                Throwable failure = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.warn("Notarization of root {} for {} documents failed: {}", root, documentHashes.size(), failure.getMessage());
+                for (CompletableFuture<EthDocumentProof> proof : batch.values())
+                    proof.completeExceptionally(failure);
+                return;
+            }
+            for (int i = 0; i < documentHashes.size(); i++) {
+                String documentHash = documentHashes.get(i);
+                batch.get(documentHash).complete(new EthWeb3JDocumentProof(documentHash, root, i, toHexList(tree.getProof(i)), receipt.getTransactionHash(), receipt.getBlockNumber()));
+            }
+        });
+    }
+
+    @Override
+    public synchronized int getQueued() {
+        return pending.size();
+    }
+
+    /**
+     * @return true when no document is queued and no root transaction is waiting for its receipt
+     */
+    public boolean isIdle() {
+        return getQueued() == 0 && inFlightBatches.get() == 0;
+    }
+
+    /**
+     * Fails the queued documents, used when the connection is shut down.
+     */
+    void discard() {
+        Map<String, CompletableFuture<EthDocumentProof>> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        WaterRuntimeException closed = new WaterRuntimeException("Connection closed before notarization");
+        batch.values().forEach(proof -> proof.completeExceptionally(closed));
+    }
+
+    static byte[] toHash(String hash) {
+        if (hash == null)
+            throw new IllegalArgumentException("hash is null");
+        byte[] bytes = EthHex.toBytes(hash);
+        if (bytes.length != 32)
+            throw new IllegalArgumentException("Hash must be 32 bytes long: " + hash);
+        return bytes;
+    }
+
+    static List<String> toHexList(List<byte[]> hashes) {
+        List<String> hex = new ArrayList<>(hashes.size());
+        hashes.forEach(hash -> hex.add(EthHex.toHexString(hash)));
+        return hex;
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthContract;
+import it.water.connectors.ethereum.api.EthMulticall;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author Aristide Cittadino
+ * Web3J multicall aggregator, shared by all the clients of a blockchain connection.
+ * Calls are queued until the window expires or max calls per aggregate are reached, then they are sent through
+ * Multicall3 aggregate3 with allowFailure set, so a reverting call fails only its own future.
+ * The multicall contract is looked up once through eth_getCode: when it is missing, or an aggregate call fails as a whole,
+ * calls are sent as JSON-RPC batches of eth_call.
+ */
+public class EthWeb3JMulticall implements EthMulticall {
+    private static Logger logger = LoggerFactory.getLogger(EthWeb3JMulticall.class);
+    //Multicall3 is deployed at the same address on most chains
+    public static final String DEFAULT_MULTICALL_ADDRESS = "0xcA11bde05977b3631167028862bE2a173976CA11";
+    public static final int DEFAULT_MAX_CALLS_PER_AGGREGATE = 500;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_WINDOW_MILLIS = 2;
+    private static final String AGGREGATE3_SELECTOR = Hash.sha3String("aggregate3((address,bool,bytes)[])").substring(0, 10);
+    private static final int WORD_DIGITS = 64;
+
+    private final Web3j web3j;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Multicall3 contract address, null to always use JSON-RPC batches.
+     */
+    @Getter
+    @Setter
+    private volatile String multicallAddress = DEFAULT_MULTICALL_ADDRESS;
+
+    /**
+     * Max number of calls packed inside a single aggregate3 call.
+     */
+    @Getter
+    @Setter
+    private volatile int maxCallsPerAggregate = DEFAULT_MAX_CALLS_PER_AGGREGATE;
+
+    /**
+     * Max number of eth_call sent inside a single JSON-RPC batch, when multicall is not available.
+     */
+    @Getter
+    @Setter
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Time calls are kept in queue waiting for other calls.
+     */
+    @Getter
+    @Setter
+    private volatile long windowMillis = DEFAULT_WINDOW_MILLIS;
+
+    //guarded by this
+    private List<PendingCall> pending = new ArrayList<>();
+    private boolean flushScheduled;
+    private String checkedAddress;
+    private CompletableFuture<Boolean> available;
+
+    public EthWeb3JMulticall(Web3j web3j, ScheduledExecutorService executor) {
+        if (web3j == null)
+            throw new IllegalArgumentException("web3j is null");
+        this.web3j = web3j;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<List<Object>> callAsync(EthContract contract, String function, Object... args) {
+        if (!(contract instanceof EthWeb3JContract))
+            throw new IllegalArgumentException("contract must be created by an EthWeb3JClient");
+        EthAbi.CompiledFunction compiledFunction = ((EthWeb3JContract) contract).getAbi().function(function, args == null ? 0 : args.length);
+        PendingCall call = new PendingCall(contract.getAddress(), compiledFunction, compiledFunction.encode(args));
+        boolean flushNow;
+        boolean scheduleFlush;
+        synchronized (this) {
+            pending.add(call);
+            flushNow = pending.size() >= Math.max(1, maxCallsPerAggregate);
+            scheduleFlush = !flushNow && !flushScheduled;
+            if (scheduleFlush)
+                flushScheduled = true;
+        }
+        if (flushNow)
+            flush();
+        else if (scheduleFlush)
+            executor.schedule(this::flush, Math.max(0, windowMillis), TimeUnit.MILLISECONDS);
+        return call.getResult();
+    }
+
+    @Override
+    public void flush() {
+        List<PendingCall> calls;
+        synchronized (this) {
+            calls = pending;
+            pending = new ArrayList<>();
+            flushScheduled = false;
+        }
+        if (calls.isEmpty())
+            return;
+        String address = multicallAddress;
+        isMulticallAvailable(address).whenComplete((multicallAvailable, error) -> {
+            boolean aggregate = error == null && Boolean.TRUE.equals(multicallAvailable);
+            int chunkSize = Math.max(1, aggregate ? maxCallsPerAggregate : batchSize);
+            for (int i = 0; i < calls.size(); i += chunkSize) {
+                List<PendingCall> chunk = calls.subList(i, Math.min(i + chunkSize, calls.size()));
+                if (aggregate)
+                    sendAggregate(address, chunk);
+                else
+                    sendBatch(chunk);
+            }
+        });
+    }
+
+    /**
+     * @return future completed with true if a contract is deployed at the given address, the lookup is done once per address
+     */
+    public CompletableFuture<Boolean> isMulticallAvailable(String address) {
+        if (address == null || address.isEmpty())
+            return CompletableFuture.completedFuture(false);
+        synchronized (this) {
+            if (available == null || !address.equals(checkedAddress) || available.isCompletedExceptionally()) {
+                checkedAddress = address;
+                available = web3j.ethGetCode(address, DefaultBlockParameterName.LATEST).sendAsync().thenApply(response -> {
+                    boolean deployed = !response.hasError() && response.getCode() != null && response.getCode().length() > 2;
+                    logger.info("Multicall contract {} {}", address, deployed ? "found, read calls are aggregated" : "not found, read calls are batched");
+                    return deployed;
+                });
+            }
+            return available;
+        }
+    }
+
+    private void sendAggregate(String address, List<PendingCall> calls) {
+        web3j.ethCall(Transaction.createEthCallTransaction(null, address, encodeAggregate3(calls)), DefaultBlockParameterName.LATEST).sendAsync()
+                .whenCompleteAsync((response, error) -> {
+                    List<String> results = null;
+                    if (error == null && !response.hasError() && !response.isReverted()) {
+                        try {
+                            results = decodeAggregate3(response.getValue(), calls.size());
+                        } catch (RuntimeException e) {
+                            logger.warn("Cannot decode aggregate3 result: {}", e.getMessage());
+                        }
+                    }
+                    if (results == null) {
+                        logger.debug("Aggregate call failed, sending {} calls as JSON-RPC batch", calls.size());
+                        sendBatch(calls);
+                        return;
+                    }
+                    for (int i = 0; i < calls.size(); i++)
+                        calls.get(i).complete(results.get(i));
+                }, executor);
+    }
+
+    private void sendBatch(List<PendingCall> calls) {
+        int chunkSize = Math.max(1, batchSize);
+        for (int i = 0; i < calls.size(); i += chunkSize) {
+            List<PendingCall> chunk = calls.subList(i, Math.min(i + chunkSize, calls.size()));
+            BatchRequest batch = web3j.newBatch();
+            Map<Long, PendingCall> callsByRequestId = new HashMap<>();
+            for (PendingCall call : chunk) {
+                Request<?, EthCall> request = web3j.ethCall(Transaction.createEthCallTransaction(null, call.getAddress(), call.getData()), DefaultBlockParameterName.LATEST);
+                callsByRequestId.put(request.getId(), call);
+                batch.add(request);
+            }
+            batch.sendAsync().whenCompleteAsync((batchResponse, error) -> {
+                if (error != null) {
+                    chunk.forEach(call -> call.getResult().completeExceptionally(error));
+                    return;
+                }
+                //responses are matched by id since nodes are not required to keep the batch order
+                batchResponse.getResponses().forEach(response -> {
+                    PendingCall call = callsByRequestId.remove(response.getId());
+                    if (call == null)
+                        return;
+                    EthCall callResponse = (EthCall) response;
+                    if (callResponse.hasError())
+                        call.getResult().completeExceptionally(new WaterRuntimeException(callResponse.getError().getMessage()));
+                    else if (callResponse.isReverted())
+                        call.complete(null);
+                    else
+                        call.complete(callResponse.getValue());
+                });
+                callsByRequestId.values().forEach(call -> call.getResult().completeExceptionally(new WaterRuntimeException("No response for call to " + call.getAddress())));
+            }, executor);
+        }
+    }
+
+    /**
+     * Encodes aggregate3((address target, bool allowFailure, bytes callData)[]) with allowFailure always true.
+     */
+    static String encodeAggregate3(List<PendingCall> calls) {
+        int tuplesWords = 0;
+        for (PendingCall call : calls)
+            tuplesWords += 4 + (call.getDataLength() + 31) / 32;
+        StringBuilder data = new StringBuilder(AGGREGATE3_SELECTOR.length() + WORD_DIGITS * (2 + calls.size() + tuplesWords));
+        data.append(AGGREGATE3_SELECTOR);
+        appendWord(data, 32);
+        appendWord(data, calls.size());
+        //tuple offsets are relative to the first offset
+        long offset = 32L * calls.size();
+        for (PendingCall call : calls) {
+            appendWord(data, offset);
+            offset += 32L * (4 + (call.getDataLength() + 31) / 32);
+        }
+        for (PendingCall call : calls) {
+            int addressStart = EthHex.prefixLength(call.getAddress());
+            if (call.getAddress().length() - addressStart != 40)
+                throw new IllegalArgumentException("Invalid contract address " + call.getAddress());
+            for (int i = 0; i < 24; i++)
+                data.append('0');
+            for (int i = addressStart; i < call.getAddress().length(); i++)
+                data.append(Character.toLowerCase(call.getAddress().charAt(i)));
+            appendWord(data, 1);
+            appendWord(data, 96);
+            appendWord(data, call.getDataLength());
+            String callData = call.getData();
+            data.append(callData, EthHex.prefixLength(callData), callData.length());
+            int padding = (WORD_DIGITS - (call.getDataLength() * 2) % WORD_DIGITS) % WORD_DIGITS;
+            for (int i = 0; i < padding; i++)
+                data.append('0');
+        }
+        return data.toString();
+    }
+
+    /**
+     * Decodes the (bool success, bytes returnData)[] result of aggregate3.
+     *
+     * @return return data of each call, null for failed calls
+     */
+    static List<String> decodeAggregate3(String output, int expectedSize) {
+        int arrayWord = wordOffset(output, 0, 0);
+        int size = (int) EthStaticAbiDecoder.uint256AsLong(output, arrayWord);
+        if (size != expectedSize)
+            throw new IllegalArgumentException("Expected " + expectedSize + " results, found " + size);
+        int prefix = EthHex.prefixLength(output);
+        List<String> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int tupleWord = wordOffset(output, arrayWord + 1 + i, arrayWord + 1);
+            if (!EthStaticAbiDecoder.bool(output, tupleWord)) {
+                results.add(null);
+                continue;
+            }
+            int bytesWord = wordOffset(output, tupleWord + 1, tupleWord);
+            int length = (int) EthStaticAbiDecoder.uint256AsLong(output, bytesWord);
+            int start = prefix + (bytesWord + 1) * WORD_DIGITS;
+            results.add("0x" + output.substring(start, start + length * 2));
+        }
+        return results;
+    }
+
+    private static int wordOffset(String output, int word, int baseWord) {
+        long offset = EthStaticAbiDecoder.uint256AsLong(output, word);
+        if (offset % 32 != 0)
+            throw new IllegalArgumentException("Invalid offset " + offset);
+        return baseWord + (int) (offset / 32);
+    }
+
+    private static void appendWord(StringBuilder data, long value) {
+        for (int i = 0; i < WORD_DIGITS - 16; i++)
+            data.append('0');
+        for (int shift = 60; shift >= 0; shift -= 4)
+            data.append(EthHex.toDigit((int) (value >>> shift)));
+    }
+
+    static class PendingCall {
+        @Getter
+        private final String address;
+        @Getter
+        private final String data;
+        private final EthAbi.CompiledFunction function;
+        @Getter
+        private final CompletableFuture<List<Object>> result = new CompletableFuture<>();
+
+        PendingCall(String address, EthAbi.CompiledFunction function, String data) {
+            this.address = address;
+            this.function = function;
+            this.data = data;
+        }
+
+        int getDataLength() {
+            return (data.length() - EthHex.prefixLength(data)) / 2;
+        }
+
+        /**
+         * @param returnData return data, null if the call reverted
+         */
+        void complete(String returnData) {
+            if (returnData == null) {
+                result.completeExceptionally(new WaterRuntimeException("Call to " + function.getSignature() + " on " + address + " reverted"));
+                return;
+            }
+            try {
+                result.complete(function.decode(returnData));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
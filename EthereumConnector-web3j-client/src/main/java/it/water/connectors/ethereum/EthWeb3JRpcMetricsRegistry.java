@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthRpcMetricsRegistry;
+import it.water.connectors.ethereum.model.EthRpcMethodMetrics;
+import it.water.connectors.ethereum.model.EthRpcMetrics;
+import it.water.core.interceptors.annotations.FrameworkComponent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Author Aristide Cittadino
+ * In memory metrics registry, keeping counters and latency histograms for each blockchain and JSON-RPC method.
+ * Counters are striped, so recording from many threads does not contend.
+ */
+@FrameworkComponent
+public class EthWeb3JRpcMetricsRegistry implements EthRpcMetricsRegistry {
+    private final Map<Long, BlockchainMetrics> blockchains = new ConcurrentHashMap<>();
+
+    @Override
+    public void requestStarted(long blockchainId, String method) {
+        MethodMetrics metrics = methodMetrics(blockchainId, method);
+        metrics.requests.increment();
+        metrics.inFlight.increment();
+    }
+
+    @Override
+    public void requestCompleted(long blockchainId, String method, long latencyNanos, boolean failed, boolean timedOut) {
+        MethodMetrics metrics = methodMetrics(blockchainId, method);
+        metrics.inFlight.decrement();
+        metrics.latency.record(latencyNanos);
+        if (failed || timedOut)
+            metrics.errors.increment();
+        if (timedOut)
+            metrics.timeouts.increment();
+    }
+
+    @Override
+    public void bytesTransferred(long blockchainId, String method, long bytesSent, long bytesReceived) {
+        MethodMetrics metrics = methodMetrics(blockchainId, method);
+        metrics.bytesSent.add(bytesSent);
+        metrics.bytesReceived.add(bytesReceived);
+    }
+
+    @Override
+    public void deadlineExceeded(long blockchainId, String method) {
+        methodMetrics(blockchainId, method).timeouts.increment();
+    }
+
+    @Override
+    public void receiptReceived(long blockchainId, long waitNanos) {
+        blockchainMetrics(blockchainId).receiptWait.record(waitNanos);
+    }
+
+    @Override
+    public EthRpcMetrics getMetrics(long blockchainId) {
+        BlockchainMetrics metrics = blockchains.get(blockchainId);
+        if (metrics == null)
+            return new EthRpcMetrics(blockchainId, Collections.emptyList(), new EthLatencyHistogram().toSummary());
+        List<EthRpcMethodMetrics> methods = new ArrayList<>();
+        metrics.methods.forEach((method, methodMetrics) -> methods.add(methodMetrics.toMethodMetrics(method)));
+        methods.sort(Comparator.comparing(EthRpcMethodMetrics::getMethod));
+        return new EthRpcMetrics(blockchainId, methods, metrics.receiptWait.toSummary());
+    }
+
+    @Override
+    public void clear(long blockchainId) {
+        blockchains.remove(blockchainId);
+    }
+
+    private BlockchainMetrics blockchainMetrics(long blockchainId) {
+        BlockchainMetrics metrics = blockchains.get(blockchainId);
+        return metrics != null ? metrics : blockchains.computeIfAbsent(blockchainId, id -> new BlockchainMetrics());
+    }
+
+    private MethodMetrics methodMetrics(long blockchainId, String method) {
+        Map<String, MethodMetrics> methods = blockchainMetrics(blockchainId).methods;
+        String name = method == null ? "unknown" : method;
+        MethodMetrics metrics = methods.get(name);
+        return metrics != null ? metrics : methods.computeIfAbsent(name, m -> new MethodMetrics());
+    }
+
+    private static class BlockchainMetrics {
+        private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+        private final EthLatencyHistogram receiptWait = new EthLatencyHistogram();
+    }
+
+    private static class MethodMetrics {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final EthLatencyHistogram latency = new EthLatencyHistogram();
+
+        private EthRpcMethodMetrics toMethodMetrics(String method) {
+            return new EthRpcMethodMetrics(method, requests.sum(), errors.sum(), timeouts.sum(), Math.max(0, inFlight.sum()),
+                    bytesSent.sum(), bytesReceived.sum(), latency.toSummary());
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthSenderPool;
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.utils.Convert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @Author Aristide Cittadino
+ * Web3J sender pool.
+ * Transfers are routed to the sender with the fewest transfers in flight, senders whose balance dropped below
+ * the minimum balance are skipped while another sender is available and are topped up by the richest sender.
+ * Nonces are allocated by the nonce manager of the client connection, so every sender keeps its own sequence.
+ */
+public class EthWeb3JSenderPool implements EthSenderPool {
+    private static Logger logger = LoggerFactory.getLogger(EthWeb3JSenderPool.class);
+    public static final int DEFAULT_MAX_IN_FLIGHT_PER_SENDER = 64;
+
+    private final EthWeb3JClient client;
+    private final List<Sender> senders;
+
+    /**
+     * Max number of transfers each sender can have in flight, further transfers are queued.
+     */
+    @Getter
+    @Setter
+    private volatile int maxInFlightPerSender = DEFAULT_MAX_IN_FLIGHT_PER_SENDER;
+
+    /**
+     * Senders below this ETHER balance are rebalanced, null disables rebalancing.
+     */
+    @Getter
+    @Setter
+    private volatile BigDecimal minBalance;
+
+    /**
+     * ETHER amount sent to a sender below the minimum balance, null or zero only excludes the sender from routing.
+     */
+    @Getter
+    @Setter
+    private volatile BigDecimal topUpAmount;
+
+    //guarded by this, together with the in flight counters of the senders
+    private final Queue<PendingTransfer> queue = new ArrayDeque<>();
+
+    public EthWeb3JSenderPool(EthWeb3JClient client, List<EthWeb3JSigner> signers) {
+        if (client == null)
+            throw new IllegalArgumentException("client is null");
+        if (signers == null || signers.isEmpty())
+            throw new IllegalArgumentException("signers is empty");
+        this.client = client;
+        List<Sender> pooledSenders = new ArrayList<>(signers.size());
+        signers.forEach(signer -> pooledSenders.add(new Sender(signer)));
+        this.senders = Collections.unmodifiableList(pooledSenders);
+    }
+
+    @Override
+    public List<String> getSenders() {
+        List<String> addresses = new ArrayList<>(senders.size());
+        senders.forEach(sender -> addresses.add(sender.getAddress()));
+        return addresses;
+    }
+
+    @Override
+    public EthTransactionReceipt transferEther(String destination, BigDecimal amount) throws InterruptedException {
+        try {
+            return transferEtherAsync(destination, amount).get();
+        } catch (ExecutionException e) {
+            throw new WaterRuntimeException(e.getCause().getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<EthTransactionReceipt> transferEtherAsync(String destination, BigDecimal amount) {
+        if (destination == null || amount == null)
+            throw new IllegalArgumentException("destination or amount is null");
+        PendingTransfer transfer = new PendingTransfer(destination, amount);
+        synchronized (this) {
+            queue.add(transfer);
+        }
+        dispatch();
+        return transfer.getResult();
+    }
+
+    @Override
+    public CompletableFuture<Void> rebalance() {
+        List<CompletableFuture<Void>> checks = new ArrayList<>(senders.size());
+        senders.forEach(sender -> checks.add(checkBalance(sender)));
+        return CompletableFuture.allOf(checks.toArray(new CompletableFuture[0]))
+                .thenCompose(v -> {
+                    List<CompletableFuture<?>> topUps = new ArrayList<>();
+                    senders.forEach(sender -> {
+                        CompletableFuture<?> topUp = topUp(sender);
+                        if (topUp != null)
+                            topUps.add(topUp);
+                    });
+                    return CompletableFuture.allOf(topUps.toArray(new CompletableFuture[0]));
+                });
+    }
+
+    @Override
+    public synchronized int getInFlight(String sender) {
+        String address = sender == null ? null : sender.toLowerCase(Locale.ROOT);
+        for (Sender pooledSender : senders) {
+            if (pooledSender.getAddress().toLowerCase(Locale.ROOT).equals(address))
+                return pooledSender.inFlight;
+        }
+        throw new IllegalArgumentException("Not a pooled sender: " + sender);
+    }
+
+    @Override
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * Sends the queued transfers as long as a sender below its in-flight limit is available.
+     */
+    private void dispatch() {
+        while (true) {
+            PendingTransfer transfer;
+            Sender sender;
+            synchronized (this) {
+                if (queue.isEmpty())
+                    return;
+                sender = leastLoaded();
+                if (sender == null)
+                    return;
+                transfer = queue.poll();
+                sender.inFlight++;
+            }
+            //completed asynchronously so transfers failing at once do not recurse into dispatch
+            send(sender, transfer.getDestination(), transfer.getAmount()).whenCompleteAsync((receipt, error) -> {
+                if (error != null)
+                    transfer.getResult().completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                else
+                    transfer.getResult().complete(receipt);
+                afterTransfer(sender);
+            }, client.getAsyncExecutor());
+        }
+    }
+
+    /**
+     * Must be invoked holding the lock.
+     *
+     * @return the sender with the fewest transfers in flight, preferring senders above the minimum balance
+     */
+    private Sender leastLoaded() {
+        int maxInFlight = Math.max(1, maxInFlightPerSender);
+        Sender leastLoaded = null;
+        Sender leastLoadedLowBalance = null;
+        for (Sender sender : senders) {
+            if (sender.inFlight >= maxInFlight)
+                continue;
+            if (sender.isLowBalance()) {
+                if (leastLoadedLowBalance == null || sender.inFlight < leastLoadedLowBalance.inFlight)
+                    leastLoadedLowBalance = sender;
+            } else if (leastLoaded == null || sender.inFlight < leastLoaded.inFlight) {
+                leastLoaded = sender;
+            }
+        }
+        if (leastLoaded != null)
+            return leastLoaded;
+        //senders below the minimum balance are used only when all the others are low too
+        for (Sender sender : senders) {
+            if (!sender.isLowBalance())
+                return null;
+        }
+        return leastLoadedLowBalance;
+    }
+
+    private CompletableFuture<EthTransactionReceipt> send(Sender sender, String destination, BigDecimal amount) {
+        try {
+            return sender.getSigner().transferEtherAsync(destination, amount);
+        } catch (RuntimeException e) {
+            CompletableFuture<EthTransactionReceipt> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private void afterTransfer(Sender sender) {
+        synchronized (this) {
+            sender.inFlight--;
+        }
+        dispatch();
+        if (minBalance != null)
+            checkBalance(sender).thenRun(() -> topUp(sender));
+    }
+
+    private CompletableFuture<Void> checkBalance(Sender sender) {
+        BigDecimal threshold = minBalance;
+        if (threshold == null)
+            return CompletableFuture.completedFuture(null);
+        BigInteger thresholdWei = Convert.toWei(threshold, Convert.Unit.ETHER).toBigInteger();
+        return client.getBalanceOfAsync(sender.getAddress()).handle((balance, error) -> {
+            if (error != null) {
+                logger.warn("Cannot read balance of sender {}: {}", sender.getAddress(), error.getMessage());
+                return null;
+            }
+            sender.setBalance(balance);
+            boolean lowBalance = balance.compareTo(thresholdWei) < 0;
+            if (lowBalance != sender.isLowBalance())
+                logger.info("Sender {} balance {} the minimum balance", sender.getAddress(), lowBalance ? "dropped below" : "is back above");
+            sender.setLowBalance(lowBalance);
+            return null;
+        });
+    }
+
+    /**
+     * Sends the top up amount to the given sender if it is below the minimum balance, using the richest sender able to afford it.
+     *
+     * @return top up future, null if no top up has been sent
+     */
+    private CompletableFuture<EthTransactionReceipt> topUp(Sender sender) {
+        BigDecimal threshold = minBalance;
+        BigDecimal amount = topUpAmount;
+        if (threshold == null || amount == null || amount.signum() <= 0 || !sender.isLowBalance() || !sender.getToppingUp().compareAndSet(false, true))
+            return null;
+        BigInteger required = Convert.toWei(threshold.add(amount), Convert.Unit.ETHER).toBigInteger();
+        Sender funder = null;
+        synchronized (this) {
+            for (Sender candidate : senders) {
+                BigInteger balance = candidate.getBalance();
+                if (candidate != sender && balance != null && balance.compareTo(required) >= 0 && (funder == null || balance.compareTo(funder.getBalance()) > 0))
+                    funder = candidate;
+            }
+            if (funder != null)
+                funder.inFlight++;
+        }
+        if (funder == null) {
+            sender.getToppingUp().set(false);
+            logger.warn("No sender can top up sender {}", sender.getAddress());
+            return null;
+        }
+        Sender topUpFunder = funder;
+        //expected balance of the funder, it is read again after the transfer
+        topUpFunder.setBalance(topUpFunder.getBalance().subtract(Convert.toWei(amount, Convert.Unit.ETHER).toBigInteger()));
+        return send(topUpFunder, sender.getAddress(), amount).whenComplete((receipt, error) -> {
+            if (error != null)
+                logger.warn("Top up of sender {} failed: {}", sender.getAddress(), error.getMessage());
+            sender.getToppingUp().set(false);
+            checkBalance(sender);
+            afterTransfer(topUpFunder);
+        });
+    }
+
+    private static class Sender {
+        @Getter
+        private final EthWeb3JSigner signer;
+        @Getter
+        private final AtomicBoolean toppingUp = new AtomicBoolean(false);
+        @Getter
+        @Setter
+        private volatile BigInteger balance;
+        @Getter
+        @Setter
+        private volatile boolean lowBalance;
+        //guarded by the pool
+        private int inFlight;
+
+        private Sender(EthWeb3JSigner signer) {
+            this.signer = signer;
+        }
+
+        private String getAddress() {
+            return signer.getAddress();
+        }
+    }
+
+    @Getter
+    private static class PendingTransfer {
+        private final String destination;
+        private final BigDecimal amount;
+        private final CompletableFuture<EthTransactionReceipt> result = new CompletableFuture<>();
+
+        private PendingTransfer(String destination, BigDecimal amount) {
+            this.destination = destination;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthSigner;
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import lombok.Getter;
+import org.web3j.crypto.Credentials;
+import org.web3j.tx.TransactionManager;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @Author Aristide Cittadino
+ * Web3J signer view: binds a shared EthWeb3JClient to a single account.
+ * Creating a signer costs a single allocation, nonces and receipts are handled by the client connection.
+ */
+public class EthWeb3JSigner implements EthSigner {
+    @Getter
+    private final EthWeb3JClient client;
+
+    @Getter
+    private final Credentials credentials;
+
+    public EthWeb3JSigner(EthWeb3JClient client, Credentials credentials) {
+        if (client == null)
+            throw new IllegalArgumentException("client is null");
+        if (credentials == null)
+            throw new IllegalArgumentException("credentials is null");
+        this.client = client;
+        this.credentials = credentials;
+    }
+
+    @Override
+    public String getAddress() {
+        return credentials.getAddress();
+    }
+
+    /**
+     * Creates a transaction manager for the signer account.
+     *
+     * @param chainId chain id
+     * @return transaction manager
+     */
+    public TransactionManager createNewTransactionManager(long chainId) {
+        return new EthNonceTransactionManager(client.getConnection(), credentials, chainId);
+    }
+
+    @Override
+    public EthTransactionReceipt transferEther(String destination, BigDecimal amount) throws InterruptedException {
+        return client.transferEther(credentials, destination, amount);
+    }
+
+    @Override
+    public CompletableFuture<EthTransactionReceipt> transferEtherAsync(String destination, BigDecimal amount) {
+        return client.transferEtherAsync(credentials, destination, amount);
+    }
+}
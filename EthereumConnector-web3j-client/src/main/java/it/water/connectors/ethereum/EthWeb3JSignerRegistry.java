@@ -0,0 +1,229 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthSignerRegistry;
+import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import lombok.Getter;
+import lombok.Setter;
+import org.web3j.crypto.exception.CipherException;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.WalletUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Author Aristide Cittadino
+ * Web3J signer registry.
+ * Keystore decryption (scrypt) is expensive, so each keystore is decrypted once and its credentials are kept by address
+ * until the TTL expires or they are revoked.
+ * The TTL applies only to keystore signers, which can be loaded again from their keystore:
+ * private keys and credentials registered through add are pinned until they are revoked.
+ * A keystore is decrypted again only if it has changed on disk or a different password is given:
+ * passwords are never stored, only a keyed digest is kept to recognize them.
+ */
+@FrameworkComponent
+public class EthWeb3JSignerRegistry implements EthSignerRegistry {
+    public static final long DEFAULT_TTL_MILLIS = 1800000;
+    private static final String DIGEST_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Time a keystore signer is kept after it has been decrypted.
+     */
+    @Getter
+    @Setter
+    private long ttlMillis = DEFAULT_TTL_MILLIS;
+
+    private final Map<String, Signer> signers = new ConcurrentHashMap<>();
+    private final Map<String, DecryptedKeystore> keystores = new ConcurrentHashMap<>();
+    private final Map<String, Object> keystoreLocks = new ConcurrentHashMap<>();
+    private final byte[] digestKey = new byte[32];
+
+    public EthWeb3JSignerRegistry() {
+        new SecureRandom().nextBytes(digestKey);
+    }
+
+    @Override
+    public String addKeystore(String keystorePath, String password) {
+        return loadKeystore(keystorePath, password).getAddress();
+    }
+
+    @Override
+    public String addPrivateKey(String privateKey) {
+        if (privateKey == null || privateKey.isEmpty())
+            throw new IllegalArgumentException("privateKey is null");
+        Credentials credentials = Credentials.create(privateKey);
+        add(credentials);
+        return credentials.getAddress();
+    }
+
+    /**
+     * Returns the credentials of the given keystore, decrypting it only if it has not been decrypted yet with the same password.
+     *
+     * @param keystorePath keystore file path
+     * @param password     keystore password
+     * @return credentials
+     */
+    public Credentials loadKeystore(String keystorePath, String password) {
+        if (keystorePath == null || password == null || keystorePath.isEmpty() || password.isEmpty())
+            throw new IllegalArgumentException("keystorePath or password is null");
+        File keystoreFile = new File(keystorePath);
+        String keystoreKey = keystoreFile.getAbsolutePath();
+        byte[] passwordDigest = digest(keystoreKey, password);
+        Credentials credentials = cachedKeystore(keystoreKey, keystoreFile, passwordDigest);
+        if (credentials != null)
+            return credentials;
+        //concurrent requests for the same keystore wait for a single decryption
+        synchronized (keystoreLocks.computeIfAbsent(keystoreKey, key -> new Object())) {
+            credentials = cachedKeystore(keystoreKey, keystoreFile, passwordDigest);
+            if (credentials != null)
+                return credentials;
+            long lastModified = keystoreFile.lastModified();
+            try {
+                credentials = WalletUtils.loadCredentials(password, keystoreFile);
+            } catch (IOException | CipherException e) {
+                throw new WaterRuntimeException(e.getMessage());
+            }
+            keystores.put(keystoreKey, new DecryptedKeystore(normalize(credentials.getAddress()), passwordDigest, lastModified));
+            signers.put(normalize(credentials.getAddress()), new Signer(credentials, System.currentTimeMillis() + ttlMillis));
+            return credentials;
+        }
+    }
+
+    /**
+     * Registers the given credentials, replacing the previous ones with the same address.
+     * They cannot be loaded again, so they never expire.
+     *
+     * @param credentials credentials
+     */
+    public void add(Credentials credentials) {
+        if (credentials == null)
+            throw new IllegalArgumentException("credentials is null");
+        String key = normalize(credentials.getAddress());
+        signers.put(key, new Signer(credentials, Long.MAX_VALUE));
+        //the address is no longer backed by a keystore
+        keystores.values().removeIf(keystore -> keystore.getAddress().equals(key));
+    }
+
+    /**
+     * @param address account address
+     * @return credentials of the given address, null if not registered or expired
+     */
+    public Credentials getCredentials(String address) {
+        if (address == null)
+            return null;
+        String key = normalize(address);
+        Signer signer = signers.get(key);
+        if (signer == null)
+            return null;
+        if (signer.isExpired(System.currentTimeMillis())) {
+            signers.remove(key, signer);
+            return null;
+        }
+        return signer.getCredentials();
+    }
+
+    @Override
+    public boolean isRegistered(String address) {
+        return getCredentials(address) != null;
+    }
+
+    @Override
+    public void revoke(String address) {
+        if (address == null)
+            return;
+        String key = normalize(address);
+        signers.remove(key);
+        keystores.values().removeIf(keystore -> keystore.getAddress().equals(key));
+    }
+
+    @Override
+    public void revokeAll() {
+        signers.clear();
+        keystores.clear();
+    }
+
+    @Override
+    public int size() {
+        long now = System.currentTimeMillis();
+        signers.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+        return signers.size();
+    }
+
+    private Credentials cachedKeystore(String keystoreKey, File keystoreFile, byte[] passwordDigest) {
+        DecryptedKeystore keystore = keystores.get(keystoreKey);
+        if (keystore == null || keystore.getLastModified() != keystoreFile.lastModified() || !MessageDigest.isEqual(keystore.getPasswordDigest(), passwordDigest))
+            return null;
+        return getCredentials(keystore.getAddress());
+    }
+
+    private byte[] digest(String keystoreKey, String password) {
+        try {
+            Mac mac = Mac.getInstance(DIGEST_ALGORITHM);
+            mac.init(new SecretKeySpec(digestKey, DIGEST_ALGORITHM));
+            mac.update(keystoreKey.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new WaterRuntimeException(e.getMessage());
+        }
+    }
+
+    private static String normalize(String address) {
+        return address.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Signer {
+        @Getter
+        private final Credentials credentials;
+        private final long expiresAt;
+
+        private Signer(Credentials credentials, long expiresAt) {
+            this.credentials = credentials;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    @Getter
+    private static class DecryptedKeystore {
+        private final String address;
+        private final byte[] passwordDigest;
+        private final long lastModified;
+
+        private DecryptedKeystore(String address, byte[] passwordDigest, long lastModified) {
+            this.address = address;
+            this.passwordDigest = passwordDigest;
+            this.lastModified = lastModified;
+        }
+    }
+}
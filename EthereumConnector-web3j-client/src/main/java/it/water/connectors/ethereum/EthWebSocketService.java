@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019-2023 HyperIoT
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package it.water.connectors.ethereum;
+
+import io.reactivex.Flowable;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.websocket.WebSocketService;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @Author Aristide Cittadino
+ * WebSocket transport which reconnects to the node when the connection is lost.
+ * The connection is opened on first use; once closed by the remote peer, the next request opens a new one.
+ * Reconnection attempts are throttled by reconnectDelayMillis, while the node is unreachable requests fail fast.
+ * Subscriptions are bound to the WebSocket connection, so reconnect listeners are notified in order to subscribe again.
+ */
+public class EthWebSocketService implements Web3jService {
+    public static final long DEFAULT_RECONNECT_DELAY_MILLIS = 1000;
+    private static Logger logger = LoggerFactory.getLogger(EthWebSocketService.class);
+
+    private final String url;
+    private final boolean includeRawResponses;
+    private final List<Runnable> reconnectListeners = new CopyOnWriteArrayList<>();
+
+    @Getter
+    @Setter
+    private long reconnectDelayMillis = DEFAULT_RECONNECT_DELAY_MILLIS;
+
+    /**
+     * Number of connections opened so far, values greater than 1 mean the service has reconnected.
+     */
+    @Getter
+    private volatile int connections;
+
+    private volatile WebSocketService delegate;
+    private volatile boolean closed;
+    private long lastConnectionAttempt;
+
+    public EthWebSocketService(String url) {
+        this(url, false);
+    }
+
+    public EthWebSocketService(String url, boolean includeRawResponses) {
+        if (url == null || url.isEmpty())
+            throw new IllegalArgumentException("url is null");
+        this.url = url;
+        this.includeRawResponses = includeRawResponses;
+    }
+
+    /**
+     * Registers a listener invoked every time the connection is opened again after being lost.
+     *
+     * @param listener listener
+     */
+    public void addReconnectListener(Runnable listener) {
+        reconnectListeners.add(listener);
+    }
+
+    public void removeReconnectListener(Runnable listener) {
+        reconnectListeners.remove(listener);
+    }
+
+    public boolean isConnected() {
+        return delegate != null;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        return connected().send(request, responseType);
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        try {
+            return connected().sendAsync(request, responseType);
+        } catch (IOException | RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return connected().sendBatch(batchRequest);
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        try {
+            return connected().sendBatchAsync(batchRequest);
+        } catch (IOException | RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod, Class<T> responseType) {
+        try {
+            return connected().subscribe(request, unsubscribeMethod, responseType);
+        } catch (IOException e) {
+            return Flowable.error(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        WebSocketService current;
+        synchronized (this) {
+            closed = true;
+            current = delegate;
+            delegate = null;
+        }
+        if (current != null)
+            current.close();
+    }
+
+    protected WebSocketService createWebSocketService(String url, boolean includeRawResponses) {
+        return new WebSocketService(url, includeRawResponses);
+    }
+
+    private WebSocketService connected() throws ConnectException {
+        WebSocketService current = delegate;
+        if (current != null)
+            return current;
+        boolean reconnected;
+        synchronized (this) {
+            if (closed)
+                throw new ConnectException("WebSocket service for " + url + " has been closed");
+            if (delegate != null)
+                return delegate;
+            long now = System.currentTimeMillis();
+            if (lastConnectionAttempt > 0 && now - lastConnectionAttempt < reconnectDelayMillis)
+                throw new ConnectException("Connection to " + url + " not available, next attempt in " + (reconnectDelayMillis - (now - lastConnectionAttempt)) + " millis");
+            lastConnectionAttempt = now;
+            WebSocketService service = createWebSocketService(url, includeRawResponses);
+            try {
+                service.connect(message -> {
+                }, error -> logger.debug("WebSocket error on {}: {}", url, error.getMessage()), () -> onClose(service));
+            } catch (ConnectException e) {
+                service.close();
+                throw e;
+            }
+            reconnected = connections > 0;
+            connections++;
+            delegate = service;
+            current = service;
+        }
+        if (reconnected)
+            reconnectListeners.forEach(this::notifyReconnect);
+        return current;
+    }
+
+    private void onClose(WebSocketService service) {
+        synchronized (this) {
+            if (delegate != service)
+                return;
+            delegate = null;
+        }
+        logger.warn("WebSocket connection to {} closed, it will be reopened on next request", url);
+    }
+
+    private void notifyReconnect(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Exception e) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(e);
+        return result;
+    }
+}
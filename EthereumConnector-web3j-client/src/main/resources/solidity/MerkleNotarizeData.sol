@@ -0,0 +1,70 @@
+pragma solidity ^0.8.6;
+
+
+/**
+*  @dev Smart Contract responsible to notarize batches of documents on the Ethereum Blockchain.
+*  @dev Only the Merkle root of each batch is stored, documents are verified through their inclusion proof.
+*  @dev Leaves are keccak256(_dataHash), parents are keccak256 of their two children sorted.
+*/
+contract MerkleDataRegistry {
+
+    struct Root {
+        address signer; // Notary
+        uint date; // Date of notarization
+        uint size; // Number of documents in the batch
+    }
+
+    /**
+     *  @dev Storage space used to record all roots notarized with metadata
+   */
+    mapping(bytes32 => Root) registry;
+
+    /**
+     *  @dev Notarize a batch of documents identified by its Merkle root by recording the root, the sender and date in the registry
+   *  @dev Emit an event RootNotarized in case of success
+   *  @param _root Merkle root of the batch
+   *  @param _size Number of documents in the batch
+   */
+    function notarizeRoot(bytes32 _root, uint256 _size) external returns (bool) {
+        require(registry[_root].date == 0, "Root already notarized");
+        registry[_root].signer = msg.sender;
+        registry[_root].date = block.timestamp;
+        registry[_root].size = _size;
+
+        emit RootNotarized(msg.sender, _root, _size);
+
+        return true;
+    }
+
+    /**
+     *  @dev Verify a Merkle root was notarized in the registry.
+   *  @param _root Merkle root
+   *  @return bool if root was notarized previsouly in the registry
+   */
+    function isRootNotarized(bytes32 _root) external view returns (bool) {
+        return registry[_root].date != 0;
+    }
+
+    /**
+     *  @dev Verify a document identified by its hash was notarized inside a batch of the registry.
+   *  @param _dataHash Document hash
+   *  @param _proof Sibling hashes from the leaf up to the root
+   *  @param _root Merkle root of the batch
+   *  @return bool if the proof is valid and the root was notarized
+   */
+    function isNotarized(bytes32 _dataHash, bytes32[] calldata _proof, bytes32 _root) external view returns (bool) {
+        if (registry[_root].date == 0)
+            return false;
+        bytes32 node = keccak256(abi.encodePacked(_dataHash));
+        for (uint i = 0; i < _proof.length; i++) {
+            bytes32 sibling = _proof[i];
+            node = node < sibling ? keccak256(abi.encodePacked(node, sibling)) : keccak256(abi.encodePacked(sibling, node));
+        }
+        return node == _root;
+    }
+
+    /**
+     *  @dev Definition of the event triggered when a batch is successfully notarized in the registry
+   */
+    event RootNotarized(address indexed _signer, bytes32 indexed _root, uint256 _size);
+}
@@ -0,0 +1,101 @@
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+
+class EthBalanceCacheTest {
+    private static final String ADDRESS_1 = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final String ADDRESS_2 = "0x3b2c0b7fcd4d0e9b5d6d9e10d3c2d4f2a1b1c1d1";
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+    private EthBalanceCache balanceCache;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        //balance is the block number it has been read at
+        stubServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> "0x64")
+                .on("eth_getBalance", params -> params.get(1).asText());
+        registry = new EthWeb3JClientRegistry();
+        client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        balanceCache = client.getConnection().getBalanceCache();
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void headBalancesShouldBeCachedUntilNewHead() {
+        Assertions.assertEquals(BigInteger.valueOf(100), client.getBalanceOf(ADDRESS_1));
+        Assertions.assertEquals(BigInteger.valueOf(100), client.getBalanceOf(ADDRESS_1));
+        Map<String, BigInteger> balances = client.getBalancesOf(Arrays.asList(ADDRESS_1, ADDRESS_2), "latest");
+        Assertions.assertEquals(BigInteger.valueOf(100), balances.get(ADDRESS_2));
+        Assertions.assertEquals(2, stubServer.getCalls("eth_getBalance"));
+        Assertions.assertEquals(2, balanceCache.getHitCount());
+        Assertions.assertEquals(2, balanceCache.getMissCount());
+        Assertions.assertEquals(2, balanceCache.getSize());
+        client.getConnection().getChainHeadTracker().onBlockObserved(BigInteger.valueOf(101), null);
+        Assertions.assertEquals(0, balanceCache.getSize());
+        Assertions.assertEquals(BigInteger.valueOf(101), client.getBalanceOf(ADDRESS_1));
+        Assertions.assertEquals(3, stubServer.getCalls("eth_getBalance"));
+    }
+
+    @Test
+    void historicalBalancesShouldBeCachedPermanently() {
+        //head must be known to tell historical blocks apart
+        client.getBalanceOf(ADDRESS_1);
+        balanceCache.setMaxHistoricalSize(2);
+        int calls = stubServer.getCalls("eth_getBalance");
+        client.getBalancesOf(Arrays.asList(ADDRESS_1, ADDRESS_2), "50");
+        client.getBalancesOf(Arrays.asList(ADDRESS_1, ADDRESS_2), "0x32");
+        Assertions.assertEquals(calls + 2, stubServer.getCalls("eth_getBalance"));
+        Assertions.assertEquals(2, balanceCache.getHistoricalSize());
+        client.getConnection().getChainHeadTracker().onBlockObserved(BigInteger.valueOf(101), null);
+        Assertions.assertEquals(BigInteger.valueOf(50), client.getBalancesOf(Arrays.asList(ADDRESS_1), "50").get(ADDRESS_1));
+        Assertions.assertEquals(calls + 2, stubServer.getCalls("eth_getBalance"));
+        //historical budget is bounded
+        client.getBalancesOf(Arrays.asList(ADDRESS_1), "49");
+        Assertions.assertEquals(2, balanceCache.getHistoricalSize());
+        //recent blocks may be reorganized, they are not cached
+        client.getBalancesOf(Arrays.asList(ADDRESS_1), "99");
+        client.getBalancesOf(Arrays.asList(ADDRESS_1), "99");
+        Assertions.assertEquals(calls + 5, stubServer.getCalls("eth_getBalance"));
+    }
+
+    @Test
+    void disabledCacheShouldAlwaysReadFromNode() {
+        EthWeb3JClientFactory factory = new EthWeb3JClientFactory();
+        factory.setClientRegistry(registry);
+        factory.setBalanceCacheEnabled(false);
+        EthClient uncachedClient = factory.withEthereumBlockChain(stubServer.getBlockchain()).build();
+        uncachedClient.getBalanceOf(ADDRESS_1);
+        uncachedClient.getBalanceOf(ADDRESS_1);
+        Assertions.assertEquals(2, stubServer.getCalls("eth_getBalance"));
+        Assertions.assertEquals(0, balanceCache.getMissCount());
+    }
+
+    @Test
+    void failedReadsShouldNotBeCached() {
+        stubServer.on("eth_getBalance", params -> {
+            throw new IllegalStateException("header not found");
+        });
+        Assertions.assertThrows(RuntimeException.class, () -> client.getBalanceOf(ADDRESS_1));
+        Assertions.assertEquals(0, balanceCache.getSize());
+        stubServer.on("eth_getBalance", params -> Numeric.encodeQuantity(BigInteger.ONE));
+        Assertions.assertEquals(BigInteger.ONE, client.getBalanceOf(ADDRESS_1));
+    }
+}
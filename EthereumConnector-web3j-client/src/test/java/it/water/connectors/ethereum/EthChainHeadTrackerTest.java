@@ -0,0 +1,178 @@
+package it.water.connectors.ethereum;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+class EthChainHeadTrackerTest {
+    private static final String ADDRESS = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private final AtomicLong blockNumber = new AtomicLong(7);
+    private final List<String> balanceBlocks = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException, InterruptedException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> Numeric.encodeQuantity(BigInteger.valueOf(blockNumber.get())))
+                .on("eth_getBlockByNumber", params -> block(params.get(0).asText()))
+                .on("eth_subscribe", params -> "0x1")
+                .on("eth_getBalance", params -> {
+                    balanceBlocks.add(params.get(1).asText());
+                    return params.get(1).asText();
+                })
+                .startWebSocket();
+        registry = new EthWeb3JClientRegistry();
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void headShouldBePolledOverHttp() throws InterruptedException {
+        EthChainHeadTracker headTracker = registry.acquireConnection(stubServer.getBlockchain()).getChainHeadTracker();
+        headTracker.setPollingIntervalMillis(10);
+        headTracker.setMinPollingIntervalMillis(10);
+        List<EthChainHead> heads = new CopyOnWriteArrayList<>();
+        headTracker.addListener(heads::add);
+        waitFor(() -> heads.size() == 1);
+        Assertions.assertEquals(new EthChainHead(BigInteger.valueOf(7), blockHash(7)), heads.get(0));
+        blockNumber.set(9);
+        waitFor(() -> heads.size() == 2);
+        Assertions.assertEquals(new EthChainHead(BigInteger.valueOf(9), blockHash(9)), headTracker.getHead());
+        Assertions.assertFalse(headTracker.isSubscribed());
+        Assertions.assertTrue(headTracker.getBlockTimeMillis() >= 0);
+        Assertions.assertTrue(headTracker.getPollingIntervalMillis() >= headTracker.getMinPollingIntervalMillis());
+    }
+
+    @Test
+    void headShouldBePushedOverWebSocket() throws InterruptedException {
+        EthChainHeadTracker headTracker = registry.acquireConnection(stubServer.getWebSocketBlockchain()).getChainHeadTracker();
+        List<EthChainHead> heads = new CopyOnWriteArrayList<>();
+        headTracker.addListener(heads::add);
+        waitFor(() -> heads.size() == 1);
+        Assertions.assertTrue(headTracker.isSubscribed());
+        int blockNumberCalls = stubServer.getCalls("eth_blockNumber");
+        stubServer.publish("0x1", newHead(8));
+        waitFor(() -> heads.size() == 2);
+        Assertions.assertEquals(new EthChainHead(BigInteger.valueOf(8), blockHash(8)), heads.get(1));
+        //older or already known heads are not published
+        stubServer.publish("0x1", newHead(8));
+        stubServer.publish("0x1", newHead(6));
+        stubServer.publish("0x1", newHead(10));
+        waitFor(() -> heads.size() == 3);
+        Assertions.assertEquals(BigInteger.TEN, heads.get(2).getBlockNumber());
+        Assertions.assertEquals(blockNumberCalls, stubServer.getCalls("eth_blockNumber"));
+    }
+
+    @Test
+    void headShouldBeSubscribedAgainAfterReconnection() throws InterruptedException {
+        EthWeb3JConnection connection = registry.acquireConnection(stubServer.getWebSocketBlockchain());
+        ((EthWebSocketService) connection.getService()).setReconnectDelayMillis(0);
+        EthChainHeadTracker headTracker = connection.getChainHeadTracker();
+        List<EthChainHead> heads = new CopyOnWriteArrayList<>();
+        headTracker.addListener(heads::add);
+        waitFor(() -> heads.size() == 1 && headTracker.isSubscribed());
+        stubServer.dropWebSocketConnections();
+        waitFor(() -> !headTracker.isSubscribed());
+        //any request reconnecting the transport subscribes again, without waiting for the heartbeat
+        blockNumber.set(8);
+        Assertions.assertEquals(BigInteger.valueOf(8), connection.getWeb3j().ethBlockNumber().sendAsync().join().getBlockNumber());
+        waitFor(() -> headTracker.isSubscribed() && stubServer.getCalls("eth_subscribe") == 2);
+        stubServer.publish("0x1", newHead(9));
+        waitFor(() -> heads.size() == 2);
+        Assertions.assertEquals(BigInteger.valueOf(9), heads.get(1).getBlockNumber());
+        Assertions.assertEquals(2, stubServer.getWebSocketConnections());
+    }
+
+    @Test
+    void pollingShouldStopWhenNothingNeedsTheHead() throws InterruptedException {
+        EthChainHeadTracker headTracker = registry.acquireConnection(stubServer.getBlockchain()).getChainHeadTracker();
+        headTracker.setPollingIntervalMillis(10);
+        headTracker.setMinPollingIntervalMillis(10);
+        headTracker.setIdleTimeoutMillis(50);
+        List<EthChainHead> heads = new CopyOnWriteArrayList<>();
+        Consumer<EthChainHead> listener = heads::add;
+        headTracker.addListener(listener);
+        waitFor(() -> heads.size() == 1);
+        Assertions.assertTrue(headTracker.isRunning());
+        //a listener without demand does not keep the head polled
+        AtomicBoolean demand = new AtomicBoolean(false);
+        headTracker.addListener(head -> {
+        }, demand::get);
+        headTracker.removeListener(listener);
+        waitFor(() -> !headTracker.isRunning());
+        int blockNumberCalls = stubServer.getCalls("eth_blockNumber");
+        Thread.sleep(100);
+        Assertions.assertEquals(blockNumberCalls, stubServer.getCalls("eth_blockNumber"));
+        //a read restarts polling and does not return the head kept while stopped
+        blockNumber.set(9);
+        Assertions.assertEquals(BigInteger.valueOf(9), headTracker.getHeadAsync().join().getBlockNumber());
+        Assertions.assertTrue(headTracker.isRunning());
+        waitFor(() -> !headTracker.isRunning());
+        //as does the demand of a listener
+        demand.set(true);
+        Assertions.assertTrue(headTracker.start());
+        Assertions.assertFalse(headTracker.start());
+        Thread.sleep(100);
+        Assertions.assertTrue(headTracker.isRunning());
+        demand.set(false);
+        waitFor(() -> !headTracker.isRunning());
+    }
+
+    @Test
+    void latestBalanceShouldBePinnedToHeadAndCached() {
+        EthWeb3JClient client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        EthChainHeadTracker headTracker = client.getConnection().getChainHeadTracker();
+        Assertions.assertEquals(BigInteger.valueOf(7), client.getBalanceOf(ADDRESS));
+        Assertions.assertEquals(BigInteger.valueOf(7), client.getBalanceOfAsync(ADDRESS.toUpperCase().replace("0X", "0x")).join());
+        Assertions.assertEquals(1, balanceBlocks.size());
+        //a receipt in a newer block moves the head forward
+        headTracker.onBlockObserved(BigInteger.valueOf(8), blockHash(8));
+        Assertions.assertEquals(BigInteger.valueOf(8), client.getBalanceOf(ADDRESS));
+        Assertions.assertEquals(2, balanceBlocks.size());
+        Assertions.assertEquals("0x8", balanceBlocks.get(1));
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assertions.assertTrue(condition.getAsBoolean());
+    }
+
+    private static String blockHash(long number) {
+        return Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(number), 64);
+    }
+
+    private static Map<String, Object> block(String number) {
+        Map<String, Object> block = new HashMap<>();
+        block.put("number", number);
+        block.put("hash", blockHash(Numeric.decodeQuantity(number).longValue()));
+        return block;
+    }
+
+    private static Map<String, Object> newHead(long number) {
+        Map<String, Object> head = new HashMap<>();
+        head.put("number", Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        head.put("hash", blockHash(number));
+        return head;
+    }
+}
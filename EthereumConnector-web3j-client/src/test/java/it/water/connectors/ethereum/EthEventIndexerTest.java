@@ -0,0 +1,281 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import it.water.connectors.ethereum.api.EthContractEvent;
+import it.water.connectors.ethereum.api.EthEventIndexStore;
+import it.water.connectors.ethereum.model.EthSmartContract;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+class EthEventIndexerTest {
+    private static final String CONTRACT = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final String SIGNER = "0x00000000000000000000000000000000000000aa";
+    private static final String SENDER = "0x00000000000000000000000000000000000000bb";
+    private static final String ABI = "["
+            + "{\"type\":\"function\",\"name\":\"notarizeDocument\",\"stateMutability\":\"nonpayable\",\"inputs\":[{\"name\":\"_dataHash\",\"type\":\"bytes32\"}],\"outputs\":[{\"name\":\"\",\"type\":\"bool\"}]},"
+            + "{\"type\":\"event\",\"name\":\"Notarized\",\"anonymous\":false,"
+            + "\"inputs\":[{\"name\":\"_signer\",\"type\":\"address\",\"indexed\":true},{\"name\":\"_dataHash\",\"type\":\"bytes32\",\"indexed\":false}]}"
+            + "]";
+    private static final String NOTARIZED_TOPIC = Hash.sha3String("Notarized(address,bytes32)");
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+    private EthSmartContract smartContract;
+    private final AtomicLong head = new AtomicLong(25);
+    //block of the deployment transaction, negative while it is not mined
+    private final AtomicLong deploymentBlock = new AtomicLong(0);
+    //chain simulation: block hashes by number and logs of the contract
+    private final Map<Long, String> blockHashes = new ConcurrentHashMap<>();
+    private final List<Map<String, Object>> logs = new CopyOnWriteArrayList<>();
+    private final List<long[]> logRanges = new CopyOnWriteArrayList<>();
+    private volatile long maxLogRange = Long.MAX_VALUE;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        for (long i = 0; i <= 100; i++)
+            blockHashes.put(i, blockHash(i, 0));
+        stubServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> Numeric.encodeQuantity(BigInteger.valueOf(head.get())))
+                .on("eth_getBlockByNumber", params -> block(Numeric.decodeQuantity(params.get(0).asText()).longValue()))
+                .on("eth_getLogs", this::getLogs)
+                .on("eth_getTransactionByHash", params -> Map.of("hash", params.get(0).asText(), "from", SENDER))
+                .on("eth_getTransactionReceipt", params -> deploymentReceipt(params.get(0).asText()));
+        registry = new EthWeb3JClientRegistry();
+        registry.acquireConnection(stubServer.getBlockchain()).getChainHeadTracker().setPollingIntervalMillis(50);
+        client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        smartContract = new EthSmartContract("DataRegistry", "registry", CONTRACT, "0x0", stubServer.getBlockchain(), 1L);
+        smartContract.setAbi(ABI);
+        addLog(3, 0);
+        addLog(12, 0);
+        addLog(24, 0);
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void indexerShouldBackfillAndResumeFromCheckpoint() {
+        MemoryStore store = new MemoryStore();
+        EthWeb3JEventIndexer indexer = client.eventIndexer(smartContract, store);
+        indexer.setMaxBlockRange(10);
+        indexer.start();
+        Assertions.assertTrue(indexer.isRunning());
+        await(() -> store.checkpointBlockNumber == 25);
+        Assertions.assertEquals(List.of(3L, 12L, 24L), store.blocks());
+        EthContractEvent event = store.events.get(0);
+        Assertions.assertEquals("Notarized", event.getName());
+        Assertions.assertEquals(SIGNER, event.get("_signer"));
+        Assertions.assertEquals(SENDER, event.getSender());
+        Assertions.assertArrayEquals(dataHash(3, 0), (byte[]) event.get("_dataHash"));
+        Assertions.assertEquals(NOTARIZED_TOPIC, event.getTopics().get(0));
+        Assertions.assertEquals(List.of(0L, 10L, 20L), logRanges.stream().map(range -> range[0]).collect(Collectors.toList()));
+        //new blocks are indexed as the head moves
+        addLog(27, 0);
+        head.set(30);
+        client.getConnection().getChainHeadTracker().onBlockObserved(BigInteger.valueOf(30), blockHashes.get(30L));
+        await(() -> store.checkpointBlockNumber == 30);
+        Assertions.assertEquals(List.of(3L, 12L, 24L, 27L), store.blocks());
+        indexer.stop();
+        Assertions.assertFalse(indexer.isRunning());
+        //a new indexer on the same store starts from the checkpoint
+        logRanges.clear();
+        head.set(32);
+        EthWeb3JEventIndexer restarted = client.eventIndexer(smartContract, store);
+        restarted.start();
+        await(() -> store.checkpointBlockNumber == 32);
+        Assertions.assertEquals(31L, logRanges.get(0)[0]);
+        Assertions.assertEquals(4, store.events.size());
+        restarted.stop();
+    }
+
+    @Test
+    void indexerShouldStartFromTheDeploymentBlock() {
+        deploymentBlock.set(10);
+        MemoryStore store = new MemoryStore();
+        EthWeb3JEventIndexer indexer = client.eventIndexer(smartContract, store);
+        indexer.start();
+        await(() -> store.checkpointBlockNumber == 25);
+        Assertions.assertEquals(10L, indexer.getStartBlock());
+        Assertions.assertEquals(10L, logRanges.get(0)[0]);
+        Assertions.assertEquals(List.of(12L, 24L), store.blocks());
+        indexer.stop();
+    }
+
+    @Test
+    void indexerShouldStartFromTheHeadWhenDeploymentIsUnknown() {
+        //deployment not mined yet
+        deploymentBlock.set(-1);
+        MemoryStore store = new MemoryStore();
+        EthWeb3JEventIndexer indexer = client.eventIndexer(smartContract, store);
+        indexer.start();
+        await(() -> store.checkpointBlockNumber == 25);
+        Assertions.assertEquals(25L, indexer.getStartBlock());
+        Assertions.assertEquals(25L, logRanges.get(0)[0]);
+        Assertions.assertTrue(store.events.isEmpty());
+        indexer.stop();
+    }
+
+    @Test
+    void reorgShouldRollBackUnconfirmedBlocks() {
+        MemoryStore store = new MemoryStore();
+        EthWeb3JEventIndexer indexer = client.eventIndexer(smartContract, store);
+        indexer.setConfirmations(5);
+        indexer.start();
+        await(() -> store.checkpointBlockNumber == 25);
+        Assertions.assertEquals(List.of(3L, 12L, 24L), store.blocks());
+        //blocks from 23 on are replaced: the log of block 24 disappears and a new one is mined in block 23
+        for (long i = 23; i <= 100; i++)
+            blockHashes.put(i, blockHash(i, 1));
+        logs.removeIf(log -> "0x18".equals(log.get("blockNumber")));
+        addLog(23, 1);
+        head.set(26);
+        client.getConnection().getChainHeadTracker().onBlockObserved(BigInteger.valueOf(26), blockHashes.get(26L));
+        await(() -> store.checkpointBlockNumber == 26);
+        Assertions.assertEquals(List.of(20L), store.rollbacks);
+        Assertions.assertEquals(List.of(3L, 12L, 23L), store.blocks());
+        Assertions.assertArrayEquals(dataHash(23, 1), (byte[]) store.events.get(2).get("_dataHash"));
+        Assertions.assertEquals(blockHashes.get(26L), store.checkpointBlockHash);
+        indexer.stop();
+    }
+
+    @Test
+    void rangeShouldBeHalvedWhenRejectedByTheNode() {
+        maxLogRange = 4;
+        MemoryStore store = new MemoryStore();
+        EthWeb3JEventIndexer indexer = client.eventIndexer(smartContract, store);
+        indexer.start();
+        await(() -> store.checkpointBlockNumber == 25);
+        Assertions.assertEquals(List.of(3L, 12L, 24L), store.blocks());
+        indexer.stop();
+    }
+
+    private Object getLogs(JsonNode params) {
+        long from = Numeric.decodeQuantity(params.get(0).get("fromBlock").asText()).longValue();
+        long to = Numeric.decodeQuantity(params.get(0).get("toBlock").asText()).longValue();
+        if (to - from + 1 > maxLogRange)
+            throw new IllegalStateException("query returned more than 10000 results");
+        logRanges.add(new long[]{from, to});
+        return logs.stream().filter(log -> {
+            long block = Numeric.decodeQuantity((String) log.get("blockNumber")).longValue();
+            return block >= from && block <= to;
+        }).collect(Collectors.toList());
+    }
+
+    private Map<String, Object> block(long number) {
+        if (number > head.get())
+            return null;
+        Map<String, Object> block = new HashMap<>();
+        block.put("number", Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        block.put("hash", blockHashes.get(number));
+        return block;
+    }
+
+    private Map<String, Object> deploymentReceipt(String transactionHash) {
+        if (deploymentBlock.get() < 0)
+            return null;
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("transactionHash", transactionHash);
+        receipt.put("blockNumber", Numeric.encodeQuantity(BigInteger.valueOf(deploymentBlock.get())));
+        receipt.put("blockHash", blockHashes.get(deploymentBlock.get()));
+        receipt.put("status", "0x1");
+        receipt.put("logs", new ArrayList<>());
+        return receipt;
+    }
+
+    private void addLog(long blockNumber, int fork) {
+        Map<String, Object> log = new HashMap<>();
+        log.put("removed", false);
+        log.put("address", CONTRACT);
+        log.put("topics", List.of(NOTARIZED_TOPIC, Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(SIGNER), 64)));
+        log.put("data", "0x" + FunctionEncoder.encodeConstructor(Collections.singletonList(new Bytes32(dataHash(blockNumber, fork)))));
+        log.put("logIndex", "0x0");
+        log.put("transactionIndex", "0x0");
+        log.put("blockNumber", Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)));
+        log.put("blockHash", blockHash(blockNumber, fork));
+        log.put("transactionHash", Numeric.toHexString(dataHash(blockNumber, fork + 10)));
+        logs.add(log);
+        logs.sort((a, b) -> Numeric.decodeQuantity((String) a.get("blockNumber")).compareTo(Numeric.decodeQuantity((String) b.get("blockNumber"))));
+    }
+
+    private static String blockHash(long number, int fork) {
+        return Hash.sha3String("block-" + number + "-" + fork);
+    }
+
+    private static byte[] dataHash(long number, int fork) {
+        return Hash.sha3(("document-" + number + "-" + fork).getBytes());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Condition not met in time");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Assertions.fail(e);
+            }
+        }
+    }
+
+    private static class MemoryStore implements EthEventIndexStore {
+        private final List<EthContractEvent> events = new CopyOnWriteArrayList<>();
+        private final List<Long> rollbacks = new CopyOnWriteArrayList<>();
+        private volatile long checkpointBlockNumber = -1;
+        private volatile String checkpointBlockHash;
+
+        @Override
+        public long getCheckpointBlockNumber() {
+            return checkpointBlockNumber;
+        }
+
+        @Override
+        public String getCheckpointBlockHash() {
+            return checkpointBlockHash;
+        }
+
+        @Override
+        public void store(List<EthContractEvent> newEvents, long blockNumber, String blockHash) {
+            events.addAll(newEvents);
+            checkpointBlockNumber = blockNumber;
+            checkpointBlockHash = blockHash;
+        }
+
+        @Override
+        public void rollback(long blockNumber, String blockHash) {
+            rollbacks.add(blockNumber);
+            events.removeIf(event -> event.getBlockNumber().longValue() > blockNumber);
+            checkpointBlockNumber = blockNumber;
+            checkpointBlockHash = blockHash;
+        }
+
+        private List<Long> blocks() {
+            List<Long> blocks = new ArrayList<>();
+            events.forEach(event -> blocks.add(event.getBlockNumber().longValue()));
+            return blocks;
+        }
+    }
+}
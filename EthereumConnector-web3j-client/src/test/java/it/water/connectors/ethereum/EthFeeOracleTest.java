@@ -0,0 +1,162 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.crypto.transaction.type.Transaction1559;
+import org.web3j.crypto.transaction.type.TransactionType;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+class EthFeeOracleTest {
+    private static final String ACCOUNT_PRIVATE_KEY = "5c7a050c7b0e3a6896e9667a6dff3a6b389c665aaed218c352071890c05520ee";
+    private static final String DESTINATION = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+    private EthFeeOracle feeOracle;
+    private final List<RawTransaction> sent = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> "0x10")
+                .on("eth_feeHistory", params -> feeHistory())
+                .on("eth_gasPrice", params -> "0x77")
+                .on("eth_getTransactionCount", params -> "0x0")
+                .on("eth_chainId", params -> "0x539")
+                .on("eth_sendRawTransaction", this::sendRawTransaction)
+                .on("eth_getTransactionReceipt", params -> receipt(params.get(0).asText()));
+        registry = new EthWeb3JClientRegistry();
+        EthWeb3JConnection connection = registry.acquireConnection(stubServer.getBlockchain());
+        connection.getReceiptTracker().setFirstCheckDelayMillis(10);
+        client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        feeOracle = connection.getFeeOracle();
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void feesShouldBeComputedOncePerHead() {
+        EthFees fees = feeOracle.getFees();
+        Assertions.assertTrue(fees.isEip1559());
+        Assertions.assertEquals(BigInteger.valueOf(200), fees.getBaseFeePerGas());
+        //median of the rewards
+        Assertions.assertEquals(BigInteger.valueOf(3), fees.getMaxPriorityFeePerGas());
+        Assertions.assertEquals(BigInteger.valueOf(403), fees.getMaxFeePerGas());
+        Assertions.assertSame(fees, feeOracle.getFees());
+        Assertions.assertEquals(1, stubServer.getCalls("eth_feeHistory"));
+        client.getConnection().getChainHeadTracker().onBlockObserved(BigInteger.valueOf(17), null);
+        Assertions.assertEquals(BigInteger.valueOf(17), feeOracle.getFees().getBlockNumber());
+        Assertions.assertEquals(2, stubServer.getCalls("eth_feeHistory"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void transfersShouldUseOracleFees() throws InterruptedException {
+        EthWeb3JSigner signer = client.withPrivateKey(ACCOUNT_PRIVATE_KEY);
+        signer.transferEther(DESTINATION, BigDecimal.ONE);
+        signer.transferEtherAsync(DESTINATION, BigDecimal.ONE).join();
+        //deprecated api, delegating to the default signer
+        client.setCredentials(ACCOUNT_PRIVATE_KEY);
+        client.transferEther(DESTINATION, BigDecimal.ONE);
+        Assertions.assertEquals(3, sent.size());
+        sent.forEach(transaction -> {
+            Assertions.assertEquals(TransactionType.EIP1559, transaction.getType());
+            Transaction1559 transaction1559 = (Transaction1559) transaction.getTransaction();
+            Assertions.assertEquals(BigInteger.valueOf(403), transaction1559.getMaxFeePerGas());
+            Assertions.assertEquals(BigInteger.valueOf(3), transaction1559.getMaxPriorityFeePerGas());
+        });
+        Assertions.assertEquals(1, stubServer.getCalls("eth_feeHistory"));
+        Assertions.assertEquals(0, stubServer.getCalls("eth_gasPrice"));
+        EthFeeGasProvider gasProvider = client.createFeeGasProvider(BigInteger.valueOf(100000), Collections.singletonMap("notarize", BigInteger.TEN));
+        Assertions.assertTrue(gasProvider.isEIP1559Enabled());
+        Assertions.assertEquals(1337, gasProvider.getChainId());
+        Assertions.assertEquals(BigInteger.valueOf(403), gasProvider.getMaxFeePerGas("notarize"));
+        Assertions.assertEquals(BigInteger.valueOf(403), gasProvider.getGasPrice("notarize"));
+        Assertions.assertEquals(BigInteger.TEN, gasProvider.getGasLimit("notarize"));
+        Assertions.assertEquals(BigInteger.valueOf(100000), gasProvider.getGasLimit("other"));
+    }
+
+    @Test
+    void legacyChainsShouldUseGasPrice() {
+        stubServer.off("eth_feeHistory");
+        EthFees fees = feeOracle.getFees();
+        Assertions.assertFalse(fees.isEip1559());
+        Assertions.assertEquals(BigInteger.valueOf(0x77), fees.getGasPrice());
+        client.withPrivateKey(ACCOUNT_PRIVATE_KEY).transferEtherAsync(DESTINATION, BigDecimal.ONE).join();
+        Assertions.assertEquals(TransactionType.LEGACY, sent.get(0).getType());
+        Assertions.assertEquals(BigInteger.valueOf(0x77), sent.get(0).getGasPrice());
+        //support is probed once
+        client.getConnection().getChainHeadTracker().onBlockObserved(BigInteger.valueOf(17), null);
+        feeOracle.getFees();
+        Assertions.assertEquals(1, stubServer.getCalls("eth_feeHistory"));
+        Assertions.assertEquals(2, stubServer.getCalls("eth_gasPrice"));
+    }
+
+    @Test
+    void transientFeeHistoryErrorsShouldNotDisableEip1559() {
+        stubServer.on("eth_feeHistory", params -> {
+            throw new IllegalStateException("request timed out");
+        });
+        EthFees fees = feeOracle.getFees();
+        Assertions.assertFalse(fees.isEip1559());
+        Assertions.assertEquals(BigInteger.valueOf(0x77), fees.getGasPrice());
+        //the fee history is read again on the next head
+        stubServer.on("eth_feeHistory", params -> feeHistory());
+        client.getConnection().getChainHeadTracker().onBlockObserved(BigInteger.valueOf(17), null);
+        fees = feeOracle.getFees();
+        Assertions.assertTrue(fees.isEip1559());
+        Assertions.assertEquals(BigInteger.valueOf(403), fees.getMaxFeePerGas());
+        Assertions.assertEquals(2, stubServer.getCalls("eth_feeHistory"));
+    }
+
+    private static Map<String, Object> feeHistory() {
+        Map<String, Object> feeHistory = new HashMap<>();
+        feeHistory.put("oldestBlock", "0xc");
+        feeHistory.put("baseFeePerGas", Arrays.asList("0x64", "0x64", "0x96", "0xc8", "0xc8"));
+        feeHistory.put("gasUsedRatio", Arrays.asList(0.5, 0.5, 0.9, 0.6));
+        feeHistory.put("reward", Arrays.asList(Collections.singletonList("0x1"), Collections.singletonList("0x5"), Collections.singletonList("0x3"), Collections.singletonList("0x3")));
+        return feeHistory;
+    }
+
+    private Object sendRawTransaction(JsonNode params) {
+        String raw = params.get(0).asText();
+        sent.add(TransactionDecoder.decode(raw));
+        return Hash.sha3(raw);
+    }
+
+    private Map<String, Object> receipt(String transactionHash) {
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("transactionHash", transactionHash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockHash", transactionHash);
+        receipt.put("blockNumber", "0x10");
+        receipt.put("gasUsed", "0x5208");
+        receipt.put("cumulativeGasUsed", "0x5208");
+        receipt.put("status", "0x1");
+        receipt.put("to", DESTINATION);
+        receipt.put("logs", new ArrayList<>());
+        return receipt;
+    }
+}
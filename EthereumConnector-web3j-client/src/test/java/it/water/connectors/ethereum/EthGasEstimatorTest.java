@@ -0,0 +1,164 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.TransactionManager;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+class EthGasEstimatorTest {
+    private static final String ACCOUNT_PRIVATE_KEY = "5c7a050c7b0e3a6896e9667a6dff3a6b389c665aaed218c352071890c05520ee";
+    private static final String CONTRACT = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final String NOTARIZE = "0x12345678" + "00".repeat(32);
+    private static final String REVOKE = "0x87654321" + "00".repeat(32);
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthGasEstimator gasEstimator;
+    private final List<RawTransaction> sent = new CopyOnWriteArrayList<>();
+    //21000
+    private volatile String gasUsed = "0x5208";
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_estimateGas", params -> "0x7530")
+                .on("eth_blockNumber", params -> "0x1")
+                .on("eth_getTransactionCount", params -> "0x0")
+                .on("eth_sendRawTransaction", this::sendRawTransaction)
+                .on("eth_getTransactionReceipt", params -> receipt(params.get(0).asText()));
+        registry = new EthWeb3JClientRegistry();
+        EthWeb3JConnection connection = registry.acquireConnection(stubServer.getBlockchain());
+        connection.getReceiptTracker().setFirstCheckDelayMillis(10);
+        gasEstimator = connection.getGasEstimator();
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void estimatesShouldBeMemoizedBySelector() throws IOException {
+        String from = Credentials.create(ACCOUNT_PRIVATE_KEY).getAddress();
+        //30000 padded by 20%
+        Assertions.assertEquals(BigInteger.valueOf(36000), gasEstimator.estimate(from, CONTRACT, NOTARIZE, null));
+        Assertions.assertEquals(BigInteger.valueOf(36000), gasEstimator.estimate(from, CONTRACT.toUpperCase().replace("0X", "0x"), NOTARIZE.replace("00", "11"), null));
+        Assertions.assertEquals(1, stubServer.getCalls("eth_estimateGas"));
+        gasEstimator.estimate(from, CONTRACT, REVOKE, null);
+        Assertions.assertEquals(2, stubServer.getCalls("eth_estimateGas"));
+        //deployments are always estimated
+        gasEstimator.estimate(from, null, NOTARIZE, null);
+        Assertions.assertEquals(3, stubServer.getCalls("eth_estimateGas"));
+        Assertions.assertEquals(2, gasEstimator.size());
+    }
+
+    @Test
+    void limitShouldFollowObservedGasUsed() throws IOException {
+        String from = Credentials.create(ACCOUNT_PRIVATE_KEY).getAddress();
+        gasEstimator.setWindowSize(2);
+        gasEstimator.estimate(from, CONTRACT, NOTARIZE, null);
+        gasEstimator.observe(CONTRACT, NOTARIZE, receipt(20000, "0x1"));
+        gasEstimator.observe(CONTRACT, NOTARIZE, receipt(21000, "0x1"));
+        //the node estimate is a floor
+        Assertions.assertEquals(BigInteger.valueOf(36000), gasEstimator.estimate(from, CONTRACT, NOTARIZE, null));
+        gasEstimator.observe(CONTRACT, NOTARIZE, receipt(40000, "0x1"));
+        Assertions.assertEquals(BigInteger.valueOf(48000), gasEstimator.estimate(from, CONTRACT, NOTARIZE, null));
+        //reverted transactions are not observed
+        gasEstimator.observe(CONTRACT, NOTARIZE, receipt(60000, "0x0"));
+        Assertions.assertEquals(BigInteger.valueOf(48000), gasEstimator.estimate(from, CONTRACT, NOTARIZE, null));
+        //observations leave the window, the floor stays
+        gasEstimator.observe(CONTRACT, NOTARIZE, receipt(21000, "0x1"));
+        gasEstimator.observe(CONTRACT, NOTARIZE, receipt(21000, "0x1"));
+        Assertions.assertEquals(BigInteger.valueOf(36000), gasEstimator.estimate(from, CONTRACT, NOTARIZE, null));
+        Assertions.assertEquals(1, stubServer.getCalls("eth_estimateGas"));
+    }
+
+    @Test
+    void contractChangesShouldEvictEstimates() throws IOException {
+        String from = Credentials.create(ACCOUNT_PRIVATE_KEY).getAddress();
+        gasEstimator.estimate(from, CONTRACT, NOTARIZE, null);
+        gasEstimator.estimate(from, CONTRACT, REVOKE, null);
+        registry.evictContract(stubServer.getBlockchain().getId() + 1, CONTRACT);
+        Assertions.assertEquals(2, gasEstimator.size());
+        registry.evictContract(stubServer.getBlockchain().getId(), CONTRACT.toUpperCase().replace("0X", "0x"));
+        Assertions.assertEquals(0, gasEstimator.size());
+        gasEstimator.estimate(from, CONTRACT, NOTARIZE, null);
+        Assertions.assertEquals(3, stubServer.getCalls("eth_estimateGas"));
+    }
+
+    @Test
+    void transactionManagerShouldEstimateMissingLimitsAndLearnFromReceipts() throws IOException, InterruptedException {
+        EthWeb3JClient client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        //45000
+        gasUsed = "0xafc8";
+        TransactionManager transactionManager = client.withPrivateKey(ACCOUNT_PRIVATE_KEY).createNewTransactionManager(1337);
+        transactionManager.sendTransaction(BigInteger.ONE, null, CONTRACT, NOTARIZE, BigInteger.ZERO);
+        Assertions.assertEquals(BigInteger.valueOf(36000), sent.get(0).getGasLimit());
+        //explicit limits are kept
+        transactionManager.sendTransaction(BigInteger.ONE, BigInteger.valueOf(50000), CONTRACT, NOTARIZE, BigInteger.ZERO);
+        Assertions.assertEquals(BigInteger.valueOf(50000), sent.get(1).getGasLimit());
+        gasEstimator.setWindowSize(2);
+        waitFor(() -> {
+            try {
+                return gasEstimator.estimate(null, CONTRACT, NOTARIZE, null).equals(BigInteger.valueOf(54000));
+            } catch (IOException e) {
+                return false;
+            }
+        });
+        transactionManager.sendTransaction(BigInteger.ONE, BigInteger.ZERO, CONTRACT, NOTARIZE, BigInteger.ZERO);
+        Assertions.assertEquals(BigInteger.valueOf(54000), sent.get(2).getGasLimit());
+        Assertions.assertEquals(1, stubServer.getCalls("eth_estimateGas"));
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assertions.assertTrue(condition.getAsBoolean());
+    }
+
+    private Object sendRawTransaction(JsonNode params) {
+        String raw = params.get(0).asText();
+        sent.add(TransactionDecoder.decode(raw));
+        return Hash.sha3(raw);
+    }
+
+    private static TransactionReceipt receipt(long gasUsed, String status) {
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setGasUsed(Numeric.encodeQuantity(BigInteger.valueOf(gasUsed)));
+        receipt.setStatus(status);
+        return receipt;
+    }
+
+    private Map<String, Object> receipt(String transactionHash) {
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("transactionHash", transactionHash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockHash", transactionHash);
+        receipt.put("blockNumber", "0x1");
+        receipt.put("gasUsed", gasUsed);
+        receipt.put("cumulativeGasUsed", "0x5208");
+        receipt.put("status", "0x1");
+        receipt.put("to", CONTRACT);
+        receipt.put("logs", new ArrayList<>());
+        return receipt;
+    }
+}
@@ -0,0 +1,95 @@
+package it.water.connectors.ethereum;
+
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+class EthHttpServiceTest {
+    private static final String ADDRESS = "0x0000000000000000000000000000000000000001";
+
+    private JsonRpcStubServer stubServer;
+    private OkHttpClient httpClient;
+    private Web3j web3j;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> "0x2a")
+                .on("eth_getBalance", params -> {
+                    sleep(1000);
+                    return "0x7";
+                });
+        httpClient = HttpService.getOkHttpClientBuilder().build();
+        web3j = Web3j.build(new EthHttpService("http://localhost:" + stubServer.getPort(), httpClient));
+    }
+
+    @AfterEach
+    void stopServer() {
+        web3j.shutdown();
+        stubServer.close();
+    }
+
+    @Test
+    void asyncRequestsShouldBeQueuedOnTheHttpClient() throws Exception {
+        Assertions.assertEquals(BigInteger.valueOf(42), web3j.ethBlockNumber().sendAsync().get().getBlockNumber());
+        Assertions.assertEquals(BigInteger.valueOf(42), web3j.ethBlockNumber().send().getBlockNumber());
+        BatchResponse batch = web3j.newBatch()
+                .add(web3j.ethBlockNumber())
+                .add(web3j.ethBlockNumber())
+                .sendAsync().get();
+        Assertions.assertEquals(2, batch.getResponses().size());
+        Assertions.assertEquals(BigInteger.valueOf(42), ((EthBlockNumber) batch.getResponses().get(1)).getBlockNumber());
+        //requests are calls of the http client, bounded by its dispatcher
+        List<CompletableFuture<EthGetBalance>> balances = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            balances.add(web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync());
+        Assertions.assertEquals(3, httpClient.dispatcher().runningCallsCount());
+        balances.forEach(balance -> Assertions.assertEquals(BigInteger.valueOf(7), balance.join().getBalance()));
+    }
+
+    @Test
+    void cancellingARequestShouldCancelItsCall() throws InterruptedException {
+        CompletableFuture<EthGetBalance> balance = web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync();
+        Assertions.assertEquals(1, httpClient.dispatcher().runningCallsCount());
+        balance.cancel(true);
+        long deadline = System.currentTimeMillis() + 500;
+        while (httpClient.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assertions.assertEquals(0, httpClient.dispatcher().runningCallsCount());
+    }
+
+    @Test
+    void unreachableNodeShouldFailTheRequest() throws IOException {
+        JsonRpcStubServer deadServer = new JsonRpcStubServer();
+        int port = deadServer.getPort();
+        deadServer.close();
+        Web3j deadWeb3j = Web3j.build(new EthHttpService("http://localhost:" + port));
+        CompletableFuture<EthBlockNumber> blockNumber = deadWeb3j.ethBlockNumber().sendAsync();
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, blockNumber::get);
+        Assertions.assertInstanceOf(IOException.class, e.getCause());
+        deadWeb3j.shutdown();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import it.water.connectors.ethereum.model.EthBlockchainEndpoint;
+import it.water.connectors.ethereum.model.EthEndpointHealth;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class EthLoadBalancedServiceTest {
+    private static final String ADDRESS = "0x0000000000000000000000000000000000000001";
+
+    private JsonRpcStubServer slowServer;
+    private JsonRpcStubServer fastServer;
+    private final AtomicLong slowServerBlock = new AtomicLong(100);
+    private EthWeb3JClientRegistry registry;
+
+    @BeforeEach
+    void startServers() throws IOException {
+        slowServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> Numeric.encodeQuantity(BigInteger.valueOf(slowServerBlock.get())))
+                .on("eth_getBalance", params -> {
+                    sleep(40);
+                    return "0x1";
+                });
+        fastServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> "0x64")
+                .on("eth_getBalance", params -> "0x1");
+        registry = new EthWeb3JClientRegistry();
+    }
+
+    @AfterEach
+    void stopServers() {
+        registry.evictAll();
+        slowServer.close();
+        fastServer.close();
+    }
+
+    @Test
+    void requestsShouldGoToTheFastestEndpoint() throws IOException {
+        Web3j web3j = registry.acquire(balancedBlockchain(slowServer, fastServer));
+        for (int i = 0; i < 10; i++)
+            Assertions.assertEquals(BigInteger.ONE, web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).send().getBalance());
+        //the slow endpoint is tried once, then its average latency keeps it behind the fast one
+        Assertions.assertEquals(1, slowServer.getCalls("eth_getBalance"));
+        Assertions.assertEquals(9, fastServer.getCalls("eth_getBalance"));
+    }
+
+    @Test
+    void failingEndpointShouldBeEjectedAndRequestSentElsewhere() throws Exception {
+        JsonRpcStubServer deadServer = new JsonRpcStubServer();
+        EthBlockchain deadBlockchain = deadServer.getBlockchain();
+        deadServer.close();
+        EthLoadBalancedService service = balancedService(deadBlockchain, fastServer.getBlockchain());
+        Web3j web3j = Web3j.build(service);
+        Assertions.assertEquals(BigInteger.ONE, web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync().get().getBalance());
+        Assertions.assertEquals(BigInteger.ONE, web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).send().getBalance());
+        List<EthEndpointHealth> health = service.getHealth();
+        Assertions.assertFalse(health.get(0).isAvailable());
+        Assertions.assertEquals(1, health.get(0).getConsecutiveFailures());
+        Assertions.assertNotNull(health.get(0).getLastError());
+        Assertions.assertTrue(health.get(1).isAvailable());
+        Assertions.assertEquals(2, fastServer.getCalls("eth_getBalance"));
+        web3j.shutdown();
+    }
+
+    @Test
+    void laggingEndpointShouldBeEjectedUntilItCatchesUp() {
+        slowServerBlock.set(90);
+        EthLoadBalancedService service = balancedService(slowServer.getBlockchain(), fastServer.getBlockchain());
+        service.probe().join();
+        List<EthEndpointHealth> health = service.getHealth();
+        Assertions.assertFalse(health.get(0).isAvailable());
+        Assertions.assertEquals(10, health.get(0).getBlocksBehind());
+        Assertions.assertTrue(health.get(1).isAvailable());
+        Assertions.assertEquals(100, health.get(1).getBlockNumber());
+        Assertions.assertSame(service.getEndpoints().get(1), service.candidates().get(0));
+        slowServerBlock.set(98);
+        service.probe().join();
+        Assertions.assertTrue(service.getHealth().get(0).isAvailable());
+        Assertions.assertEquals(0, service.getHealth().get(0).getConsecutiveFailures());
+    }
+
+    @Test
+    void lateReadsShouldBeHedged() throws IOException {
+        //the first request of each method stalls, wherever it goes
+        AtomicInteger requests = new AtomicInteger();
+        Function<JsonNode, Object> firstStalls = params -> {
+            if (requests.getAndIncrement() == 0)
+                sleep(1000);
+            return "0x1";
+        };
+        slowServer.on("eth_getBalance", firstStalls).on("eth_sendRawTransaction", firstStalls);
+        fastServer.on("eth_getBalance", firstStalls).on("eth_sendRawTransaction", firstStalls);
+        EthLoadBalancedService service = balancedService(slowServer.getBlockchain(), fastServer.getBlockchain());
+        //probes give both endpoints enough latency samples
+        for (int i = 0; i < EthLoadBalancedService.MIN_HEDGE_SAMPLES; i++)
+            service.probe().join();
+        //leaving the stalled request enough time to reach its node before the duplicate
+        service.setMinHedgeDelayMillis(100);
+        Web3j web3j = Web3j.build(service);
+        long start = System.currentTimeMillis();
+        Assertions.assertEquals(BigInteger.ONE, web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).send().getBalance());
+        Assertions.assertTrue(System.currentTimeMillis() - start < 900);
+        Assertions.assertEquals(1, service.getHedgedRequests());
+        Assertions.assertEquals(1, service.getHedgeWins());
+        Assertions.assertEquals(2, slowServer.getCalls("eth_getBalance") + fastServer.getCalls("eth_getBalance"));
+        //transactions are never duplicated
+        requests.set(0);
+        web3j.ethSendRawTransaction("0x00").send();
+        Assertions.assertEquals(1, slowServer.getCalls("eth_sendRawTransaction") + fastServer.getCalls("eth_sendRawTransaction"));
+        Assertions.assertEquals(1, service.getHedgedRequests());
+        web3j.shutdown();
+        //a single node has no other endpoint to hedge to
+        requests.set(0);
+        EthLoadBalancedService singleNodeService = balancedService(fastServer.getBlockchain());
+        for (int i = 0; i < EthLoadBalancedService.MIN_HEDGE_SAMPLES; i++)
+            singleNodeService.probe().join();
+        singleNodeService.setMinHedgeDelayMillis(10);
+        Web3j singleNodeWeb3j = Web3j.build(singleNodeService);
+        int fastServerCalls = fastServer.getCalls("eth_getBalance");
+        Assertions.assertEquals(BigInteger.ONE, singleNodeWeb3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).send().getBalance());
+        Assertions.assertEquals(0, singleNodeService.getHedgedRequests());
+        Assertions.assertEquals(fastServerCalls + 1, fastServer.getCalls("eth_getBalance"));
+        singleNodeWeb3j.shutdown();
+    }
+
+    @Test
+    void registryShouldReportEndpointsHealth() {
+        EthBlockchain blockchain = balancedBlockchain(slowServer, fastServer);
+        Assertions.assertTrue(registry.acquireConnection(blockchain).getService() instanceof EthLoadBalancedService);
+        Assertions.assertEquals(2, registry.getEndpointsHealth(blockchain).size());
+        //a single node is checked on demand
+        List<EthEndpointHealth> singleNodeHealth = registry.getEndpointsHealth(fastServer.getBlockchain());
+        Assertions.assertEquals(1, singleNodeHealth.size());
+        Assertions.assertTrue(singleNodeHealth.get(0).isAvailable());
+        Assertions.assertEquals(100, singleNodeHealth.get(0).getBlockNumber());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new EthLoadBalancedService(List.of(), EthWeb3JConnection.SHARED_EXECUTOR));
+    }
+
+    private EthLoadBalancedService balancedService(EthBlockchain... blockchains) {
+        EthLoadBalancedService service = new EthLoadBalancedService(Arrays.stream(blockchains)
+                .map(blockchain -> new EthRpcEndpoint(blockchain.getHost() + ":" + blockchain.getPort(), registry.createWeb3jService(blockchain)))
+                .collect(Collectors.toList()), EthWeb3JConnection.SHARED_EXECUTOR);
+        service.setProbeIntervalMillis(0);
+        return service;
+    }
+
+    private static EthBlockchain balancedBlockchain(JsonRpcStubServer main, JsonRpcStubServer other) {
+        EthBlockchain blockchain = main.getBlockchain();
+        blockchain.setEndpoints(List.of(new EthBlockchainEndpoint("http", "localhost", String.valueOf(other.getPort()))));
+        return blockchain;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
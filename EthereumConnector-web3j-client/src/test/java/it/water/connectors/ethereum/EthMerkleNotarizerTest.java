@@ -0,0 +1,208 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import it.water.connectors.ethereum.api.EthDocumentProof;
+import it.water.connectors.ethereum.api.EthMerkleNotarizer;
+import it.water.connectors.ethereum.model.EthSmartContract;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+class EthMerkleNotarizerTest {
+    private static final String ACCOUNT_PRIVATE_KEY = "5c7a050c7b0e3a6896e9667a6dff3a6b389c665aaed218c352071890c05520ee";
+    private static final String CONTRACT = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+    private EthSmartContract smartContract;
+    private String signerAddress;
+    private final List<RawTransaction> sent = new CopyOnWriteArrayList<>();
+    private volatile String receiptStatus = "0x1";
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_call", this::call)
+                .on("eth_estimateGas", params -> "0x7530")
+                .on("eth_gasPrice", params -> "0x1")
+                .on("eth_chainId", params -> "0x539")
+                .on("eth_blockNumber", params -> "0x1")
+                .on("eth_getTransactionCount", params -> "0x0")
+                .on("eth_sendRawTransaction", this::sendRawTransaction)
+                .on("eth_getTransactionReceipt", params -> receipt(params.get(0).asText()));
+        registry = new EthWeb3JClientRegistry();
+        registry.acquireConnection(stubServer.getBlockchain()).getReceiptTracker().setFirstCheckDelayMillis(10);
+        client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        signerAddress = client.withPrivateKey(ACCOUNT_PRIVATE_KEY).getAddress();
+        smartContract = new EthSmartContract("MerkleDataRegistry", "merkleRegistry", CONTRACT, "0x0", stubServer.getBlockchain(), 1L);
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void proofsShouldLeadToTheRoot() {
+        for (int size = 1; size <= 17; size++) {
+            List<byte[]> documents = documents(size);
+            EthMerkleTree tree = EthMerkleTree.of(documents);
+            Assertions.assertEquals(size, tree.size());
+            for (int i = 0; i < size; i++) {
+                List<byte[]> proof = tree.getProof(i);
+                Assertions.assertTrue(EthMerkleTree.verify(documents.get(i), proof, tree.getRoot()));
+                if (size > 1)
+                    Assertions.assertFalse(EthMerkleTree.verify(documents.get((i + 1) % size), proof, tree.getRoot()));
+            }
+        }
+        //three leaves: the third one is promoted, its proof is just the parent of the first two
+        List<byte[]> documents = documents(3);
+        byte[] left = hashPair(Hash.sha3(documents.get(0)), Hash.sha3(documents.get(1)));
+        byte[] root = hashPair(left, Hash.sha3(documents.get(2)));
+        EthMerkleTree tree = EthMerkleTree.of(documents);
+        Assertions.assertArrayEquals(root, tree.getRoot());
+        Assertions.assertEquals(1, tree.getProof(2).size());
+        Assertions.assertArrayEquals(left, tree.getProof(2).get(0));
+        //single document: the root is the leaf
+        Assertions.assertArrayEquals(Hash.sha3(documents.get(0)), EthMerkleTree.of(documents.subList(0, 1)).getRoot());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EthMerkleTree.of(Collections.singletonList(new byte[31])));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> tree.getProof(3));
+    }
+
+    @Test
+    void thousandsOfDocumentsShouldBeNotarizedBySingleTransaction() throws Exception {
+        int documentsCount = 2000;
+        EthWeb3JMerkleNotarizer notarizer = client.merkleNotarizer(smartContract, signerAddress);
+        Assertions.assertSame(notarizer, registry.getClient(stubServer.getBlockchain()).merkleNotarizer(smartContract, signerAddress));
+        notarizer.setWindowMillis(TimeUnit.MINUTES.toMillis(1));
+        notarizer.setMaxBatchSize(documentsCount);
+        List<byte[]> documents = documents(documentsCount);
+        List<CompletableFuture<EthDocumentProof>> proofs = new ArrayList<>();
+        for (int i = 0; i < documentsCount - 1; i++)
+            proofs.add(notarizer.notarizeAsync(Numeric.toHexString(documents.get(i))));
+        //the same document queued twice shares its proof
+        Assertions.assertSame(proofs.get(0), notarizer.notarizeAsync(Numeric.toHexString(documents.get(0)).toUpperCase().replace("0X", "0x")));
+        Assertions.assertEquals(documentsCount - 1, notarizer.getQueued());
+        Assertions.assertTrue(sent.isEmpty());
+        //max batch size reached, the batch is sent without waiting for the window
+        proofs.add(notarizer.notarizeAsync(Numeric.toHexString(documents.get(documentsCount - 1))));
+        CompletableFuture.allOf(proofs.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, sent.size());
+        Assertions.assertEquals(0, notarizer.getQueued());
+        EthMerkleTree tree = EthMerkleTree.of(documents);
+        String root = Numeric.toHexString(tree.getRoot());
+        Assertions.assertEquals(FunctionEncoder.encode(new org.web3j.abi.datatypes.Function("notarizeRoot",
+                Arrays.asList(new Bytes32(tree.getRoot()), new Uint256(documentsCount)), Collections.emptyList())), "0x" + sent.get(0).getData());
+        for (int i = 0; i < documentsCount; i++) {
+            EthDocumentProof proof = proofs.get(i).get();
+            Assertions.assertEquals(Numeric.toHexString(documents.get(i)), proof.getDocumentHash());
+            Assertions.assertEquals(root, proof.getRoot());
+            Assertions.assertEquals(i, proof.getLeafIndex());
+            Assertions.assertEquals(BigInteger.ONE, proof.getBlockNumber());
+            Assertions.assertNotNull(proof.getTransactionHash());
+            Assertions.assertTrue(client.verifyMerkleProof(proof.getDocumentHash(), proof.getProof(), proof.getRoot()));
+        }
+        EthDocumentProof proof = proofs.get(5).get();
+        Assertions.assertFalse(client.verifyMerkleProof(proof.getDocumentHash(), proofs.get(6).get().getProof(), root));
+        Assertions.assertFalse(client.verifyMerkleProof(proof.getDocumentHash(), Collections.singletonList("0xzz"), root));
+        Assertions.assertTrue(client.isMerkleRootNotarized(smartContract, root));
+        Assertions.assertFalse(client.isMerkleRootNotarized(smartContract, Numeric.toHexString(documents.get(0))));
+    }
+
+    @Test
+    void closingConnectionShouldNotarizeQueuedDocuments() throws Exception {
+        EthWeb3JMerkleNotarizer notarizer = client.merkleNotarizer(smartContract, signerAddress);
+        notarizer.setWindowMillis(TimeUnit.MINUTES.toMillis(1));
+        List<CompletableFuture<EthDocumentProof>> proofs = new ArrayList<>();
+        documents(3).forEach(document -> proofs.add(notarizer.notarizeAsync(Numeric.toHexString(document))));
+        Assertions.assertTrue(client.getConnection().hasPendingWork());
+        //queued documents are sent right away and the connection is shut down once they are mined
+        client.getConnection().close(TimeUnit.SECONDS.toMillis(10)).get(10, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, sent.size());
+        for (CompletableFuture<EthDocumentProof> proof : proofs)
+            Assertions.assertTrue(proof.isDone() && !proof.isCompletedExceptionally());
+        Assertions.assertTrue(notarizer.isIdle());
+        Assertions.assertFalse(client.getConnection().hasPendingWork());
+    }
+
+    @Test
+    void failedRootTransactionShouldFailEveryDocument() {
+        receiptStatus = "0x0";
+        EthMerkleNotarizer notarizer = client.merkleNotarizer(smartContract, signerAddress);
+        ((EthWeb3JMerkleNotarizer) notarizer).setWindowMillis(10);
+        List<byte[]> documents = documents(3);
+        List<CompletableFuture<EthDocumentProof>> proofs = new ArrayList<>();
+        documents.forEach(document -> proofs.add(notarizer.notarizeAsync(Numeric.toHexString(document))));
+        for (CompletableFuture<EthDocumentProof> proof : proofs)
+            Assertions.assertThrows(ExecutionException.class, () -> proof.get(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, sent.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> notarizer.notarizeAsync("0x01"));
+        Assertions.assertThrows(IllegalStateException.class, () -> client.merkleNotarizer(smartContract, "0x00000000000000000000000000000000000000aa"));
+    }
+
+    private static List<byte[]> documents(int size) {
+        List<byte[]> documents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            documents.add(Hash.sha3(BigInteger.valueOf(i).toByteArray()));
+        return documents;
+    }
+
+    private static byte[] hashPair(byte[] a, byte[] b) {
+        boolean aFirst = new BigInteger(1, a).compareTo(new BigInteger(1, b)) < 0;
+        byte[] pair = new byte[64];
+        System.arraycopy(aFirst ? a : b, 0, pair, 0, 32);
+        System.arraycopy(aFirst ? b : a, 0, pair, 32, 32);
+        return Hash.sha3(pair);
+    }
+
+    private Object call(JsonNode params) {
+        String data = params.get(0).get("input") != null ? params.get(0).get("input").asText() : params.get(0).get("data").asText();
+        String root = "0x" + data.substring(10);
+        boolean notarized = sent.stream().anyMatch(transaction -> transaction.getData().substring(8, 72).equals(root.substring(2)));
+        return FunctionEncoder.encodeConstructor(Collections.singletonList(new Bool(notarized)));
+    }
+
+    private Object sendRawTransaction(JsonNode params) {
+        String raw = params.get(0).asText();
+        sent.add(TransactionDecoder.decode(raw));
+        return Hash.sha3(raw);
+    }
+
+    private Map<String, Object> receipt(String transactionHash) {
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("transactionHash", transactionHash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockHash", transactionHash);
+        receipt.put("blockNumber", "0x1");
+        receipt.put("gasUsed", "0x5208");
+        receipt.put("cumulativeGasUsed", "0x5208");
+        receipt.put("status", receiptStatus);
+        receipt.put("to", CONTRACT);
+        receipt.put("logs", Collections.emptyList());
+        return receipt;
+    }
+}
@@ -0,0 +1,177 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import it.water.connectors.ethereum.api.EthContract;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.DynamicStruct;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+class EthMulticallTest {
+    private static final String REGISTRY = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final String COUNTER = "0x00000000000000000000000000000000000000cc";
+    private static final String BROKEN = "0x00000000000000000000000000000000000000dd";
+    private static final String REGISTRY_ABI = "[{\"type\":\"function\",\"name\":\"isNotarized\",\"stateMutability\":\"view\","
+            + "\"inputs\":[{\"name\":\"_dataHash\",\"type\":\"bytes32\"}],\"outputs\":[{\"name\":\"\",\"type\":\"bool\"}]}]";
+    private static final String COUNTER_ABI = "[{\"type\":\"function\",\"name\":\"getCount\",\"stateMutability\":\"view\","
+            + "\"inputs\":[],\"outputs\":[{\"name\":\"\",\"type\":\"uint256\"}]}]";
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+    private EthWeb3JMulticall multicall;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_getCode", params -> "0x6080604052")
+                .on("eth_call", this::call);
+        registry = new EthWeb3JClientRegistry();
+        client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        multicall = client.multicall();
+        //calls are flushed by size or explicitly
+        multicall.setWindowMillis(60000);
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void callsShouldBeAggregatedAcrossContracts() {
+        multicall.setMaxCallsPerAggregate(500);
+        EthContract dataRegistry = client.contract(REGISTRY, REGISTRY_ABI);
+        EthContract counter = client.contract(COUNTER, COUNTER_ABI);
+        List<CompletableFuture<List<Object>>> verifications = new ArrayList<>();
+        for (int i = 0; i < 1200; i++)
+            verifications.add(multicall.callAsync(dataRegistry, "isNotarized", documentHash(i)));
+        CompletableFuture<List<Object>> count = multicall.callAsync(counter, "getCount");
+        CompletableFuture<List<Object>> broken = multicall.callAsync(client.contract(BROKEN, COUNTER_ABI), "getCount");
+        multicall.flush();
+        for (int i = 0; i < verifications.size(); i++)
+            Assertions.assertEquals(Collections.singletonList(i % 2 == 0), verifications.get(i).join());
+        Assertions.assertEquals(Collections.singletonList(BigInteger.valueOf(42)), count.join());
+        CompletionException failure = Assertions.assertThrows(CompletionException.class, broken::join);
+        Assertions.assertInstanceOf(WaterRuntimeException.class, failure.getCause());
+        //1202 calls in 3 aggregate calls
+        Assertions.assertEquals(3, stubServer.getCalls("eth_call"));
+        Assertions.assertEquals(1, stubServer.getCalls("eth_getCode"));
+    }
+
+    @Test
+    void callsShouldBeBatchedWithoutMulticall() {
+        stubServer.on("eth_getCode", params -> "0x");
+        multicall.setBatchSize(100);
+        EthContract dataRegistry = client.contract(REGISTRY, REGISTRY_ABI);
+        List<CompletableFuture<List<Object>>> verifications = new ArrayList<>();
+        for (int i = 0; i < 250; i++)
+            verifications.add(multicall.callAsync(dataRegistry, "isNotarized", documentHash(i)));
+        int httpCalls = stubServer.getHttpCalls();
+        multicall.flush();
+        for (int i = 0; i < verifications.size(); i++)
+            Assertions.assertEquals(Collections.singletonList(i % 2 == 0), verifications.get(i).join());
+        Assertions.assertEquals(250, stubServer.getCalls("eth_call"));
+        //eth_getCode plus 3 batches
+        Assertions.assertEquals(httpCalls + 4, stubServer.getHttpCalls());
+    }
+
+    @Test
+    void aggregateEncodingShouldMatchWeb3j() {
+        EthAbi.CompiledFunction isNotarized = EthAbi.parse(REGISTRY_ABI).function("isNotarized", 1);
+        List<EthWeb3JMulticall.PendingCall> calls = new ArrayList<>();
+        List<Call3> expected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String data = isNotarized.encode(documentHash(i));
+            calls.add(new EthWeb3JMulticall.PendingCall(REGISTRY, isNotarized, data));
+            expected.add(new Call3(new Address(REGISTRY), new Bool(true), new DynamicBytes(Numeric.hexStringToByteArray(data))));
+        }
+        String expectedData = Hash.sha3String("aggregate3((address,bool,bytes)[])").substring(0, 10)
+                + FunctionEncoder.encodeConstructor(Collections.singletonList(new DynamicArray<>(Call3.class, expected)));
+        Assertions.assertEquals(expectedData, EthWeb3JMulticall.encodeAggregate3(calls));
+    }
+
+    private static byte[] documentHash(int i) {
+        return Hash.sha3(BigInteger.valueOf(i).toByteArray());
+    }
+
+    private static boolean isNotarized(byte[] hash) {
+        for (int i = 0; i < 1200; i++) {
+            if (Arrays.equals(hash, documentHash(i)))
+                return i % 2 == 0;
+        }
+        return false;
+    }
+
+    private Object call(JsonNode params) {
+        String to = params.get(0).get("to").asText().toLowerCase(Locale.ROOT);
+        String data = params.get(0).has("input") ? params.get(0).get("input").asText() : params.get(0).get("data").asText();
+        if (to.equals(EthWeb3JMulticall.DEFAULT_MULTICALL_ADDRESS.toLowerCase(Locale.ROOT)))
+            return aggregate3(data);
+        byte[] result = execute(to, data);
+        if (result == null)
+            throw new IllegalStateException("execution reverted");
+        return Numeric.toHexString(result);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object aggregate3(String data) {
+        List<Type> decoded = FunctionReturnDecoder.decode(data.substring(10), (List) Collections.singletonList(new TypeReference<DynamicArray<Call3>>() {
+        }));
+        List<Result> results = new ArrayList<>();
+        for (Call3 call : ((DynamicArray<Call3>) decoded.get(0)).getValue()) {
+            byte[] result = execute(call.target.toLowerCase(Locale.ROOT), Numeric.toHexString(call.callData));
+            results.add(new Result(new Bool(result != null), new DynamicBytes(result == null ? new byte[0] : result)));
+        }
+        return "0x" + FunctionEncoder.encodeConstructor(Collections.singletonList(new DynamicArray<>(Result.class, results)));
+    }
+
+    private byte[] execute(String to, String data) {
+        if (to.equals(REGISTRY))
+            return Numeric.hexStringToByteArray(FunctionEncoder.encodeConstructor(Collections.singletonList(new Bool(isNotarized(Numeric.hexStringToByteArray(data.substring(10)))))));
+        if (to.equals(COUNTER))
+            return Numeric.hexStringToByteArray(FunctionEncoder.encodeConstructor(Collections.singletonList(new Uint256(42))));
+        return null;
+    }
+
+    public static class Call3 extends DynamicStruct {
+        private final String target;
+        private final byte[] callData;
+
+        public Call3(Address target, Bool allowFailure, DynamicBytes callData) {
+            super(target, allowFailure, callData);
+            this.target = target.getValue();
+            this.callData = callData.getValue();
+        }
+    }
+
+    public static class Result extends DynamicStruct {
+        public Result(Bool success, DynamicBytes returnData) {
+            super(success, returnData);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import it.water.connectors.ethereum.api.EthSigner;
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.Response;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+class EthNonceManagerTest {
+    private static final String ACCOUNT_PRIVATE_KEY = "5c7a050c7b0e3a6896e9667a6dff3a6b389c665aaed218c352071890c05520ee";
+    private static final String DESTINATION = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private final AtomicReference<String> pendingCount = new AtomicReference<>("0x5");
+    private final AtomicReference<String> rejectNextWith = new AtomicReference<>();
+    private final AtomicReference<String> lastSent = new AtomicReference<>();
+    private final Set<BigInteger> sentNonces = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_getTransactionCount", params -> pendingCount.get())
+                .on("eth_gasPrice", params -> "0x1")
+                .on("eth_chainId", params -> "0x539")
+                .on("eth_sendRawTransaction", this::sendRawTransaction)
+                .on("eth_blockNumber", params -> "0x1")
+                .on("eth_getTransactionReceipt", params -> receipt(params.get(0).asText()));
+        registry = new EthWeb3JClientRegistry();
+        registry.acquireConnection(stubServer.getBlockchain()).getReceiptTracker().setFirstCheckDelayMillis(10);
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void concurrentTransfersShouldUseConsecutiveNonces() {
+        EthWeb3JClient client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        EthSigner signer = client.withPrivateKey(ACCOUNT_PRIVATE_KEY);
+        List<CompletableFuture<?>> transfers = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            transfers.add(signer.transferEtherAsync(DESTINATION, BigDecimal.ONE));
+        CompletableFuture.allOf(transfers.toArray(new CompletableFuture[0])).join();
+        Assertions.assertEquals(10, sentNonces.size());
+        for (int i = 5; i < 15; i++)
+            Assertions.assertTrue(sentNonces.contains(BigInteger.valueOf(i)));
+        //nonce has been read from the node just once
+        Assertions.assertEquals(1, stubServer.getCalls("eth_getTransactionCount"));
+    }
+
+    @Test
+    void nonceErrorShouldResyncAndRetry() {
+        EthWeb3JClient client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        EthSigner signer = client.withPrivateKey(ACCOUNT_PRIVATE_KEY);
+        signer.transferEtherAsync(DESTINATION, BigDecimal.ONE).join();
+        //another process sent transactions from the same account
+        pendingCount.set("0x9");
+        rejectNextWith.set("nonce too low");
+        signer.transferEtherAsync(DESTINATION, BigDecimal.ONE).join();
+        Assertions.assertTrue(sentNonces.contains(BigInteger.valueOf(9)));
+        Assertions.assertEquals(2, stubServer.getCalls("eth_getTransactionCount"));
+        Assertions.assertEquals(BigInteger.TEN, client.getConnection().getNonceManager().peek(credentialsAddress()));
+    }
+
+    @Test
+    void alreadyKnownTransactionShouldBeSentWithLocalHash() {
+        EthWeb3JClient client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        EthSigner signer = client.withPrivateKey(ACCOUNT_PRIVATE_KEY);
+        rejectNextWith.set("already known");
+        EthTransactionReceipt receipt = signer.transferEtherAsync(DESTINATION, BigDecimal.ONE).join();
+        Assertions.assertEquals(Hash.sha3(lastSent.get()), receipt.getTransactionHash());
+        Assertions.assertEquals(1, stubServer.getCalls("eth_sendRawTransaction"));
+        //the nonce is taken by the pending transaction
+        Assertions.assertEquals(BigInteger.valueOf(6), client.getConnection().getNonceManager().peek(credentialsAddress()));
+    }
+
+    @Test
+    void underpricedReplacementShouldNotBeResent() {
+        EthWeb3JClient client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        EthSigner signer = client.withPrivateKey(ACCOUNT_PRIVATE_KEY);
+        rejectNextWith.set("replacement transaction underpriced");
+        CompletableFuture<EthTransactionReceipt> transfer = signer.transferEtherAsync(DESTINATION, BigDecimal.ONE);
+        Assertions.assertThrows(CompletionException.class, transfer::join);
+        Assertions.assertEquals(1, stubServer.getCalls("eth_sendRawTransaction"));
+        Assertions.assertEquals(1, stubServer.getCalls("eth_getTransactionCount"));
+        //another transaction is pending with that nonce, the next transfer uses the following one
+        signer.transferEtherAsync(DESTINATION, BigDecimal.ONE).join();
+        Assertions.assertTrue(sentNonces.contains(BigInteger.valueOf(6)));
+    }
+
+    @Test
+    void releasedNoncesShouldBeReusedOrResynced() throws IOException {
+        EthNonceManager nonceManager = registry.acquireConnection(stubServer.getBlockchain()).getNonceManager();
+        String address = credentialsAddress();
+        Assertions.assertNull(nonceManager.peek(address));
+        Assertions.assertEquals(BigInteger.valueOf(5), nonceManager.next(address));
+        Assertions.assertEquals(BigInteger.valueOf(6), nonceManager.next(address));
+        //last allocated nonce is reused
+        nonceManager.release(address, BigInteger.valueOf(6));
+        Assertions.assertEquals(BigInteger.valueOf(6), nonceManager.next(address));
+        Assertions.assertEquals(BigInteger.valueOf(7), nonceManager.next(address));
+        //gap in the sequence, the account must be resynced
+        nonceManager.release(address, BigInteger.valueOf(5));
+        Assertions.assertNull(nonceManager.peek(address));
+        Assertions.assertEquals(BigInteger.valueOf(5), nonceManager.next(address));
+        Assertions.assertEquals(2, stubServer.getCalls("eth_getTransactionCount"));
+        EthSendTransaction rejected = new EthSendTransaction();
+        rejected.setError(new Response.Error(-32000, "replacement transaction underpriced"));
+        Assertions.assertFalse(nonceManager.onTransactionSent(address, BigInteger.valueOf(5), rejected));
+        Assertions.assertEquals(BigInteger.valueOf(6), nonceManager.peek(address));
+        rejected.setError(new Response.Error(-32000, "nonce too high"));
+        Assertions.assertTrue(nonceManager.onTransactionSent(address, BigInteger.valueOf(6), rejected));
+        Assertions.assertNull(nonceManager.peek(address));
+        Assertions.assertFalse(EthNonceManager.isNonceError("insufficient funds for gas * price + value"));
+        Assertions.assertTrue(EthNonceManager.isNonceError("Transaction nonce is too low. Try incrementing the nonce."));
+    }
+
+    private String credentialsAddress() {
+        return org.web3j.crypto.Credentials.create(ACCOUNT_PRIVATE_KEY).getAddress();
+    }
+
+    private Object sendRawTransaction(JsonNode params) {
+        lastSent.set(params.get(0).asText());
+        BigInteger nonce = TransactionDecoder.decode(params.get(0).asText()).getNonce();
+        String rejection = rejectNextWith.getAndSet(null);
+        if (rejection != null)
+            throw new IllegalStateException(rejection);
+        sentNonces.add(nonce);
+        return Numeric.toHexStringWithPrefixZeroPadded(nonce, 64);
+    }
+
+    private Map<String, Object> receipt(String transactionHash) {
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("transactionHash", transactionHash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockHash", transactionHash);
+        receipt.put("blockNumber", "0x1");
+        receipt.put("gasUsed", "0x5208");
+        receipt.put("cumulativeGasUsed", "0x5208");
+        receipt.put("status", "0x1");
+        receipt.put("from", credentialsAddress());
+        receipt.put("to", DESTINATION);
+        receipt.put("logs", new ArrayList<>());
+        return receipt;
+    }
+}
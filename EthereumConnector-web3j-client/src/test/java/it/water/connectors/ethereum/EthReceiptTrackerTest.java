@@ -0,0 +1,154 @@
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthClient;
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+class EthReceiptTrackerTest {
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthChainHeadTracker headTracker;
+    private EthReceiptTracker receiptTracker;
+    private EthWeb3JConnection connection;
+    private final AtomicLong blockNumber = new AtomicLong(1);
+    private final AtomicBoolean mined = new AtomicBoolean(false);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> Numeric.encodeQuantity(BigInteger.valueOf(blockNumber.get())))
+                .on("eth_getTransactionReceipt", params -> mined.get() ? receipt(params.get(0).asText()) : null);
+        registry = new EthWeb3JClientRegistry();
+        connection = registry.acquireConnection(stubServer.getBlockchain());
+        headTracker = connection.getChainHeadTracker();
+        headTracker.setPollingIntervalMillis(10);
+        headTracker.setMinPollingIntervalMillis(10);
+        receiptTracker = connection.getReceiptTracker();
+        receiptTracker.setFirstCheckDelayMillis(10);
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void pendingReceiptsShouldBeFetchedOncePerBlock() throws InterruptedException {
+        receiptTracker.setBatchSize(10);
+        List<CompletableFuture<TransactionReceipt>> receipts = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            receipts.add(receiptTracker.track(Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(i), 64)));
+        //same transaction tracked twice shares the same future
+        Assertions.assertSame(receipts.get(0), receiptTracker.track(Numeric.toHexStringWithPrefixZeroPadded(BigInteger.ZERO, 64)));
+        waitForCalls("eth_getTransactionReceipt", 20);
+        Thread.sleep(100);
+        //no new block, receipts are not fetched again while the head is polled
+        Assertions.assertEquals(20, stubServer.getCalls("eth_getTransactionReceipt"));
+        Assertions.assertTrue(stubServer.getCalls("eth_blockNumber") > 1);
+        Assertions.assertEquals(20, receiptTracker.getPendingCount());
+        mined.set(true);
+        blockNumber.incrementAndGet();
+        CompletableFuture.allOf(receipts.toArray(new CompletableFuture[0])).join();
+        Assertions.assertEquals(40, stubServer.getCalls("eth_getTransactionReceipt"));
+        Assertions.assertEquals(0, receiptTracker.getPendingCount());
+        Assertions.assertEquals(BigInteger.valueOf(2), headTracker.getHead().getBlockNumber());
+    }
+
+    @Test
+    void receiptShouldTimeout() {
+        receiptTracker.setReceiptTimeoutMillis(50);
+        CompletableFuture<TransactionReceipt> receipt = receiptTracker.track("0xdead");
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, receipt::get);
+        Assertions.assertInstanceOf(TransactionException.class, e.getCause());
+        Assertions.assertEquals(0, receiptTracker.getPendingCount());
+    }
+
+    @Test
+    void receiptMinedAfterWaitingShouldComplete() throws InterruptedException {
+        EthClient client = registry.getClient(stubServer.getBlockchain());
+        CompletableFuture<EthTransactionReceipt> receipt = client.waitForTransactionReceiptAsync("0xcafe", 5000);
+        CompletableFuture<String> completionThread = receipt.thenApply(minedReceipt -> Thread.currentThread().getName());
+        //not mined yet, a single read would return no receipt
+        Assertions.assertNull(client.getTransactionReceipt("0xcafe"));
+        waitForCalls("eth_getTransactionReceipt", 2);
+        Assertions.assertFalse(receipt.isDone());
+        mined.set(true);
+        blockNumber.incrementAndGet();
+        Assertions.assertEquals("0xcafe", receipt.join().getTransactionHash());
+        //completed by the client executor, not by the timers of the connection
+        Assertions.assertEquals("eth-web3j-client-completion", completionThread.join());
+        Assertions.assertEquals(0, receiptTracker.getPendingCount());
+    }
+
+    @Test
+    void receiptWaitedForLessShouldTimeoutOnItsOwn() {
+        CompletableFuture<TransactionReceipt> tracked = receiptTracker.track("0xdead");
+        CompletableFuture<TransactionReceipt> waited = receiptTracker.track("0xdead", 50);
+        Assertions.assertNotSame(tracked, waited);
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, waited::get);
+        Assertions.assertInstanceOf(TransactionException.class, e.getCause());
+        //still tracked for the first caller
+        Assertions.assertFalse(tracked.isDone());
+        Assertions.assertEquals(1, receiptTracker.getPendingCount());
+        mined.set(true);
+        blockNumber.incrementAndGet();
+        Assertions.assertEquals("0xdead", tracked.join().getTransactionHash());
+    }
+
+    @Test
+    void evictionShouldWaitForPendingReceipts() {
+        CompletableFuture<TransactionReceipt> receipt = receiptTracker.track("0xbeef");
+        registry.evictAll();
+        Assertions.assertEquals(0, registry.size());
+        Assertions.assertFalse(receipt.isDone());
+        mined.set(true);
+        blockNumber.incrementAndGet();
+        Assertions.assertEquals("0xbeef", receipt.join().getTransactionHash());
+        Assertions.assertFalse(connection.isInUse());
+    }
+
+    @Test
+    void shutdownShouldFailPendingReceipts() {
+        CompletableFuture<TransactionReceipt> receipt = receiptTracker.track("0xbeef");
+        connection.shutdown();
+        Assertions.assertTrue(receipt.isCompletedExceptionally());
+        Assertions.assertThrows(IllegalStateException.class, () -> receiptTracker.track("0xbeef"));
+    }
+
+    private void waitForCalls(String method, int calls) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stubServer.getCalls(method) < calls && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+    }
+
+    private Map<String, Object> receipt(String transactionHash) {
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("transactionHash", transactionHash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockHash", transactionHash);
+        receipt.put("blockNumber", Numeric.encodeQuantity(BigInteger.valueOf(blockNumber.get())));
+        receipt.put("gasUsed", "0x5208");
+        receipt.put("cumulativeGasUsed", "0x5208");
+        receipt.put("status", "0x1");
+        receipt.put("logs", new ArrayList<>());
+        return receipt;
+    }
+}
@@ -0,0 +1,136 @@
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.model.EthLatencySummary;
+import it.water.connectors.ethereum.model.EthRpcMethodMetrics;
+import it.water.connectors.ethereum.model.EthRpcMetrics;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EthRpcMetricsTest {
+    private static final String ADDRESS = "0x0000000000000000000000000000000000000001";
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+
+    @BeforeAll
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> "0x1")
+                .on("eth_getBalance", params -> "0x2")
+                .on("eth_chainId", params -> {
+                    throw new IllegalStateException("chain id not available");
+                })
+                .on("eth_accounts", params -> {
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Collections.singletonList(ADDRESS);
+                });
+        registry = new EthWeb3JClientRegistry();
+        client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+    }
+
+    @AfterAll
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void requestsShouldBeMeteredByMethod() throws Exception {
+        long blockchainId = stubServer.getBlockchain().getId();
+        Assertions.assertEquals(BigInteger.valueOf(2), client.getBalanceOf(ADDRESS));
+        Assertions.assertTrue(client.getConnection().getWeb3j().ethChainId().send().hasError());
+        WaterRuntimeException error = Assertions.assertThrows(WaterRuntimeException.class, () -> client.withDeadline(100).listAccounts());
+        Assertions.assertTrue(error.getMessage().contains("eth_accounts"));
+        //the slow request is cancelled when the deadline expires
+        Thread.sleep(100);
+
+        EthRpcMetrics metrics = registry.getMetricsRegistry().getMetrics(blockchainId);
+        Assertions.assertEquals(blockchainId, metrics.getBlockchainId());
+        EthRpcMethodMetrics balance = methodMetrics(metrics, "eth_getBalance");
+        Assertions.assertTrue(balance.getRequests() >= 1);
+        Assertions.assertEquals(0, balance.getErrors());
+        Assertions.assertEquals(0, balance.getInFlight());
+        Assertions.assertEquals(balance.getRequests(), balance.getLatency().getCount());
+        Assertions.assertTrue(balance.getBytesSent() > 0);
+        Assertions.assertTrue(balance.getBytesReceived() > 0);
+        Assertions.assertTrue(balance.getLatency().getMaxMillis() >= balance.getLatency().getP50Millis());
+
+        EthRpcMethodMetrics chainId = methodMetrics(metrics, "eth_chainId");
+        Assertions.assertEquals(1, chainId.getRequests());
+        Assertions.assertEquals(1, chainId.getErrors());
+
+        EthRpcMethodMetrics accounts = methodMetrics(metrics, "eth_accounts");
+        Assertions.assertEquals(1, accounts.getRequests());
+        Assertions.assertEquals(1, accounts.getTimeouts());
+        Assertions.assertEquals(1, accounts.getErrors());
+        Assertions.assertEquals(0, accounts.getInFlight());
+        Assertions.assertTrue(accounts.getLatency().getMaxMillis() >= 100);
+
+        registry.getMetricsRegistry().clear(blockchainId);
+        Assertions.assertTrue(registry.getMetricsRegistry().getMetrics(blockchainId).getMethods().stream()
+                .noneMatch(method -> method.getMethod().equals("eth_accounts")));
+    }
+
+    @Test
+    void receiptWaitShouldBeSummarized() {
+        EthWeb3JRpcMetricsRegistry metricsRegistry = new EthWeb3JRpcMetricsRegistry();
+        Assertions.assertEquals(0, metricsRegistry.getMetrics(7).getReceiptWait().getCount());
+        metricsRegistry.receiptReceived(7, TimeUnit.SECONDS.toNanos(2));
+        metricsRegistry.receiptReceived(7, TimeUnit.SECONDS.toNanos(4));
+        EthLatencySummary receiptWait = metricsRegistry.getMetrics(7).getReceiptWait();
+        Assertions.assertEquals(2, receiptWait.getCount());
+        Assertions.assertEquals(3000, receiptWait.getMeanMillis(), 0.001);
+        Assertions.assertEquals(4000, receiptWait.getMaxMillis(), 0.001);
+        Assertions.assertEquals(2000, receiptWait.getP50Millis(), 2000d / 32);
+        Assertions.assertTrue(metricsRegistry.getMetrics(7).getMethods().isEmpty());
+    }
+
+    @Test
+    void histogramShouldApproximatePercentiles() {
+        EthLatencyHistogram histogram = new EthLatencyHistogram();
+        Assertions.assertEquals(0, histogram.getPercentileMicros(99));
+        for (long micros = 1; micros <= 10000; micros++)
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        Assertions.assertEquals(10000, histogram.getCount());
+        Assertions.assertEquals(5000, histogram.getPercentileMicros(50), 5000d / 32);
+        Assertions.assertEquals(9900, histogram.getPercentileMicros(99), 9900d / 32);
+        Assertions.assertEquals(10000, histogram.getPercentileMicros(100), 10000d / 32);
+        Assertions.assertEquals(10, histogram.toSummary().getMaxMillis(), 0.001);
+        for (long value : new long[]{0, 31, 32, 63, 64, 65, 1000, 123456789, 1L << 40})
+            Assertions.assertTrue(EthLatencyHistogram.bucketLowerBound(EthLatencyHistogram.bucketIndex(value)) <= value);
+        Assertions.assertEquals(63, EthLatencyHistogram.bucketIndex(63));
+        Assertions.assertEquals(64, EthLatencyHistogram.bucketIndex(64));
+        Assertions.assertEquals(64, EthLatencyHistogram.bucketIndex(65));
+    }
+
+    @Test
+    void bytesShouldBeAttributedToThePayloadMethod() {
+        Assertions.assertEquals("eth_call", EthMeteredHttpService.methodOf("{\"jsonrpc\":\"2.0\",\"method\":\"eth_call\",\"params\":[],\"id\":1}"));
+        Assertions.assertEquals("eth_getBalance", EthMeteredHttpService.methodOf(
+                "[{\"method\":\"eth_getBalance\",\"id\":1},{\"method\":\"eth_getBalance\",\"id\":2}]"));
+        Assertions.assertEquals(EthMeteredHttpService.BATCH_METHOD, EthMeteredHttpService.methodOf(
+                "[{\"method\":\"eth_getBalance\",\"id\":1},{\"method\":\"eth_getBalanceOf\",\"id\":2}]"));
+        Assertions.assertEquals(5, EthMeteredHttpService.utf8Length("\"abc\""));
+        Assertions.assertEquals(3, EthMeteredHttpService.utf8Length("\u20ac"));
+    }
+
+    private static EthRpcMethodMetrics methodMetrics(EthRpcMetrics metrics, String method) {
+        return metrics.getMethods().stream().filter(methodMetrics -> methodMetrics.getMethod().equals(method)).findFirst()
+                .orElseThrow(() -> new AssertionError(method + " not metered"));
+    }
+}
@@ -0,0 +1,162 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.SignedRawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.utils.Convert;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+class EthSenderPoolTest {
+    private static final List<String> PRIVATE_KEYS = Arrays.asList(
+            "5c7a050c7b0e3a6896e9667a6dff3a6b389c665aaed218c352071890c05520ee",
+            "8f2a55949038a9610f50fb23b5883af3b4ecb3c3bb792cbcefbd1542c692be63",
+            "c87509a1c067bbde78beb793e6fa76530b6382a4c0241e5e4a9ec0a0f44dc0d3");
+    private static final String DESTINATION = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+    private final List<String> addresses = new ArrayList<>();
+    private final Map<String, List<SignedRawTransaction>> sentBySender = new ConcurrentHashMap<>();
+    private final Map<String, SignedRawTransaction> transactions = new ConcurrentHashMap<>();
+    private final Map<String, BigInteger> balances = new ConcurrentHashMap<>();
+    private final AtomicBoolean mining = new AtomicBoolean(true);
+    private final AtomicLong blockNumber = new AtomicLong(1);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_getTransactionCount", params -> "0x0")
+                .on("eth_gasPrice", params -> "0x1")
+                .on("eth_chainId", params -> "0x539")
+                .on("eth_sendRawTransaction", this::sendRawTransaction)
+                .on("eth_blockNumber", params -> Numeric.encodeQuantity(BigInteger.valueOf(blockNumber.get())))
+                .on("eth_getBlockByNumber", params -> null)
+                .on("eth_getBalance", params -> Numeric.encodeQuantity(balances.getOrDefault(params.get(0).asText().toLowerCase(), BigInteger.ZERO)))
+                .on("eth_getTransactionReceipt", params -> mining.get() ? receipt(params.get(0).asText()) : null);
+        registry = new EthWeb3JClientRegistry();
+        EthWeb3JConnection connection = registry.acquireConnection(stubServer.getBlockchain());
+        connection.getReceiptTracker().setFirstCheckDelayMillis(10);
+        connection.getChainHeadTracker().setMinPollingIntervalMillis(10);
+        connection.getChainHeadTracker().setPollingIntervalMillis(10);
+        client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        PRIVATE_KEYS.forEach(privateKey -> addresses.add(client.withPrivateKey(privateKey).getAddress()));
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void transfersShouldBeSpreadOverSendersWithinInFlightLimit() throws InterruptedException {
+        EthWeb3JSenderPool pool = client.withSenders(addresses);
+        pool.setMaxInFlightPerSender(2);
+        mining.set(false);
+        List<CompletableFuture<EthTransactionReceipt>> transfers = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+            transfers.add(pool.transferEtherAsync(DESTINATION, BigDecimal.ONE));
+        waitFor(() -> stubServer.getCalls("eth_sendRawTransaction") == 6);
+        Assertions.assertEquals(24, pool.getQueued());
+        addresses.forEach(address -> Assertions.assertEquals(2, pool.getInFlight(address)));
+        //mining a new block releases the receipts
+        mining.set(true);
+        blockNumber.incrementAndGet();
+        CompletableFuture.allOf(transfers.toArray(new CompletableFuture[0])).join();
+        Assertions.assertEquals(0, pool.getQueued());
+        Assertions.assertEquals(30, stubServer.getCalls("eth_sendRawTransaction"));
+        addresses.forEach(address -> {
+            List<SignedRawTransaction> sent = sentBySender.get(address.toLowerCase());
+            Assertions.assertTrue(sent.size() >= 2);
+            //every sender has its own gapless nonce sequence
+            for (int i = 0; i < sent.size(); i++) {
+                BigInteger nonce = BigInteger.valueOf(i);
+                Assertions.assertTrue(sent.stream().anyMatch(transaction -> transaction.getNonce().equals(nonce)));
+            }
+        });
+    }
+
+    @Test
+    void lowBalanceSendersShouldBeSkippedAndToppedUp() {
+        String poor = addresses.get(0);
+        String rich = addresses.get(1);
+        balances.put(poor, BigInteger.ZERO);
+        balances.put(rich, Convert.toWei(BigDecimal.TEN, Convert.Unit.ETHER).toBigInteger());
+        EthWeb3JSenderPool pool = client.withSenders(Arrays.asList(poor, rich));
+        pool.setMinBalance(BigDecimal.ONE);
+        pool.setTopUpAmount(BigDecimal.valueOf(2));
+        pool.rebalance().join();
+        List<SignedRawTransaction> topUps = sentBySender.get(rich.toLowerCase());
+        Assertions.assertEquals(1, topUps.size());
+        Assertions.assertEquals(poor, topUps.get(0).getTo());
+        Assertions.assertEquals(Convert.toWei(BigDecimal.valueOf(2), Convert.Unit.ETHER).toBigInteger(), topUps.get(0).getValue());
+        for (int i = 0; i < 3; i++)
+            Assertions.assertEquals(rich, pool.transferEtherAsync(DESTINATION, BigDecimal.ONE).join().getFrom());
+        Assertions.assertNull(sentBySender.get(poor.toLowerCase()));
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assertions.assertTrue(condition.getAsBoolean());
+    }
+
+    private Object sendRawTransaction(JsonNode params) {
+        String raw = params.get(0).asText();
+        SignedRawTransaction transaction = (SignedRawTransaction) TransactionDecoder.decode(raw);
+        String from;
+        try {
+            from = transaction.getFrom().toLowerCase();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        sentBySender.computeIfAbsent(from, key -> new CopyOnWriteArrayList<>()).add(transaction);
+        String hash = Hash.sha3(raw);
+        transactions.put(hash, transaction);
+        return hash;
+    }
+
+    private Map<String, Object> receipt(String transactionHash) {
+        SignedRawTransaction transaction = transactions.get(transactionHash);
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("transactionHash", transactionHash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockHash", transactionHash);
+        receipt.put("blockNumber", "0x1");
+        receipt.put("gasUsed", "0x5208");
+        receipt.put("cumulativeGasUsed", "0x5208");
+        receipt.put("status", "0x1");
+        try {
+            receipt.put("from", transaction.getFrom());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        receipt.put("to", transaction.getTo());
+        receipt.put("logs", new ArrayList<>());
+        return receipt;
+    }
+}
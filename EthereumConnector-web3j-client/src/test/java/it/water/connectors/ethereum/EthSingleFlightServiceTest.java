@@ -0,0 +1,118 @@
+package it.water.connectors.ethereum;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class EthSingleFlightServiceTest {
+    private static final String ADDRESS = "0x0000000000000000000000000000000000000001";
+    private static final String OTHER_ADDRESS = "0x0000000000000000000000000000000000000002";
+
+    private JsonRpcStubServer stubServer;
+    private EthSingleFlightService service;
+    private Web3j web3j;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_getBalance", params -> {
+                    sleep(200);
+                    return "0x7";
+                })
+                .on("eth_sendRawTransaction", params -> {
+                    sleep(200);
+                    return "0x01";
+                });
+        service = new EthSingleFlightService(new HttpService("http://localhost:" + stubServer.getPort()));
+        web3j = Web3j.build(service);
+    }
+
+    @AfterEach
+    void stopServer() {
+        web3j.shutdown();
+        stubServer.close();
+    }
+
+    @Test
+    void concurrentIdenticalReadsShouldShareOneRequest() {
+        List<CompletableFuture<EthGetBalance>> balances = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            balances.add(web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync());
+        CompletableFuture<EthGetBalance> otherBalance = web3j.ethGetBalance(OTHER_ADDRESS, DefaultBlockParameterName.LATEST).sendAsync();
+        CompletableFuture<EthGetBalance> pendingBalance = web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.PENDING).sendAsync();
+        balances.forEach(balance -> Assertions.assertEquals(BigInteger.valueOf(7), balance.join().getBalance()));
+        Assertions.assertEquals(BigInteger.valueOf(7), otherBalance.join().getBalance());
+        Assertions.assertEquals(BigInteger.valueOf(7), pendingBalance.join().getBalance());
+        //address and block tag are part of the key
+        Assertions.assertEquals(3, stubServer.getCalls("eth_getBalance"));
+        Assertions.assertEquals(3, service.getSentRequests());
+        Assertions.assertEquals(9, service.getCoalescedRequests());
+        Assertions.assertEquals(0, service.getInFlightRequests());
+        //once answered, the next read goes to the node again
+        Assertions.assertEquals(BigInteger.valueOf(7), web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync().join().getBalance());
+        Assertions.assertEquals(4, stubServer.getCalls("eth_getBalance"));
+    }
+
+    @Test
+    void sharedReadShouldBeCancelledByItsLastCaller() {
+        CompletableFuture<EthGetBalance> first = web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync();
+        CompletableFuture<EthGetBalance> second = web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync();
+        //the other caller is still waiting
+        first.cancel(true);
+        Assertions.assertEquals(1, service.getInFlightRequests());
+        Assertions.assertEquals(BigInteger.valueOf(7), second.join().getBalance());
+        CompletableFuture<EthGetBalance> third = web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync();
+        third.cancel(true);
+        Assertions.assertEquals(0, service.getInFlightRequests());
+        //a cancelled read is not shared with the next callers
+        Assertions.assertEquals(BigInteger.valueOf(7), web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).sendAsync().join().getBalance());
+        Assertions.assertEquals(3, service.getSentRequests());
+    }
+
+    @Test
+    void synchronousReadsShouldBeCoalescedButTransactionsNot() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                results.add(executor.submit(() -> web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).send()));
+            for (Future<?> result : results)
+                Assertions.assertEquals(BigInteger.valueOf(7), ((EthGetBalance) result.get()).getBalance());
+            Assertions.assertEquals(4, service.getSentRequests() + service.getCoalescedRequests());
+            Assertions.assertTrue(service.getCoalescedRequests() > 0);
+            results.clear();
+            for (int i = 0; i < 4; i++)
+                results.add(executor.submit(() -> web3j.ethSendRawTransaction("0x00").send()));
+            for (Future<?> result : results)
+                result.get();
+            Assertions.assertEquals(4, stubServer.getCalls("eth_sendRawTransaction"));
+        } finally {
+            executor.shutdownNow();
+        }
+        service.setEnabled(false);
+        web3j.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).send();
+        Assertions.assertEquals(stubServer.getCalls("eth_getBalance"), service.getSentRequests() + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package it.water.connectors.ethereum;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+
+class EthStaticAbiCodecTest {
+    private static final String SIGNER = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final byte[] DOCUMENT_HASH = Hash.sha3("document".getBytes());
+
+    @Test
+    void encodingShouldMatchWeb3j() {
+        EthStaticAbiFunction function = EthStaticAbiFunction.of("record(bytes32,address,uint256,uint256,bool)");
+        Assertions.assertSame(function, EthStaticAbiFunction.of("record(bytes32,address,uint256,uint256,bool)"));
+        BigInteger large = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+        String expected = FunctionEncoder.encode(new Function("record", Arrays.asList(new Bytes32(DOCUMENT_HASH), new Address(SIGNER),
+                new Uint256(large), new Uint256(42), new Bool(true)), Collections.emptyList()));
+        EthStaticAbiEncoder encoder = function.encoder();
+        Assertions.assertEquals(expected, encoder.putBytes32(DOCUMENT_HASH).putAddress(SIGNER.toUpperCase().replace("0X", "0x")).putUint256(large).putUint256(42).putBool(true).encode());
+        //the encoder is reusable
+        Assertions.assertEquals(expected, encoder.put(Numeric.toHexString(DOCUMENT_HASH)).put(SIGNER).put(large).put("42").put(Boolean.TRUE).encode());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> encoder.reset().putAddress(SIGNER));
+        Assertions.assertThrows(IllegalStateException.class, () -> encoder.reset().putBytes32(DOCUMENT_HASH).encode());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> encoder.reset().putBytes32(new byte[31]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EthStaticAbiFunction.of("record(string)"));
+        Assertions.assertFalse(EthStaticAbiFunction.isSupported("record(uint8)"));
+    }
+
+    @Test
+    void decodingShouldMatchEncoding() {
+        EthStaticAbiEvent event = EthStaticAbiEvent.of("Notarized(address,bytes32)");
+        Assertions.assertEquals(Hash.sha3String("Notarized(address,bytes32)"), event.getTopic());
+        Assertions.assertTrue(event.matches(Arrays.asList(event.getTopic().toUpperCase().replace("0X", "0x"), "0x0")));
+        String data = "0x" + FunctionEncoder.encodeConstructor(Arrays.asList(new Bytes32(DOCUMENT_HASH), new Address(SIGNER), new Uint256(BigInteger.TEN.pow(30)), new Uint256(7), new Bool(true)));
+        Assertions.assertEquals(5, EthStaticAbiDecoder.words(data));
+        byte[] buffer = new byte[32];
+        EthStaticAbiDecoder.bytes32(data, 0, buffer);
+        Assertions.assertArrayEquals(DOCUMENT_HASH, buffer);
+        Assertions.assertEquals(SIGNER, EthStaticAbiDecoder.address(data, 1));
+        Assertions.assertEquals(BigInteger.TEN.pow(30), EthStaticAbiDecoder.uint256(data, 2));
+        Assertions.assertThrows(ArithmeticException.class, () -> EthStaticAbiDecoder.uint256AsLong(data, 2));
+        Assertions.assertEquals(7, EthStaticAbiDecoder.uint256AsLong(data, 3));
+        Assertions.assertTrue(EthStaticAbiDecoder.bool(data, 4));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EthStaticAbiDecoder.address(data, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EthStaticAbiDecoder.bool(data, 5));
+        Assertions.assertArrayEquals(DOCUMENT_HASH, EthHex.toBytes(EthHex.toHexString(DOCUMENT_HASH)));
+        Assertions.assertEquals(Numeric.toHexString(DOCUMENT_HASH), EthHex.toHexString(DOCUMENT_HASH));
+    }
+}
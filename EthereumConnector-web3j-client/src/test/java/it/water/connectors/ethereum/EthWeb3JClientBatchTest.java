@@ -0,0 +1,67 @@
+package it.water.connectors.ethereum;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EthWeb3JClientBatchTest {
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+
+    @BeforeAll
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> "0x1")
+                .on("eth_getBalance", params -> Numeric.encodeQuantity(BigInteger.valueOf(params.get(0).asText().length())));
+        registry = new EthWeb3JClientRegistry();
+        EthWeb3JClientFactory factory = new EthWeb3JClientFactory();
+        factory.setClientRegistry(registry);
+        factory.setBatchSize(2);
+        client = (EthWeb3JClient) factory.withEthereumBlockChain(stubServer.getBlockchain()).build();
+    }
+
+    @AfterAll
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void balancesShouldBeFetchedInChunks() {
+        List<String> addresses = Arrays.asList("0x1", "0x22", "0x333", "0x4444", "0x55555", "0x22");
+        int httpCallsBefore = stubServer.getHttpCalls();
+        Map<String, BigInteger> balances = client.getBalancesOf(addresses, "pending");
+        Assertions.assertEquals(5, balances.size());
+        Assertions.assertEquals(Arrays.asList("0x1", "0x22", "0x333", "0x4444", "0x55555"), Arrays.asList(balances.keySet().toArray()));
+        balances.forEach((address, balance) -> Assertions.assertEquals(address.length(), balance.intValue()));
+        //5 distinct addresses in chunks of 2
+        Assertions.assertEquals(3, stubServer.getHttpCalls() - httpCallsBefore);
+    }
+
+    @Test
+    void emptyAddressesShouldReturnEmptyMap() {
+        Assertions.assertTrue(client.getBalancesOf(Arrays.asList(), null).isEmpty());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.getBalancesOf(null, null));
+    }
+
+    @Test
+    void blockTagShouldBeParsed() {
+        Assertions.assertEquals(DefaultBlockParameterName.LATEST, EthWeb3JClient.toBlockParameter(null));
+        Assertions.assertEquals(DefaultBlockParameterName.PENDING, EthWeb3JClient.toBlockParameter("pending"));
+        Assertions.assertEquals("0x10", EthWeb3JClient.toBlockParameter("16").getValue());
+        Assertions.assertEquals("0x10", EthWeb3JClient.toBlockParameter("0x10").getValue());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EthWeb3JClient.toBlockParameter("notATag"));
+    }
+}
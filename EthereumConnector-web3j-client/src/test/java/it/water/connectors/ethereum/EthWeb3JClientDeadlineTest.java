@@ -0,0 +1,60 @@
+package it.water.connectors.ethereum;
+
+import it.water.core.model.exceptions.WaterRuntimeException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Collections;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EthWeb3JClientDeadlineTest {
+    private static final String ADDRESS = "0x0000000000000000000000000000000000000001";
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+
+    @BeforeAll
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> "0x1")
+                .on("eth_getBalance", params -> "0x2")
+                .on("eth_accounts", params -> {
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Collections.singletonList(ADDRESS);
+                });
+        registry = new EthWeb3JClientRegistry();
+        client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+    }
+
+    @AfterAll
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void readsShouldFailAfterTheDeadline() {
+        //warming up the connection and the chain head
+        Assertions.assertEquals(BigInteger.valueOf(2), client.getBalanceOf(ADDRESS));
+        EthWeb3JClient boundedClient = client.withDeadline(200);
+        Assertions.assertEquals(200, boundedClient.getDeadlineMillis());
+        Assertions.assertSame(client.getConnection(), boundedClient.getConnection());
+        Assertions.assertEquals(0, client.getDeadlineMillis());
+        WaterRuntimeException error = Assertions.assertThrows(WaterRuntimeException.class, boundedClient::listAccounts);
+        Assertions.assertTrue(error.getMessage().contains("eth_accounts"));
+        Assertions.assertEquals(BigInteger.valueOf(2), boundedClient.getBalanceOf(ADDRESS));
+        //without deadline the slow read completes
+        Assertions.assertEquals(Collections.singletonList(ADDRESS), client.listAccounts());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.withDeadline(-1));
+    }
+}
@@ -0,0 +1,130 @@
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.api.EthClientFactory;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+
+class EthWeb3JClientRegistryTest {
+
+    private final EthWeb3JClientRegistry registry = new EthWeb3JClientRegistry();
+
+    @AfterEach
+    void cleanUp() {
+        registry.evictAll();
+    }
+
+    @Test
+    void sameBlockchainShouldShareConnection() {
+        EthBlockchain blockchain = new EthBlockchain("http", "localhost", "8545");
+        Web3j first = registry.acquire(blockchain);
+        Web3j second = registry.acquire(new EthBlockchain("http", "localhost", "8545"));
+        Assertions.assertSame(first, second);
+        Assertions.assertSame(first, ((EthWeb3JClient) registry.getClient(blockchain)).getWeb3j());
+        Assertions.assertEquals(1, registry.size());
+        Assertions.assertNotSame(first, registry.acquire(new EthBlockchain("http", "localhost", "8546")));
+        Assertions.assertEquals(2, registry.size());
+    }
+
+    @Test
+    void leastRecentlyUsedConnectionShouldBeEvicted() {
+        registry.setMaxSize(2);
+        EthBlockchain first = new EthBlockchain("http", "host1", "8545");
+        EthBlockchain second = new EthBlockchain("http", "host2", "8545");
+        Web3j firstWeb3j = registry.acquire(first);
+        Web3j secondWeb3j = registry.acquire(second);
+        //touching the first one so the second becomes the eldest
+        registry.acquire(first);
+        registry.acquire(new EthBlockchain("http", "host3", "8545"));
+        Assertions.assertEquals(2, registry.size());
+        Assertions.assertSame(firstWeb3j, registry.acquire(first));
+        Assertions.assertNotSame(secondWeb3j, registry.acquire(second));
+    }
+
+    @Test
+    void idleConnectionsShouldBeEvicted() {
+        registry.setIdleTimeoutMillis(0);
+        registry.acquire(new EthBlockchain("http", "localhost", "8545"));
+        registry.evictIdle();
+        Assertions.assertEquals(0, registry.size());
+    }
+
+    @Test
+    void connectionsInUseShouldNotBeEvicted() {
+        registry.setMaxSize(1);
+        registry.setIdleTimeoutMillis(0);
+        registry.setDrainTimeoutMillis(0);
+        EthBlockchain blockchain = new EthBlockchain("http", "host1", "8545");
+        EthWeb3JClient client = (EthWeb3JClient) registry.getClient(blockchain);
+        //a transaction waiting for its receipt keeps the connection in use
+        client.getConnection().getReceiptTracker().track("0xbeef");
+        Assertions.assertTrue(client.getConnection().isInUse());
+        //the pool grows over its max size rather than closing a connection with pending work
+        registry.acquire(new EthBlockchain("http", "host2", "8545"));
+        Assertions.assertEquals(2, registry.size());
+        registry.evictIdle();
+        Assertions.assertEquals(1, registry.size());
+        Assertions.assertSame(client.getWeb3j(), registry.acquire(blockchain));
+        Assertions.assertFalse(client.getConnection().isClosed());
+    }
+
+    @Test
+    void evictedConnectionShouldBeClosedWhileClientIsHeld() {
+        EthBlockchain blockchain = new EthBlockchain("http", "host1", "8545");
+        EthWeb3JClient client = (EthWeb3JClient) registry.getClient(blockchain);
+        //held clients do not keep the connection open
+        registry.setMaxSize(1);
+        registry.acquire(new EthBlockchain("http", "host2", "8545"));
+        Assertions.assertEquals(1, registry.size());
+        Assertions.assertTrue(client.getConnection().isClosed());
+        //explicit eviction closes the connection of a held client, new clients get a new connection
+        client = (EthWeb3JClient) registry.getClient(blockchain);
+        registry.evict(blockchain);
+        Assertions.assertTrue(client.getConnection().isClosed());
+        EthWeb3JClient newClient = (EthWeb3JClient) registry.getClient(blockchain);
+        Assertions.assertNotSame(client.getConnection(), newClient.getConnection());
+        Assertions.assertFalse(newClient.getConnection().isClosed());
+        registry.evictAll();
+        Assertions.assertTrue(newClient.getConnection().isClosed());
+        Assertions.assertEquals(0, registry.size());
+    }
+
+    @Test
+    void evictShouldRemoveBlockchainConnections() {
+        EthBlockchain blockchain = new EthBlockchain("http", "localhost", "8545");
+        blockchain.setId(10);
+        Web3j web3j = registry.acquire(blockchain);
+        registry.acquire(new EthBlockchain("http", "localhost", "8546"));
+        registry.evict(10);
+        Assertions.assertEquals(1, registry.size());
+        Assertions.assertNotSame(web3j, registry.acquire(blockchain));
+        registry.evict(new EthBlockchain("http", "localhost", "8546"));
+        Assertions.assertEquals(1, registry.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.acquire(null));
+    }
+
+    @Test
+    void factoryBuildersShouldNotShareState() {
+        EthWeb3JClientFactory factory = new EthWeb3JClientFactory();
+        factory.setClientRegistry(registry);
+        Assertions.assertThrows(IllegalStateException.class, factory::build);
+        factory.setBatchSize(2);
+        EthClientFactory firstBuilder = factory.withEthereumBlockChain(new EthBlockchain("http", "host1", "8545"));
+        EthClientFactory secondBuilder = factory.withEthereumBlockChain(new EthBlockchain("http", "host2", "8545"));
+        Assertions.assertNotSame(firstBuilder, secondBuilder);
+        Web3j first = ((EthWeb3JClient) firstBuilder.build()).getWeb3j();
+        //builders can be reused and are not affected by later calls to the factory
+        Assertions.assertSame(first, ((EthWeb3JClient) firstBuilder.build()).getWeb3j());
+        Assertions.assertNotSame(first, ((EthWeb3JClient) secondBuilder.build()).getWeb3j());
+        //settings are read at build time and fixed for the built client
+        EthWeb3JClient client = (EthWeb3JClient) firstBuilder.build();
+        factory.setBatchSize(3);
+        Assertions.assertEquals(2, client.getBatchSize());
+        Assertions.assertEquals(3, ((EthWeb3JClient) firstBuilder.build()).getBatchSize());
+        //the factory itself is never bound to a blockchain
+        Assertions.assertThrows(IllegalStateException.class, factory::build);
+        Assertions.assertEquals(2, registry.size());
+    }
+}
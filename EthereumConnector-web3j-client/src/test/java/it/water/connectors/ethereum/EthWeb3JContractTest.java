@@ -0,0 +1,184 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import it.water.connectors.ethereum.api.EthContract;
+import it.water.connectors.ethereum.api.EthContractEvent;
+import it.water.connectors.ethereum.api.EthTransactionReceipt;
+import it.water.connectors.ethereum.model.EthSmartContract;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+class EthWeb3JContractTest {
+    private static final String ACCOUNT_PRIVATE_KEY = "5c7a050c7b0e3a6896e9667a6dff3a6b389c665aaed218c352071890c05520ee";
+    private static final String CONTRACT = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final String OWNER = "0x00000000000000000000000000000000000000aa";
+    private static final String DOCUMENT_HASH = "0x" + "ab".repeat(32);
+    private static final String ABI = "["
+            + "{\"type\":\"function\",\"name\":\"getDocument\",\"stateMutability\":\"view\","
+            + "\"inputs\":[{\"name\":\"hash\",\"type\":\"bytes32\"}],"
+            + "\"outputs\":[{\"name\":\"owner\",\"type\":\"address\"},{\"name\":\"timestamp\",\"type\":\"uint256\"},{\"name\":\"revoked\",\"type\":\"bool\"}]},"
+            + "{\"type\":\"function\",\"name\":\"notarizeDocument\",\"stateMutability\":\"nonpayable\","
+            + "\"inputs\":[{\"name\":\"hash\",\"type\":\"bytes32\"},{\"name\":\"note\",\"type\":\"string\"}],\"outputs\":[]},"
+            + "{\"type\":\"function\",\"name\":\"store\",\"stateMutability\":\"nonpayable\",\"inputs\":[{\"name\":\"a\",\"type\":\"uint\"}],\"outputs\":[]},"
+            + "{\"type\":\"function\",\"name\":\"store\",\"stateMutability\":\"nonpayable\",\"inputs\":[{\"name\":\"a\",\"type\":\"uint8[]\"},{\"name\":\"b\",\"type\":\"address[2]\"}],\"outputs\":[]},"
+            + "{\"type\":\"event\",\"name\":\"Notarized\",\"anonymous\":false,"
+            + "\"inputs\":[{\"name\":\"hash\",\"type\":\"bytes32\",\"indexed\":true},{\"name\":\"owner\",\"type\":\"address\",\"indexed\":true},{\"name\":\"note\",\"type\":\"string\",\"indexed\":true},{\"name\":\"timestamp\",\"type\":\"uint256\",\"indexed\":false}]}"
+            + "]";
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+    private EthWeb3JClient client;
+    private final List<RawTransaction> sent = new CopyOnWriteArrayList<>();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private volatile String receiptStatus = "0x1";
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_call", this::call)
+                .on("eth_estimateGas", params -> "0x7530")
+                .on("eth_gasPrice", params -> "0x1")
+                .on("eth_chainId", params -> "0x539")
+                .on("eth_blockNumber", params -> "0x1")
+                .on("eth_getTransactionCount", params -> "0x0")
+                .on("eth_sendRawTransaction", this::sendRawTransaction)
+                .on("eth_getTransactionReceipt", params -> receipt(params.get(0).asText()));
+        registry = new EthWeb3JClientRegistry();
+        registry.acquireConnection(stubServer.getBlockchain()).getReceiptTracker().setFirstCheckDelayMillis(10);
+        client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void callShouldEncodeArgumentsAndDecodeResults() {
+        EthContract contract = client.contract(CONTRACT, ABI);
+        List<Object> result = contract.call("getDocument", DOCUMENT_HASH);
+        Assertions.assertEquals(Hash.sha3String("getDocument(bytes32)").substring(0, 10) + DOCUMENT_HASH.substring(2), calls.get(0));
+        Assertions.assertEquals(Arrays.asList(OWNER, BigInteger.valueOf(5), true), result);
+        //overloaded functions are resolved by number of arguments or by signature
+        contract.call("store", 7);
+        contract.call("store", Arrays.asList(1, 2), new String[]{OWNER, OWNER});
+        contract.call("store(uint256)", BigInteger.TEN);
+        Assertions.assertTrue(calls.get(1).startsWith(Hash.sha3String("store(uint256)").substring(0, 10)));
+        Assertions.assertTrue(calls.get(2).startsWith(Hash.sha3String("store(uint8[],address[2])").substring(0, 10)));
+        Assertions.assertTrue(calls.get(3).startsWith(Hash.sha3String("store(uint256)").substring(0, 10)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> contract.call("store", 256, OWNER));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> contract.call("store", Collections.singletonList(256), new String[]{OWNER, OWNER}));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> contract.call("missing"));
+    }
+
+    @Test
+    void sendShouldUseEstimatedGasAndEventsShouldBeDecoded() throws InterruptedException {
+        String from = client.withPrivateKey(ACCOUNT_PRIVATE_KEY).getAddress();
+        EthContract contract = client.contract(CONTRACT, ABI);
+        EthTransactionReceipt receipt = contract.send(from, "notarizeDocument", Numeric.hexStringToByteArray(DOCUMENT_HASH), "first");
+        RawTransaction transaction = sent.get(0);
+        Assertions.assertEquals(CONTRACT, transaction.getTo());
+        Assertions.assertEquals(BigInteger.valueOf(36000), transaction.getGasLimit());
+        Assertions.assertTrue(transaction.getData().startsWith(Hash.sha3String("notarizeDocument(bytes32,string)").substring(2, 10)));
+        List<EthContractEvent> events = contract.decodeEvents(receipt, "Notarized");
+        Assertions.assertEquals(1, events.size());
+        EthContractEvent event = events.get(0);
+        Assertions.assertEquals("Notarized", event.getName());
+        Assertions.assertArrayEquals(Numeric.hexStringToByteArray(DOCUMENT_HASH), (byte[]) event.get("hash"));
+        Assertions.assertEquals(OWNER, event.get("owner"));
+        Assertions.assertEquals(Hash.sha3String("first"), event.get("note"));
+        Assertions.assertEquals(BigInteger.valueOf(5), event.get("timestamp"));
+        Assertions.assertEquals(Arrays.asList("hash", "owner", "note", "timestamp"), Arrays.asList(event.getValues().keySet().toArray()));
+    }
+
+    @Test
+    void revertedTransactionShouldFailWithReason() {
+        String from = client.withPrivateKey(ACCOUNT_PRIVATE_KEY).getAddress();
+        EthContract contract = client.contract(CONTRACT, ABI);
+        receiptStatus = "0x0";
+        //the reason is read replaying the call, since the receipt has none
+        stubServer.on("eth_call", params -> {
+            throw new IllegalStateException("execution reverted: document already notarized");
+        });
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                () -> contract.sendAsync(from, "notarizeDocument", Numeric.hexStringToByteArray(DOCUMENT_HASH), "first").get(10, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(WaterRuntimeException.class, e.getCause());
+        Assertions.assertTrue(e.getCause().getMessage().contains("notarizeDocument(bytes32,string) reverted: execution reverted: document already notarized"));
+        Assertions.assertEquals(1, sent.size());
+    }
+
+    @Test
+    void compiledAbiShouldBeShared() {
+        EthWeb3JContract contract = client.contract(CONTRACT, ABI);
+        Assertions.assertSame(contract.getAbi(), client.contract(OWNER, ABI).getAbi());
+        Assertions.assertSame(contract.getAbi().function("getDocument", 1), contract.getAbi().function("getDocument", 1));
+        Assertions.assertEquals(1, client.getConnection().getAbiCache().size());
+        EthSmartContract smartContract = new EthSmartContract("DataRegistry", "registry", CONTRACT, "0x0", stubServer.getBlockchain(), 1L);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.contract(smartContract));
+        smartContract.setAbi(ABI);
+        Assertions.assertSame(contract.getAbi(), client.contract(smartContract).getAbi());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.contract(CONTRACT, "not a json"));
+        stubServer.on("eth_call", params -> {
+            throw new IllegalStateException("execution reverted");
+        });
+        Assertions.assertThrows(WaterRuntimeException.class, () -> contract.call("getDocument", DOCUMENT_HASH));
+    }
+
+    private Object call(JsonNode params) {
+        String data = params.get(0).get("input") != null ? params.get(0).get("input").asText() : params.get(0).get("data").asText();
+        calls.add(data);
+        return FunctionEncoder.encodeConstructor(Arrays.asList(new Address(OWNER), new Uint256(5), new Bool(true)));
+    }
+
+    private Object sendRawTransaction(JsonNode params) {
+        String raw = params.get(0).asText();
+        sent.add(TransactionDecoder.decode(raw));
+        return Hash.sha3(raw);
+    }
+
+    private Map<String, Object> receipt(String transactionHash) {
+        Map<String, Object> log = new HashMap<>();
+        log.put("address", CONTRACT);
+        log.put("topics", Arrays.asList(Hash.sha3String("Notarized(bytes32,address,string,uint256)"), DOCUMENT_HASH,
+                Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(OWNER), 64), Hash.sha3String("first")));
+        log.put("data", "0x" + FunctionEncoder.encodeConstructor(Collections.singletonList(new Uint256(5))));
+        log.put("logIndex", "0x0");
+        log.put("blockNumber", "0x1");
+        log.put("transactionHash", transactionHash);
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("transactionHash", transactionHash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockHash", transactionHash);
+        receipt.put("blockNumber", "0x1");
+        receipt.put("gasUsed", "0x5208");
+        receipt.put("cumulativeGasUsed", "0x5208");
+        receipt.put("status", receiptStatus);
+        receipt.put("to", CONTRACT);
+        receipt.put("logs", Collections.singletonList(log));
+        return receipt;
+    }
+}
@@ -0,0 +1,135 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.crypto.WalletUtils;
+import org.web3j.utils.Numeric;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+class EthWeb3JSignerRegistryTest {
+    private static final String ACCOUNT_PRIVATE_KEY = "5c7a050c7b0e3a6896e9667a6dff3a6b389c665aaed218c352071890c05520ee";
+    private static final String DESTINATION = "0x2a1b9a6ebc3c9d8a4c5c8d09c2b1c3e1f0a0b0c0";
+    private static final String PASSWORD = "water";
+
+    @TempDir
+    Path keystoreDir;
+
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_getTransactionCount", params -> "0x0")
+                .on("eth_gasPrice", params -> "0x1")
+                .on("eth_chainId", params -> "0x539")
+                .on("eth_sendRawTransaction", this::sendRawTransaction)
+                .on("eth_blockNumber", params -> "0x1")
+                .on("eth_getTransactionReceipt", params -> receipt(params.get(0).asText()));
+        registry = new EthWeb3JClientRegistry();
+        registry.acquireConnection(stubServer.getBlockchain()).getReceiptTracker().setFirstCheckDelayMillis(10);
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void keystoreShouldBeDecryptedOnce() throws Exception {
+        EthWeb3JSignerRegistry signerRegistry = new EthWeb3JSignerRegistry();
+        String keystorePath = createKeystore();
+        Credentials credentials = signerRegistry.loadKeystore(keystorePath, PASSWORD);
+        Assertions.assertSame(credentials, signerRegistry.loadKeystore(keystorePath, PASSWORD));
+        Assertions.assertEquals(credentialsAddress(), signerRegistry.addKeystore(keystorePath, PASSWORD));
+        Assertions.assertTrue(signerRegistry.isRegistered(credentialsAddress().toUpperCase().replace("0X", "0x")));
+        //a different password is verified again
+        Assertions.assertThrows(WaterRuntimeException.class, () -> signerRegistry.loadKeystore(keystorePath, "wrong"));
+        //a changed keystore is decrypted again
+        Assertions.assertTrue(new File(keystorePath).setLastModified(System.currentTimeMillis() - 60000));
+        Assertions.assertNotSame(credentials, signerRegistry.loadKeystore(keystorePath, PASSWORD));
+        Assertions.assertEquals(1, signerRegistry.size());
+    }
+
+    @Test
+    void signersShouldExpireAndBeRevoked() throws Exception {
+        EthWeb3JSignerRegistry signerRegistry = new EthWeb3JSignerRegistry();
+        String address = signerRegistry.addPrivateKey(ACCOUNT_PRIVATE_KEY);
+        Assertions.assertTrue(signerRegistry.isRegistered(address));
+        signerRegistry.revoke(address);
+        Assertions.assertFalse(signerRegistry.isRegistered(address));
+        Assertions.assertNull(signerRegistry.getCredentials(address));
+        signerRegistry.setTtlMillis(0);
+        //private keys cannot be loaded again, they are pinned
+        address = signerRegistry.addPrivateKey(ACCOUNT_PRIVATE_KEY);
+        Assertions.assertTrue(signerRegistry.isRegistered(address));
+        signerRegistry.revoke(address);
+        String keystorePath = createKeystore();
+        Credentials credentials = signerRegistry.loadKeystore(keystorePath, PASSWORD);
+        Assertions.assertEquals(0, signerRegistry.size());
+        //expired signers must be decrypted again
+        Assertions.assertNotSame(credentials, signerRegistry.loadKeystore(keystorePath, PASSWORD));
+        signerRegistry.revokeAll();
+        Assertions.assertEquals(0, signerRegistry.size());
+    }
+
+    @Test
+    void clientsShouldSignByAddress() {
+        EthWeb3JSignerRegistry signerRegistry = registry.getSignerRegistry();
+        String address = signerRegistry.addPrivateKey(ACCOUNT_PRIVATE_KEY);
+        EthWeb3JClient client = (EthWeb3JClient) registry.getClient(stubServer.getBlockchain());
+        Assertions.assertSame(signerRegistry, client.getSignerRegistry());
+        Assertions.assertEquals("0x1", client.transferEtherAsync(address, DESTINATION, BigDecimal.ONE).join().getStatus());
+        Assertions.assertEquals(1, stubServer.getCalls("eth_sendRawTransaction"));
+        Assertions.assertEquals(address, client.withSigner(address).getAddress());
+        signerRegistry.revoke(address);
+        Assertions.assertThrows(IllegalStateException.class, () -> client.transferEtherAsync(address, DESTINATION, BigDecimal.ONE));
+        Assertions.assertThrows(IllegalStateException.class, () -> client.withSigner(address));
+    }
+
+    private String createKeystore() throws Exception {
+        ECKeyPair keyPair = Credentials.create(ACCOUNT_PRIVATE_KEY).getEcKeyPair();
+        String fileName = WalletUtils.generateWalletFile(PASSWORD, keyPair, keystoreDir.toFile(), false);
+        return keystoreDir.resolve(fileName).toString();
+    }
+
+    private String credentialsAddress() {
+        return Credentials.create(ACCOUNT_PRIVATE_KEY).getAddress();
+    }
+
+    private Object sendRawTransaction(JsonNode params) {
+        BigInteger nonce = TransactionDecoder.decode(params.get(0).asText()).getNonce();
+        return Numeric.toHexStringWithPrefixZeroPadded(nonce.add(BigInteger.ONE), 64);
+    }
+
+    private Map<String, Object> receipt(String transactionHash) {
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("transactionHash", transactionHash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockHash", transactionHash);
+        receipt.put("blockNumber", "0x1");
+        receipt.put("gasUsed", "0x5208");
+        receipt.put("cumulativeGasUsed", "0x5208");
+        receipt.put("status", "0x1");
+        receipt.put("from", credentialsAddress());
+        receipt.put("to", DESTINATION);
+        receipt.put("logs", new ArrayList<>());
+        return receipt;
+    }
+}
@@ -0,0 +1,97 @@
+package it.water.connectors.ethereum;
+
+import it.water.connectors.ethereum.model.EthBlockchain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.protocol.ipc.UnixIpcService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class EthWebSocketServiceTest {
+    private JsonRpcStubServer stubServer;
+    private EthWeb3JClientRegistry registry;
+
+    @BeforeEach
+    void startServer() throws IOException, InterruptedException {
+        stubServer = new JsonRpcStubServer()
+                .on("eth_blockNumber", params -> "0x2a")
+                .on("eth_getBalance", params -> "0x" + Integer.toHexString(params.get(0).asText().length()))
+                .startWebSocket();
+        registry = new EthWeb3JClientRegistry();
+    }
+
+    @AfterEach
+    void stopServer() {
+        registry.evictAll();
+        stubServer.close();
+    }
+
+    @Test
+    void wsProtocolShouldUseWebSocketTransport() {
+        EthWeb3JClient client = (EthWeb3JClient) registry.getClient(stubServer.getWebSocketBlockchain());
+        Assertions.assertEquals(BigInteger.valueOf(3), client.getBalanceOfAsync("0x1").join());
+        Map<String, BigInteger> balances = client.getBalancesOf(Arrays.asList("0x1", "0x22"), null);
+        Assertions.assertEquals(BigInteger.valueOf(4), balances.get("0x22"));
+        Assertions.assertEquals(0, stubServer.getHttpCalls());
+        Assertions.assertEquals(1, stubServer.getWebSocketConnections());
+    }
+
+    @Test
+    void webSocketShouldReconnectAfterConnectionLoss() throws IOException, InterruptedException {
+        EthWebSocketService service = new EthWebSocketService(stubServer.getWebSocketUrl());
+        service.setReconnectDelayMillis(0);
+        AtomicInteger reconnections = new AtomicInteger();
+        service.addReconnectListener(reconnections::incrementAndGet);
+        Web3j web3j = Web3j.build(service);
+        try {
+            Assertions.assertEquals(BigInteger.valueOf(42), web3j.ethBlockNumber().send().getBlockNumber());
+            stubServer.dropWebSocketConnections();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (service.isConnected() && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            Assertions.assertFalse(service.isConnected());
+            Assertions.assertEquals(BigInteger.valueOf(42), web3j.ethBlockNumber().sendAsync().join().getBlockNumber());
+            Assertions.assertEquals(2, service.getConnections());
+            Assertions.assertEquals(1, reconnections.get());
+        } finally {
+            web3j.shutdown();
+        }
+        Assertions.assertThrows(ConnectException.class, () -> web3j.ethBlockNumber().send());
+    }
+
+    @Test
+    void reconnectionShouldBeThrottled() throws InterruptedException {
+        EthWebSocketService service = new EthWebSocketService(stubServer.getWebSocketUrl());
+        service.setReconnectDelayMillis(60000);
+        Web3j web3j = Web3j.build(service);
+        try {
+            Assertions.assertEquals(BigInteger.valueOf(42), web3j.ethBlockNumber().sendAsync().join().getBlockNumber());
+            stubServer.dropWebSocketConnections();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (service.isConnected() && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            Assertions.assertThrows(ConnectException.class, () -> web3j.ethBlockNumber().send());
+            Assertions.assertEquals(1, service.getConnections());
+        } finally {
+            web3j.shutdown();
+        }
+    }
+
+    @Test
+    void transportShouldMatchProtocol() {
+        Assertions.assertInstanceOf(HttpService.class, registry.createWeb3jService(new EthBlockchain("https", "localhost", "8545")));
+        Assertions.assertInstanceOf(EthWebSocketService.class, registry.createWeb3jService(new EthBlockchain("WSS", "localhost", "8546")));
+        Assertions.assertInstanceOf(UnixIpcService.class, registry.createWeb3jService(new EthBlockchain("ipc", "/tmp/geth.ipc", "0")));
+        EthBlockchain unsupported = new EthBlockchain("ftp", "localhost", "21");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.createWeb3jService(unsupported));
+    }
+}
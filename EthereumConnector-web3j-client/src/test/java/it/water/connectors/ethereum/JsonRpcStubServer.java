@@ -0,0 +1,214 @@
+package it.water.connectors.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import it.water.connectors.ethereum.model.EthBlockchain;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * In-process JSON-RPC server used to test the client without a running node.
+ * Each method is answered by a registered handler which receives the request params and returns the result.
+ * The same handlers can be served over WebSocket too, see startWebSocket.
+ */
+public class JsonRpcStubServer implements AutoCloseable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final Map<String, Function<JsonNode, Object>> handlers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> methodCalls = new ConcurrentHashMap<>();
+    private final AtomicInteger httpCalls = new AtomicInteger();
+    private StubWebSocketServer webSocketServer;
+
+    public JsonRpcStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public JsonRpcStubServer on(String method, Function<JsonNode, Object> handler) {
+        handlers.put(method, handler);
+        return this;
+    }
+
+    /**
+     * Unregisters a method, it is then answered with "method not found" (-32601).
+     */
+    public JsonRpcStubServer off(String method) {
+        handlers.remove(method);
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public EthBlockchain getBlockchain() {
+        return new EthBlockchain("http", "localhost", String.valueOf(getPort()));
+    }
+
+    /**
+     * Starts serving the registered handlers over WebSocket on a random port.
+     */
+    public JsonRpcStubServer startWebSocket() throws InterruptedException {
+        webSocketServer = new StubWebSocketServer();
+        webSocketServer.start();
+        webSocketServer.started.await();
+        return this;
+    }
+
+    public EthBlockchain getWebSocketBlockchain() {
+        return new EthBlockchain("ws", "localhost", String.valueOf(webSocketServer.getPort()));
+    }
+
+    public String getWebSocketUrl() {
+        return "ws://localhost:" + webSocketServer.getPort();
+    }
+
+    /**
+     * Simulates a connection loss closing all the open WebSocket connections.
+     */
+    public void dropWebSocketConnections() {
+        webSocketServer.getConnections().forEach(WebSocket::close);
+    }
+
+    /**
+     * Pushes a subscription notification to all the open WebSocket connections.
+     */
+    public void publish(String subscriptionId, Object result) {
+        ObjectNode notification = MAPPER.createObjectNode();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", "eth_subscription");
+        ObjectNode params = notification.putObject("params");
+        params.put("subscription", subscriptionId);
+        params.set("result", MAPPER.valueToTree(result));
+        webSocketServer.broadcast(notification.toString());
+    }
+
+    public int getWebSocketConnections() {
+        return webSocketServer.opened.get();
+    }
+
+    public int getHttpCalls() {
+        return httpCalls.get();
+    }
+
+    public int getCalls(String method) {
+        AtomicInteger calls = methodCalls.get(method);
+        return calls == null ? 0 : calls.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        if (webSocketServer != null) {
+            try {
+                webSocketServer.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        httpCalls.incrementAndGet();
+        JsonNode request;
+        try (InputStream is = exchange.getRequestBody()) {
+            request = MAPPER.readTree(is);
+        }
+        JsonNode response = process(request);
+        byte[] body = MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private JsonNode process(JsonNode request) {
+        if (!request.isArray())
+            return answer(request);
+        ArrayNode responses = MAPPER.createArrayNode();
+        request.forEach(r -> responses.add(answer(r)));
+        return responses;
+    }
+
+    private JsonNode answer(JsonNode request) {
+        String method = request.get("method").asText();
+        methodCalls.computeIfAbsent(method, m -> new AtomicInteger()).incrementAndGet();
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        Function<JsonNode, Object> handler = handlers.get(method);
+        if (handler == null) {
+            ObjectNode error = response.putObject("error");
+            error.put("code", -32601);
+            error.put("message", "Method not found: " + method);
+            return response;
+        }
+        try {
+            response.set("result", MAPPER.valueToTree(handler.apply(request.get("params"))));
+        } catch (RuntimeException e) {
+            ObjectNode error = response.putObject("error");
+            error.put("code", -32000);
+            error.put("message", e.getMessage());
+        }
+        return response;
+    }
+
+    private class StubWebSocketServer extends WebSocketServer {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final AtomicInteger opened = new AtomicInteger();
+
+        private StubWebSocketServer() {
+            super(new InetSocketAddress("localhost", 0));
+            setReuseAddr(true);
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+            opened.incrementAndGet();
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+            //nothing to do
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            try {
+                conn.send(MAPPER.writeValueAsString(process(MAPPER.readTree(message))));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+            //nothing to do
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+    }
+}
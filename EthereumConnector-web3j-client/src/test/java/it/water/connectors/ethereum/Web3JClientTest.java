@@ -2,6 +2,7 @@ package it.water.connectors.ethereum;
 
 import it.water.connectors.ethereum.api.EthClient;
 import it.water.connectors.ethereum.api.EthClientFactory;
+import it.water.connectors.ethereum.api.EthSigner;
 import it.water.connectors.ethereum.api.EthTransactionReceipt;
 import it.water.connectors.ethereum.model.EthBlockchain;
 import it.water.connectors.ethereum.model.EthSmartContract;
@@ -134,6 +135,23 @@ class Web3JClientTest implements Service {
                 ethereumClient.transferEther(null,amount );
             });
 
+            Assertions.assertThrows(IllegalStateException.class, () -> {
+                ethereumClient.transferEther(account1, accounts.get(0), amount);
+            });
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                ethereumClient.withCredentials(null,null);
+            });
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                ethereumClient.withCredentials("","");
+            });
+
+            //deprecated api, no default signer has been set yet
+            Assertions.assertThrows(IllegalStateException.class, () -> {
+                ethereumClient.transferEther(account1, amount);
+            });
+
             Assertions.assertThrows(IllegalArgumentException.class, () -> {
                 ethereumClient.setCredentials(null,null);
             });
@@ -142,9 +160,19 @@ class Web3JClientTest implements Service {
                 ethereumClient.setCredentials("","");
             });
 
+            //deprecated api, transferring from the default signer
             ethereumClient.setCredentials(ACCOUNT_PRIVATE_KEY);
+            long legacyOldBalanceAccount1 = ethereumClient.getBalanceOf(accounts.get(1)).longValue();
+            EthTransactionReceipt legacyReceipt = ethereumClient.transferEther(account1, new BigDecimal(etherAmount));
+            Assertions.assertNotNull(legacyReceipt);
+            Assertions.assertEquals(legacyReceipt.getFrom(), accounts.get(0));
+            Assertions.assertEquals(legacyReceipt.getTo(), accounts.get(1));
+            Assertions.assertNotNull(legacyReceipt.getTransactionHash());
+            Assertions.assertEquals(legacyOldBalanceAccount1 + (etherAmount * 1000000000000000000l), ethereumClient.getBalanceOf(accounts.get(1)).longValue());
+
+            EthSigner signer = ethereumClient.withPrivateKey(ACCOUNT_PRIVATE_KEY);
             long oldBalanceAccount1 = ethereumClient.getBalanceOf(accounts.get(1)).longValue();
-            EthTransactionReceipt receipt = ethereumClient.transferEther(account1, new BigDecimal(etherAmount));
+            EthTransactionReceipt receipt = signer.transferEther(account1, new BigDecimal(etherAmount));
             Assertions.assertNotNull(receipt);
             Assertions.assertEquals(receipt.getFrom(), accounts.get(0));
             Assertions.assertEquals(receipt.getTo(), accounts.get(1));
@@ -176,6 +204,14 @@ class Web3JClientTest implements Service {
     void getBalanceShouldWork() {
         List<String> accounts = ethereumClient.listAccounts();
         String account1 = accounts.get(1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            ethereumClient.withPrivateKey(null);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            ethereumClient.withPrivateKey("");
+        });
+        Assertions.assertEquals(accounts.get(0), ethereumClient.withPrivateKey(ACCOUNT_PRIVATE_KEY).getAddress());
+        //deprecated api
         Assertions.assertThrows(IllegalArgumentException.class, () -> {
             ethereumClient.setCredentials(null);
         });
@@ -200,7 +236,7 @@ class Web3JClientTest implements Service {
         Web3j web3j = web3jClient.getWeb3j();
         BigInteger gasLimit = BigInteger.valueOf(GAS_LIMIT);
         BigInteger gasPrice = BigInteger.valueOf(GAS_PRICE);
-        TransactionManager transactionManager = web3jClient.createNewTransactionManager(CHAIN_ID);
+        TransactionManager transactionManager = web3jClient.withPrivateKey(ACCOUNT_PRIVATE_KEY).createNewTransactionManager(CHAIN_ID);
         ContractGasProvider gasProvider = web3jClient.createContractGasProvider(gasPrice, gasLimit, null, null);
         Assertions.assertNotNull(gasProvider.getGasPrice(null));
         Assertions.assertNotNull(gasProvider.getGasLimit(null));
@@ -220,8 +256,12 @@ class Web3JClientTest implements Service {
         Assertions.assertNotNull(dataRegistryContract);
         Assertions.assertNotNull(contractAddress);
         Assertions.assertTrue(contractAddress.length() > 0);
-        contract = new EthSmartContract(DataRegistry.class.getName(), CONTRACT_DEFAULT_NAME, contractAddress, dataRegistryContract.getTransactionReceipt().get().toString(), localBlockChain, 0L);
+        contract = new EthSmartContract(DataRegistry.class.getName(), CONTRACT_DEFAULT_NAME, contractAddress, dataRegistryContract.getTransactionReceipt().get().getTransactionHash(), localBlockChain, 0L);
         Assertions.assertNotNull(contract);
+        //former transactionReceipt field is kept as an alias of the deployment transaction hash
+        Assertions.assertEquals(contract.getTransactionHash(), contract.getTransactionReceipt());
+        //deployment receipt is read back by hash, as services do when the contract is saved
+        Assertions.assertTrue(contractAddress.equalsIgnoreCase(web3jClient.getTransactionReceipt(contract.getTransactionHash()).getContractAddress()));
     }
 
     /**
@@ -232,7 +272,7 @@ class Web3JClientTest implements Service {
     void loadContractShouldWork() {
         EthWeb3JClient web3jClient = (EthWeb3JClient) ethereumClient;
         Web3j web3j = web3jClient.getWeb3j();
-        TransactionManager transactionManager = web3jClient.createNewTransactionManager(CHAIN_ID);
+        TransactionManager transactionManager = web3jClient.withPrivateKey(ACCOUNT_PRIVATE_KEY).createNewTransactionManager(CHAIN_ID);
         BigInteger gasLimit = BigInteger.valueOf(GAS_LIMIT);
         BigInteger gasPrice = BigInteger.valueOf(GAS_PRICE);
         ContractGasProvider gasProvider = web3jClient.createContractGasProvider(gasPrice, gasLimit, null, null);
@@ -240,6 +280,39 @@ class Web3JClientTest implements Service {
         Assertions.assertNotNull(dataRegistryContract);
     }
 
+    /**
+     * Reads accounts and balances without blocking the caller
+     */
+    @Test
+    @Order(7)
+    void asyncReadsShouldWork() {
+        List<String> accounts = ethereumClient.listAccountsAsync().join();
+        Assertions.assertFalse(accounts.isEmpty());
+        BigInteger balance = ethereumClient.getBalanceOfAsync(accounts.get(1)).join();
+        Assertions.assertEquals(ethereumClient.getBalanceOf(accounts.get(1)), balance);
+    }
+
+    /**
+     * Transfers ether asynchronously, the future completes with the mined receipt
+     */
+    @Test
+    @Order(8)
+    void transferFundsAsyncShouldWork() {
+        List<String> accounts = ethereumClient.listAccounts();
+        EthSigner signer = ethereumClient.withPrivateKey(ACCOUNT_PRIVATE_KEY);
+        BigInteger oldBalance = ethereumClient.getBalanceOf(accounts.get(2));
+        EthTransactionReceipt receipt = signer.transferEtherAsync(accounts.get(2), BigDecimal.ONE).join();
+        Assertions.assertNotNull(receipt.getTransactionHash());
+        Assertions.assertEquals(accounts.get(0), receipt.getFrom());
+        Assertions.assertEquals(accounts.get(2), receipt.getTo());
+        Assertions.assertEquals(oldBalance.add(BigInteger.TEN.pow(18)), ethereumClient.getBalanceOf(accounts.get(2)));
+        //deprecated api, transferring from the default signer
+        ethereumClient.setCredentials(ACCOUNT_PRIVATE_KEY);
+        EthTransactionReceipt legacyReceipt = ethereumClient.transferEtherAsync(accounts.get(2), BigDecimal.ONE).join();
+        Assertions.assertEquals(accounts.get(0), legacyReceipt.getFrom());
+        Assertions.assertEquals(oldBalance.add(BigInteger.TEN.pow(18).multiply(BigInteger.TWO)), ethereumClient.getBalanceOf(accounts.get(2)));
+    }
+
     /**
      * Loads the contract and invoke a transaction on it
      */
@@ -250,7 +323,7 @@ class Web3JClientTest implements Service {
         Web3j web3j = web3jClient.getWeb3j();
         BigInteger gasLimit = BigInteger.valueOf(GAS_LIMIT);
         BigInteger gasPrice = BigInteger.valueOf(GAS_PRICE);
-        TransactionManager transactionManager = web3jClient.createNewTransactionManager(CHAIN_ID);
+        TransactionManager transactionManager = web3jClient.withPrivateKey(ACCOUNT_PRIVATE_KEY).createNewTransactionManager(CHAIN_ID);
         ContractGasProvider gasProvider = web3jClient.createContractGasProvider(gasPrice, gasLimit, null, null);
         TransactionReceipt receipt = null;
         try {